@@ -0,0 +1,382 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * This class define the immutable layout of a DNA chip: the identifiers and
+ * the locations of the spots with an index of the locations. All the
+ * BioAssays of the same print share the same layout, so identifiers and
+ * locations are stored only once and the comparison of the identifiers and
+ * the locations of two BioAssays sharing a layout is a reference comparison.
+ * The arrays of a layout must never be modified. The registry of the shared
+ * layouts only holds weak references, so a shared layout and the dictionary of
+ * its identifiers are forgotten when no more BioAssay use it.
+ * @author Laurent Jourdren
+ */
+public final class ArrayLayout implements Serializable {
+
+  /** serial version for serialization. */
+  static final long serialVersionUID = -4733213896806592434L;
+
+  private static final Map<ArrayLayout, WeakReference<ArrayLayout>> REGISTRY =
+      new WeakHashMap<ArrayLayout, WeakReference<ArrayLayout>>();
+
+  private final int[] idCodes;
+  private final StringDictionary dictionary;
+  private final int[] locations;
+  private final int hashCode;
+
+  // Open addressing hash table for the location index, values are index + 1
+  private final int[] indexKeys;
+  private final int[] indexValues;
+  private final int indexMask;
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the number of spots of the layout.
+   * @return the number of spots of the layout
+   */
+  public int size() {
+
+    return this.locations.length;
+  }
+
+  /**
+   * Get the codes of the identifiers. The returned array must not be modified.
+   * @return the codes of the identifiers
+   */
+  public int[] getIdCodes() {
+
+    return this.idCodes;
+  }
+
+  /**
+   * Get the dictionary of the identifiers.
+   * @return the dictionary of the identifiers
+   */
+  public StringDictionary getDictionary() {
+
+    return this.dictionary;
+  }
+
+  /**
+   * Get the encoded locations. The returned array must not be modified.
+   * @return the encoded locations
+   */
+  public int[] getLocations() {
+
+    return this.locations;
+  }
+
+  /**
+   * Get the identifiers of the spots.
+   * @return a new array with the identifiers of the spots
+   */
+  public String[] getIds() {
+
+    return this.dictionary.decode(this.idCodes);
+  }
+
+  /**
+   * Return the array index of a location.
+   * @param location The location
+   * @return The index of the location or -1 if the location is not in the
+   *         layout
+   */
+  public int getIndexFromALocation(final int location) {
+
+    final int[] keys = this.indexKeys;
+    final int[] values = this.indexValues;
+    final int mask = this.indexMask;
+    int pos = mix(location) & mask;
+
+    while (true) {
+
+      final int value = values[pos];
+
+      if (value == 0)
+        return -1;
+      if (keys[pos] == location)
+        return value - 1;
+
+      pos = (pos + 1) & mask;
+    }
+  }
+
+  //
+  // Other methods
+  //
+
+  /**
+   * Test if the layout has the same identifiers and locations than arrays.
+   * @param ids identifiers to test
+   * @param locs locations to test
+   * @return true if the identifiers and the locations are the same
+   */
+  public boolean equalsIdsAndLocations(final String[] ids, final int[] locs) {
+
+    if (ids == null || locs == null || !Arrays.equals(this.locations, locs)
+        || ids.length != this.idCodes.length)
+      return false;
+
+    for (int i = 0; i < ids.length; i++) {
+
+      final String id = ids[i];
+      final int code = this.idCodes[i];
+
+      if (id == null) {
+        if (code != StringDictionary.NULL_CODE)
+          return false;
+      } else if (code == StringDictionary.NULL_CODE
+          || !id.equals(this.dictionary.decode(code)))
+        return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Get a layout from the registry of shared layouts. If no layout with the
+   * same content is registered, a new layout is created and registered.
+   * @param ids identifiers of the spots
+   * @param locations encoded locations of the spots
+   * @param dictionary dictionary used to encode identifiers of a new layout.
+   *          If null a new dictionary is created for the layout
+   * @return a shared layout
+   */
+  public static ArrayLayout getSharedLayout(final String[] ids,
+      final int[] locations, final StringDictionary dictionary) {
+
+    if (ids == null || locations == null)
+      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
+          "identifiers or locations");
+
+    // Search the registry before encoding the identifiers
+    final Object key = new Key(ids, locations);
+    ArrayLayout shared = getRegisteredLayout(key);
+
+    if (shared != null)
+      return shared;
+
+    final StringDictionary dict =
+        dictionary == null ? new StringDictionary() : dictionary;
+
+    final ArrayLayout layout =
+        new ArrayLayout(dict.encode(ids), dict, locations);
+
+    synchronized (REGISTRY) {
+
+      // Another thread may have registered the same layout
+      shared = getRegisteredLayout(key);
+
+      if (shared != null)
+        return shared;
+
+      REGISTRY.put(layout, new WeakReference<ArrayLayout>(layout));
+    }
+
+    return layout;
+  }
+
+  /**
+   * Get a layout of the registry.
+   * @param key key of the layout
+   * @return the registered layout or null if no layout is registered
+   */
+  private static ArrayLayout getRegisteredLayout(final Object key) {
+
+    synchronized (REGISTRY) {
+
+      final WeakReference<ArrayLayout> ref = REGISTRY.get(key);
+
+      return ref == null ? null : ref.get();
+    }
+  }
+
+  /**
+   * Get the hashcode of the content of a layout.
+   * @param ids identifiers of the spots
+   * @param locations encoded locations of the spots
+   * @return the hashcode of the content of the layout
+   */
+  private static int hashCode(final String[] ids, final int[] locations) {
+
+    return 31 * Arrays.hashCode(ids) + Arrays.hashCode(locations);
+  }
+
+  /**
+   * Scramble the bits of a location for the hash table.
+   * @param location Location to scramble
+   * @return the hash of the location
+   */
+  private static int mix(final int location) {
+
+    final int h = location * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Get the size of the hash table for an number of elements.
+   * @param n number of elements
+   * @return a power of 2 at least two times greater than n
+   */
+  private static int tableSize(final int n) {
+
+    int result = 2;
+    while (result < 2 * n)
+      result <<= 1;
+
+    return result;
+  }
+
+  /**
+   * Get the hashcode of the layout.
+   * @return the hashcode of the layout
+   */
+  public int hashCode() {
+
+    return this.hashCode;
+  }
+
+  /**
+   * Test if two layouts have the same content.
+   * @param o Object to test
+   * @return true if the two layouts have the same content
+   */
+  public boolean equals(final Object o) {
+
+    if (o == this)
+      return true;
+
+    if (!(o instanceof ArrayLayout))
+      return false;
+
+    final ArrayLayout l = (ArrayLayout) o;
+
+    if (this.hashCode != l.hashCode)
+      return false;
+
+    // Two layouts may encode the same identifiers with different dictionaries
+    if (this.dictionary == l.dictionary)
+      return Arrays.equals(this.idCodes, l.idCodes)
+          && Arrays.equals(this.locations, l.locations);
+
+    return equalsIdsAndLocations(l.getIds(), l.locations);
+  }
+
+  //
+  // Internal class
+  //
+
+  /**
+   * This class define the key used to search a layout in the registry without
+   * encoding the identifiers. A key is equal to the layouts with the same
+   * identifiers and locations.
+   */
+  private static final class Key {
+
+    private final String[] ids;
+    private final int[] locations;
+    private final int hashCode;
+
+    public int hashCode() {
+
+      return this.hashCode;
+    }
+
+    public boolean equals(final Object o) {
+
+      if (!(o instanceof ArrayLayout))
+        return false;
+
+      final ArrayLayout l = (ArrayLayout) o;
+
+      return this.hashCode == l.hashCode
+          && l.equalsIdsAndLocations(this.ids, this.locations);
+    }
+
+    Key(final String[] ids, final int[] locations) {
+
+      this.ids = ids;
+      this.locations = locations;
+      this.hashCode = ArrayLayout.hashCode(ids, locations);
+    }
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Public constructor. The arrays are not copied and must not be modified
+   * after the creation of the layout.
+   * @param idCodes codes of the identifiers
+   * @param dictionary dictionary of the identifiers
+   * @param locations encoded locations
+   */
+  public ArrayLayout(final int[] idCodes, final StringDictionary dictionary,
+      final int[] locations) {
+
+    if (idCodes == null || dictionary == null || locations == null)
+      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
+          "identifiers, dictionary or locations");
+
+    if (idCodes.length != locations.length)
+      throw new BioAssayRuntimeException(
+          BioAssayRuntimeException.INVALID_ARGUMENT,
+          "identifiers and locations have not the same length");
+
+    this.idCodes = idCodes;
+    this.dictionary = dictionary;
+    this.locations = locations;
+    this.hashCode = hashCode(dictionary.decode(idCodes), locations);
+
+    final int tableSize = tableSize(locations.length);
+    this.indexMask = tableSize - 1;
+    this.indexKeys = new int[tableSize];
+    this.indexValues = new int[tableSize];
+
+    for (int i = 0; i < locations.length; i++) {
+
+      final int location = locations[i];
+      int pos = mix(location) & this.indexMask;
+
+      // Like in a HashMap, the last index of a location wins
+      while (this.indexValues[pos] != 0 && this.indexKeys[pos] != location)
+        pos = (pos + 1) & this.indexMask;
+
+      this.indexKeys[pos] = location;
+      this.indexValues[pos] = i + 1;
+    }
+  }
+
+}
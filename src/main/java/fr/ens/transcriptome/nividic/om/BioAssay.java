@@ -229,6 +229,13 @@ public interface BioAssay extends BioAssayBase, BiologicalObject {
   void getLocations(int[] metaRow, int[] metaColumn, int[] row, int[] column)
       throws BioAssayRuntimeException;
 
+  /**
+   * Get the layout shared with other BioAssays.
+   * @return the layout of the BioAssay or null if the BioAssay has no shared
+   *         layout
+   */
+  ArrayLayout getArrayLayout();
+
   //
   // Setters
   //
@@ -327,6 +334,17 @@ public interface BioAssay extends BioAssayBase, BiologicalObject {
   boolean setLocations(int[] metaRow, int[] metaColumn, int[] row, int[] column)
       throws BioAssayRuntimeException;
 
+  /**
+   * Attach a shared layout to the BioAssay. The identifiers and the locations
+   * of the BioAssay are replaced by the identifiers and the locations of the
+   * layout. The layout is detached when the identifiers or the locations are
+   * modified.
+   * @param layout The layout to attach. If null, the current layout is
+   *          detached
+   * @throws BioAssayRuntimeException if the size of the layout is wrong
+   */
+  void setArrayLayout(ArrayLayout layout) throws BioAssayRuntimeException;
+
   //
   // Others methods
   //
@@ -382,6 +400,12 @@ public interface BioAssay extends BioAssayBase, BiologicalObject {
    */
   SpotIterator iterator();
 
+  /**
+   * Get a cursor over all the spots.
+   * @return A new SpotCursor Object.
+   */
+  SpotCursor cursor();
+
   /**
    * Get the spot at the index.
    * @param index The index of the spot
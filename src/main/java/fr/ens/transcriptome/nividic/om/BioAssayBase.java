@@ -61,12 +61,27 @@ public interface BioAssayBase {
   // Getters
   //
   /**
-   * Return an integer array with all data from a field.
+   * Return an integer array with all data from a field. The values of a
+   * compact field are decoded in a new array at each call, so a modification
+   * of this array is not written in the BioAssay: use
+   * setDataFieldIntValue() or setDataFieldInt() to write values.
    * @param field The field to get
    * @return A vector containing the field's data
    */
   int[] getDataFieldInt(String field);
 
+  /**
+   * Return the value of a spot in an integer field. Unlike getDataFieldInt(),
+   * the compact fields are not decoded.
+   * @param field The field to get
+   * @param index The index of the spot
+   * @return the value of the spot
+   * @throws BioAssayRuntimeException if the field doesn't exist or if the
+   *           index is out of range
+   */
+  int getDataFieldIntValue(String field, int index)
+      throws BioAssayRuntimeException;
+
   /**
    * Return a doubel array with all data from a field.
    * @param field The field to get
@@ -75,12 +90,66 @@ public interface BioAssayBase {
   double[] getDataFieldDouble(String field);
 
   /**
-   * Return a string array with all data from a field.
+   * Return a string array with all data from a field. The values of a
+   * dictionary-encoded field are decoded in a new array at each call, so a
+   * modification of this array is not written in the BioAssay: use
+   * setDataFieldStringValue() or setDataFieldString() to write values.
    * @param field The field to get
    * @return A vector containing the field's data
    */
   String[] getDataFieldString(String field);
 
+  /**
+   * Return the value of a spot in a string field. Unlike getDataFieldString(),
+   * the dictionary-encoded fields are not decoded.
+   * @param field The field to get
+   * @param index The index of the spot
+   * @return the value of the spot
+   * @throws BioAssayRuntimeException if the field doesn't exist or if the
+   *           index is out of range
+   */
+  String getDataFieldStringValue(String field, int index)
+      throws BioAssayRuntimeException;
+
+  /**
+   * Return the codes of a dictionary-encoded string field. The returned array
+   * may be shared with other BioAssays and must not be modified.
+   * @param field The field to get
+   * @return An array with the codes of the field or null if the field is not a
+   *         dictionary-encoded string field
+   */
+  int[] getDataFieldStringCodes(String field);
+
+  /**
+   * Return the dictionary of a dictionary-encoded string field.
+   * @param field The field to get
+   * @return the dictionary of the field or null if the field is not a
+   *         dictionary-encoded string field
+   */
+  StringDictionary getDataFieldStringDictionary(String field);
+
+  /**
+   * Test if a string field is dictionary-encoded.
+   * @param field The fieldname
+   * @return <b>true </b> if the field is a dictionary-encoded string field
+   */
+  boolean isDataFieldStringEncoded(String field);
+
+  /**
+   * Return the compact values of a compact integer field.
+   * @param field The field to get
+   * @return the compact values of the field or null if the field is not a
+   *         compact integer field
+   */
+  CompactIntArray getDataFieldCompactInt(String field);
+
+  /**
+   * Test if an integer field is stored in a compact array.
+   * @param field The fieldname
+   * @return <b>true </b> if the field is a compact integer field
+   */
+  boolean isDataFieldIntCompact(String field);
+
   /**
    * Return a array containing all the fields of the object.
    * @return A VectorString with all the fieldnames
@@ -149,6 +218,72 @@ public interface BioAssayBase {
   void setDataFieldString(String field, String[] value)
       throws BioAssayRuntimeException;
 
+  /**
+   * Set the value of a spot in an integer field. A compact field is replaced
+   * by a decoded array on the first write.
+   * @param field The field to be set
+   * @param index The index of the spot
+   * @param value The value to set
+   * @throws BioAssayRuntimeException if the field doesn't exist or if the
+   *           index is out of range
+   */
+  void setDataFieldIntValue(String field, int index, int value)
+      throws BioAssayRuntimeException;
+
+  /**
+   * Set the value of a spot in a string field. A dictionary-encoded field is
+   * replaced by a decoded array on the first write.
+   * @param field The field to be set
+   * @param index The index of the spot
+   * @param value The value to set
+   * @throws BioAssayRuntimeException if the field doesn't exist or if the
+   *           index is out of range
+   */
+  void setDataFieldStringValue(String field, int index, String value)
+      throws BioAssayRuntimeException;
+
+  /**
+   * Set the data for a string field as codes of a dictionary. The strings of
+   * the field are only decoded when getDataFieldString() is called.
+   * @param field The field to be set
+   * @param codes The codes of the field data
+   * @param dictionary The dictionary of the codes
+   * @throws BioAssayRuntimeException if a value is null or if value size if
+   *           wrong
+   */
+  void setDataFieldEncodedString(String field, int[] codes,
+      StringDictionary dictionary) throws BioAssayRuntimeException;
+
+  /**
+   * Encode an existing string field with a dictionary.
+   * @param field The field to encode
+   * @param dictionary The dictionary to use
+   * @throws BioAssayRuntimeException if the field is not a string field or if
+   *           the dictionary is null
+   */
+  void encodeDataFieldString(String field, StringDictionary dictionary)
+      throws BioAssayRuntimeException;
+
+  /**
+   * Set the data for an integer field as a compact array. The integers of the
+   * field are only decoded when getDataFieldInt() is called. The compact array
+   * is never modified: a write to a spot of the field replaces the field by a
+   * decoded array.
+   * @param field The field to be set
+   * @param values The compact values of the field
+   * @throws BioAssayRuntimeException if a value is null or if value size if
+   *           wrong
+   */
+  void setDataFieldCompactInt(String field, CompactIntArray values)
+      throws BioAssayRuntimeException;
+
+  /**
+   * Store an existing integer field in a compact array.
+   * @param field The field to compact
+   * @throws BioAssayRuntimeException if the field is not an integer field
+   */
+  void compactDataFieldInt(String field) throws BioAssayRuntimeException;
+
   /**
    * Set locations for the BioAssay Object.
    * @param locs The locations
@@ -295,34 +295,40 @@ public class BioAssayConverter {
     final int newSize = maxRow * maxColumn;
     final String[] fields = ba.getFields();
 
+    // The arrays of the fields are fetched once, compact and encoded fields
+    // are decoded in a new array at each call of the getters
+    final int[] types = new int[fields.length];
+    final double[][] inDoubles = new double[fields.length][];
+    final int[][] inInts = new int[fields.length][];
+    final String[][] inStrings = new String[fields.length][];
+    final double[][] outDoubles = new double[fields.length][];
+    final int[][] outInts = new int[fields.length][];
+    final String[][] outStrings = new String[fields.length][];
+
     // Resize all the fields
-    for (int i = 0; i < fields.length; i++) {
+    for (int k = 0; k < fields.length; k++) {
+
+      final String field = fields[k];
+      types[k] = ba.getFieldType(field);
 
-      final String field = fields[i];
-      switch (ba.getFieldType(fields[i])) {
+      switch (types[k]) {
 
       case BioAssayBase.DATATYPE_DOUBLE:
 
-        final double[] newArrayDouble = new double[newSize];
-        // System.arraycopy(ba.getDataFieldDouble(field), 0, newArrayDouble, 0,
-        // oldSize);
-        out.setDataFieldDouble(field, newArrayDouble);
+        inDoubles[k] = ba.getDataFieldDouble(field);
+        outDoubles[k] = new double[newSize];
         break;
 
       case BioAssayBase.DATATYPE_INTEGER:
 
-        final int[] newArrayInteger = new int[newSize];
-        // System.arraycopy(ba.getDataFieldInt(field), 0, newArrayInteger, 0,
-        // oldSize);
-        out.setDataFieldInt(field, newArrayInteger);
+        inInts[k] = ba.getDataFieldInt(field);
+        outInts[k] = new int[newSize];
         break;
 
       case BioAssayBase.DATATYPE_STRING:
 
-        final String[] newArrayString = new String[newSize];
-        // System.arraycopy(ba.getDataFieldString(field), 0, newArrayString, 0,
-        // oldSize);
-        out.setDataFieldString(field, newArrayString);
+        inStrings[k] = ba.getDataFieldString(field);
+        outStrings[k] = new String[newSize];
         break;
 
       default:
@@ -338,9 +344,10 @@ public class BioAssayConverter {
       for (int j = 1; j <= maxColumn; j++) {
 
         final String key = j + "_" + i;
+        final Integer index = translatedSpotsLocations.get(key);
 
         // Test if the spot doesn't exist
-        if (!translatedSpotsLocations.containsKey(key)) {
+        if (index == null) {
 
           for (int k = 0; k < fields.length; k++) {
 
@@ -382,18 +389,18 @@ public class BioAssayConverter {
               intValue = SPOT_DIAMETER;
             }
 
-            switch (out.getFieldType(fields[k])) {
+            switch (types[k]) {
 
             case BioAssayBase.DATATYPE_DOUBLE:
-              out.getDataFieldDouble(field)[count] = doubleValue;
+              outDoubles[k][count] = doubleValue;
               break;
 
             case BioAssayBase.DATATYPE_INTEGER:
-              out.getDataFieldInt(field)[count] = intValue;
+              outInts[k][count] = intValue;
               break;
 
             case BioAssayBase.DATATYPE_STRING:
-              out.getDataFieldString(field)[count] = stringValue;
+              outStrings[k][count] = stringValue;
               break;
 
             default:
@@ -404,12 +411,12 @@ public class BioAssayConverter {
           for (int k = 0; k < fields.length; k++) {
 
             final String field = fields[k];
-            switch (out.getFieldType(fields[k])) {
+            final int spot = index.intValue();
+
+            switch (types[k]) {
 
             case BioAssayBase.DATATYPE_DOUBLE:
-              out.getDataFieldDouble(field)[count] =
-                  ba.getDataFieldDouble(field)[translatedSpotsLocations
-                      .get(key)];
+              outDoubles[k][count] = inDoubles[k][spot];
               break;
 
             case BioAssayBase.DATATYPE_INTEGER:
@@ -421,25 +428,22 @@ public class BioAssayConverter {
                 loc = BioAssayUtils.setMetaColumn(loc, 1);
                 loc = BioAssayUtils.setRow(loc, i);
                 loc = BioAssayUtils.setColumn(loc, j);
-                out.getDataFieldInt(field)[count] = loc;
+                outInts[k][count] = loc;
               } else if ("X".equals(field)) {
 
                 // The X position
-                out.getDataFieldInt(field)[count] = j * 100;
+                outInts[k][count] = j * 100;
 
               } else if ("Y".equals(field)) {
 
                 // The Y position
-                out.getDataFieldInt(field)[count] = i * 100;
+                outInts[k][count] = i * 100;
               } else
-                out.getDataFieldInt(field)[count] =
-                    ba.getDataFieldInt(field)[translatedSpotsLocations.get(key)];
+                outInts[k][count] = inInts[k][spot];
               break;
 
             case BioAssayBase.DATATYPE_STRING:
-              out.getDataFieldString(field)[count] =
-                  ba.getDataFieldString(field)[translatedSpotsLocations
-                      .get(key)];
+              outStrings[k][count] = inStrings[k][spot];
               break;
 
             default:
@@ -451,6 +455,26 @@ public class BioAssayConverter {
         count++;
       }
 
+    // The fields are set once filled, so the index of the locations is right
+    for (int k = 0; k < fields.length; k++)
+      switch (types[k]) {
+
+      case BioAssayBase.DATATYPE_DOUBLE:
+        out.setDataFieldDouble(fields[k], outDoubles[k]);
+        break;
+
+      case BioAssayBase.DATATYPE_INTEGER:
+        out.setDataFieldInt(fields[k], outInts[k]);
+        break;
+
+      case BioAssayBase.DATATYPE_STRING:
+        out.setDataFieldString(fields[k], outStrings[k]);
+        break;
+
+      default:
+        break;
+      }
+
     return out;
   }
 
@@ -30,8 +30,8 @@ import fr.ens.transcriptome.nividic.om.HistoryEntry.HistoryActionResult;
 import fr.ens.transcriptome.nividic.om.HistoryEntry.HistoryActionType;
 import fr.ens.transcriptome.nividic.om.filters.BioAssayMerger;
 import fr.ens.transcriptome.nividic.om.translators.Translator;
-import fr.ens.transcriptome.nividic.util.MathUtils;
 import fr.ens.transcriptome.nividic.util.NividicUtils;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
 
 /**
  * Utility class for handling BioAssayObject
@@ -68,6 +68,10 @@ public final class BioAssayUtils {
   private static final int MAX_ROW = 1024;
   /** Max value for column. */
   private static final int MAX_COLUMN = 1024;
+  /** Inverse of log(2), used to compute log2 values. */
+  private static final double INV_LN2 = 1.0 / Math.log(2.0);
+  /** Half of the inverse of log(2), used to compute A values. */
+  private static final double HALF_INV_LN2 = 0.5 / Math.log(2.0);
 
   /** Constant for GPR BioAssay type. */
   public static final int GPR_BIOASSAY_TYPE = 1;
@@ -110,6 +114,7 @@ public final class BioAssayUtils {
     BioAssay result = BioAssayFactory.createBioAssay();
 
     String[] fields = bioAssay.getFields();
+    int[] rowsToKeep = null;
 
     for (int i = 0; i < fields.length; i++) {
 
@@ -117,6 +122,22 @@ public final class BioAssayUtils {
 
       case BioAssay.DATATYPE_INTEGER:
 
+        if (bioAssay.isDataFieldIntCompact(fields[i])) {
+
+          if (rowsToKeep == null) {
+            rowsToKeep = new int[newSize];
+            int count = 0;
+            for (int j = 0; j < size; j++)
+              if (!mapFieldsToRemove.containsKey("" + j))
+                rowsToKeep[count++] = j;
+          }
+
+          result.setDataFieldCompactInt(fields[i], bioAssay
+              .getDataFieldCompactInt(fields[i]).select(rowsToKeep));
+
+          break;
+        }
+
         final int[] dataInt = bioAssay.getDataFieldInt(fields[i]);
         final int[] newDataInt = new int[newSize];
         int count = 0;
@@ -145,6 +166,22 @@ public final class BioAssayUtils {
 
       case BioAssay.DATATYPE_STRING:
 
+        if (bioAssay.isDataFieldStringEncoded(fields[i])) {
+
+          final int[] dataCodes = bioAssay.getDataFieldStringCodes(fields[i]);
+          final int[] newDataCodes = new int[newSize];
+          count = 0;
+
+          for (int j = 0; j < dataCodes.length; j++)
+            if (!mapFieldsToRemove.containsKey("" + j))
+              newDataCodes[count++] = dataCodes[j];
+
+          result.setDataFieldEncodedString(fields[i], newDataCodes, bioAssay
+              .getDataFieldStringDictionary(fields[i]));
+
+          break;
+        }
+
         final String[] dataString = bioAssay.getDataFieldString(fields[i]);
         final String[] newDataString = new String[newSize];
         count = 0;
@@ -394,10 +431,7 @@ public final class BioAssayUtils {
     double[] m = new double[size];
     double[] a = new double[size];
 
-    for (int i = 0; i < green.length; i++) {
-      a[i] = calcA(red[i], green[i]);
-      m[i] = calcM(red[i], green[i]);
-    }
+    calcMA(red, green, m, a);
 
     bioAssay.setAs(a);
     bioAssay.setMs(m);
@@ -409,6 +443,61 @@ public final class BioAssayUtils {
     bioAssay.getHistory().add(entry);
   }
 
+  /**
+   * Calculate M and A values from intensities in arrays supplied by the
+   * caller. Only two logarithms are computed by spot. A null intensity gives
+   * an infinite M and A values, a negative intensity gives NaN values. For
+   * large arrays the computation is done in chunks on the shared thread pool.
+   * @param reds red intensities
+   * @param greens green intensities
+   * @param ms array where M values will be written
+   * @param as array where A values will be written
+   */
+  public static void calcMA(final int[] reds, final int[] greens,
+      final double[] ms, final double[] as) {
+
+    if (reds == null || greens == null || ms == null || as == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "one or more array is null");
+
+    final int size = reds.length;
+
+    if (greens.length != size || ms.length != size || as.length != size)
+      throw new NividicRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT,
+          "arrays have not the same length");
+
+    ParallelUtils.forEachChunk(size, ParallelUtils.DEFAULT_MIN_CHUNK_SIZE,
+        new ParallelUtils.RangeTask() {
+
+          public void run(final int from, final int to) {
+            calcMA(reds, greens, ms, as, from, to);
+          }
+        });
+  }
+
+  /**
+   * Calculate M and A values on a range of intensities.
+   * @param reds red intensities
+   * @param greens green intensities
+   * @param ms array where M values will be written
+   * @param as array where A values will be written
+   * @param from first index of the range (inclusive)
+   * @param to last index of the range (exclusive)
+   */
+  private static void calcMA(final int[] reds, final int[] greens,
+      final double[] ms, final double[] as, final int from, final int to) {
+
+    for (int i = from; i < to; i++) {
+
+      final double logRed = Math.log(reds[i]);
+      final double logGreen = Math.log(greens[i]);
+
+      ms[i] = (logRed - logGreen) * INV_LN2;
+      as[i] = (logRed + logGreen) * HALF_INV_LN2;
+    }
+  }
+
   /**
    * Swap M values.
    * @param bioAssay BioAssay object to process
@@ -425,9 +514,7 @@ public final class BioAssayUtils {
 
     double[] ms = bioAssay.getMs();
 
-    for (int i = 0; i < ms.length; i++) {
-      ms[i] = -ms[i];
-    }
+    swap(ms);
 
     bioAssay.setMs(ms);
 
@@ -438,6 +525,27 @@ public final class BioAssayUtils {
     bioAssay.getHistory().add(entry);
   }
 
+  /**
+   * Swap M values in place.
+   * @param ms M values to swap
+   */
+  public static void swap(final double[] ms) {
+
+    if (ms == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "ms");
+
+    ParallelUtils.forEachChunk(ms.length,
+        ParallelUtils.DEFAULT_MIN_CHUNK_SIZE, new ParallelUtils.RangeTask() {
+
+          public void run(final int from, final int to) {
+
+            for (int i = from; i < to; i++)
+              ms[i] = -ms[i];
+          }
+        });
+  }
+
   /**
    * Calculate ratio value for bioassay object
    * @param bioAssay object which we want calculate the ratio
@@ -459,9 +567,9 @@ public final class BioAssayUtils {
 
     double[] ratio = new double[size];
 
-    for (int i = 0; i < green.length; i++) {
-      ratio[i] = (double) red[i] / (double) green[i];
-    }
+    calcRatio(red, green, ratio);
+
+    bioAssay.setRatios(ratio);
 
     final HistoryEntry entry =
         new HistoryEntry("calc rotios", HistoryActionType.MODIFY, null,
@@ -470,6 +578,38 @@ public final class BioAssayUtils {
     bioAssay.getHistory().add(entry);
   }
 
+  /**
+   * Calculate ratios from intensities in an array supplied by the caller. For
+   * large arrays the computation is done in chunks on the shared thread pool.
+   * @param reds red intensities
+   * @param greens green intensities
+   * @param ratios array where ratios will be written
+   */
+  public static void calcRatio(final int[] reds, final int[] greens,
+      final double[] ratios) {
+
+    if (reds == null || greens == null || ratios == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "one or more array is null");
+
+    final int size = reds.length;
+
+    if (greens.length != size || ratios.length != size)
+      throw new NividicRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT,
+          "arrays have not the same length");
+
+    ParallelUtils.forEachChunk(size, ParallelUtils.DEFAULT_MIN_CHUNK_SIZE,
+        new ParallelUtils.RangeTask() {
+
+          public void run(final int from, final int to) {
+
+            for (int i = from; i < to; i++)
+              ratios[i] = (double) reds[i] / (double) greens[i];
+          }
+        });
+  }
+
   /**
    * calculate A value from intensity values of a spot
    * @param red value of the spot intensity
@@ -477,7 +617,7 @@ public final class BioAssayUtils {
    * @return the A value
    */
   public static double calcA(final int red, final int green) {
-    return MathUtils.log2(Math.sqrt(green * red));
+    return (Math.log(red) + Math.log(green)) * HALF_INV_LN2;
   }
 
   /**
@@ -487,7 +627,7 @@ public final class BioAssayUtils {
    * @return the M value
    */
   public static double calcM(final int red, final int green) {
-    return MathUtils.log2((double) red / (double) green);
+    return (Math.log(red) - Math.log(green)) * INV_LN2;
   }
 
   /**
@@ -556,11 +696,30 @@ public final class BioAssayUtils {
     if (a == null || b == null)
       return false;
 
-    String[] idsA = a.getIds();
-    String[] idsB = b.getIds();
+    // BioAssays that share a layout have the same identifiers and locations
+    if (a.getArrayLayout() != null && a.getArrayLayout() == b.getArrayLayout())
+      return true;
+
+    final String idField = BioAssay.FIELD_NAME_ID;
+    final StringDictionary dictionaryA =
+        a.getDataFieldStringDictionary(idField);
 
-    if (!NividicUtils.stringsEquals(idsA, idsB))
-      return false;
+    if (dictionaryA != null
+        && dictionaryA == b.getDataFieldStringDictionary(idField)) {
+
+      // Identifiers encoded with the same dictionary: compare the codes
+      if (!NividicUtils.intsEquals(a.getDataFieldStringCodes(idField), b
+          .getDataFieldStringCodes(idField)))
+        return false;
+
+    } else {
+
+      String[] idsA = a.getIds();
+      String[] idsB = b.getIds();
+
+      if (!NividicUtils.stringsEquals(idsA, idsB))
+        return false;
+    }
 
     int[] locsA = a.getLocations();
     int[] locsB = b.getLocations();
@@ -573,6 +732,12 @@ public final class BioAssayUtils {
 
   private static void addFieldToBioAssay(final BioAssay result, final BioAssay a) {
 
+    addFieldToBioAssay(result, a, true);
+  }
+
+  private static void addFieldToBioAssay(final BioAssay result,
+      final BioAssay a, final boolean layoutFields) {
+
     if (result == null || a == null)
       return;
 
@@ -582,15 +747,27 @@ public final class BioAssayUtils {
 
       final String f = fields[i];
 
+      if (!layoutFields
+          && (BioAssay.FIELD_NAME_ID.equals(f) || BioAssay.FIELD_NAME_LOCATION
+              .equals(f)))
+        continue;
+
       switch (a.getFieldType(f)) {
       case BioAssay.DATATYPE_DOUBLE:
         result.setDataFieldDouble(f, a.getDataFieldDouble(f));
         break;
       case BioAssay.DATATYPE_INTEGER:
-        result.setDataFieldInt(f, a.getDataFieldInt(f));
+        if (a.isDataFieldIntCompact(f))
+          result.setDataFieldCompactInt(f, a.getDataFieldCompactInt(f));
+        else
+          result.setDataFieldInt(f, a.getDataFieldInt(f));
         break;
       case BioAssay.DATATYPE_STRING:
-        result.setDataFieldString(f, a.getDataFieldString(f));
+        if (a.isDataFieldStringEncoded(f))
+          result.setDataFieldEncodedString(f, a.getDataFieldStringCodes(f), a
+              .getDataFieldStringDictionary(f));
+        else
+          result.setDataFieldString(f, a.getDataFieldString(f));
         break;
       default:
         break;
@@ -636,6 +813,11 @@ public final class BioAssayUtils {
 
     addFieldToBioAssay(result, b);
 
+    // Keep the shared layout
+    if (result.getArrayLayout() == null)
+      result.setArrayLayout(a.getArrayLayout() != null ? a.getArrayLayout() : b
+          .getArrayLayout());
+
     final HistoryEntry entry =
         new HistoryEntry("merge bioAssay", HistoryActionType.MODIFY, a
             .getName()
@@ -646,6 +828,39 @@ public final class BioAssayUtils {
     return result;
   }
 
+  /**
+   * Merge the fields of a BioAssay in another BioAssay with the same
+   * identifiers and locations. The identifiers and the locations of the first
+   * BioAssay are kept (and so its shared layout) and the arrays of the fields
+   * are not copied.
+   * @param a BioAssay to modify
+   * @param b BioAssay to merge
+   * @return the first BioAssay
+   */
+  public static BioAssay mergeFields(final BioAssay a, final BioAssay b) {
+
+    if (a == null)
+      return b;
+    if (b == null)
+      return a;
+
+    if (!equalsIdsAndLocations(a, b))
+      throw new BioAssayRuntimeException(
+          "The identifiers and locations are not the same in the two BioAssay objects");
+
+    a.getAnnotation().addProperties(b.getAnnotation());
+    addFieldToBioAssay(a, b, false);
+
+    final HistoryEntry entry =
+        new HistoryEntry("merge bioAssay", HistoryActionType.MODIFY, a
+            .getName()
+            + " " + b.getName(), HistoryActionResult.PASS);
+
+    a.getHistory().add(entry);
+
+    return a;
+  }
+
   /**
    * Merge two bioAssay to a new BioAssay
    * @param a First BioAssay to merge
@@ -761,21 +976,42 @@ public final class BioAssayUtils {
     }
     sb.append("\n");
 
+    // Get the data of the fields only once as they can be decoded on demand
+    final Object[] data = new Object[fields.length];
+
+    for (int j = 0; j < fields.length; j++)
+      switch (bioAssay.getFieldType(fields[j])) {
+      case BioAssayBase.DATATYPE_DOUBLE:
+        data[j] = bioAssay.getDataFieldDouble(fields[j]);
+        break;
+
+      case BioAssayBase.DATATYPE_INTEGER:
+        data[j] = bioAssay.getDataFieldInt(fields[j]);
+        break;
+
+      case BioAssayBase.DATATYPE_STRING:
+        data[j] = bioAssay.getDataFieldString(fields[j]);
+        break;
+
+      default:
+        break;
+      }
+
     for (int i = 0; i < ids.length; i++) {
 
       for (int j = 0; j < fields.length; j++) {
 
         switch (bioAssay.getFieldType(fields[j])) {
         case BioAssayBase.DATATYPE_DOUBLE:
-          sb.append(bioAssay.getDataFieldDouble(fields[j])[i]);
+          sb.append(((double[]) data[j])[i]);
           break;
 
         case BioAssayBase.DATATYPE_INTEGER:
-          sb.append(bioAssay.getDataFieldInt(fields[j])[i]);
+          sb.append(((int[]) data[j])[i]);
           break;
 
         case BioAssayBase.DATATYPE_STRING:
-          sb.append(bioAssay.getDataFieldString(fields[j])[i]);
+          sb.append(((String[]) data[j])[i]);
           break;
 
         default:
@@ -906,6 +1142,9 @@ public final class BioAssayUtils {
 
     }
 
+    // Encoded identifiers are decoded in a new array
+    bioAssay.setIds(ids);
+
     final HistoryEntry entry =
         new HistoryEntry("create unique identifers", HistoryActionType.MODIFY,
             null, HistoryActionResult.PASS);
@@ -949,13 +1188,23 @@ public final class BioAssayUtils {
 
     final int[] locations = bioAssay.getLocations();
 
+    if (locations == null)
+      return;
+
+    // Do not modify locations shared with other BioAssays
+    final int[] newLocations =
+        bioAssay.getArrayLayout() == null ? locations
+            : new int[locations.length];
+
     for (int i = 0; i < locations.length; i++) {
 
       int l = locations[i];
       l = setMetaColumn(l, 1);
-      locations[i] = setMetaRow(l, 1);
+      newLocations[i] = setMetaRow(l, 1);
     }
 
+    bioAssay.setLocations(newLocations);
+
   }
 
   //
@@ -0,0 +1,519 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om;
+
+import java.io.Serializable;
+
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
+
+/**
+ * This class define an immutable array of integers stored with the smallest
+ * width that can hold the range of its values. Values are stored as offsets
+ * from the minimal value, in a byte array if the range of values is lower than
+ * 2^8, in a char array if the range is lower than 2^16 and in an int array
+ * otherwise. The compact integer fields of a BioAssay are decoded in plain
+ * arrays on their first write.
+ * @author Laurent Jourdren
+ */
+public final class CompactIntArray implements Serializable {
+
+  /** Serialization version UID. */
+  static final long serialVersionUID = -6138459813562394311L;
+
+  /** Values are stored in bytes. */
+  public static final int WIDTH_BYTE = 1;
+  /** Values are stored in chars. */
+  public static final int WIDTH_CHAR = 2;
+  /** Values are stored in ints. */
+  public static final int WIDTH_INT = 4;
+
+  private static final int MAX_BYTE_RANGE = 0xFF;
+  private static final int MAX_CHAR_RANGE = 0xFFFF;
+
+  private final int size;
+  private final int base;
+  private final int min;
+  private final int max;
+  private final byte[] bytes;
+  private final char[] chars;
+  private final int[] ints;
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the number of values.
+   * @return the number of values
+   */
+  public int size() {
+
+    return this.size;
+  }
+
+  /**
+   * Get the width in bytes of a stored value.
+   * @return WIDTH_BYTE, WIDTH_CHAR or WIDTH_INT
+   */
+  public int getWidth() {
+
+    if (this.bytes != null)
+      return WIDTH_BYTE;
+    if (this.chars != null)
+      return WIDTH_CHAR;
+
+    return WIDTH_INT;
+  }
+
+  /**
+   * Get the minimal value of the array.
+   * @return the minimal value or 0 if the array is empty
+   */
+  public int getMin() {
+
+    return this.min;
+  }
+
+  /**
+   * Get the maximal value of the array.
+   * @return the maximal value or 0 if the array is empty
+   */
+  public int getMax() {
+
+    return this.max;
+  }
+
+  /**
+   * Get a value.
+   * @param index Index of the value
+   * @return the value
+   */
+  public int get(final int index) {
+
+    if (this.bytes != null)
+      return this.base + (this.bytes[index] & MAX_BYTE_RANGE);
+    if (this.chars != null)
+      return this.base + this.chars[index];
+
+    return this.ints[index];
+  }
+
+  //
+  // Other methods
+  //
+
+  /**
+   * Get the values in a new int array.
+   * @return a new array with the values
+   */
+  public int[] toArray() {
+
+    final int[] result = new int[this.size];
+    toArray(0, this.size, result, 0);
+
+    return result;
+  }
+
+  /**
+   * Copy a range of values in an int array.
+   * @param from first index of the range (inclusive)
+   * @param to last index of the range (exclusive)
+   * @param dest destination array
+   * @param offset index of the first value in the destination array
+   */
+  public void toArray(final int from, final int to, final int[] dest,
+      final int offset) {
+
+    checkRange(from, to);
+
+    if (dest == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "dest");
+
+    if (this.bytes != null) {
+
+      final byte[] values = this.bytes;
+      final int b = this.base;
+      for (int i = from, j = offset; i < to; i++, j++)
+        dest[j] = b + (values[i] & MAX_BYTE_RANGE);
+
+    } else if (this.chars != null) {
+
+      final char[] values = this.chars;
+      final int b = this.base;
+      for (int i = from, j = offset; i < to; i++, j++)
+        dest[j] = b + values[i];
+
+    } else
+      System.arraycopy(this.ints, from, dest, offset, to - from);
+  }
+
+  /**
+   * Count the values in a range of values. The scan is done on the stored
+   * values without decoding them.
+   * @param minValue minimal value (inclusive)
+   * @param maxValue maximal value (inclusive)
+   * @return the number of values v where minValue &lt;= v &lt;= maxValue
+   */
+  public int countInRange(final int minValue, final int maxValue) {
+
+    if (minValue > maxValue || minValue > this.max || maxValue < this.min)
+      return 0;
+
+    if (minValue <= this.min && maxValue >= this.max)
+      return this.size;
+
+    // The bounds are converted once to stored values
+    final int low = Math.max(minValue, this.min) - this.base;
+    final int high = Math.min(maxValue, this.max) - this.base;
+    int count = 0;
+
+    if (this.bytes != null) {
+
+      final byte[] values = this.bytes;
+      for (int i = 0; i < this.size; i++) {
+        final int v = values[i] & MAX_BYTE_RANGE;
+        if (v >= low && v <= high)
+          count++;
+      }
+
+    } else if (this.chars != null) {
+
+      final char[] values = this.chars;
+      for (int i = 0; i < this.size; i++) {
+        final int v = values[i];
+        if (v >= low && v <= high)
+          count++;
+      }
+
+    } else {
+
+      final int[] values = this.ints;
+      for (int i = 0; i < this.size; i++) {
+        final int v = values[i];
+        if (v >= low && v <= high)
+          count++;
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Get the indexes of the values in a range of values. The scan is done on
+   * the stored values without decoding them.
+   * @param minValue minimal value (inclusive)
+   * @param maxValue maximal value (inclusive)
+   * @return an array with the indexes of the values v where minValue &lt;= v
+   *         &lt;= maxValue, in ascending order
+   */
+  public int[] indexesInRange(final int minValue, final int maxValue) {
+
+    final int[] result = new int[countInRange(minValue, maxValue)];
+
+    if (result.length == 0)
+      return result;
+
+    if (result.length == this.size) {
+      for (int i = 0; i < result.length; i++)
+        result[i] = i;
+      return result;
+    }
+
+    final int low = Math.max(minValue, this.min) - this.base;
+    final int high = Math.min(maxValue, this.max) - this.base;
+    int count = 0;
+
+    if (this.bytes != null) {
+
+      final byte[] values = this.bytes;
+      for (int i = 0; i < this.size; i++) {
+        final int v = values[i] & MAX_BYTE_RANGE;
+        if (v >= low && v <= high)
+          result[count++] = i;
+      }
+
+    } else if (this.chars != null) {
+
+      final char[] values = this.chars;
+      for (int i = 0; i < this.size; i++) {
+        final int v = values[i];
+        if (v >= low && v <= high)
+          result[count++] = i;
+      }
+
+    } else {
+
+      final int[] values = this.ints;
+      for (int i = 0; i < this.size; i++) {
+        final int v = values[i];
+        if (v >= low && v <= high)
+          result[count++] = i;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the sum of the values.
+   * @return the sum of the values
+   */
+  public long sum() {
+
+    long sum = 0;
+
+    if (this.bytes != null) {
+
+      final byte[] values = this.bytes;
+      for (int i = 0; i < this.size; i++)
+        sum += values[i] & MAX_BYTE_RANGE;
+
+      return sum + (long) this.base * this.size;
+    }
+
+    if (this.chars != null) {
+
+      final char[] values = this.chars;
+      for (int i = 0; i < this.size; i++)
+        sum += values[i];
+
+      return sum + (long) this.base * this.size;
+    }
+
+    final int[] values = this.ints;
+    for (int i = 0; i < this.size; i++)
+      sum += values[i];
+
+    return sum;
+  }
+
+  /**
+   * Create a new array with the values at some indexes. The values are copied
+   * without decoding them.
+   * @param indexes Indexes of the values to copy
+   * @return a new CompactIntArray
+   */
+  public CompactIntArray select(final int[] indexes) {
+
+    if (indexes == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "indexes");
+
+    final int n = indexes.length;
+
+    if (this.bytes != null) {
+
+      final byte[] values = new byte[n];
+      int lmin = MAX_BYTE_RANGE;
+      int lmax = 0;
+      for (int i = 0; i < n; i++) {
+        final byte v = this.bytes[indexes[i]];
+        values[i] = v;
+        final int iv = v & MAX_BYTE_RANGE;
+        if (iv < lmin)
+          lmin = iv;
+        if (iv > lmax)
+          lmax = iv;
+      }
+
+      return n == 0 ? new CompactIntArray(new int[0]) : new CompactIntArray(n,
+          this.base, this.base + lmin, this.base + lmax, values, null, null);
+    }
+
+    if (this.chars != null) {
+
+      final char[] values = new char[n];
+      int lmin = MAX_CHAR_RANGE;
+      int lmax = 0;
+      for (int i = 0; i < n; i++) {
+        final char v = this.chars[indexes[i]];
+        values[i] = v;
+        if (v < lmin)
+          lmin = v;
+        if (v > lmax)
+          lmax = v;
+      }
+
+      return n == 0 ? new CompactIntArray(new int[0]) : new CompactIntArray(n,
+          this.base, this.base + lmin, this.base + lmax, null, values, null);
+    }
+
+    final int[] values = new int[n];
+    for (int i = 0; i < n; i++)
+      values[i] = this.ints[indexes[i]];
+
+    return new CompactIntArray(values);
+  }
+
+  /**
+   * Check a range of indexes.
+   * @param from first index of the range (inclusive)
+   * @param to last index of the range (exclusive)
+   */
+  private void checkRange(final int from, final int to) {
+
+    if (from < 0 || to > this.size || from > to)
+      throw new NividicRuntimeException(NividicRuntimeException.INVALID_INDEX,
+          "[" + from + ", " + to + "[");
+  }
+
+  /**
+   * Create a CompactIntArray from an array of integers. The width of the
+   * stored values is chosen from the range of the values.
+   * @param values Values of the array
+   * @return a new CompactIntArray
+   */
+  public static CompactIntArray valueOf(final int[] values) {
+
+    if (values == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "values");
+
+    return new CompactIntArray(values);
+  }
+
+  /**
+   * Test if two CompactIntArray have the same values.
+   * @param o Object to test
+   * @return true if the two objects have the same values
+   */
+  public boolean equals(final Object o) {
+
+    if (o == this)
+      return true;
+
+    if (!(o instanceof CompactIntArray))
+      return false;
+
+    final CompactIntArray cia = (CompactIntArray) o;
+
+    if (this.size != cia.size || this.min != cia.min || this.max != cia.max)
+      return false;
+
+    for (int i = 0; i < this.size; i++)
+      if (get(i) != cia.get(i))
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Get the hashcode of the object.
+   * @return the hashcode of the object
+   */
+  public int hashCode() {
+
+    int result = 17;
+
+    for (int i = 0; i < this.size; i++)
+      result = 37 * result + get(i);
+
+    return result;
+  }
+
+  //
+  // Constructors
+  //
+
+  /**
+   * Private constructor.
+   * @param size number of values
+   * @param base value added to the stored values
+   * @param min minimal value
+   * @param max maximal value
+   * @param bytes values stored in bytes
+   * @param chars values stored in chars
+   * @param ints values stored in ints
+   */
+  private CompactIntArray(final int size, final int base, final int min,
+      final int max, final byte[] bytes, final char[] chars, final int[] ints) {
+
+    this.size = size;
+    this.base = base;
+    this.min = min;
+    this.max = max;
+    this.bytes = bytes;
+    this.chars = chars;
+    this.ints = ints;
+  }
+
+  /**
+   * Private constructor.
+   * @param values Values of the array
+   */
+  private CompactIntArray(final int[] values) {
+
+    final int n = values.length;
+
+    int lmin = 0;
+    int lmax = 0;
+
+    if (n > 0) {
+      lmin = values[0];
+      lmax = values[0];
+      for (int i = 1; i < n; i++) {
+        final int v = values[i];
+        if (v < lmin)
+          lmin = v;
+        else if (v > lmax)
+          lmax = v;
+      }
+    }
+
+    this.size = n;
+    this.min = lmin;
+    this.max = lmax;
+
+    // The range is computed as a long to avoid overflows
+    final long range = (long) lmax - (long) lmin;
+
+    if (range <= MAX_BYTE_RANGE) {
+
+      this.base = lmin;
+      this.bytes = new byte[n];
+      this.chars = null;
+      this.ints = null;
+      for (int i = 0; i < n; i++)
+        this.bytes[i] = (byte) (values[i] - lmin);
+
+    } else if (range <= MAX_CHAR_RANGE) {
+
+      this.base = lmin;
+      this.bytes = null;
+      this.chars = new char[n];
+      this.ints = null;
+      for (int i = 0; i < n; i++)
+        this.chars[i] = (char) (values[i] - lmin);
+
+    } else {
+
+      this.base = 0;
+      this.bytes = null;
+      this.chars = null;
+      this.ints = new int[n];
+      System.arraycopy(values, 0, this.ints, 0, n);
+    }
+  }
+
+}
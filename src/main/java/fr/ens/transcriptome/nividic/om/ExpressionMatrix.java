@@ -104,6 +104,12 @@ public interface ExpressionMatrix extends ExpressionMatrixBase,
    */
   void addMatrix(final ExpressionMatrix matrix, boolean overwriteColumns);
 
+  /**
+   * Add many rows in one step. All the values of the new rows are at NA.
+   * @param rowNames Names of the new rows
+   */
+  void addRows(String[] rowNames);
+
   /**
    * Get a dimension.
    * @param dimensionName Name of the dimension to get
@@ -144,6 +144,17 @@ public interface ExpressionMatrixDimension extends ExpressionMatrixSizes,
    */
   double[] getColumnToArray(String columnName);
 
+  /**
+   * Copy the values of a range of rows of a column in an array. The rows are
+   * in the order of getRowNames().
+   * @param columnNumber The index of the column
+   * @param fromRow index of the first row (inclusive)
+   * @param toRow index of the last row (exclusive)
+   * @param values array to fill, from index 0
+   */
+  void getColumnValues(int columnNumber, int fromRow, int toRow,
+      double[] values);
+
   /**
    * Extract a value from the matrix
    * @param id The name of the row where the value is to be found
@@ -171,6 +182,26 @@ public interface ExpressionMatrixDimension extends ExpressionMatrixSizes,
    */
   void setValues(String[] ids, String columnName, double[] values);
 
+  /**
+   * Get the internal indexes of rows. The indexes can be used to set the
+   * values of many columns of the same rows without searching the rows for
+   * each column. They are valid for all the dimensions of the matrix until a
+   * row is removed.
+   * @param ids The names of the rows
+   * @return an array with the internal indexes of the rows
+   */
+  int[] getRowIndexes(String[] ids);
+
+  /**
+   * Set a value in the matrix
+   * @param rowIndexes The internal indexes of the rows where you want to
+   *          insert your values, as returned by getRowIndexes()
+   * @param columnName The name of the column where you want to insert your
+   *          value
+   * @param values the values to set in the matrix
+   */
+  void setValues(int[] rowIndexes, String columnName, double[] values);
+
   /**
    * Get all the values of the expression matrix
    * @return An array of doubles
@@ -0,0 +1,422 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om;
+
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
+
+/**
+ * This class define a cursor over a range of the spots of a bioAssay. Unlike
+ * SpotIterator, the values are read with column handles bound once, without
+ * any check at each access. A cursor can be split like a
+ * java.util.Spliterator to process the spots in parallel.
+ *
+ * <pre>
+ * SpotCursor c = bioAssay.cursor();
+ * SpotCursor.IntColumn reds = c.bindInt(BioAssay.FIELD_NAME_RED);
+ * while (c.next())
+ *   sum += c.getInt(reds);
+ * </pre>
+ *
+ * @author Laurent Jourdren
+ */
+public final class SpotCursor {
+
+  private final BioAssay bioAssay;
+  private int index;
+  private final int fence;
+
+  /**
+   * This interface define an action on the current spot of a cursor.
+   */
+  public interface Visitor {
+
+    /**
+     * Process the current spot of a cursor.
+     * @param cursor Cursor to process
+     */
+    void visit(SpotCursor cursor);
+  }
+
+  /**
+   * This class define a handle on an integer field.
+   */
+  public static final class IntColumn {
+
+    private final String field;
+    private final int[] values;
+
+    /**
+     * Get the name of the field.
+     * @return the name of the field
+     */
+    public String getField() {
+      return this.field;
+    }
+
+    /**
+     * Get a value of the field.
+     * @param index index of the spot
+     * @return the value
+     */
+    public int get(final int index) {
+      return this.values[index];
+    }
+
+    private IntColumn(final String field, final int[] values) {
+
+      this.field = field;
+      this.values = values;
+    }
+  }
+
+  /**
+   * This class define a handle on a double field.
+   */
+  public static final class DoubleColumn {
+
+    private final String field;
+    private final double[] values;
+
+    /**
+     * Get the name of the field.
+     * @return the name of the field
+     */
+    public String getField() {
+      return this.field;
+    }
+
+    /**
+     * Get a value of the field.
+     * @param index index of the spot
+     * @return the value
+     */
+    public double get(final int index) {
+      return this.values[index];
+    }
+
+    private DoubleColumn(final String field, final double[] values) {
+
+      this.field = field;
+      this.values = values;
+    }
+  }
+
+  /**
+   * This class define a handle on a string field. If the field is
+   * dictionary-encoded, the codes of the values are also available.
+   */
+  public static final class StringColumn {
+
+    private final String field;
+    private final String[] values;
+    private final int[] codes;
+
+    /**
+     * Get the name of the field.
+     * @return the name of the field
+     */
+    public String getField() {
+      return this.field;
+    }
+
+    /**
+     * Test if the field is dictionary-encoded.
+     * @return true if the codes of the values are available
+     */
+    public boolean isEncoded() {
+      return this.codes != null;
+    }
+
+    /**
+     * Get a value of the field.
+     * @param index index of the spot
+     * @return the value
+     */
+    public String get(final int index) {
+      return this.values[index];
+    }
+
+    /**
+     * Get the code of a value of a dictionary-encoded field.
+     * @param index index of the spot
+     * @return the code of the value
+     */
+    public int getCode(final int index) {
+      return this.codes[index];
+    }
+
+    private StringColumn(final String field, final String[] values,
+        final int[] codes) {
+
+      this.field = field;
+      this.values = values;
+      this.codes = codes;
+    }
+  }
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the bioAssay of the cursor.
+   * @return the bioAssay
+   */
+  public BioAssay getBioAssay() {
+    return this.bioAssay;
+  }
+
+  /**
+   * Get the index of the current spot.
+   * @return the index of the current spot
+   */
+  public int getIndex() {
+    return this.index;
+  }
+
+  /**
+   * Get the number of spots remaining after the current spot.
+   * @return the number of remaining spots
+   */
+  public int remaining() {
+    return this.fence - this.index - 1;
+  }
+
+  /**
+   * Get the integer value of the current spot.
+   * @param column Column of the value
+   * @return the value
+   */
+  public int getInt(final IntColumn column) {
+    return column.values[this.index];
+  }
+
+  /**
+   * Get the double value of the current spot.
+   * @param column Column of the value
+   * @return the value
+   */
+  public double getDouble(final DoubleColumn column) {
+    return column.values[this.index];
+  }
+
+  /**
+   * Get the string value of the current spot.
+   * @param column Column of the value
+   * @return the value
+   */
+  public String getString(final StringColumn column) {
+    return column.values[this.index];
+  }
+
+  /**
+   * Get the code of the string value of the current spot.
+   * @param column Dictionary-encoded column of the value
+   * @return the code of the value
+   */
+  public int getStringCode(final StringColumn column) {
+    return column.codes[this.index];
+  }
+
+  //
+  // Bindings
+  //
+
+  /**
+   * Bind an integer field. Compact fields are decoded once.
+   * @param field Field to bind
+   * @return a handle on the field
+   * @throws BioAssayRuntimeException if the field is not an integer field
+   */
+  public IntColumn bindInt(final String field) throws BioAssayRuntimeException {
+
+    checkFieldType(field, BioAssayBase.DATATYPE_INTEGER);
+
+    return new IntColumn(field, this.bioAssay.getDataFieldInt(field));
+  }
+
+  /**
+   * Bind a double field.
+   * @param field Field to bind
+   * @return a handle on the field
+   * @throws BioAssayRuntimeException if the field is not a double field
+   */
+  public DoubleColumn bindDouble(final String field)
+      throws BioAssayRuntimeException {
+
+    checkFieldType(field, BioAssayBase.DATATYPE_DOUBLE);
+
+    return new DoubleColumn(field, this.bioAssay.getDataFieldDouble(field));
+  }
+
+  /**
+   * Bind a string field. Dictionary-encoded fields are decoded once.
+   * @param field Field to bind
+   * @return a handle on the field
+   * @throws BioAssayRuntimeException if the field is not a string field
+   */
+  public StringColumn bindString(final String field)
+      throws BioAssayRuntimeException {
+
+    checkFieldType(field, BioAssayBase.DATATYPE_STRING);
+
+    return new StringColumn(field, this.bioAssay.getDataFieldString(field),
+        this.bioAssay.getDataFieldStringCodes(field));
+  }
+
+  private void checkFieldType(final String field, final int type) {
+
+    if (field == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "field");
+
+    if (this.bioAssay.getFieldType(field) != type)
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "invalid field: " + field);
+  }
+
+  //
+  // Iteration
+  //
+
+  /**
+   * Move the cursor to the next spot.
+   * @return false if there is no more spot in the range of the cursor
+   */
+  public boolean next() {
+
+    if (this.index + 1 >= this.fence)
+      return false;
+
+    this.index++;
+    return true;
+  }
+
+  /**
+   * If a spot remains, move the cursor to the next spot and visit it.
+   * @param visitor Visitor to use
+   * @return false if there is no more spot in the range of the cursor
+   */
+  public boolean tryAdvance(final Visitor visitor) {
+
+    if (!next())
+      return false;
+
+    visitor.visit(this);
+    return true;
+  }
+
+  /**
+   * Visit all the remaining spots.
+   * @param visitor Visitor to use
+   */
+  public void forEachRemaining(final Visitor visitor) {
+
+    while (next())
+      visitor.visit(this);
+  }
+
+  /**
+   * Split the cursor. The returned cursor covers the first half of the
+   * remaining spots and this cursor the second half.
+   * @return a new cursor or null if the remaining spots can't be split
+   */
+  public SpotCursor trySplit() {
+
+    final int remaining = remaining();
+
+    if (remaining < 2)
+      return null;
+
+    final int start = this.index + 1;
+    final int mid = start + remaining / 2;
+
+    this.index = mid - 1;
+
+    return new SpotCursor(this.bioAssay, start, mid);
+  }
+
+  /**
+   * Visit all the remaining spots in parallel. Each chunk of spots is visited
+   * with its own cursor, so the visitor must be thread safe.
+   * @param visitor Visitor to use
+   * @param minChunkSize minimal number of spots visited by a chunk
+   */
+  public void forEachRemainingParallel(final Visitor visitor,
+      final int minChunkSize) {
+
+    if (visitor == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "visitor");
+
+    final int start = this.index + 1;
+
+    ParallelUtils.forEachChunk(remaining(), minChunkSize,
+        new ParallelUtils.RangeTask() {
+
+          public void run(final int from, final int to) {
+
+            new SpotCursor(bioAssay, start + from, start + to)
+                .forEachRemaining(visitor);
+          }
+        });
+
+    this.index = this.fence - 1;
+  }
+
+  //
+  // Constructors
+  //
+
+  /**
+   * Public constructor. The cursor covers all the spots of the bioAssay.
+   * @param bioAssay BioAssay to process
+   */
+  public SpotCursor(final BioAssay bioAssay) {
+
+    this(bioAssay, 0, bioAssay == null ? 0 : bioAssay.size());
+  }
+
+  /**
+   * Public constructor.
+   * @param bioAssay BioAssay to process
+   * @param from index of the first spot of the range (inclusive)
+   * @param to index of the last spot of the range (exclusive)
+   */
+  public SpotCursor(final BioAssay bioAssay, final int from, final int to) {
+
+    if (bioAssay == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "bioAssay");
+
+    if (from < 0 || to > bioAssay.size() || from > to)
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_INDEX, "[" + from + ", " + to + "[");
+
+    this.bioAssay = bioAssay;
+    this.index = from - 1;
+    this.fence = to;
+  }
+
+}
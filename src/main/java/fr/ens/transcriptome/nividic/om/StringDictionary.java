@@ -0,0 +1,249 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class define a dictionary of strings used to store string fields of
+ * BioAssay as arrays of integer codes. A dictionary can be shared between
+ * many BioAssays (e.g. all the slides of a design) so the values common to
+ * all the BioAssays are stored only once. Two strings encoded with the same
+ * dictionary are equals if and only if their codes are equals. This class is
+ * thread safe.
+ * @author Laurent Jourdren
+ */
+public final class StringDictionary implements Serializable {
+
+  /** serial version for serialization. */
+  static final long serialVersionUID = 3208454374137826917L;
+
+  /** Code of null values. */
+  public static final int NULL_CODE = -1;
+  /** Code returned by getCode() for unknown values. */
+  public static final int UNKNOWN_CODE = -2;
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private transient Map<String, Integer> codes =
+      new HashMap<String, Integer>();
+  private transient String[] values = new String[INITIAL_CAPACITY];
+  private transient int count;
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the number of strings in the dictionary.
+   * @return the number of strings in the dictionary
+   */
+  public synchronized int size() {
+
+    return this.count;
+  }
+
+  /**
+   * Get the code of a string without adding it to the dictionary.
+   * @param s String to search
+   * @return the code of the string, NULL_CODE if s is null or UNKNOWN_CODE if
+   *         the string is not in the dictionary
+   */
+  public synchronized int getCode(final String s) {
+
+    if (s == null)
+      return NULL_CODE;
+
+    final Integer code = this.codes.get(s);
+
+    return code == null ? UNKNOWN_CODE : code.intValue();
+  }
+
+  //
+  // Encoding methods
+  //
+
+  /**
+   * Encode a string. If the string is not in the dictionary, it is added.
+   * @param s String to encode
+   * @return the code of the string
+   */
+  public synchronized int encode(final String s) {
+
+    if (s == null)
+      return NULL_CODE;
+
+    return encodeValue(s);
+  }
+
+  /**
+   * Get the instance of a string stored in the dictionary. If the string is
+   * not in the dictionary, it is added.
+   * @param s String to intern
+   * @return the instance of the string stored in the dictionary
+   */
+  public synchronized String intern(final String s) {
+
+    if (s == null)
+      return null;
+
+    final int code = encodeValue(s);
+
+    return this.values[code];
+  }
+
+  /**
+   * Encode an array of strings.
+   * @param array Array to encode
+   * @return an array with the codes of the strings
+   */
+  public synchronized int[] encode(final String[] array) {
+
+    if (array == null)
+      return null;
+
+    final int[] result = new int[array.length];
+
+    for (int i = 0; i < array.length; i++) {
+
+      final String s = array[i];
+      result[i] = s == null ? NULL_CODE : encodeValue(s);
+    }
+
+    return result;
+  }
+
+  /**
+   * Encode a not null string.
+   * @param s String to encode
+   * @return the code of the string
+   */
+  private int encodeValue(final String s) {
+
+    final Integer code = this.codes.get(s);
+
+    if (code != null)
+      return code.intValue();
+
+    if (this.count == this.values.length) {
+
+      final String[] newValues = new String[this.values.length * 2];
+      System.arraycopy(this.values, 0, newValues, 0, this.count);
+      this.values = newValues;
+    }
+
+    // Copy the string to not keep a reference on a larger char array
+    final String value = new String(s);
+    final int result = this.count++;
+
+    this.values[result] = value;
+    this.codes.put(value, result);
+
+    return result;
+  }
+
+  /**
+   * Decode a code.
+   * @param code Code to decode
+   * @return the string of the code
+   */
+  public synchronized String decode(final int code) {
+
+    if (code == NULL_CODE)
+      return null;
+
+    if (code < 0 || code >= this.count)
+      throw new BioAssayRuntimeException(
+          BioAssayRuntimeException.INVALID_INDEX, "Unknown code: " + code);
+
+    return this.values[code];
+  }
+
+  /**
+   * Decode an array of codes.
+   * @param array Array of codes to decode
+   * @return a new array with the decoded strings
+   */
+  public synchronized String[] decode(final int[] array) {
+
+    if (array == null)
+      return null;
+
+    final String[] result = new String[array.length];
+    final String[] vals = this.values;
+    final int n = this.count;
+
+    for (int i = 0; i < array.length; i++) {
+
+      final int code = array[i];
+
+      if (code == NULL_CODE)
+        continue;
+
+      if (code < 0 || code >= n)
+        throw new BioAssayRuntimeException(
+            BioAssayRuntimeException.INVALID_INDEX, "Unknown code: " + code);
+
+      result[i] = vals[code];
+    }
+
+    return result;
+  }
+
+  //
+  // Serialization
+  //
+
+  private synchronized void writeObject(final ObjectOutputStream out)
+      throws IOException {
+
+    out.defaultWriteObject();
+
+    // Only the strings are written, the map of the codes is rebuilt
+    final String[] strings = new String[this.count];
+    System.arraycopy(this.values, 0, strings, 0, this.count);
+    out.writeObject(strings);
+  }
+
+  private void readObject(final ObjectInputStream in) throws IOException,
+      ClassNotFoundException {
+
+    in.defaultReadObject();
+
+    final String[] strings = (String[]) in.readObject();
+
+    this.count = strings.length;
+    this.values = new String[Math.max(INITIAL_CAPACITY, this.count)];
+    System.arraycopy(strings, 0, this.values, 0, this.count);
+    this.codes = new HashMap<String, Integer>(this.count * 2);
+
+    for (int i = 0; i < this.count; i++)
+      this.codes.put(strings[i], i);
+  }
+
+}
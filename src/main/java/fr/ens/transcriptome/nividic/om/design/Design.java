@@ -358,6 +358,19 @@ public interface Design extends BiologicalObject {
   void loadAllSources(boolean readAllFields, String[] additionalfieldsToRead)
       throws NividicIOException;
 
+  /**
+   * Load all source and set all the bioassays of a design. The sources are
+   * read in parallel by a pool of threads. The loading stops at the first
+   * error and the errors of the slides already read are reported together.
+   * @param readAllFields true if all the fields must be read
+   * @param additionalfieldsToRead List of additional fields to read
+   * @param threads maximal number of sources read at the same time
+   * @param listener listener of the loading, can be null
+   * @throws NividicIOException if an error occurs while reading data
+   */
+  void loadAllSources(boolean readAllFields, String[] additionalfieldsToRead,
+      int threads, SlideLoadListener listener) throws NividicIOException;
+
   /**
    * Swap all the slides if the slides are a dye-swap.
    */
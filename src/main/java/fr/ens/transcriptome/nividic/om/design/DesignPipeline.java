@@ -0,0 +1,353 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.design;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
+import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.BioAssayUtils;
+import fr.ens.transcriptome.nividic.om.ExpressionMatrix;
+import fr.ens.transcriptome.nividic.om.filters.BioAssayFilter;
+import fr.ens.transcriptome.nividic.om.io.NividicIOException;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
+
+/**
+ * This class define a pipeline that loads the slides of a design, filters
+ * them, calculates M and A and adds them to an expression matrix. The sources
+ * are loaded and filtered by pools of threads while the matrix is filled by
+ * the calling thread in the order of the slides. The number of slides in the
+ * pipeline is bounded, so the memory used depends on the queue size and not on
+ * the number of slides of the design.
+ * @author Laurent Jourdren
+ */
+public class DesignPipeline {
+
+  /** Default number of slides in the pipeline. */
+  public static final int DEFAULT_QUEUE_SIZE = 4;
+
+  private final List<BioAssayFilter> filters = new ArrayList<BioAssayFilter>();
+  private boolean calcMA = true;
+  private boolean readAllFields;
+  private String[] fieldsToRead;
+  private boolean keepBioAssays;
+  private int loadThreads = 2;
+  private int filterThreads = ParallelUtils.getThreadCount();
+  private int queueSize = DEFAULT_QUEUE_SIZE;
+  private SlideLoadListener listener;
+
+  //
+  // Getters
+  //
+
+  /**
+   * Test if M and A are calculated before adding the slides to the matrix.
+   * @return true if M and A are calculated
+   */
+  public boolean isCalcMA() {
+    return this.calcMA;
+  }
+
+  /**
+   * Test if the bioassays are kept in the design after their addition to the
+   * matrix.
+   * @return true if the bioassays are kept in the design
+   */
+  public boolean isKeepBioAssays() {
+    return this.keepBioAssays;
+  }
+
+  /**
+   * Get the number of threads that load the sources.
+   * @return the number of threads that load the sources
+   */
+  public int getLoadThreads() {
+    return this.loadThreads;
+  }
+
+  /**
+   * Get the number of threads that filter the bioassays.
+   * @return the number of threads that filter the bioassays
+   */
+  public int getFilterThreads() {
+    return this.filterThreads;
+  }
+
+  /**
+   * Get the maximal number of slides in the pipeline.
+   * @return the maximal number of slides in the pipeline
+   */
+  public int getQueueSize() {
+    return this.queueSize;
+  }
+
+  //
+  // Setters
+  //
+
+  /**
+   * Add a filter. The filters are applied in the order of their addition.
+   * @param filter filter to add
+   */
+  public void addFilter(final BioAssayFilter filter) {
+
+    if (filter == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "filter");
+
+    this.filters.add(filter);
+  }
+
+  /**
+   * Set if M and A are calculated before adding the slides to the matrix.
+   * @param calcMA true if M and A must be calculated
+   */
+  public void setCalcMA(final boolean calcMA) {
+    this.calcMA = calcMA;
+  }
+
+  /**
+   * Set the fields to read in the sources.
+   * @param readAllFields true if all the fields must be read
+   * @param additionalFieldsToRead additional fields to read, can be null
+   */
+  public void setFieldsToRead(final boolean readAllFields,
+      final String[] additionalFieldsToRead) {
+
+    this.readAllFields = readAllFields;
+    this.fieldsToRead = additionalFieldsToRead;
+  }
+
+  /**
+   * Set if the bioassays are kept in the design after their addition to the
+   * matrix. The default is false: the bioassays are released as soon as they
+   * have been added to the matrix.
+   * @param keep true if the bioassays must be kept in the design
+   */
+  public void setKeepBioAssays(final boolean keep) {
+    this.keepBioAssays = keep;
+  }
+
+  /**
+   * Set the number of threads that load the sources.
+   * @param threads the number of threads
+   */
+  public void setLoadThreads(final int threads) {
+
+    if (threads < 1)
+      throw new NividicRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "threads: " + threads);
+
+    this.loadThreads = threads;
+  }
+
+  /**
+   * Set the number of threads that filter the bioassays.
+   * @param threads the number of threads
+   */
+  public void setFilterThreads(final int threads) {
+
+    if (threads < 1)
+      throw new NividicRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "threads: " + threads);
+
+    this.filterThreads = threads;
+  }
+
+  /**
+   * Set the maximal number of slides in the pipeline.
+   * @param size the maximal number of slides in the pipeline
+   */
+  public void setQueueSize(final int size) {
+
+    if (size < 1)
+      throw new NividicRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "queue size: " + size);
+
+    this.queueSize = size;
+  }
+
+  /**
+   * Set the listener notified when a slide has been added to the matrix.
+   * @param listener the listener, can be null
+   */
+  public void setSlideLoadListener(final SlideLoadListener listener) {
+    this.listener = listener;
+  }
+
+  //
+  // Other methods
+  //
+
+  /**
+   * Load, filter and add all the slides of a design to a matrix. The slides
+   * are added to the matrix in the order of the design. The pipeline stops at
+   * the first error.
+   * @param design design to process
+   * @param matrix matrix to fill
+   * @throws NividicIOException if an error occurs while reading a source
+   */
+  public void run(final Design design, final ExpressionMatrix matrix)
+      throws NividicIOException {
+
+    if (design == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "design");
+    if (matrix == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "matrix");
+
+    final List<Slide> slides = design.getSlides();
+    final int n = slides.size();
+
+    final ExecutorService loadExecutor =
+        Executors.newFixedThreadPool(this.loadThreads);
+    final ExecutorService filterExecutor =
+        Executors.newFixedThreadPool(this.filterThreads);
+
+    // The slides in the pipeline, in the order of the design
+    final LinkedList<Future<Future<BioAssay>>> queue =
+        new LinkedList<Future<Future<BioAssay>>>();
+
+    int next = 0;
+    int added = 0;
+
+    try {
+
+      while (added < n) {
+
+        // Fill the pipeline
+        while (next < n && queue.size() < this.queueSize) {
+
+          queue.add(loadExecutor.submit(createLoadTask(slides.get(next),
+              filterExecutor)));
+          next++;
+        }
+
+        final BioAssay ba = queue.removeFirst().get().get();
+        final Slide slide = slides.get(added);
+
+        if (ba != null)
+          matrix.addBioAssay(ba);
+
+        // Release the bioassay of the slide
+        if (!this.keepBioAssays)
+          slide.setBioAssay(null);
+
+        added++;
+
+        if (this.listener != null)
+          this.listener.slideLoaded(slide, added, n);
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new NividicIOException("Pipeline interrupted");
+    } catch (ExecutionException e) {
+
+      Throwable cause = e.getCause();
+      while (cause instanceof ExecutionException)
+        cause = cause.getCause();
+
+      if (cause instanceof Error)
+        throw (Error) cause;
+
+      throw new NividicIOException("Error while processing slide "
+          + slides.get(added).getName() + ": " + cause.getMessage(), cause);
+    } finally {
+
+      for (Future<Future<BioAssay>> f : queue)
+        f.cancel(true);
+
+      loadExecutor.shutdownNow();
+      filterExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Create the task that loads a slide and submits its filtering.
+   * @param slide slide to load
+   * @param filterExecutor executor of the filtering tasks
+   * @return a new task
+   */
+  private Callable<Future<BioAssay>> createLoadTask(final Slide slide,
+      final ExecutorService filterExecutor) {
+
+    return new Callable<Future<BioAssay>>() {
+
+      public Future<BioAssay> call() throws NividicIOException {
+
+        slide.loadSource(readAllFields, fieldsToRead);
+
+        return filterExecutor.submit(createFilterTask(slide));
+      }
+    };
+  }
+
+  /**
+   * Create the task that filters a slide and calculates M and A.
+   * @param slide slide to filter
+   * @return a new task
+   */
+  private Callable<BioAssay> createFilterTask(final Slide slide) {
+
+    return new Callable<BioAssay>() {
+
+      public BioAssay call() {
+
+        BioAssay ba = slide.getBioAssay();
+
+        if (ba == null)
+          return null;
+
+        for (BioAssayFilter filter : filters)
+          ba = ba.filter(filter);
+
+        if (calcMA)
+          BioAssayUtils.calcMA(ba);
+
+        ba.setName(slide.getName());
+
+        return ba;
+      }
+    };
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Public constructor.
+   */
+  public DesignPipeline() {
+  }
+
+}
@@ -0,0 +1,40 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.design;
+
+/**
+ * This interface define a listener of the loading of the slides of a design.
+ * @author Laurent Jourdren
+ */
+public interface SlideLoadListener {
+
+  /**
+   * Invoked when the source of a slide has been loaded. The slides are
+   * notified in the order of the design.
+   * @param slide the loaded slide
+   * @param loadedCount number of slides loaded
+   * @param slideCount number of slides to load
+   */
+  void slideLoaded(Slide slide, int loadedCount, int slideCount);
+
+}
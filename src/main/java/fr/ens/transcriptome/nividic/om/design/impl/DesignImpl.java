@@ -28,6 +28,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import fr.ens.transcriptome.nividic.NividicRuntimeException;
 import fr.ens.transcriptome.nividic.om.Annotation;
@@ -41,6 +48,7 @@ import fr.ens.transcriptome.nividic.om.datasources.DataSource;
 import fr.ens.transcriptome.nividic.om.datasources.FileDataSource;
 import fr.ens.transcriptome.nividic.om.design.Design;
 import fr.ens.transcriptome.nividic.om.design.Slide;
+import fr.ens.transcriptome.nividic.om.design.SlideLoadListener;
 import fr.ens.transcriptome.nividic.om.design.SlideDescription;
 import fr.ens.transcriptome.nividic.om.filters.BiologicalFilter;
 import fr.ens.transcriptome.nividic.om.filters.DesignFilter;
@@ -1040,6 +1048,143 @@ public class DesignImpl implements Design, Serializable {
       slide.loadSource(readAllFields, additionalfieldsToRead);
   }
 
+  /**
+   * Load all source and set all the bioassays of a design. The sources are
+   * read in parallel by a pool of threads. The loading stops at the first
+   * error and the errors of the slides already read are reported together.
+   * @param readAllFields true if all the fields must be read
+   * @param additionalfieldsToRead List of additional fields to read
+   * @param threads maximal number of sources read at the same time
+   * @param listener listener of the loading, can be null
+   * @throws NividicIOException if an error occurs while reading data
+   */
+  public void loadAllSources(final boolean readAllFields,
+      final String[] additionalfieldsToRead, final int threads,
+      final SlideLoadListener listener) throws NividicIOException {
+
+    if (threads < 1)
+      throw new NividicRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "threads: " + threads);
+
+    final List<Slide> slides = getSlides();
+    final int n = slides.size();
+
+    if (threads == 1 || n < 2) {
+
+      for (int i = 0; i < n; i++) {
+
+        final Slide slide = slides.get(i);
+        slide.loadSource(readAllFields, additionalfieldsToRead);
+
+        if (listener != null)
+          listener.slideLoaded(slide, i + 1, n);
+      }
+
+      return;
+    }
+
+    final SlideImpl.LoadedSource[] loaded = new SlideImpl.LoadedSource[n];
+    final Exception[] errors = new Exception[n];
+    final boolean[] done = new boolean[n];
+
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(threads, n));
+    final CompletionService<Integer> completion =
+        new ExecutorCompletionService<Integer>(executor);
+
+    for (int i = 0; i < n; i++) {
+
+      final int index = i;
+      final SlideImpl slide = (SlideImpl) slides.get(i);
+
+      completion.submit(new Callable<Integer>() {
+
+        public Integer call() {
+
+          try {
+            loaded[index] =
+                slide.readSource(readAllFields, additionalfieldsToRead);
+          } catch (Exception e) {
+            errors[index] = e;
+          }
+
+          return index;
+        }
+      });
+    }
+
+    boolean failed = false;
+    int next = 0;
+
+    try {
+
+      for (int i = 0; i < n && !failed; i++) {
+
+        final int index = completion.take().get();
+        done[index] = true;
+
+        if (errors[index] != null) {
+          failed = true;
+          break;
+        }
+
+        // The slides are set in the order of the design
+        while (next < n && done[next]) {
+
+          final SlideImpl slide = (SlideImpl) slides.get(next);
+          slide.setLoadedSource(loaded[next]);
+          loaded[next] = null;
+          next++;
+
+          if (listener != null)
+            listener.slideLoaded(slide, next, n);
+        }
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new NividicIOException("Loading of the sources interrupted");
+    } catch (ExecutionException e) {
+      throw new NividicIOException("Error while loading the sources", e
+          .getCause());
+    } finally {
+
+      // Stop the loading of the sources not yet started
+      executor.shutdownNow();
+    }
+
+    if (!failed)
+      return;
+
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    final StringBuilder sb = new StringBuilder();
+    Exception first = null;
+    int count = 0;
+
+    for (int i = 0; i < n; i++) {
+
+      if (errors[i] == null)
+        continue;
+
+      if (first == null)
+        first = errors[i];
+
+      sb.append("\n");
+      sb.append(slides.get(i).getName());
+      sb.append(": ");
+      sb.append(errors[i].getMessage());
+      count++;
+    }
+
+    throw new NividicIOException("Error while loading "
+        + count + " source(s):" + sb.toString(), first);
+  }
+
   /**
    * Swap all the slides if the slides are a dye-swap.
    */
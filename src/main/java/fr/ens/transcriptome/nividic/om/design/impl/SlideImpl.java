@@ -22,6 +22,7 @@
 
 package fr.ens.transcriptome.nividic.om.design.impl;
 
+import java.io.IOException;
 import java.io.InputStream;
 
 import fr.ens.transcriptome.nividic.NividicRuntimeException;
@@ -35,9 +36,11 @@ import fr.ens.transcriptome.nividic.om.design.DesignUtils;
 import fr.ens.transcriptome.nividic.om.design.ScanLabelsSettings;
 import fr.ens.transcriptome.nividic.om.design.Slide;
 import fr.ens.transcriptome.nividic.om.design.SlideDescription;
+import fr.ens.transcriptome.nividic.om.io.BioAssayCache;
 import fr.ens.transcriptome.nividic.om.io.BioAssayFormat;
 import fr.ens.transcriptome.nividic.om.io.BioAssayFormatFinderInputStream;
 import fr.ens.transcriptome.nividic.om.io.BioAssayFormatRegistery;
+import fr.ens.transcriptome.nividic.om.io.FingerprintInputStream;
 import fr.ens.transcriptome.nividic.om.io.InputStreamBioAssayReader;
 import fr.ens.transcriptome.nividic.om.io.NividicIOException;
 
@@ -50,6 +53,24 @@ class SlideImpl implements Slide {
   private DesignImpl design;
   private int slideId;
 
+  /**
+   * This class define the result of the reading of the source of a slide.
+   */
+  static final class LoadedSource {
+
+    private final BioAssay bioAssay;
+    private final BioAssayFormat format;
+    private final boolean formatFound;
+
+    LoadedSource(final BioAssay bioAssay, final BioAssayFormat format,
+        final boolean formatFound) {
+
+      this.bioAssay = bioAssay;
+      this.format = format;
+      this.formatFound = formatFound;
+    }
+  }
+
   //
   // Getters
   //
@@ -202,12 +223,15 @@ class SlideImpl implements Slide {
    */
   public void setBioAssay(final BioAssay bioassay) {
 
-    final String slideName = this.design.getSlideName(this.slideId);
+    synchronized (this.design) {
 
-    if (slideName == null)
-      throw new NividicRuntimeException("The slide doesn't exists");
+      final String slideName = this.design.getSlideName(this.slideId);
+
+      if (slideName == null)
+        throw new NividicRuntimeException("The slide doesn't exists");
 
-    this.design.setBioAssay(slideName, bioassay);
+      this.design.setBioAssay(slideName, bioassay);
+    }
   }
 
   /*
@@ -216,12 +240,15 @@ class SlideImpl implements Slide {
    */
   public BioAssay getBioAssay() {
 
-    final String slideName = this.design.getSlideName(this.slideId);
+    synchronized (this.design) {
 
-    if (slideName == null)
-      throw new NividicRuntimeException("The slide doesn't exists");
+      final String slideName = this.design.getSlideName(this.slideId);
 
-    return this.design.getBioAssay(slideName);
+      if (slideName == null)
+        throw new NividicRuntimeException("The slide doesn't exists");
+
+      return this.design.getBioAssay(slideName);
+    }
   }
 
   /*
@@ -297,16 +324,43 @@ class SlideImpl implements Slide {
   public void loadSource(final boolean readAllFields,
       final String[] additionalfieldsToRead) throws NividicIOException {
 
-    final DataSource ds = getSource();
+    setLoadedSource(readSource(readAllFields, additionalfieldsToRead));
+  }
+
+  /**
+   * Read the source of the slide without modifying the design. This method
+   * can be called concurrently for the slides of a design.
+   * @param readAllFields true if all the fields must be read
+   * @param additionalfieldsToRead List of additional fields to read
+   * @return the loaded source or null if the slide has no source
+   * @throws NividicIOException if an error occurs while reading the source
+   */
+  LoadedSource readSource(final boolean readAllFields,
+      final String[] additionalfieldsToRead) throws NividicIOException {
+
+    final DataSource ds;
+    BioAssayFormat format;
+
+    synchronized (this.design) {
+      ds = getSource();
+      format = getFormat();
+    }
 
     if (ds == null)
-      return;
+      return null;
 
     InputStream is = ds.getInputStream();
 
-    BioAssayFormat format = getFormat();
+    // The content is fingerprinted while it is read to find it in the cache
+    final BioAssayCache cache = BioAssayCache.getDefaultCache();
+    final FingerprintInputStream fingerprint =
+        cache == null ? null : new FingerprintInputStream(is);
+
+    if (fingerprint != null)
+      is = fingerprint;
 
     InputStreamBioAssayReader reader;
+    boolean formatFound = false;
 
     if (format == null
         || format == BioAssayFormatRegistery.UNDEFINED_TXT_BIOASSAY_FORMAT) {
@@ -315,8 +369,12 @@ class SlideImpl implements Slide {
           new BioAssayFormatFinderInputStream(is);
 
       format = finder.getBioAssayFormat();
-      setSourceFormat(format);
+      formatFound = true;
       is = finder;
+
+      if (format == null)
+        throw new NividicIOException("Unknown format of the source: "
+            + ds.getSourceInfo());
     }
 
     reader = format.getBioAssayReader(is);
@@ -332,19 +390,64 @@ class SlideImpl implements Slide {
 
     }
 
-    BioAssay result = reader.read();
-    result.setName(getName());
+    BioAssay result = null;
+    String key = null;
+
+    if (cache != null) {
+
+      // The remaining content is read in memory to get its fingerprint
+      try {
+        fingerprint.readFully();
+      } catch (IOException e) {
+        throw new NividicIOException("Error while reading the source: "
+            + e.getMessage());
+      }
+
+      key =
+          BioAssayCache.createKey(ds.getSourceInfo(), reader
+              .getFieldProjection(), fingerprint.getFingerprint(), fingerprint
+              .getLength());
+      result = cache.get(key);
+    }
+
+    if (result == null) {
 
-    setBioAssay(result);
+      result = reader.read();
+      if (cache != null)
+        cache.put(key, result);
+    }
 
-    if (BioAssayFormatRegistery.GPR_BIOASSAY_FORMAT.equals(format.getType()))
-      DesignUtils.addBioAssayScanSettingToDesign(this);
+    return new LoadedSource(result, format, formatFound);
+  }
 
-    final HistoryEntry entry =
-        new HistoryEntry("Load slide data (" + getName() + ")",
-            HistoryActionType.LOAD, "", HistoryActionResult.PASS);
+  /**
+   * Set the result of the reading of the source of the slide in the design.
+   * @param loaded loaded source
+   */
+  void setLoadedSource(final LoadedSource loaded) {
 
-    this.design.getHistory().add(entry);
+    if (loaded == null)
+      return;
+
+    synchronized (this.design) {
+
+      if (loaded.formatFound)
+        setSourceFormat(loaded.format);
+
+      loaded.bioAssay.setName(getName());
+
+      setBioAssay(loaded.bioAssay);
+
+      if (BioAssayFormatRegistery.GPR_BIOASSAY_FORMAT.equals(loaded.format
+          .getType()))
+        DesignUtils.addBioAssayScanSettingToDesign(this);
+
+      final HistoryEntry entry =
+          new HistoryEntry("Load slide data (" + getName() + ")",
+              HistoryActionType.LOAD, "", HistoryActionResult.PASS);
+
+      this.design.getHistory().add(entry);
+    }
   }
 
   /*
@@ -0,0 +1,501 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.filters;
+
+import java.util.Arrays;
+
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
+import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.BioAssayBase;
+import fr.ens.transcriptome.nividic.om.BioAssayFactory;
+import fr.ens.transcriptome.nividic.om.BioAssayRuntimeException;
+import fr.ens.transcriptome.nividic.om.CompactIntArray;
+import fr.ens.transcriptome.nividic.om.StringDictionary;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
+
+/**
+ * This class sort the spots of bioAssays. The sort compute a permutation of
+ * the indexes of the spots using the primitive values of the key fields, then
+ * all the fields are gathered in the new order. The sort is stable.
+ * @author Laurent Jourdren
+ */
+public final class BioAssayIndexSorter {
+
+  private static final int INSERTION_SORT_THRESHOLD = 7;
+
+  /**
+   * This class define a comparator of the indexes of two spots.
+   */
+  private abstract static class IndexComparator {
+
+    /**
+     * Compare two spots.
+     * @param a index of the first spot
+     * @param b index of the second spot
+     * @return like compare(Object) method
+     */
+    abstract int compare(int a, int b);
+  }
+
+  /**
+   * Comparator for double keys.
+   */
+  private static final class DoubleIndexComparator extends IndexComparator {
+
+    private final double[] values;
+    private final int sign;
+    private final boolean nanLast;
+
+    int compare(final int a, final int b) {
+
+      final double va = this.values[a];
+      final double vb = this.values[b];
+
+      if (this.nanLast) {
+
+        final boolean nanA = Double.isNaN(va);
+        final boolean nanB = Double.isNaN(vb);
+
+        if (nanA || nanB)
+          return nanA == nanB ? 0 : nanA ? 1 : -1;
+      }
+
+      return this.sign * Double.compare(va, vb);
+    }
+
+    private DoubleIndexComparator(final double[] values, final SortKey key) {
+
+      this.values = values;
+      this.sign = key.isDescending() ? -1 : 1;
+      this.nanLast = key.isNaNLast();
+    }
+  }
+
+  /**
+   * Comparator for integer keys. The ranks of string keys are also sorted
+   * with this comparator.
+   */
+  private static final class IntIndexComparator extends IndexComparator {
+
+    private final int[] values;
+    private final boolean descending;
+
+    int compare(final int a, final int b) {
+
+      final int va = this.values[a];
+      final int vb = this.values[b];
+
+      if (va == vb)
+        return 0;
+
+      return (va < vb) != this.descending ? -1 : 1;
+    }
+
+    private IntIndexComparator(final int[] values, final boolean descending) {
+
+      this.values = values;
+      this.descending = descending;
+    }
+  }
+
+  /**
+   * Comparator for several keys.
+   */
+  private static final class MultipleIndexComparator extends IndexComparator {
+
+    private final IndexComparator[] comparators;
+
+    int compare(final int a, final int b) {
+
+      for (int i = 0; i < this.comparators.length; i++) {
+
+        final int comp = this.comparators[i].compare(a, b);
+        if (comp != 0)
+          return comp;
+      }
+
+      return 0;
+    }
+
+    private MultipleIndexComparator(final IndexComparator[] comparators) {
+
+      this.comparators = comparators;
+    }
+  }
+
+  /**
+   * Comparator that use spot objects.
+   */
+  private static final class SpotIndexComparator extends IndexComparator {
+
+    private final BioAssay bioAssay;
+    private final SpotComparator comparator;
+
+    int compare(final int a, final int b) {
+
+      return this.comparator.compare(this.bioAssay.getSpot(a), this.bioAssay
+          .getSpot(b));
+    }
+
+    private SpotIndexComparator(final BioAssay bioAssay,
+        final SpotComparator comparator) {
+
+      this.bioAssay = bioAssay;
+      this.comparator = comparator;
+    }
+  }
+
+  //
+  // Sort
+  //
+
+  /**
+   * Sort the indexes of the spots of a bioAssay. If the comparator implements
+   * SortKeyComparator, no spot object is created.
+   * @param bioAssay BioAssay to sort
+   * @param comparator Comparator of the spots
+   * @return an array with the indexes of the spots in the sorted order
+   */
+  public static int[] sortIndexes(final BioAssay bioAssay,
+      final SpotComparator comparator) {
+
+    if (bioAssay == null || comparator == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "bioAssay or comparator");
+
+    if (comparator instanceof SortKeyComparator)
+      return sortIndexes(bioAssay, ((SortKeyComparator) comparator)
+          .getSortKeys());
+
+    return sortIndexes(bioAssay.size(), new SpotIndexComparator(bioAssay,
+        comparator));
+  }
+
+  /**
+   * Sort the indexes of the spots of a bioAssay.
+   * @param bioAssay BioAssay to sort
+   * @param keys Keys of the sort, in order of priority
+   * @return an array with the indexes of the spots in the sorted order
+   */
+  public static int[] sortIndexes(final BioAssay bioAssay, final SortKey[] keys) {
+
+    if (bioAssay == null || keys == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "bioAssay or keys");
+
+    final IndexComparator[] comparators = new IndexComparator[keys.length];
+
+    for (int i = 0; i < keys.length; i++)
+      comparators[i] = createComparator(bioAssay, keys[i]);
+
+    return sortIndexes(bioAssay.size(), comparators.length == 1
+        ? comparators[0] : new MultipleIndexComparator(comparators));
+  }
+
+  private static IndexComparator createComparator(final BioAssay bioAssay,
+      final SortKey key) {
+
+    if (key == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "key");
+
+    final String field = key.getField();
+
+    switch (bioAssay.getFieldType(field)) {
+
+    case BioAssayBase.DATATYPE_DOUBLE:
+      return new DoubleIndexComparator(bioAssay.getDataFieldDouble(field), key);
+
+    case BioAssayBase.DATATYPE_INTEGER:
+      return new IntIndexComparator(bioAssay.getDataFieldInt(field), key
+          .isDescending());
+
+    case BioAssayBase.DATATYPE_STRING:
+      return new IntIndexComparator(getRanks(bioAssay, field), key
+          .isDescending());
+
+    default:
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "Unknown field: " + field);
+    }
+  }
+
+  /**
+   * Get the ranks of the values of a string field. Only the distinct values of
+   * the field are compared, null values are ranked first.
+   * @param bioAssay BioAssay
+   * @param field Field
+   * @return an array with the ranks of the values
+   */
+  private static int[] getRanks(final BioAssay bioAssay, final String field) {
+
+    StringDictionary dictionary = bioAssay.getDataFieldStringDictionary(field);
+    int[] codes = bioAssay.getDataFieldStringCodes(field);
+
+    if (codes == null) {
+      dictionary = new StringDictionary();
+      codes = dictionary.encode(bioAssay.getDataFieldString(field));
+    }
+
+    // Get the distinct codes
+    final int[] sortedCodes = codes.clone();
+    Arrays.sort(sortedCodes);
+
+    int count = 0;
+    for (int i = 0; i < sortedCodes.length; i++)
+      if (i == 0 || sortedCodes[i] != sortedCodes[i - 1])
+        sortedCodes[count++] = sortedCodes[i];
+
+    final int[] distinctCodes = new int[count];
+    System.arraycopy(sortedCodes, 0, distinctCodes, 0, count);
+
+    // Sort the distinct values
+    final String[] distinctValues = dictionary.decode(distinctCodes);
+    final int[] order = sortIndexes(count, new IndexComparator() {
+
+      int compare(final int a, final int b) {
+
+        final String sa = distinctValues[a];
+        final String sb = distinctValues[b];
+
+        if (sa == null)
+          return sb == null ? 0 : -1;
+        if (sb == null)
+          return 1;
+
+        return sa.compareTo(sb);
+      }
+    });
+
+    final int[] distinctRanks = new int[count];
+    for (int i = 0; i < count; i++)
+      distinctRanks[order[i]] = i;
+
+    final int[] result = new int[codes.length];
+    for (int i = 0; i < codes.length; i++)
+      result[i] =
+          distinctRanks[Arrays.binarySearch(distinctCodes, 0, count, codes[i])];
+
+    return result;
+  }
+
+  private static int[] sortIndexes(final int size,
+      final IndexComparator comparator) {
+
+    final int[] result = new int[size];
+    for (int i = 0; i < size; i++)
+      result[i] = i;
+
+    mergeSort(result.clone(), result, 0, size, comparator);
+
+    return result;
+  }
+
+  /**
+   * Stable merge sort of a range of indexes.
+   * @param src source array
+   * @param dest destination array, with the same content as src
+   * @param low first index of the range (inclusive)
+   * @param high last index of the range (exclusive)
+   * @param comparator comparator to use
+   */
+  private static void mergeSort(final int[] src, final int[] dest,
+      final int low, final int high, final IndexComparator comparator) {
+
+    final int length = high - low;
+
+    if (length < INSERTION_SORT_THRESHOLD) {
+
+      for (int i = low + 1; i < high; i++)
+        for (int j = i; j > low
+            && comparator.compare(dest[j - 1], dest[j]) > 0; j--) {
+          final int tmp = dest[j];
+          dest[j] = dest[j - 1];
+          dest[j - 1] = tmp;
+        }
+      return;
+    }
+
+    final int mid = (low + high) >>> 1;
+    mergeSort(dest, src, low, mid, comparator);
+    mergeSort(dest, src, mid, high, comparator);
+
+    // The two halves are already in order
+    if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+      System.arraycopy(src, low, dest, low, length);
+      return;
+    }
+
+    for (int i = low, p = low, q = mid; i < high; i++)
+      if (q >= high || p < mid && comparator.compare(src[p], src[q]) <= 0)
+        dest[i] = src[p++];
+      else
+        dest[i] = src[q++];
+  }
+
+  //
+  // Permutation
+  //
+
+  /**
+   * Sort a bioAssay.
+   * @param bioAssay BioAssay to sort
+   * @param keys Keys of the sort, in order of priority
+   * @return a new bioAssay sorted
+   */
+  public static BioAssay sort(final BioAssay bioAssay, final SortKey[] keys) {
+
+    return permute(bioAssay, sortIndexes(bioAssay, keys));
+  }
+
+  /**
+   * Create a new bioAssay with the spots of a bioAssay in another order. The
+   * fields are gathered in parallel for large bioAssays.
+   * @param bioAssay Source bioAssay
+   * @param order Indexes in the source bioAssay of the spots of the new
+   *          bioAssay
+   * @return a new bioAssay
+   */
+  public static BioAssay permute(final BioAssay bioAssay, final int[] order) {
+
+    if (bioAssay == null || order == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "bioAssay or order");
+
+    final String[] fields = bioAssay.getFields();
+    final Object[] data = new Object[fields.length];
+    final int n = order.length;
+
+    final int minFieldsByChunk =
+        (long) n * fields.length < ParallelUtils.DEFAULT_MIN_CHUNK_SIZE
+            ? fields.length + 1 : 1;
+
+    ParallelUtils.forEachChunk(fields.length, minFieldsByChunk,
+        new ParallelUtils.RangeTask() {
+
+          public void run(final int from, final int to) {
+
+            for (int i = from; i < to; i++)
+              data[i] = gather(bioAssay, fields[i], order);
+          }
+        });
+
+    final BioAssay result = BioAssayFactory.createBioAssay();
+    result.getAnnotation().addProperties(bioAssay.getAnnotation());
+
+    // The fields are set in the original order
+    for (int i = 0; i < fields.length; i++) {
+
+      final String field = fields[i];
+      final Object values = data[i];
+
+      if (values instanceof double[])
+        result.setDataFieldDouble(field, (double[]) values);
+      else if (values instanceof int[])
+        result.setDataFieldInt(field, (int[]) values);
+      else if (values instanceof CompactIntArray)
+        result.setDataFieldCompactInt(field, (CompactIntArray) values);
+      else if (values instanceof String[])
+        result.setDataFieldString(field, (String[]) values);
+      else
+        result.setDataFieldEncodedString(field, ((int[][]) values)[0], bioAssay
+            .getDataFieldStringDictionary(field));
+    }
+
+    result.setReferenceField(bioAssay.getReferenceField());
+    result.setSpotEmptyTester(bioAssay.getSpotEmptyTester());
+
+    return result;
+  }
+
+  /**
+   * Gather the values of a field.
+   * @param bioAssay Source bioAssay
+   * @param field Field to gather
+   * @param order Indexes of the values to gather
+   * @return an array (int[], double[], String[]), a CompactIntArray or an
+   *         int[][] with the codes of an encoded string field
+   */
+  private static Object gather(final BioAssay bioAssay, final String field,
+      final int[] order) {
+
+    final int n = order.length;
+
+    switch (bioAssay.getFieldType(field)) {
+
+    case BioAssayBase.DATATYPE_DOUBLE:
+
+      final double[] doubles = bioAssay.getDataFieldDouble(field);
+      final double[] newDoubles = new double[n];
+      for (int i = 0; i < n; i++)
+        newDoubles[i] = doubles[order[i]];
+
+      return newDoubles;
+
+    case BioAssayBase.DATATYPE_INTEGER:
+
+      if (bioAssay.isDataFieldIntCompact(field))
+        return bioAssay.getDataFieldCompactInt(field).select(order);
+
+      final int[] ints = bioAssay.getDataFieldInt(field);
+      final int[] newInts = new int[n];
+      for (int i = 0; i < n; i++)
+        newInts[i] = ints[order[i]];
+
+      return newInts;
+
+    case BioAssayBase.DATATYPE_STRING:
+
+      if (bioAssay.isDataFieldStringEncoded(field)) {
+
+        final int[] codes = bioAssay.getDataFieldStringCodes(field);
+        final int[] newCodes = new int[n];
+        for (int i = 0; i < n; i++)
+          newCodes[i] = codes[order[i]];
+
+        return new int[][] {newCodes};
+      }
+
+      final String[] strings = bioAssay.getDataFieldString(field);
+      final String[] newStrings = new String[n];
+      for (int i = 0; i < n; i++)
+        newStrings[i] = strings[order[i]];
+
+      return newStrings;
+
+    default:
+      throw new NividicRuntimeException("Invalid BioAssay Type");
+    }
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Private constructor.
+   */
+  private BioAssayIndexSorter() {
+  }
+
+}
@@ -22,6 +22,7 @@
 
 package fr.ens.transcriptome.nividic.om.filters;
 
+import fr.ens.transcriptome.nividic.om.BioAssay;
 import fr.ens.transcriptome.nividic.om.Spot;
 
 /**
@@ -29,7 +30,7 @@ import fr.ens.transcriptome.nividic.om.Spot;
  * the A value.
  * @author Laurent Jourdren
  */
-public class BioAssayMASorterComparator implements SpotComparator {
+public class BioAssayMASorterComparator implements SortKeyComparator {
 
   private boolean descending;
 
@@ -61,6 +62,16 @@ public class BioAssayMASorterComparator implements SpotComparator {
     return comp;
   }
 
+  /**
+   * Get the keys of the sort, in order of priority.
+   * @return an array of sort keys
+   */
+  public SortKey[] getSortKeys() {
+
+    return new SortKey[] {new SortKey(BioAssay.FIELD_NAME_M, this.descending),
+        new SortKey(BioAssay.FIELD_NAME_A, this.descending)};
+  }
+
   //
   // Constructor
   //
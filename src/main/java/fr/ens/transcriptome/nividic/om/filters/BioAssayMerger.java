@@ -22,27 +22,32 @@
 
 package fr.ens.transcriptome.nividic.om.filters;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import fr.ens.transcriptome.nividic.NividicRuntimeException;
 import fr.ens.transcriptome.nividic.om.BioAssay;
 import fr.ens.transcriptome.nividic.om.BioAssayFactory;
-import fr.ens.transcriptome.nividic.util.NividicUtils;
+import fr.ens.transcriptome.nividic.om.StringDictionary;
 
 /**
  * This interface defines how to merge multiple BioAssay Objects in a unique
- * BioAssay.
+ * BioAssay. The groups of rows to merge are stored in compressed arrays: the
+ * rows of the group g are groupRows[groupStarts[g]] to
+ * groupRows[groupStarts[g + 1] - 1], the first one is the row where the
+ * merged values are set.
  * @author Laurent Jourdren
  */
 public class BioAssayMerger {
 
-  private Set<Integer> rowsToMerge = new HashSet<Integer>();
-  private Map<Integer, List<Integer>> toMerge = new HashMap<Integer, List<Integer>>();
+  private static final int NO_GROUP = -1;
+  private static final int PENDING_GROUP = -2;
+
+  private int[] rowGroups;
+  private int[] groupStarts = new int[] {0};
+  private int[] groupRows = new int[0];
+  private int groupCount;
   private int sizeNewBioAssay;
   private BioAssay bioAssay;
 
@@ -52,25 +57,67 @@ public class BioAssayMerger {
    */
   public void mergeRows(final int[] rowsToMerge) {
 
-    if (rowsToMerge == null)
+    if (rowsToMerge == null || rowsToMerge.length == 0)
       return;
 
-    List<Integer> listToMerge = new ArrayList<Integer>();
+    final int[] groups = this.rowGroups;
 
     for (int i = 0; i < rowsToMerge.length; i++) {
-      int row = rowsToMerge[i];
 
-      if (this.rowsToMerge.contains(row))
+      final int row = rowsToMerge[i];
+
+      if (row < 0 || row >= groups.length || groups[row] != NO_GROUP) {
+
+        // Restore the state of the rows
+        for (int j = 0; j < i; j++)
+          groups[rowsToMerge[j]] = NO_GROUP;
+
+        if (row < 0 || row >= groups.length)
+          throw new NividicRuntimeException(
+              NividicRuntimeException.INVALID_INDEX, "Row doesn't exits: "
+                  + row);
         throw new NividicRuntimeException("Can't merged an already merged row");
+      }
 
-      this.rowsToMerge.add(row);
-      listToMerge.add(row);
+      groups[row] = PENDING_GROUP;
     }
 
-    if (listToMerge.size() > 1) {
-      this.toMerge.put(listToMerge.get(0), listToMerge);
-      this.sizeNewBioAssay -= listToMerge.size() - 1;
+    addGroup(rowsToMerge, 0, rowsToMerge.length);
+  }
+
+  /**
+   * Add a group of rows. The rows must not be in another group.
+   * @param rows array of rows
+   * @param from first index in the array of rows (inclusive)
+   * @param to last index in the array of rows (exclusive)
+   */
+  private void addGroup(final int[] rows, final int from, final int to) {
+
+    final int group = this.groupCount;
+    final int start = this.groupStarts[group];
+    final int end = start + to - from;
+
+    if (end > this.groupRows.length) {
+      final int[] newRows =
+          new int[Math.max(end, this.groupRows.length * 2 + 1)];
+      System.arraycopy(this.groupRows, 0, newRows, 0, start);
+      this.groupRows = newRows;
+    }
+
+    if (group + 2 > this.groupStarts.length) {
+      final int[] newStarts = new int[this.groupStarts.length * 2 + 1];
+      System.arraycopy(this.groupStarts, 0, newStarts, 0, group + 1);
+      this.groupStarts = newStarts;
+    }
+
+    for (int i = from, j = start; i < to; i++, j++) {
+      this.rowGroups[rows[i]] = group;
+      this.groupRows[j] = rows[i];
     }
+
+    this.groupStarts[group + 1] = end;
+    this.groupCount++;
+    this.sizeNewBioAssay -= to - from - 1;
   }
 
   /**
@@ -105,21 +152,23 @@ public class BioAssayMerger {
     if (!this.bioAssay.isField(field))
       return;
 
-    String[] ids = this.bioAssay.getDataFieldString(field);
-    final List<Integer> listToMerge = new ArrayList<Integer>();
+    final Set<String> values = new HashSet<String>();
+    for (int i = 0; i < fieldValues.length; i++)
+      if (fieldValues[i] != null)
+        values.add(fieldValues[i]);
 
-    for (int i = 0; i < ids.length; i++) {
-      for (int j = 0; j < fieldValues.length; j++) {
+    final String[] ids = this.bioAssay.getDataFieldString(field);
+    final int[] rows = new int[ids.length];
+    int count = 0;
 
-        if (fieldValues[j] != null && fieldValues[j].equals(ids[i])) {
-          listToMerge.add(i);
-          break;
-        }
-      }
+    for (int i = 0; i < ids.length; i++)
+      if (values.contains(ids[i]))
+        rows[count++] = i;
 
-      mergeRows(NividicUtils.toIntArray(listToMerge));
-    }
+    final int[] rowsToMerge = new int[count];
+    System.arraycopy(rows, 0, rowsToMerge, 0, count);
 
+    mergeRows(rowsToMerge);
   }
 
   /**
@@ -147,31 +196,69 @@ public class BioAssayMerger {
     if (!this.bioAssay.isField(field))
       return;
 
-    String[] ids = this.bioAssay.getDataFieldString(field);
+    final int size = this.bioAssay.size();
+    final int[] keys = getGroupKeys(field);
 
-    final Map<String, List<Integer>> map = new HashMap<String, List<Integer>>();
+    // Count the rows of each key, null values have the key 0
+    int keyCount = 0;
+    for (int i = 0; i < size; i++)
+      if (keys[i] >= keyCount)
+        keyCount = keys[i] + 1;
 
-    for (int i = 0; i < ids.length; i++) {
+    final int[] starts = new int[keyCount + 1];
+    for (int i = 0; i < size; i++) {
 
-      final String id = ids[i];
-      final List<Integer> list;
+      if (this.rowGroups[i] != NO_GROUP)
+        throw new NividicRuntimeException("Can't merged an already merged row");
+      starts[keys[i] + 1]++;
+    }
 
-      if (!map.containsKey(id)) {
-        list = new ArrayList<Integer>();
-        map.put(id, list);
-      } else
-        list = map.get(id);
+    for (int i = 0; i < keyCount; i++)
+      starts[i + 1] += starts[i];
 
-      list.add(i);
-    }
+    // Counting sort of the rows by key, the rows of a key are in ascending
+    // order
+    final int[] rows = new int[size];
+    final int[] next = new int[keyCount];
+    System.arraycopy(starts, 0, next, 0, keyCount);
 
-    /*
-     * for (String id : map.keySet())
-     * mergeRows(NividicUtils.toArray(map.get(id)));
-     */
+    for (int i = 0; i < size; i++)
+      rows[next[keys[i]]++] = i;
 
-    for (Map.Entry<String, List<Integer>> e : map.entrySet())
-      mergeRows(NividicUtils.toIntArray(e.getValue()));
+    for (int i = 0; i < keyCount; i++)
+      if (starts[i + 1] > starts[i])
+        addGroup(rows, starts[i], starts[i + 1]);
+  }
+
+  /**
+   * Get an integer key for each value of a string field. Rows with the same
+   * value have the same key.
+   * @param field field name
+   * @return an array with the keys of the rows
+   */
+  private int[] getGroupKeys(final String field) {
+
+    final int size = this.bioAssay.size();
+    final StringDictionary dictionary =
+        this.bioAssay.getDataFieldStringDictionary(field);
+
+    int[] codes = null;
+
+    // The codes of an encoded field are used if the dictionary is not too
+    // large
+    if (dictionary != null && dictionary.size() <= 4 * size + 1)
+      codes = this.bioAssay.getDataFieldStringCodes(field);
+
+    if (codes == null)
+      codes =
+          new StringDictionary().encode(this.bioAssay
+              .getDataFieldString(field));
+
+    final int[] keys = new int[size];
+    for (int i = 0; i < size; i++)
+      keys[i] = codes[i] - StringDictionary.NULL_CODE;
+
+    return keys;
   }
 
   /**
@@ -181,6 +268,7 @@ public class BioAssayMerger {
   public BioAssay getBioAssay() {
 
     final int n = this.sizeNewBioAssay;
+    final int size = this.bioAssay.size();
 
     final String[] ids = this.bioAssay.getIds();
     final String[] descriptions = this.bioAssay.getDescriptions();
@@ -195,14 +283,19 @@ public class BioAssayMerger {
     final double[] nTotalN = new double[n];
     final double[] nN = new double[n];
 
+    final int[] groups = this.rowGroups;
+    final int[] starts = this.groupStarts;
+    final int[] rows = this.groupRows;
+
     int index = 0;
     final StatMerger stat = new StatMerger();
 
-    for (int i = 0; i < n; i++) {
+    for (int i = 0; i < size; i++) {
 
-      if (!this.rowsToMerge.contains(i)) {
+      final int group = groups[i];
+
+      if (group == NO_GROUP) {
 
-        //nIds[index] = ids != null ? null : ids[i];
         nIds[index] = ids == null ? null : ids[i];
         nDescriptions[index] = descriptions == null ? null : descriptions[i];
         nMs[index] = ms == null ? 0 : ms[i];
@@ -213,34 +306,28 @@ public class BioAssayMerger {
         nAs[index] = as == null ? 0 : as[i];
 
         index++;
-      } else if (this.toMerge.containsKey(i)) {
+      } else if (rows[starts[group]] == i) {
 
-        final List<Integer> list = this.toMerge.get(i);
-        final List<Double> data = new ArrayList<Double>(list.size());
+        // The merged values are set at the first row of the group
+        final int from = starts[group];
+        final int to = starts[group + 1];
 
-        //nIds[index] = ids != null ? null : ids[i];
         nIds[index] = ids == null ? null : ids[i];
         nDescriptions[index] = descriptions == null ? null : descriptions[i];
 
         if (ms != null) {
 
-          for (int j : list)
-            data.add(ms[j]);
-
-          stat.setValues(data);
+          stat.setValues(ms, rows, from, to);
 
           nMs[index] = stat.getMedian();
           nStdDev[index] = stat.getStdDev();
           nTotalN[index] = stat.getTotalN();
           nN[index] = stat.getN();
-
         }
 
         if (as != null) {
 
-          for (int j : list)
-            data.add(as[j]);
-
+          stat.setValues(as, rows, from, to);
           nAs[index] = stat.getMedian();
         }
 
@@ -275,6 +362,8 @@ public class BioAssayMerger {
 
     this.bioAssay = ba;
     this.sizeNewBioAssay = ba.size();
+    this.rowGroups = new int[ba.size()];
+    Arrays.fill(this.rowGroups, NO_GROUP);
   }
 
   //
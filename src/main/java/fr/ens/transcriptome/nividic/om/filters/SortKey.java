@@ -0,0 +1,108 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.filters;
+
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
+
+/**
+ * This class define a key of a sort of the spots of a bioAssay. The values of
+ * the key are read from an integer, double or string field.
+ * @author Laurent Jourdren
+ */
+public final class SortKey {
+
+  private final String field;
+  private final boolean descending;
+  private final boolean nanLast;
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the field of the key.
+   * @return the name of the field
+   */
+  public String getField() {
+    return this.field;
+  }
+
+  /**
+   * Test if the key is sorted in descending order.
+   * @return true if the key is sorted in descending order
+   */
+  public boolean isDescending() {
+    return this.descending;
+  }
+
+  /**
+   * Test if the NaN values are always sorted at the end. Otherwise, NaN values
+   * are greater than all the other values, as with Double.compare().
+   * @return true if the NaN values are always sorted at the end
+   */
+  public boolean isNaNLast() {
+    return this.nanLast;
+  }
+
+  //
+  // Constructors
+  //
+
+  /**
+   * Public constructor. The key is sorted in ascending order.
+   * @param field Field of the key
+   */
+  public SortKey(final String field) {
+
+    this(field, false, false);
+  }
+
+  /**
+   * Public constructor.
+   * @param field Field of the key
+   * @param descending true to sort the key in descending order
+   */
+  public SortKey(final String field, final boolean descending) {
+
+    this(field, descending, false);
+  }
+
+  /**
+   * Public constructor.
+   * @param field Field of the key
+   * @param descending true to sort the key in descending order
+   * @param nanLast true to sort the NaN values at the end whatever the order
+   */
+  public SortKey(final String field, final boolean descending,
+      final boolean nanLast) {
+
+    if (field == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "field");
+
+    this.field = field;
+    this.descending = descending;
+    this.nanLast = nanLast;
+  }
+
+}
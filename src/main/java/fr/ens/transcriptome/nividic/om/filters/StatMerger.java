@@ -22,16 +22,21 @@
 
 package fr.ens.transcriptome.nividic.om.filters;
 
+import java.util.Arrays;
 import java.util.List;
 
-import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
-
+/**
+ * This class compute the statistics of merged values: the number of values,
+ * the median, the mean and the standard deviation of the values that are not
+ * NaN. The values are copied in a scratch buffer reused between two calls of
+ * setValues().
+ * @author Laurent Jourdren
+ */
 final class StatMerger {
 
-  // Get a DescriptiveStatistics instance using factory method
-  private DescriptiveStatistics stats = DescriptiveStatistics.newInstance();
+  private static final int INITIAL_BUFFER_SIZE = 16;
 
-  private static final double MEDIAN_PERCENTILE = 50.0;
+  private double[] buffer = new double[0];
 
   private int n;
   private int totalN;
@@ -68,48 +73,118 @@ final class StatMerger {
     return this.mean;
   }
 
-  private int countNotNan(final List<Double> doubleValues) {
+  //
+  // Setters
+  //
 
-    if (doubleValues == null)
-      return 0;
+  public void setValues(final List<Double> doubleValues) {
 
+    final double[] values = ensureCapacity(doubleValues.size());
     int count = 0;
+
     for (double d : doubleValues)
       if (!Double.isNaN(d))
-        count++;
+        values[count++] = d;
 
-    return count;
+    compute(doubleValues.size(), count);
   }
 
-  public void setValues(final List<Double> doubleValues) {
+  /**
+   * Set the values to merge.
+   * @param values array of values
+   * @param indexes array of the indexes of the values to merge
+   * @param from first index in the indexes array (inclusive)
+   * @param to last index in the indexes array (exclusive)
+   */
+  public void setValues(final double[] values, final int[] indexes,
+      final int from, final int to) {
+
+    final double[] buf = ensureCapacity(to - from);
+    int count = 0;
 
-    if (doubleValues.size() == 1) {
+    for (int i = from; i < to; i++) {
 
-      final double val = doubleValues.get(0);
+      final double d = values[indexes[i]];
+      if (!Double.isNaN(d))
+        buf[count++] = d;
+    }
+
+    compute(to - from, count);
+  }
+
+  private double[] ensureCapacity(final int capacity) {
+
+    if (this.buffer.length < capacity)
+      this.buffer = new double[Math.max(capacity, INITIAL_BUFFER_SIZE)];
+
+    return this.buffer;
+  }
 
-      this.totalN = 1;
+  /**
+   * Compute the statistics of the first values of the buffer.
+   * @param total total number of values, including NaN values
+   * @param count number of values in the buffer
+   */
+  private void compute(final int total, final int count) {
 
-      this.n = Double.isNaN(val) ? 0 : 1;
-      this.mean = val;
-      this.median = val;
+    this.totalN = total;
+    this.n = count;
 
+    if (count == 0) {
+      this.mean = Double.NaN;
+      this.median = Double.NaN;
+      this.stdDev = Double.NaN;
       return;
     }
 
-    stats.clear();
+    final double[] values = this.buffer;
 
-    for (double d : doubleValues)
-      if (!Double.isNaN(d))
-        stats.addValue(d);
-
-    this.totalN = doubleValues.size();
-    this.n = (int) stats.getN();
-    // this.n = countNotNan(doubleValues);
-    this.mean = stats.getMean();
-    this.median = stats.getPercentile(MEDIAN_PERCENTILE);
-    this.stdDev = stats.getStandardDeviation();
+    // Mean with a correction of the rounding errors
+    double sum = 0;
+    for (int i = 0; i < count; i++)
+      sum += values[i];
+
+    final double xbar = sum / count;
+    double correction = 0;
+    for (int i = 0; i < count; i++)
+      correction += values[i] - xbar;
+
+    this.mean = xbar + correction / count;
+
+    // Sample standard deviation
+    if (count == 1)
+      this.stdDev = 0;
+    else {
+
+      double accum = 0;
+      double accum2 = 0;
+      for (int i = 0; i < count; i++) {
+        final double dev = values[i] - this.mean;
+        accum += dev * dev;
+        accum2 += dev;
+      }
+
+      this.stdDev =
+          Math.sqrt((accum - accum2 * accum2 / count) / (count - 1));
+    }
+
+    // Median
+    Arrays.sort(values, 0, count);
+
+    final int mid = count / 2;
+
+    if (count % 2 == 1)
+      this.median = values[mid];
+    else {
+      final double lower = values[mid - 1];
+      this.median = lower + 0.5 * (values[mid] - lower);
+    }
   }
 
+  //
+  // Constructors
+  //
+
   StatMerger() {
 
   }
@@ -22,6 +22,8 @@
 
 package fr.ens.transcriptome.nividic.om.impl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -29,8 +31,12 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import fr.ens.transcriptome.nividic.NividicRuntimeException;
+import fr.ens.transcriptome.nividic.om.ArrayLayout;
+import fr.ens.transcriptome.nividic.om.BioAssay;
 import fr.ens.transcriptome.nividic.om.BioAssayBase;
 import fr.ens.transcriptome.nividic.om.BioAssayRuntimeException;
+import fr.ens.transcriptome.nividic.om.CompactIntArray;
+import fr.ens.transcriptome.nividic.om.StringDictionary;
 
 /**
  * Implementation 100% java de BioAssayBase.
@@ -54,11 +60,36 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
   private Map<String, String[]> hashString = new HashMap<String, String[]>();
   private Map<String, int[]> hashInteger = new HashMap<String, int[]>();
   private Map<String, double[]> hashDouble = new HashMap<String, double[]>();
+  private Map<String, EncodedStrings> hashEncodedString =
+      new HashMap<String, EncodedStrings>();
+  private Map<String, CompactIntArray> hashCompactInteger =
+      new HashMap<String, CompactIntArray>();
   private Map<String, Integer> hashDir = new LinkedHashMap<String, Integer>();
-  private Map<Integer, Integer> indexLoc = new HashMap<Integer, Integer>();
+  private transient Map<Integer, Integer> indexLoc =
+      new HashMap<Integer, Integer>();
   private Map<String, int[]> references = new HashMap<String, int[]>();
   private String referenceField;
   private int size = -1;
+  private ArrayLayout arrayLayout;
+
+  /**
+   * This class store the codes and the dictionary of a dictionary-encoded
+   * string field.
+   */
+  private static final class EncodedStrings implements Serializable {
+
+    /** serial version for serialization. */
+    static final long serialVersionUID = -2150960591466718352L;
+
+    private final int[] codes;
+    private final StringDictionary dictionary;
+
+    private EncodedStrings(final int[] codes, final StringDictionary dictionary) {
+
+      this.codes = codes;
+      this.dictionary = dictionary;
+    }
+  }
 
   //
   // Getters
@@ -74,7 +105,45 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
     if (field == null)
       return null;
 
-    return this.hashInteger.get(field);
+    final int[] result = this.hashInteger.get(field);
+
+    // The locations of a shared layout are copied on write
+    if (result != null)
+      return this.arrayLayout != null && FIELD_NAME_LOCATION.equals(field)
+          ? result.clone() : result;
+
+    final CompactIntArray cia = this.hashCompactInteger.get(field);
+
+    // Decode the field on demand
+    return cia == null ? null : cia.toArray();
+  }
+
+  /**
+   * Return the value of a spot in an integer field. Unlike getDataFieldInt(),
+   * the compact fields are not decoded.
+   * @param field The field to get
+   * @param index The index of the spot
+   * @return the value of the spot
+   * @throws BioAssayRuntimeException if the field doesn't exist or if the
+   *           index is out of range
+   */
+  public int getDataFieldIntValue(final String field, final int index)
+      throws BioAssayRuntimeException {
+
+    checkValueIndex(field, index);
+
+    final int[] data = this.hashInteger.get(field);
+
+    if (data != null)
+      return data[index];
+
+    final CompactIntArray cia = this.hashCompactInteger.get(field);
+
+    if (cia == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "this field doesn't exist in this bioAssay");
+
+    return cia.get(index);
   }
 
   /**
@@ -98,7 +167,117 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
 
     if (field == null)
       return null;
-    return this.hashString.get(field);
+
+    final String[] result = this.hashString.get(field);
+
+    if (result != null)
+      return result;
+
+    final EncodedStrings es = this.hashEncodedString.get(field);
+
+    // Decode the field on demand
+    return es == null ? null : es.dictionary.decode(es.codes);
+  }
+
+  /**
+   * Return the value of a spot in a string field. Unlike getDataFieldString(),
+   * the dictionary-encoded fields are not decoded.
+   * @param field The field to get
+   * @param index The index of the spot
+   * @return the value of the spot
+   * @throws BioAssayRuntimeException if the field doesn't exist or if the
+   *           index is out of range
+   */
+  public String getDataFieldStringValue(final String field, final int index)
+      throws BioAssayRuntimeException {
+
+    checkValueIndex(field, index);
+
+    final String[] data = this.hashString.get(field);
+
+    if (data != null)
+      return data[index];
+
+    final EncodedStrings es = this.hashEncodedString.get(field);
+
+    if (es == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "this field doesn't exist in this bioAssay");
+
+    return es.dictionary.decode(es.codes[index]);
+  }
+
+  /**
+   * Return the codes of a dictionary-encoded string field. The returned array
+   * may be shared with other BioAssays and must not be modified.
+   * @param field The field to get
+   * @return An array with the codes of the field or null if the field is not a
+   *         dictionary-encoded string field
+   */
+  public int[] getDataFieldStringCodes(final String field) {
+
+    if (field == null)
+      return null;
+
+    final EncodedStrings es = this.hashEncodedString.get(field);
+
+    return es == null ? null : es.codes;
+  }
+
+  /**
+   * Return the dictionary of a dictionary-encoded string field.
+   * @param field The field to get
+   * @return the dictionary of the field or null if the field is not a
+   *         dictionary-encoded string field
+   */
+  public StringDictionary getDataFieldStringDictionary(final String field) {
+
+    if (field == null)
+      return null;
+
+    final EncodedStrings es = this.hashEncodedString.get(field);
+
+    return es == null ? null : es.dictionary;
+  }
+
+  /**
+   * Test if a string field is dictionary-encoded.
+   * @param field The fieldname
+   * @return <b>true </b> if the field is a dictionary-encoded string field
+   */
+  public boolean isDataFieldStringEncoded(final String field) {
+
+    if (field == null)
+      return false;
+
+    return this.hashEncodedString.containsKey(field);
+  }
+
+  /**
+   * Return the compact values of a compact integer field.
+   * @param field The field to get
+   * @return the compact values of the field or null if the field is not a
+   *         compact integer field
+   */
+  public CompactIntArray getDataFieldCompactInt(final String field) {
+
+    if (field == null)
+      return null;
+
+    return this.hashCompactInteger.get(field);
+  }
+
+  /**
+   * Test if an integer field is stored in a compact array.
+   * @param field The fieldname
+   * @return <b>true </b> if the field is a compact integer field
+   */
+  public boolean isDataFieldIntCompact(final String field) {
+
+    if (field == null)
+      return false;
+
+    return this.hashCompactInteger.containsKey(field);
   }
 
   /**
@@ -175,6 +354,8 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
   public void setDataFieldInt(final String field, final int[] value)
       throws BioAssayRuntimeException {
 
+    detachArrayLayout(field);
+
     if (field == null || value == null)
       throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
           "field or value");
@@ -192,8 +373,72 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
 
     // met � jour la map _dir � chaque fois qu'il y a un setData()
     this.hashInteger.put(field, value);
+    this.hashCompactInteger.remove(field);
+    this.hashDir.put(field, BioAssayBase.DATATYPE_INTEGER);
+
+  }
+
+  /**
+   * Set the data for an integer field as a compact array. The integers of the
+   * field are only decoded when getDataFieldInt() is called. The compact array
+   * is never modified: a write to a spot of the field replaces the field by a
+   * decoded array.
+   * @param field The field to be set
+   * @param values The compact values of the field
+   * @throws BioAssayRuntimeException if a value is null or if value size if
+   *           wrong
+   */
+  public void setDataFieldCompactInt(final String field,
+      final CompactIntArray values) throws BioAssayRuntimeException {
+
+    if (field == null || values == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "field or values");
+
+    // The locations are used by the index of the locations
+    if (FIELD_NAME_LOCATION.equals(field)) {
+      setLocations(values.toArray());
+      return;
+    }
+
+    if (this.size == -1)
+      this.size = values.size();
+    else if (this.size != values.size())
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT,
+          "array length is different from BioAssay size");
+
+    // if the same fieldname with another type already exists remove it
+    if (isField(field) && getFieldType(field) != BioAssayBase.DATATYPE_INTEGER)
+      removeField(field);
+
+    this.hashCompactInteger.put(field, values);
+    this.hashInteger.remove(field);
     this.hashDir.put(field, BioAssayBase.DATATYPE_INTEGER);
+  }
+
+  /**
+   * Store an existing integer field in a compact array.
+   * @param field The field to compact
+   * @throws BioAssayRuntimeException if the field is not an integer field
+   */
+  public void compactDataFieldInt(final String field)
+      throws BioAssayRuntimeException {
 
+    if (field == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "field");
+
+    if (getFieldType(field) != BioAssayBase.DATATYPE_INTEGER)
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "not an integer field: "
+              + field);
+
+    if (isDataFieldIntCompact(field) || FIELD_NAME_LOCATION.equals(field))
+      return;
+
+    setDataFieldCompactInt(field, CompactIntArray.valueOf(this.hashInteger
+        .get(field)));
   }
 
   /**
@@ -234,6 +479,8 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
   public void setDataFieldString(final String field, final String[] value)
       throws BioAssayRuntimeException {
 
+    detachArrayLayout(field);
+
     if (field == null || value == null)
       throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
           "field or value");
@@ -251,6 +498,7 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
 
     // met � jour la map _dir � chaque fois qu'il y a un setData()
     this.hashString.put(field, value);
+    this.hashEncodedString.remove(field);
     this.hashDir.put(field, BioAssayBase.DATATYPE_STRING);
 
     if (isReference() && field.equals(getReferenceField()))
@@ -258,6 +506,145 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
 
   }
 
+  /**
+   * Set the value of a spot in an integer field. A compact field is replaced
+   * by a decoded array on the first write.
+   * @param field The field to be set
+   * @param index The index of the spot
+   * @param value The value to set
+   * @throws BioAssayRuntimeException if the field doesn't exist or if the
+   *           index is out of range
+   */
+  public void setDataFieldIntValue(final String field, final int index,
+      final int value) throws BioAssayRuntimeException {
+
+    checkValueIndex(field, index);
+
+    final int[] data = getDataFieldInt(field);
+
+    if (data == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "this field doesn't exist in this bioAssay");
+
+    data[index] = value;
+
+    // The index of the locations must be updated
+    if (FIELD_NAME_LOCATION.equals(field))
+      setLocations(data);
+    else if (isDataFieldIntCompact(field))
+      setDataFieldInt(field, data);
+  }
+
+  /**
+   * Set the value of a spot in a string field. A dictionary-encoded field is
+   * replaced by a decoded array on the first write.
+   * @param field The field to be set
+   * @param index The index of the spot
+   * @param value The value to set
+   * @throws BioAssayRuntimeException if the field doesn't exist or if the
+   *           index is out of range
+   */
+  public void setDataFieldStringValue(final String field, final int index,
+      final String value) throws BioAssayRuntimeException {
+
+    checkValueIndex(field, index);
+
+    final String[] data = getDataFieldString(field);
+
+    if (data == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "this field doesn't exist in this bioAssay");
+
+    data[index] = value;
+
+    if (isDataFieldStringEncoded(field))
+      setDataFieldString(field, data);
+    else if (isReference() && field.equals(getReferenceField()))
+      makeReferences();
+  }
+
+  /**
+   * Check the arguments of the methods that get or set the value of a spot.
+   * @param field The field
+   * @param index The index of the spot
+   * @throws BioAssayRuntimeException if the field is null or if the index is
+   *           out of range
+   */
+  private void checkValueIndex(final String field, final int index)
+      throws BioAssayRuntimeException {
+
+    if (field == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "field");
+
+    if (index < 0 || index >= this.size)
+      throw new BioAssayRuntimeException(NividicRuntimeException.INVALID_INDEX,
+          "index out of range: " + index);
+  }
+
+  /**
+   * Set the data for a string field as codes of a dictionary. The strings of
+   * the field are only decoded when getDataFieldString() is called.
+   * @param field The field to be set
+   * @param codes The codes of the field data
+   * @param dictionary The dictionary of the codes
+   * @throws BioAssayRuntimeException if a value is null or if value size if
+   *           wrong
+   */
+  public void setDataFieldEncodedString(final String field, final int[] codes,
+      final StringDictionary dictionary) throws BioAssayRuntimeException {
+
+    detachArrayLayout(field);
+
+    if (field == null || codes == null || dictionary == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "field, codes or dictionary");
+
+    if (this.size == -1)
+      this.size = codes.length;
+    else if (this.size != codes.length)
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT,
+          "array length is different from BioAssay size");
+
+    // if the same fieldname with another type already exists remove it
+    if (isField(field) && getFieldType(field) != BioAssayBase.DATATYPE_STRING)
+      removeField(field);
+
+    this.hashEncodedString.put(field, new EncodedStrings(codes, dictionary));
+    this.hashString.remove(field);
+    this.hashDir.put(field, BioAssayBase.DATATYPE_STRING);
+
+    if (isReference() && field.equals(getReferenceField()))
+      makeReferences();
+  }
+
+  /**
+   * Encode an existing string field with a dictionary.
+   * @param field The field to encode
+   * @param dictionary The dictionary to use
+   * @throws BioAssayRuntimeException if the field is not a string field or if
+   *           the dictionary is null
+   */
+  public void encodeDataFieldString(final String field,
+      final StringDictionary dictionary) throws BioAssayRuntimeException {
+
+    if (field == null || dictionary == null)
+      throw new BioAssayRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "field or dictionary");
+
+    if (getFieldType(field) != BioAssayBase.DATATYPE_STRING)
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "not a string field: "
+              + field);
+
+    if (dictionary == getDataFieldStringDictionary(field))
+      return;
+
+    setDataFieldEncodedString(field, dictionary
+        .encode(getDataFieldString(field)), dictionary);
+  }
+
   /**
    * Set locations for the BioAssay Object.
    * @param locations The locations
@@ -270,10 +657,18 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
     setDataFieldInt(FIELD_NAME_LOCATION, locations);
 
     // reconstruction de l'index
+    buildLocationIndex(locations);
+  }
+
+  /**
+   * Build the index of the locations.
+   * @param locations The locations
+   */
+  private void buildLocationIndex(final int[] locations) {
+
     this.indexLoc.clear();
     for (int i = 0; i < locations.length; i++)
       this.indexLoc.put(locations[i], i);
-
   }
 
   /**
@@ -326,10 +721,13 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
     if (!isField(field))
       return false;
 
+    detachArrayLayout(field);
+
     switch (getFieldType(field)) {
 
     case BioAssayBase.DATATYPE_INTEGER:
       this.hashInteger.remove(field);
+      this.hashCompactInteger.remove(field);
       this.hashDir.remove(field);
       if (FIELD_NAME_LOCATION.equals(field))
         indexLoc.clear();
@@ -342,6 +740,7 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
 
     case BioAssayBase.DATATYPE_STRING:
       this.hashString.remove(field);
+      this.hashEncodedString.remove(field);
       this.hashDir.remove(field);
       break;
 
@@ -370,6 +769,9 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
    */
   public int getIndexFromALocation(final int location) {
 
+    if (this.arrayLayout != null)
+      return this.arrayLayout.getIndexFromALocation(location);
+
     Object o = indexLoc.get(location);
 
     if (o == null)
@@ -501,9 +903,12 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
    */
   public void clear() {
 
+    setArrayLayout(null);
     this.hashString.clear();
     this.hashInteger.clear();
     this.hashDouble.clear();
+    this.hashEncodedString.clear();
+    this.hashCompactInteger.clear();
     this.hashDir.clear();
     this.indexLoc.clear();
     this.references.clear();
@@ -531,12 +936,22 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
         || FIELD_NAME_LOCATION.equals(newName))
       throw new BioAssayRuntimeException("You can't rename the locations field");
 
+    detachArrayLayout(oldName);
+
     final int fieldType = getFieldType(oldName);
 
     switch (fieldType) {
 
     case BioAssayBase.DATATYPE_INTEGER:
 
+      if (isDataFieldIntCompact(oldName)) {
+
+        CompactIntArray compactValues = this.hashCompactInteger.get(oldName);
+        this.hashCompactInteger.remove(oldName);
+        this.hashCompactInteger.put(newName, compactValues);
+        break;
+      }
+
       int[] intValues = this.hashInteger.get(oldName);
       this.hashInteger.remove(oldName);
       this.hashInteger.put(newName, intValues);
@@ -551,6 +966,14 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
 
     case BioAssayBase.DATATYPE_STRING:
 
+      if (isDataFieldStringEncoded(oldName)) {
+
+        EncodedStrings encodedValues = this.hashEncodedString.get(oldName);
+        this.hashEncodedString.remove(oldName);
+        this.hashEncodedString.put(newName, encodedValues);
+        break;
+      }
+
       String[] stringValues = this.hashString.get(oldName);
       this.hashString.remove(oldName);
       this.hashString.put(newName, stringValues);
@@ -584,6 +1007,9 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
       throw new NividicRuntimeException(
           "The types of the two fields are not the same");
 
+    detachArrayLayout(fieldA);
+    detachArrayLayout(fieldB);
+
     switch (getFieldType(fieldA)) {
 
     case BioAssayBase.DATATYPE_DOUBLE:
@@ -596,18 +1022,53 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
 
     case BioAssayBase.DATATYPE_INTEGER:
 
-      int[] ia = getDataFieldInt(fieldA);
-      int[] ib = getDataFieldInt(fieldB);
-      setDataFieldInt(fieldA, ib);
-      setDataFieldInt(fieldB, ia);
+      if (FIELD_NAME_LOCATION.equals(fieldA)
+          || FIELD_NAME_LOCATION.equals(fieldB)) {
+
+        int[] ia = getDataFieldInt(fieldA);
+        int[] ib = getDataFieldInt(fieldB);
+        setDataFieldInt(fieldA, ib);
+        setDataFieldInt(fieldB, ia);
+        break;
+      }
+
+      // Keep the compaction of the fields
+      int[] ia = this.hashInteger.remove(fieldA);
+      int[] ib = this.hashInteger.remove(fieldB);
+      CompactIntArray ca = this.hashCompactInteger.remove(fieldA);
+      CompactIntArray cb = this.hashCompactInteger.remove(fieldB);
+
+      if (ib != null)
+        this.hashInteger.put(fieldA, ib);
+      if (ia != null)
+        this.hashInteger.put(fieldB, ia);
+      if (cb != null)
+        this.hashCompactInteger.put(fieldA, cb);
+      if (ca != null)
+        this.hashCompactInteger.put(fieldB, ca);
       break;
 
     case BioAssayBase.DATATYPE_STRING:
 
-      String[] sa = getDataFieldString(fieldA);
-      String[] sb = getDataFieldString(fieldB);
-      setDataFieldString(fieldA, sb);
-      setDataFieldString(fieldB, sa);
+      // Keep the encoding of the fields
+      String[] sa = this.hashString.remove(fieldA);
+      String[] sb = this.hashString.remove(fieldB);
+      EncodedStrings ea = this.hashEncodedString.remove(fieldA);
+      EncodedStrings eb = this.hashEncodedString.remove(fieldB);
+
+      if (sb != null)
+        this.hashString.put(fieldA, sb);
+      if (sa != null)
+        this.hashString.put(fieldB, sa);
+      if (eb != null)
+        this.hashEncodedString.put(fieldA, eb);
+      if (ea != null)
+        this.hashEncodedString.put(fieldB, ea);
+
+      if (isReference()
+          && (fieldA.equals(getReferenceField()) || fieldB
+              .equals(getReferenceField())))
+        makeReferences();
       break;
 
     default:
@@ -616,6 +1077,129 @@ class BioAssayBaseImpl implements BioAssayBase, Serializable {
 
   }
 
+  //
+  // Shared layout
+  //
+
+  /**
+   * Get the layout shared with other BioAssays.
+   * @return the layout of the BioAssay or null if the BioAssay has no shared
+   *         layout
+   */
+  public ArrayLayout getArrayLayout() {
+
+    return this.arrayLayout;
+  }
+
+  /**
+   * Attach a shared layout to the BioAssay. The identifiers and the locations
+   * of the BioAssay are replaced by the identifiers and the locations of the
+   * layout. The layout is detached when the identifiers or the locations are
+   * modified, the BioAssay then gets private copies of the arrays of the
+   * layout.
+   * @param layout The layout to attach. If null, the current layout is
+   *          detached
+   * @throws BioAssayRuntimeException if the size of the layout is wrong or if
+   *           the identifiers and the locations of the layout are not the
+   *           identifiers and the locations of the BioAssay
+   */
+  public void setArrayLayout(final ArrayLayout layout)
+      throws BioAssayRuntimeException {
+
+    if (layout == this.arrayLayout)
+      return;
+
+    // Keep private copies of the fields of the old layout
+    if (layout == null) {
+      releaseArrayLayout(null);
+      return;
+    }
+
+    if (this.size != -1 && this.size != layout.size())
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT,
+          "layout size is different from BioAssay size");
+
+    if (isField(BioAssay.FIELD_NAME_ID)
+        && !layout.equalsIdsAndLocations(
+            getDataFieldString(BioAssay.FIELD_NAME_ID), getLocations()))
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT,
+          "layout identifiers or locations are different from BioAssay ones");
+
+    // Keep private copies of the fields of the old layout
+    releaseArrayLayout(null);
+
+    // The location index of the layout replace the index of the BioAssay
+    removeField(FIELD_NAME_LOCATION);
+    setDataFieldInt(FIELD_NAME_LOCATION, layout.getLocations());
+    setDataFieldEncodedString(BioAssay.FIELD_NAME_ID, layout.getIdCodes(),
+        layout.getDictionary());
+
+    this.arrayLayout = layout;
+  }
+
+  /**
+   * Detach the shared layout if a field of the layout is modified.
+   * @param field The field that will be modified
+   */
+  private void detachArrayLayout(final String field) {
+
+    if (this.arrayLayout == null)
+      return;
+
+    if (FIELD_NAME_LOCATION.equals(field)
+        || BioAssay.FIELD_NAME_ID.equals(field))
+      releaseArrayLayout(field);
+  }
+
+  /**
+   * Release the shared layout. The fields of the layout that are not replaced
+   * get private copies of the arrays of the layout.
+   * @param replacedField The field of the layout that will be replaced or null
+   */
+  private void releaseArrayLayout(final String replacedField) {
+
+    if (this.arrayLayout == null)
+      return;
+
+    this.arrayLayout = null;
+
+    if (!FIELD_NAME_LOCATION.equals(replacedField)) {
+
+      final int[] locations = this.hashInteger.get(FIELD_NAME_LOCATION);
+      if (locations != null) {
+        this.hashInteger.put(FIELD_NAME_LOCATION, locations.clone());
+        buildLocationIndex(locations);
+      }
+    }
+
+    if (!BioAssay.FIELD_NAME_ID.equals(replacedField)) {
+
+      final EncodedStrings es =
+          this.hashEncodedString.get(BioAssay.FIELD_NAME_ID);
+      if (es != null)
+        this.hashEncodedString.put(BioAssay.FIELD_NAME_ID, new EncodedStrings(
+            es.codes.clone(), es.dictionary));
+    }
+  }
+
+  //
+  // Serialization
+  //
+
+  private void readObject(final ObjectInputStream in) throws IOException,
+      ClassNotFoundException {
+
+    in.defaultReadObject();
+
+    // The index of the locations is not serialized
+    this.indexLoc = new HashMap<Integer, Integer>();
+    final int[] locations = this.hashInteger.get(FIELD_NAME_LOCATION);
+    if (locations != null && this.arrayLayout == null)
+      buildLocationIndex(locations);
+  }
+
   //
   // Constructors
   //
@@ -23,14 +23,11 @@
 package fr.ens.transcriptome.nividic.om.impl;
 
 import java.io.Serializable;
-import java.util.Arrays;
-import java.util.Comparator;
 
 import fr.ens.transcriptome.nividic.NividicRuntimeException;
 import fr.ens.transcriptome.nividic.om.Annotation;
 import fr.ens.transcriptome.nividic.om.AnnotationFactory;
 import fr.ens.transcriptome.nividic.om.BioAssay;
-import fr.ens.transcriptome.nividic.om.BioAssayFactory;
 import fr.ens.transcriptome.nividic.om.BioAssayRuntimeException;
 import fr.ens.transcriptome.nividic.om.BioAssayUtils;
 import fr.ens.transcriptome.nividic.om.DefaultSpotEmptyTester;
@@ -38,10 +35,12 @@ import fr.ens.transcriptome.nividic.om.History;
 import fr.ens.transcriptome.nividic.om.HistoryEntry;
 import fr.ens.transcriptome.nividic.om.Spot;
 import fr.ens.transcriptome.nividic.om.SpotEmptyTester;
+import fr.ens.transcriptome.nividic.om.SpotCursor;
 import fr.ens.transcriptome.nividic.om.SpotIterator;
 import fr.ens.transcriptome.nividic.om.HistoryEntry.HistoryActionResult;
 import fr.ens.transcriptome.nividic.om.HistoryEntry.HistoryActionType;
 import fr.ens.transcriptome.nividic.om.filters.BioAssayFilter;
+import fr.ens.transcriptome.nividic.om.filters.BioAssayIndexSorter;
 import fr.ens.transcriptome.nividic.om.filters.BiologicalFilter;
 import fr.ens.transcriptome.nividic.om.filters.SpotComparator;
 
@@ -538,6 +537,14 @@ public class BioAssayImpl extends BioAssayBaseImpl implements BioAssay,
     return new SpotIteratorImpl(this);
   }
 
+  /**
+   * Get a cursor over all the spots.
+   * @return A new SpotCursor Object.
+   */
+  public SpotCursor cursor() {
+    return new SpotCursor(this);
+  }
+
   /**
    * Get the spot at the index.
    * @param index The index of the spot
@@ -671,72 +678,9 @@ public class BioAssayImpl extends BioAssayBaseImpl implements BioAssay,
     if (comparator == null)
       throw new NividicRuntimeException("Comparator is null");
 
-    final int n = size();
-
-    Integer[] order = new Integer[n];
-
-    for (int i = 0; i < order.length; i++)
-      order[i] = i;
-
-    // Sort the order of the rows
-    Arrays.sort(order, new Comparator<Integer>() {
-
-      public int compare(final Integer arg0, final Integer arg1) {
-
-        return comparator.compare(getSpot(arg0), getSpot(arg1));
-      }
-    });
-
-    BioAssay ba = BioAssayFactory.createBioAssay();
-    ba.getAnnotation().addProperties(getAnnotation());
-    final String[] fields = getFields();
-
-    for (int i = 0; i < fields.length; i++) {
-
-      final String fieldName = fields[i];
-
-      switch (getFieldType(fieldName)) {
-
-      case BioAssay.DATATYPE_DOUBLE:
-
-        final double[] fieldDouble = getDataFieldDouble(fieldName);
-        final double[] newFieldDouble = new double[n];
-        for (int j = 0; j < n; j++)
-          newFieldDouble[j] = fieldDouble[order[j].intValue()];
-
-        ba.setDataFieldDouble(fieldName, newFieldDouble);
-        break;
-
-      case BioAssay.DATATYPE_INTEGER:
-
-        final int[] fieldInt = getDataFieldInt(fieldName);
-        final int[] newFieldInt = new int[n];
-        for (int j = 0; j < n; j++)
-          newFieldInt[j] = fieldInt[order[j].intValue()];
-
-        ba.setDataFieldInt(fieldName, newFieldInt);
-        break;
-
-      case BioAssay.DATATYPE_STRING:
-
-        final String[] fieldString = getDataFieldString(fieldName);
-        final String[] newFieldString = new String[n];
-        for (int j = 0; j < n; j++)
-          newFieldString[j] = fieldString[order[j].intValue()];
-
-        ba.setDataFieldString(fieldName, newFieldString);
-        break;
-
-      default:
-        throw new NividicRuntimeException("Invalid BioAssay Type");
-      }
-
-    }
-
-    ba.setReferenceField(getReferenceField());
-    ba.setSpotEmptyTester(getSpotEmptyTester());
-
-    return ba;
+    // Sort the order of the rows and gather all the fields in this order
+    return BioAssayIndexSorter.permute(this, BioAssayIndexSorter.sortIndexes(
+        this, comparator));
   }
 
   /**
@@ -856,12 +800,20 @@ public class BioAssayImpl extends BioAssayBaseImpl implements BioAssay,
         break;
       case BioAssay.DATATYPE_INTEGER:
 
-        setDataFieldInt(field, bioAssay.getDataFieldInt(field));
+        if (bioAssay.isDataFieldIntCompact(field))
+          setDataFieldCompactInt(field, bioAssay.getDataFieldCompactInt(field));
+        else
+          setDataFieldInt(field, bioAssay.getDataFieldInt(field));
         break;
 
       case BioAssay.DATATYPE_STRING:
 
-        setDataFieldString(field, bioAssay.getDataFieldString(field));
+        if (bioAssay.isDataFieldStringEncoded(field))
+          setDataFieldEncodedString(field, bioAssay
+              .getDataFieldStringCodes(field), bioAssay
+              .getDataFieldStringDictionary(field));
+        else
+          setDataFieldString(field, bioAssay.getDataFieldString(field));
         break;
 
       default:
@@ -870,6 +822,7 @@ public class BioAssayImpl extends BioAssayBaseImpl implements BioAssay,
     }
 
     setReferenceField(bioAssay.getReferenceField());
+    setArrayLayout(bioAssay.getArrayLayout());
 
     final HistoryEntry entry =
         new HistoryEntry("Create Matrix (#"
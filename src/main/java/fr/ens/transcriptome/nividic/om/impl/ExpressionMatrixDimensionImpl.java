@@ -37,7 +37,6 @@ import fr.ens.transcriptome.nividic.om.impl.storage.MatrixStore;
 import fr.ens.transcriptome.nividic.om.impl.storage.MatrixStoreException;
 import fr.ens.transcriptome.nividic.om.impl.storage.SimpleMatrixStore;
 import fr.ens.transcriptome.nividic.om.translators.Translator;
-import fr.ens.transcriptome.nividic.util.NividicUtils;
 
 /**
  * This class implemenents a expression matrix dimension.
@@ -229,13 +228,45 @@ public class ExpressionMatrixDimensionImpl implements
 
     matrix.throwExceptionIfColumnDoesntExists(columnName);
 
+    final int[] rowsIndex = this.matrix.getInternalRowsIndex();
+    final double[] result = new double[rowsIndex.length];
+
     try {
-      return NividicUtils.toDoubleArray(this.store.getColumnValuesAsArray(
-          getRowsIndex(this.matrix.getRowNames()), columnName));
+      this.store.getValues(rowsIndex, 0, rowsIndex.length, columnName, result);
     } catch (MatrixStoreException e) {
       e.printStackTrace();
       return null;
     }
+
+    return result;
+  }
+
+  /**
+   * Copy the values of a range of rows of a column in an array. The rows are
+   * in the order of getRowNames().
+   * @param columnNumber The index of the column
+   * @param fromRow index of the first row (inclusive)
+   * @param toRow index of the last row (exclusive)
+   * @param values array to fill, from index 0
+   * @throws ExpressionMatrixRuntimeException if the column or the rows don't
+   *             exist
+   */
+  public void getColumnValues(final int columnNumber, final int fromRow,
+      final int toRow, final double[] values)
+      throws ExpressionMatrixRuntimeException {
+
+    final int[] rowsIndex = this.matrix.getInternalRowsIndex();
+
+    if (fromRow < 0 || toRow > rowsIndex.length || fromRow > toRow)
+      throw new ExpressionMatrixRuntimeException("Invalid range of rows: "
+          + fromRow + "-" + toRow);
+
+    try {
+      this.store.getValues(rowsIndex, fromRow, toRow,
+          getColumnName(columnNumber), values);
+    } catch (MatrixStoreException e) {
+      throw new ExpressionMatrixRuntimeException(e.getMessage());
+    }
   }
 
   /**
@@ -367,10 +398,19 @@ public class ExpressionMatrixDimensionImpl implements
   public void setValues(final String[] ids, final String columnName,
       final double[] values) throws ExpressionMatrixRuntimeException {
 
-    setValues(getRowsIndex(ids), columnName, values);
+    setValues(getRowIndexes(ids), columnName, values);
   }
 
-  void setValues(final int[] rowsIndex, final String columnName,
+  /**
+   * Set in a column <code>ArrayDoubleList</code> a given value
+   * @param rowsIndex The internal indexes of the rows, as returned by
+   *            getRowIndexes()
+   * @param columnName the column name
+   * @param values The values to set in the column
+   * @throws ExpressionMatrixRuntimeException if the column to fill doesn't
+   *             exist
+   */
+  public void setValues(final int[] rowsIndex, final String columnName,
       final double[] values) throws ExpressionMatrixRuntimeException {
 
     matrix.throwExceptionIfColumnDoesntExists(columnName);
@@ -385,7 +425,14 @@ public class ExpressionMatrixDimensionImpl implements
     this.rowCount = this.matrix.getRowCount();
   }
 
-  private int[] getRowsIndex(final String[] rowNames) {
+  /**
+   * Get the internal indexes of rows.
+   * @param rowNames The names of the rows
+   * @return an array with the internal indexes of the rows
+   * @throws ExpressionMatrixRuntimeException if a row doesn't exist
+   */
+  public int[] getRowIndexes(final String[] rowNames)
+      throws ExpressionMatrixRuntimeException {
 
     if (rowNames == null)
       throw new ExpressionMatrixRuntimeException("String identifiers is null");
@@ -939,6 +986,31 @@ public class ExpressionMatrixDimensionImpl implements
     rowNamesChanged = true;
   }
 
+  /**
+   * Create internal rows.
+   * @param event event to process
+   */
+  private void execMsgAddRows(final ExpressionMatrixEvent event) {
+
+    // The ADD_MANY_ROW_EVENT sent after the addition of a bioassay only
+    // notify rows already added one by one
+    if (event.getValueType() != ExpressionMatrixEvent.INTEGER_VALUE_TYPE)
+      return;
+
+    final int count = event.getIntValue();
+
+    try {
+      this.store.addRow(count);
+    } catch (MatrixStoreException e) {
+
+      throw new ExpressionMatrixRuntimeException(e.getMessage());
+    }
+
+    this.rowCount += count;
+
+    rowNamesChanged = true;
+  }
+
   /**
    * Remove a column.
    * @param event event to process
@@ -1046,6 +1118,10 @@ public class ExpressionMatrixDimensionImpl implements
       execMsgAddRow();
       break;
 
+    case ExpressionMatrixEvent.ADD_MANY_ROW_EVENT:
+      execMsgAddRows(event);
+      break;
+
     case ExpressionMatrixEvent.ADD_DIMENSION_EVENT:
       execMsgAddDimension();
       break;
@@ -65,6 +65,7 @@ public class ExpressionMatrixImpl implements ExpressionMatrix,
 
   private Map<String, Integer> idsMap;
   private int rowCreatedCount;
+  private transient int[] internalRowsIndex;
   // private IterableMap referencesToColumnNamesMap;
 
   private List<String> columnNamesArrayList;
@@ -292,6 +293,28 @@ public class ExpressionMatrixImpl implements ExpressionMatrix,
     return index;
   }
 
+  /**
+   * Get the internal indexes of all the rows, in the order of getRowNames().
+   * The result is cached until the rows change and must not be modified.
+   * @return an array with the internal indexes of the rows
+   */
+  int[] getInternalRowsIndex() {
+
+    int[] result = this.internalRowsIndex;
+
+    if (result == null) {
+
+      result = new int[this.idsMap.size()];
+      int i = 0;
+      for (Integer index : this.idsMap.values())
+        result[i++] = index;
+
+      this.internalRowsIndex = result;
+    }
+
+    return result;
+  }
+
   /**
    * Get the names of the rows
    * @return return the names of the rows in an array of strings
@@ -428,6 +451,7 @@ public class ExpressionMatrixImpl implements ExpressionMatrix,
     this.removeRow(formerName);
 
     this.idsMap.put(newName, index);
+    this.internalRowsIndex = null;
 
     sendEvent(new ExpressionMatrixEvent(this,
         ExpressionMatrixEvent.RENAME_ROW_EVENT, new String[] {formerName,
@@ -492,6 +516,7 @@ public class ExpressionMatrixImpl implements ExpressionMatrix,
     throwExceptionIfRowNameDoesntExists(rowId);
 
     this.idsMap.remove(rowId);
+    this.internalRowsIndex = null;
 
     sendEvent(new ExpressionMatrixEvent(this,
         ExpressionMatrixEvent.REMOVE_ROW_EVENT, rowId));
@@ -1060,6 +1085,50 @@ public class ExpressionMatrixImpl implements ExpressionMatrix,
         ExpressionMatrixEvent.ADD_ROW_EVENT, rowName));
 
     this.idsMap.put(rowName, rowCreatedCount++);
+    this.internalRowsIndex = null;
+  }
+
+  /**
+   * Add many rows in one step. Only one event is sent to the dimensions.
+   * @param rowNames Names of the new rows
+   */
+  public void addRows(final String[] rowNames) {
+
+    if (rowNames == null)
+      throw new ExpressionMatrixRuntimeException(
+          "the names of the rows to add are null");
+
+    final int n = rowNames.length;
+
+    if (n == 0)
+      return;
+
+    for (int i = 0; i < n; i++)
+      if (rowNames[i] == null)
+        throw new ExpressionMatrixRuntimeException(
+            "the name of the row to add is null");
+      else if (containsRow(rowNames[i]))
+        throw new ExpressionMatrixRuntimeException(
+            "the id that you try to create already exist, id name : "
+                + rowNames[i]);
+
+    for (int i = 0; i < n; i++)
+      if (this.idsMap.put(rowNames[i], rowCreatedCount + i) != null) {
+
+        // Duplicated name in the array, remove the rows added
+        for (int j = 0; j < i; j++)
+          this.idsMap.remove(rowNames[j]);
+
+        throw new ExpressionMatrixRuntimeException(
+            "the id that you try to create already exist, id name : "
+                + rowNames[i]);
+      }
+
+    this.rowCreatedCount += n;
+    this.internalRowsIndex = null;
+
+    sendEvent(new ExpressionMatrixEvent(this,
+        ExpressionMatrixEvent.ADD_MANY_ROW_EVENT, n));
   }
 
   /**
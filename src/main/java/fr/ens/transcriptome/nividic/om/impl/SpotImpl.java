@@ -24,6 +24,7 @@ package fr.ens.transcriptome.nividic.om.impl;
 
 import java.io.Serializable;
 
+import fr.ens.transcriptome.nividic.om.ArrayLayout;
 import fr.ens.transcriptome.nividic.om.BioAssay;
 import fr.ens.transcriptome.nividic.om.BioAssayRuntimeException;
 import fr.ens.transcriptome.nividic.om.BioAssayUtils;
@@ -45,6 +46,7 @@ public class SpotImpl implements Spot, Serializable {
   private double[] as;
   private double[] brights;
   private int[] locations;
+  private ArrayLayout layout;
   private String[] descriptions;
   private int[] flags;
   private int[] greens;
@@ -87,10 +89,7 @@ public class SpotImpl implements Spot, Serializable {
   public int getRed() {
 
     testIndex();
-    if (this.reds == null)
-      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
-          "this field doesn't exist in this bioAssay");
-    return this.reds[this.index];
+    return getInt(this.reds, BioAssay.FIELD_NAME_RED);
   }
 
   /**
@@ -100,10 +99,7 @@ public class SpotImpl implements Spot, Serializable {
   public int getGreen() {
 
     testIndex();
-    if (this.greens == null)
-      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
-          "this field doesn't exist in this bioAssay");
-    return this.greens[this.index];
+    return getInt(this.greens, BioAssay.FIELD_NAME_GREEN);
   }
 
   /**
@@ -113,10 +109,7 @@ public class SpotImpl implements Spot, Serializable {
   public String getId() {
 
     testIndex();
-    if (this.ids == null)
-      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
-          "this field doesn't exist in this bioAssay");
-    return this.ids[this.index];
+    return getString(this.ids, BioAssay.FIELD_NAME_ID);
   }
 
   /**
@@ -126,10 +119,7 @@ public class SpotImpl implements Spot, Serializable {
   public int getFlag() {
 
     testIndex();
-    if (this.flags == null)
-      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
-          "this field doesn't exist in this bioAssay");
-    return this.flags[this.index];
+    return getInt(this.flags, BioAssay.FIELD_NAME_FLAG);
   }
 
   /**
@@ -139,10 +129,7 @@ public class SpotImpl implements Spot, Serializable {
   public String getDescription() {
 
     testIndex();
-    if (this.descriptions == null)
-      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
-          "this field doesn't exist in this bioAssay");
-    return this.descriptions[this.index];
+    return getString(this.descriptions, BioAssay.FIELD_NAME_DESCRIPTION);
   }
 
   /**
@@ -440,6 +427,15 @@ public class SpotImpl implements Spot, Serializable {
       throws BioAssayRuntimeException {
 
     testIndex();
+
+    // Avoid to copy the locations of a shared layout
+    if (BioAssay.FIELD_NAME_LOCATION.equals(field))
+      return getLocation();
+
+    // Avoid to decode the whole field
+    if (this.bioAssay.isDataFieldIntCompact(field))
+      return this.bioAssay.getDataFieldCompactInt(field).get(this.index);
+
     final int[] data = this.bioAssay.getDataFieldInt(field);
 
     if (data == null) {
@@ -484,6 +480,12 @@ public class SpotImpl implements Spot, Serializable {
       throws BioAssayRuntimeException {
 
     testIndex();
+
+    // Avoid to decode the whole field
+    if (this.bioAssay.isDataFieldStringEncoded(field))
+      return this.bioAssay.getDataFieldStringDictionary(field).decode(
+          this.bioAssay.getDataFieldStringCodes(field)[this.index]);
+
     final String[] data = this.bioAssay.getDataFieldString(field);
 
     if (data == null) {
@@ -517,22 +519,26 @@ public class SpotImpl implements Spot, Serializable {
       this.as = bioAssay.getAs();
     if (bioAssay.isBrights())
       this.brights = bioAssay.getBrights();
-    if (bioAssay.isLocations())
+    // The locations of a shared layout are only read
+    this.layout = bioAssay.getArrayLayout();
+    if (this.layout != null)
+      this.locations = this.layout.getLocations();
+    else if (bioAssay.isLocations())
       this.locations = bioAssay.getLocations();
     if (bioAssay.isDescriptions())
-      this.descriptions = bioAssay.getDescriptions();
+      this.descriptions = getStringField(BioAssay.FIELD_NAME_DESCRIPTION);
     if (bioAssay.isFlags())
-      this.flags = bioAssay.getFlags();
+      this.flags = getIntField(BioAssay.FIELD_NAME_FLAG);
     if (bioAssay.isGreens())
-      this.greens = bioAssay.getGreens();
+      this.greens = getIntField(BioAssay.FIELD_NAME_GREEN);
     if (bioAssay.isIds())
-      this.ids = bioAssay.getIds();
+      this.ids = getStringField(BioAssay.FIELD_NAME_ID);
     if (bioAssay.isMs())
       this.ms = bioAssay.getMs();
     if (bioAssay.isRatios())
       this.ratios = bioAssay.getRatios();
     if (bioAssay.isReds())
-      this.reds = bioAssay.getReds();
+      this.reds = getIntField(BioAssay.FIELD_NAME_RED);
     if (bioAssay.isStdDevAs())
       this.stdDevA = bioAssay.getStdDevAs();
     if (bioAssay.isStdDevMs())
@@ -558,9 +564,9 @@ public class SpotImpl implements Spot, Serializable {
 
     testIndex();
     if (this.flags == null)
-      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
-          "this field doesn't exist in this bioAssay");
-    this.flags[this.index] = flag;
+      setInt(BioAssay.FIELD_NAME_FLAG, flag);
+    else
+      this.flags[this.index] = flag;
   }
 
   /**
@@ -573,9 +579,9 @@ public class SpotImpl implements Spot, Serializable {
 
     testIndex();
     if (this.greens == null)
-      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
-          "this field doesn't exist in this bioAssay");
-    this.greens[this.index] = green;
+      setInt(BioAssay.FIELD_NAME_GREEN, green);
+    else
+      this.greens[this.index] = green;
   }
 
   /**
@@ -587,9 +593,9 @@ public class SpotImpl implements Spot, Serializable {
 
     testIndex();
     if (this.reds == null)
-      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
-          "this field doesn't exist in this bioAssay");
-    this.reds[this.index] = red;
+      setInt(BioAssay.FIELD_NAME_RED, red);
+    else
+      this.reds[this.index] = red;
   }
 
   /**
@@ -616,9 +622,9 @@ public class SpotImpl implements Spot, Serializable {
 
     testIndex();
     if (this.ids == null)
-      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
-          "this field doesn't exist in this bioAssay");
-    this.ids[this.index] = id;
+      setString(BioAssay.FIELD_NAME_ID, id);
+    else
+      this.ids[this.index] = id;
   }
 
   /**
@@ -647,9 +653,9 @@ public class SpotImpl implements Spot, Serializable {
 
     testIndex();
     if (this.descriptions == null)
-      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
-          "this field doesn't exist in this bioAssay");
-    this.descriptions[this.index] = description;
+      setString(BioAssay.FIELD_NAME_DESCRIPTION, description);
+    else
+      this.descriptions[this.index] = description;
   }
 
   /**
@@ -719,6 +725,18 @@ public class SpotImpl implements Spot, Serializable {
     if (this.locations == null)
       throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
           "this field doesn't exist in this bioAssay");
+
+    // Detach the shared layout on the first write
+    if (this.layout != null) {
+
+      final int[] copy = this.bioAssay.getLocations();
+      copy[this.index] = location;
+      this.bioAssay.setLocations(copy);
+      this.locations = copy;
+      this.layout = null;
+      return;
+    }
+
     this.locations[this.index] = location;
   }
 
@@ -781,8 +799,19 @@ public class SpotImpl implements Spot, Serializable {
       throws BioAssayRuntimeException {
 
     testIndex();
-    final int[] data = this.bioAssay.getDataFieldInt(field);
-    data[this.index] = value;
+
+    // The locations may be shared with a layout
+    if (BioAssay.FIELD_NAME_LOCATION.equals(field)) {
+      setLocation(value);
+      return;
+    }
+
+    final boolean compact = this.bioAssay.isDataFieldIntCompact(field);
+    this.bioAssay.setDataFieldIntValue(field, this.index, value);
+
+    // A compact field is decoded in a new array
+    if (compact)
+      setBioAssay(this.bioAssay);
   }
 
   /**
@@ -809,8 +838,106 @@ public class SpotImpl implements Spot, Serializable {
       throws BioAssayRuntimeException {
 
     testIndex();
-    final String[] data = this.bioAssay.getDataFieldString(field);
-    data[this.index] = value;
+    final boolean encoded = this.bioAssay.isDataFieldStringEncoded(field);
+    this.bioAssay.setDataFieldStringValue(field, this.index, value);
+
+    // An encoded field is decoded in a new array
+    if (encoded)
+      setBioAssay(this.bioAssay);
+  }
+
+  /**
+   * Get the array of an integer field. Compact fields are not decoded, their
+   * values are decoded spot by spot.
+   * @param field The field
+   * @return the array of the field or null if the field is compact
+   */
+  private int[] getIntField(final String field) {
+
+    if (this.bioAssay.isDataFieldIntCompact(field))
+      return null;
+
+    return this.bioAssay.getDataFieldInt(field);
+  }
+
+  /**
+   * Get the value of the spot in an integer field.
+   * @param data The array of the field or null if the field is compact
+   * @param field The field
+   * @return the value of the spot
+   */
+  private int getInt(final int[] data, final String field) {
+
+    if (data != null)
+      return data[this.index];
+
+    if (!this.bioAssay.isDataFieldIntCompact(field))
+      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
+          "this field doesn't exist in this bioAssay");
+
+    return this.bioAssay.getDataFieldCompactInt(field).get(this.index);
+  }
+
+  /**
+   * Set the value of the spot in a compact integer field. The field is decoded
+   * on the first write.
+   * @param field The field
+   * @param value The value to set
+   */
+  private void setInt(final String field, final int value) {
+
+    if (!this.bioAssay.isDataFieldIntCompact(field))
+      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
+          "this field doesn't exist in this bioAssay");
+
+    setDataFieldInt(field, value);
+  }
+
+  /**
+   * Get the array of a string field. Encoded fields are not decoded, their
+   * values are decoded spot by spot.
+   * @param field The field
+   * @return the array of the field or null if the field is encoded
+   */
+  private String[] getStringField(final String field) {
+
+    if (this.bioAssay.isDataFieldStringEncoded(field))
+      return null;
+
+    return this.bioAssay.getDataFieldString(field);
+  }
+
+  /**
+   * Get the value of the spot in a string field.
+   * @param data The array of the field or null if the field is encoded
+   * @param field The field
+   * @return the value of the spot
+   */
+  private String getString(final String[] data, final String field) {
+
+    if (data != null)
+      return data[this.index];
+
+    if (!this.bioAssay.isDataFieldStringEncoded(field))
+      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
+          "this field doesn't exist in this bioAssay");
+
+    return getDataFieldString(field);
+  }
+
+  /**
+   * Set the value of the spot in an encoded string field. The field is decoded
+   * on the first write.
+   * @param field The field
+   * @param value The value to set
+   */
+  private void setString(final String field, final String value) {
+
+    if (!this.bioAssay.isDataFieldStringEncoded(field))
+      throw new BioAssayRuntimeException(BioAssayRuntimeException.NULL_POINTER,
+          "this field doesn't exist in this bioAssay");
+
+    setDataFieldString(field, value);
   }
 
   private void testIndex() {
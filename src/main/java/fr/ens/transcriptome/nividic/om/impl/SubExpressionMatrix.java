@@ -459,6 +459,18 @@ public class SubExpressionMatrix implements ExpressionMatrix,
     throwsExpressionMatrixRuntimeExceptionForIllegalActions();
   }
 
+  /**
+   * Add rows in the matrix, all the values are at NA
+   * @param names The names of the rows that you want to add
+   * @throws ExpressionMatrixRuntimeException this operation is illegal when
+   *             used in a SubExpressionMatrix object
+   */
+  public void addRows(final String[] names)
+      throws ExpressionMatrixRuntimeException {
+
+    throwsExpressionMatrixRuntimeExceptionForIllegalActions();
+  }
+
   /**
    * Add a row in the matrix
    * @param row An array of double that you want to add to your matrix
@@ -181,6 +181,35 @@ public class SubExpressionMatrixDimension implements ExpressionMatrixDimension,
     return values;
   }
 
+  /**
+   * Copy the values of a range of rows of a column in an array. The rows are
+   * in the order of getRowNames().
+   * @param columnNumber The index of the column
+   * @param fromRow index of the first row (inclusive)
+   * @param toRow index of the last row (exclusive)
+   * @param values array to fill, from index 0
+   * @throws ExpressionMatrixRuntimeException if the column or the rows don't
+   *             exist
+   */
+  public void getColumnValues(final int columnNumber, final int fromRow,
+      final int toRow, final double[] values)
+      throws ExpressionMatrixRuntimeException {
+
+    final String columnName = getColumnName(columnNumber);
+    this.matrix.throwExceptionIfColumnDoesntExists(columnName);
+
+    final String[] ids = this.matrix.getRowNames();
+
+    if (fromRow < 0 || toRow > ids.length || fromRow > toRow)
+      throw new ExpressionMatrixRuntimeException("Invalid range of rows: "
+          + fromRow + "-" + toRow);
+
+    final int indexColumn = this.matrixDimension.getColumnIndex(columnName);
+
+    for (int i = fromRow; i < toRow; i++)
+      values[i - fromRow] = this.matrixDimension.getValue(ids[i], indexColumn);
+  }
+
   /**
    * Extract a value from the matrix
    * @param rowId the id of the spot, name of the row where the value is to be
@@ -276,7 +305,14 @@ public class SubExpressionMatrixDimension implements ExpressionMatrixDimension,
     this.matrixDimension.setValue(rowId, getColumnName(columnNumber), value);
   }
 
-  private int[] getRowsIndex(final String[] rowNames) {
+  /**
+   * Get the internal indexes of rows.
+   * @param rowNames The names of the rows
+   * @return an array with the internal indexes of the rows
+   * @throws ExpressionMatrixRuntimeException if a row doesn't exist
+   */
+  public int[] getRowIndexes(final String[] rowNames)
+      throws ExpressionMatrixRuntimeException {
 
     if (rowNames == null)
       throw new ExpressionMatrixRuntimeException("String identifiers is null");
@@ -307,7 +343,23 @@ public class SubExpressionMatrixDimension implements ExpressionMatrixDimension,
   public void setValues(final String[] ids, final String columnName,
       final double[] values) throws ExpressionMatrixRuntimeException {
 
-    this.matrixDimension.setValues(getRowsIndex(ids), columnName, values);
+    setValues(getRowIndexes(ids), columnName, values);
+  }
+
+  /**
+   * Set a value in the matrix
+   * @param rowsIndex The internal indexes of the rows, as returned by
+   *            getRowIndexes()
+   * @param columnName The name of the column where you want to insert your
+   *            value
+   * @param values the values to set in the matrix
+   * @throws ExpressionMatrixRuntimeException if the column that you want to
+   *             reach doesn't exist
+   */
+  public void setValues(final int[] rowsIndex, final String columnName,
+      final double[] values) throws ExpressionMatrixRuntimeException {
+
+    this.matrixDimension.setValues(rowsIndex, columnName, values);
   }
 
   /**
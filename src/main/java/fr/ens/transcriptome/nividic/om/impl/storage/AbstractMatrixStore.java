@@ -47,6 +47,19 @@ public abstract class AbstractMatrixStore implements MatrixStore, Serializable {
     return result;
   }
 
+  public void getValues(final int[] rowsIndex, final int from, final int to,
+      final String columnName, final double[] values)
+      throws MatrixStoreException {
+
+    if (rowsIndex == null)
+      throw new MatrixStoreException("rows Index are null");
+    if (values == null)
+      throw new MatrixStoreException("Values are null");
+
+    for (int i = from; i < to; i++)
+      values[i - from] = get(rowsIndex[i], columnName);
+  }
+
   public void setValues(final int[] rowsIndex, final String columnName,
       final double[] values) throws MatrixStoreException {
 
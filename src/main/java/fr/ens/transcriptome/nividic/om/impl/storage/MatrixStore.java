@@ -52,6 +52,10 @@ public interface MatrixStore {
   List<Double> getColumnValuesAsArray(final int[] rowsIndex,
       final String columnName) throws MatrixStoreException;
 
+  void getValues(final int[] rowsIndex, final int from, final int to,
+      final String columnName, final double[] values)
+      throws MatrixStoreException;
+
   void setValues(final int[] rowsIndex, final String columnName,
       final double[] values) throws MatrixStoreException;
 
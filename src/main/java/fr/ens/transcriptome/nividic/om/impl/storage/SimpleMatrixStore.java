@@ -22,18 +22,33 @@
 
 package fr.ens.transcriptome.nividic.om.impl.storage;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import fr.ens.transcriptome.nividic.om.ExpressionMatrixRuntimeException;
 
+/**
+ * This class store the values of a matrix in memory. Each column is stored in
+ * an array of doubles which capacity grows with the number of rows. For the
+ * serialization, the columns are written as raw blocks of doubles.
+ * @author Laurent Jourdren
+ */
 public class SimpleMatrixStore extends AbstractMatrixStore {
 
-  private Map<String, List<Double>> columns =
-      new LinkedHashMap<String, List<Double>>();
+  /** serial version for serialization. */
+  static final long serialVersionUID = -1758126745096539183L;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private transient Map<String, double[]> columns =
+      new LinkedHashMap<String, double[]>();
+  private transient int capacity;
   public int rowCount;
 
   public boolean isColumn(final String columnName) {
@@ -55,10 +70,8 @@ public class SimpleMatrixStore extends AbstractMatrixStore {
     if (columnName == null)
       return;
 
-    List<Double> columnToAdd = new ArrayList<Double>(this.rowCount);
-
-    for (int i = 0; i < this.rowCount; i++)
-      columnToAdd.add(i, Double.NaN);
+    final double[] columnToAdd = new double[this.capacity];
+    Arrays.fill(columnToAdd, Double.NaN);
 
     this.columns.put(columnName, columnToAdd);
   }
@@ -83,7 +96,7 @@ public class SimpleMatrixStore extends AbstractMatrixStore {
       throw new ExpressionMatrixRuntimeException(
           "The name of the column to rename " + oldName + " does not exist");
 
-    List<Double> col = this.columns.get(oldName);
+    double[] col = this.columns.get(oldName);
 
     this.columns.remove(oldName);
     this.columns.put(newName, col);
@@ -93,11 +106,25 @@ public class SimpleMatrixStore extends AbstractMatrixStore {
 
     int c = count < 1 ? 1 : count;
 
-    for (Map.Entry<String, List<Double>> entry : this.columns.entrySet())
-      for (int i = 0; i < c; i++)
-        entry.getValue().add(Double.NaN);
+    final int newRowCount = this.rowCount + c;
+
+    if (newRowCount > this.capacity) {
+
+      final int newCapacity =
+          Math.max(newRowCount, Math.max(INITIAL_CAPACITY, this.capacity * 2));
+
+      for (Map.Entry<String, double[]> entry : this.columns.entrySet()) {
 
-    this.rowCount += c;
+        final double[] newColumn = new double[newCapacity];
+        System.arraycopy(entry.getValue(), 0, newColumn, 0, this.rowCount);
+        Arrays.fill(newColumn, this.rowCount, newCapacity, Double.NaN);
+        entry.setValue(newColumn);
+      }
+
+      this.capacity = newCapacity;
+    }
+
+    this.rowCount = newRowCount;
   }
 
   /*
@@ -126,11 +153,11 @@ public class SimpleMatrixStore extends AbstractMatrixStore {
       throw new MatrixStoreException("The row doesn't exist ("
           + rowIndex + "\t" + this.rowCount + ")");
 
-    final List<Double> column = this.columns.get(columnName);
+    final double[] column = this.columns.get(columnName);
     if (column == null)
       throw new MatrixStoreException("The column doesn't exist");
 
-    column.set(rowIndex, value);
+    column[rowIndex] = value;
   }
 
   /*
@@ -144,21 +171,142 @@ public class SimpleMatrixStore extends AbstractMatrixStore {
     if (rowIndex < 0 || rowIndex >= this.rowCount)
       throw new MatrixStoreException("The row doesn't exist");
 
-    final List<Double> column = this.columns.get(columnName);
+    final double[] column = this.columns.get(columnName);
     if (column == null)
       throw new MatrixStoreException("The column doesn't exist");
 
-    return column.get(rowIndex);
+    return column[rowIndex];
+  }
+
+  @Override
+  public void getValues(final int[] rowsIndex, final int from, final int to,
+      final String columnName, final double[] values)
+      throws MatrixStoreException {
+
+    if (rowsIndex == null)
+      throw new MatrixStoreException("rows Index are null");
+    if (values == null)
+      throw new MatrixStoreException("Values are null");
+
+    final double[] column = this.columns.get(columnName);
+    if (column == null)
+      throw new MatrixStoreException("The column doesn't exist");
+
+    for (int i = from; i < to; i++) {
+
+      final int rowIndex = rowsIndex[i];
+      if (rowIndex < 0 || rowIndex >= this.rowCount)
+        throw new MatrixStoreException("The row doesn't exist");
+
+      values[i - from] = column[rowIndex];
+    }
+  }
+
+  @Override
+  public void setValues(final int[] rowsIndex, final String columnName,
+      final double[] values) throws MatrixStoreException {
+
+    if (rowsIndex == null)
+      throw new MatrixStoreException("Index is null");
+    if (values == null)
+      throw new MatrixStoreException("Values are null");
+    if (rowsIndex.length != values.length)
+      throw new MatrixStoreException(
+          "Arrays of index and values have not the same size");
+
+    final double[] column = this.columns.get(columnName);
+    if (column == null)
+      throw new MatrixStoreException("The column doesn't exist");
+
+    for (int i = 0; i < rowsIndex.length; i++) {
+
+      final int rowIndex = rowsIndex[i];
+      if (rowIndex < 0 || rowIndex >= this.rowCount)
+        throw new MatrixStoreException("The row doesn't exist");
+
+      column[rowIndex] = values[i];
+    }
+  }
+
+  public List<Double> getColumnValuesAsArray(final int[] rowsIndex,
+      final String columnName) throws MatrixStoreException {
+
+    if (rowsIndex == null)
+      throw new MatrixStoreException("rows Index are null");
+
+    final double[] column = this.columns.get(columnName);
+    if (column == null)
+      return null;
+
+    final List<Double> result = new ArrayList<Double>(rowsIndex.length);
+
+    for (int i = 0; i < rowsIndex.length; i++) {
+
+      final int rowIndex = rowsIndex[i];
+      if (rowIndex < 0 || rowIndex >= this.rowCount)
+        throw new MatrixStoreException("The row doesn't exist");
+
+      result.add(column[rowIndex]);
+    }
+
+    return result;
   }
 
   public void fill(final String columnName, final double value)
       throws MatrixStoreException {
 
-    final List<Double> column = this.columns.get(columnName);
+    final double[] column = this.columns.get(columnName);
     if (column == null)
       throw new MatrixStoreException("The column doesn't exist");
 
-    Collections.fill(column, Double.NaN);
+    Arrays.fill(column, 0, this.rowCount, value);
+  }
+
+  //
+  // Serialization
+  //
+
+  private void writeObject(final ObjectOutputStream out) throws IOException {
+
+    out.defaultWriteObject();
+    out.writeInt(this.columns.size());
+
+    for (Map.Entry<String, double[]> e : this.columns.entrySet()) {
+
+      final double[] column = e.getValue();
+
+      out.writeObject(e.getKey());
+
+      // Only the used part of the columns is written
+      if (column.length == this.rowCount)
+        out.writeObject(column);
+      else {
+        final double[] values = new double[this.rowCount];
+        System.arraycopy(column, 0, values, 0, this.rowCount);
+        out.writeObject(values);
+      }
+    }
+  }
+
+  private void readObject(final ObjectInputStream in) throws IOException,
+      ClassNotFoundException {
+
+    in.defaultReadObject();
+
+    final int columnCount = in.readInt();
+    this.columns = new LinkedHashMap<String, double[]>();
+    this.capacity = this.rowCount;
+
+    for (int i = 0; i < columnCount; i++) {
+
+      final String columnName = (String) in.readObject();
+      final double[] column = (double[]) in.readObject();
+
+      if (column.length != this.rowCount)
+        throw new IOException("Invalid length for column " + columnName);
+
+      this.columns.put(columnName, column);
+    }
   }
 
 }
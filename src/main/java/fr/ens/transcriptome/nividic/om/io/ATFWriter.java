@@ -22,12 +22,10 @@
 
 package fr.ens.transcriptome.nividic.om.io;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 
 import fr.ens.transcriptome.nividic.Globals;
 import fr.ens.transcriptome.nividic.om.Annotation;
@@ -46,8 +44,11 @@ public class ATFWriter extends BioAssayWriter {
   private static final String eol = DOS_EOL;
   private static final char separator = SEPARATOR_TAB;
   private String encoding = Globals.DEFAULT_FILE_ENCODING;
-  
-  private BufferedWriter bw;
+
+  /** Number of chars buffered before writing the rows. */
+  static final int ROWS_BUFFER_SIZE = 64 * 1024;
+
+  private Writer bw;
 
   /**
    * Get the encoding used to write the file.
@@ -95,9 +96,9 @@ public class ATFWriter extends BioAssayWriter {
 
     try {
       bw =
-          new BufferedWriter(new OutputStreamWriter(getOutputStream(),
-              getEncoding()));
-    } catch (UnsupportedEncodingException e) {
+          new ChannelWriter(getOutputStream(), getEncoding(),
+              ChannelWriter.DEFAULT_BUFFER_SIZE);
+    } catch (IllegalArgumentException e) {
       throw new NividicIOException("Unknown encoding: " + getEncoding());
     }
 
@@ -159,37 +160,34 @@ public class ATFWriter extends BioAssayWriter {
     final int countCol = getColumnCount();
     final int countRow = getRowColumn();
 
+    final ColumnWriter[] columns = getColumnWriters();
+    final int[] types = new int[countCol];
+    for (int j = 0; j < countCol; j++)
+      types[j] = getFieldType(j);
+
     try {
-      StringBuffer sb = new StringBuffer();
+      final TextBuffer sb = new TextBuffer();
       for (int i = 0; i < countRow; i++) {
 
         for (int j = 0; j < countCol; j++) {
 
-          String value = getData(i, j);
-          if (value == null)
-            value = "";
-
-          switch (getFieldType(j)) {
+          switch (types[j]) {
           case BioAssay.DATATYPE_STRING:
             sb.append('\"');
-            sb.append(value);
+            columns[j].append(i, sb);
             sb.append('\"');
             break;
 
-          case BioAssay.DATATYPE_INTEGER:
-            sb.append(value);
-            break;
-
           case BioAssay.DATATYPE_DOUBLE:
-            if (value.equals("NaN"))
+            if (columns[j].isNaN(i))
               sb.append("Error");
             else
-              sb.append(value);
+              columns[j].append(i, sb);
             break;
 
-          // Locations type
+          // Integers and locations type
           default:
-            sb.append(value);
+            columns[j].append(i, sb);
             break;
           }
 
@@ -198,10 +196,12 @@ public class ATFWriter extends BioAssayWriter {
           else
             sb.append(separator);
         }
-        this.bw.write(sb.toString());
-        sb.delete(0, sb.length());
+
+        if (sb.length() >= ROWS_BUFFER_SIZE)
+          sb.writeTo(this.bw);
       }
 
+      sb.writeTo(this.bw);
       this.bw.close();
     } catch (IOException e) {
       throw new NividicIOException("Error while writing stream : "
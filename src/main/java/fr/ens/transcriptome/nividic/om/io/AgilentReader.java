@@ -22,11 +22,9 @@
 
 package fr.ens.transcriptome.nividic.om.io;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -40,13 +38,15 @@ import fr.ens.transcriptome.nividic.om.Annotation;
 import fr.ens.transcriptome.nividic.om.BioAssay;
 import fr.ens.transcriptome.nividic.om.BioAssayFactory;
 import fr.ens.transcriptome.nividic.om.BioAssayUtils;
-import fr.ens.transcriptome.nividic.util.NividicUtils;
+import fr.ens.transcriptome.nividic.om.StringDictionary;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
 
 /**
  * This class implements a BioAssayWriter for Agilent streams.
  * @author Laurent Jourdren
  */
-public class AgilentReader extends InputStreamBioAssayReader {
+public class AgilentReader extends InputStreamBioAssayReader implements
+    BioAssayRowReader {
 
   private static final FieldNameConverter CONVERTER =
       new AgilentConverterFieldNames();
@@ -73,7 +73,7 @@ public class AgilentReader extends InputStreamBioAssayReader {
     private static final String ROW_DATA_ID = "DATA";
     private static final String ROW_END_ID = "*";
 
-    private BufferedReader reader;
+    private LineTokenizer tokenizer;
     private LinkedHashMap<String, Integer> types =
         new LinkedHashMap<String, Integer>();
     private String type;
@@ -97,24 +97,21 @@ public class AgilentReader extends InputStreamBioAssayReader {
 
     public void readHeader() throws IOException, NividicIOException {
 
-      final BufferedReader reader = this.reader;
+      final LineTokenizer tokenizer = this.tokenizer;
 
       //
       // Read the 2 first lines
       //
 
-      final String headerTypesLine = reader.readLine();
-
-      if (headerTypesLine == null)
+      if (!tokenizer.nextLine())
         throw new NividicIOException("Unexpected end of file.");
 
-      String headerNamesLine = reader.readLine();
+      final String[] typesValues = split(tokenizer);
 
-      if (headerNamesLine == null)
+      if (!tokenizer.nextLine())
         throw new NividicIOException("Unexpected end of file.");
 
-      final String[] typesValues = headerTypesLine.split(SEPARATOR);
-      final String[] namesValues = headerNamesLine.split(SEPARATOR);
+      final String[] namesValues = split(tokenizer);
 
       if (typesValues.length < 1)
         throw new NividicIOException("Unexpected end of file.");
@@ -159,63 +156,158 @@ public class AgilentReader extends InputStreamBioAssayReader {
       if (!this.headerReaded)
         readHeader();
 
-      final BufferedReader reader = this.reader;
+      final LineTokenizer tokenizer = this.tokenizer;
+      final int n = this.types.size();
+      final String[] fields = new String[n + 1];
+      final int[] fieldTypes = new int[n + 1];
+      final boolean[] fieldsToRead = new boolean[n + 1];
+
+      // The first column contains the type of the row
+      fieldsToRead[0] = true;
+
+      int k = 1;
+      for (final String field : this.types.keySet()) {
+        fields[k] = field;
+        fieldTypes[k] = getFieldType(field);
+        fieldsToRead[k] = isFieldToRead(field);
+        k++;
+      }
+
+      // Lines are not split after the last field to read
+      tokenizer.setFieldsToProcess(fieldsToRead);
+
+      try {
+        readTable(fields, fieldTypes, fieldsToRead);
+      } finally {
+        tokenizer.setFieldsToProcess(null);
+      }
+    }
+
+    /**
+     * Read the rows of the table.
+     * @param fields names of the columns
+     * @param fieldTypes types of the columns
+     * @param fieldsToRead columns to read
+     * @throws IOException if an error occurs while reading the stream
+     * @throws NividicIOException if the table is invalid
+     */
+    protected void readTable(final String[] fields, final int[] fieldTypes,
+        final boolean[] fieldsToRead) throws IOException, NividicIOException {
+
+      readRows(this.tokenizer, fields, fieldTypes, fieldsToRead);
+    }
+
+    /**
+     * Read the rows of a tokenizer.
+     * @param tokenizer tokenizer to read
+     * @param fields names of the columns
+     * @param fieldTypes types of the columns
+     * @param fieldsToRead columns to read
+     * @return true if the end of the table has been found
+     * @throws IOException if an error occurs while reading the stream
+     * @throws NividicIOException if the table is invalid
+     */
+    protected boolean readRows(final LineTokenizer tokenizer,
+        final String[] fields, final int[] fieldTypes,
+        final boolean[] fieldsToRead) throws IOException, NividicIOException {
+
       int rowCount = 0;
-      String line;
+      boolean end = false;
+      final boolean checkAllRows = isAllColumnsRead(fieldsToRead);
 
-      while ((line = reader.readLine()) != null) {
+      while (tokenizer.nextLine()) {
 
-        final String[] values = line.split(SEPARATOR);
+        final String rowId = tokenizer.getString(0);
 
-        if (ROW_END_ID.equals(values[0]))
-          return;
+        if (ROW_END_ID.equals(rowId)) {
+          end = true;
+          break;
+        }
 
-        if (this.columnCount < values.length - 1)
+        if ((checkAllRows || rowCount == 0)
+            && this.columnCount < tokenizer.getSplitFieldCount() - 1)
           throw new NividicIOException("Invalid number of column.");
 
-        if (!ROW_DATA_ID.endsWith(values[0]))
+        if (!ROW_DATA_ID.endsWith(rowId))
           throw new NividicIOException("Invalid row.");
 
         newRow(rowCount);
-        int colCount = 1;
-
-        for (final String field : this.types.keySet()) {
 
-          final String value;
+        for (int i = 1; i < fields.length; i++) {
 
-          if (colCount >= values.length)
-            value = "";
-          else
-            value = values[colCount];
+          if (!fieldsToRead[i])
+            continue;
 
-          switch (getFieldType(field)) {
+          switch (fieldTypes[i]) {
 
           case BioAssay.DATATYPE_STRING:
-            setText(field, new String(value));
+            setText(fields[i], tokenizer.getString(i));
             break;
 
           case BioAssay.DATATYPE_INTEGER:
-
-            final int intVal = Integer.parseInt(value);
-            setInteger(field, intVal);
+            setInteger(fields[i], tokenizer.getInt(i, 0));
             break;
 
           case BioAssay.DATATYPE_DOUBLE:
-
-            final double doubleVal = Double.parseDouble(value);
-            setFloat(field, doubleVal);
+            setFloat(fields[i], tokenizer.getDouble(i, false));
             break;
 
           default:
             break;
           }
-
-          colCount++;
         }
         rowCount++;
       }
       newRow(rowCount);
 
+      return end;
+    }
+
+    /**
+     * Get the tokenizer of the table.
+     * @return the tokenizer of the table
+     */
+    protected LineTokenizer getTokenizer() {
+
+      return this.tokenizer;
+    }
+
+    /**
+     * Copy the header of another table.
+     * @param table table to copy
+     */
+    protected void copyHeader(final TableReader table) {
+
+      this.types = table.types;
+      this.type = table.type;
+      this.columnCount = table.columnCount;
+      this.headerReaded = table.headerReaded;
+    }
+
+    /**
+     * Test if a field must be read. The values of the other fields are not
+     * parsed.
+     * @param field Field to test
+     * @return true if the field must be read
+     */
+    protected boolean isFieldToRead(final String field) {
+
+      return true;
+    }
+
+    /**
+     * Split the current line like String.split().
+     * @param tokenizer tokenizer
+     * @return an array with the fields of the current line
+     */
+    private String[] split(final LineTokenizer tokenizer) {
+
+      final String[] result = new String[tokenizer.getSplitFieldCount()];
+
+      for (int i = 0; i < result.length; i++)
+        result[i] = tokenizer.getString(i);
+
+      return result;
     }
 
     //
@@ -234,9 +326,9 @@ public class AgilentReader extends InputStreamBioAssayReader {
     // Constructor
     //
 
-    public TableReader(final BufferedReader reader) {
+    public TableReader(final LineTokenizer tokenizer) {
 
-      this.reader = reader;
+      this.tokenizer = tokenizer;
     }
   }
 
@@ -267,10 +359,10 @@ public class AgilentReader extends InputStreamBioAssayReader {
     // Constructor
     //
 
-    public AnnotationTableReader(final BufferedReader reader,
+    public AnnotationTableReader(final LineTokenizer tokenizer,
         final BioAssay bioAssay) {
 
-      super(reader);
+      super(tokenizer);
       this.annot = bioAssay.getAnnotation();
     }
 
@@ -279,14 +371,15 @@ public class AgilentReader extends InputStreamBioAssayReader {
   private final class DataTableReader extends TableReader {
 
     private BioAssay bioAssay;
-    private Map<String, List<Integer>> mapInt =
-        new HashMap<String, List<Integer>>();
-    private Map<String, List<Double>> mapDouble =
-        new HashMap<String, List<Double>>();
-    private Map<String, List<String>> mapString =
-        new HashMap<String, List<String>>();
+    private Map<String, FieldBuffer.Ints> mapInt =
+        new HashMap<String, FieldBuffer.Ints>();
+    private Map<String, FieldBuffer.Doubles> mapDouble =
+        new HashMap<String, FieldBuffer.Doubles>();
+    private Map<String, FieldBuffer.Strings> mapString =
+        new HashMap<String, FieldBuffer.Strings>();
 
     private Set<String> fieldsToRead;
+    private boolean rangeReader;
 
     private int location;
 
@@ -295,6 +388,12 @@ public class AgilentReader extends InputStreamBioAssayReader {
       this.fieldsToRead = fieldsToRead;
     }
 
+    @Override
+    protected boolean isFieldToRead(final String field) {
+
+      return this.fieldsToRead.contains(field);
+    }
+
     @Override
     public void newRow(final int rowIndex) {
 
@@ -302,8 +401,7 @@ public class AgilentReader extends InputStreamBioAssayReader {
         initFields();
       else {
 
-        List<Integer> ints = this.mapInt.get(BioAssay.FIELD_NAME_LOCATION);
-        ints.add(this.location);
+        this.mapInt.get(BioAssay.FIELD_NAME_LOCATION).add(this.location);
       }
 
       this.location = 0;
@@ -315,9 +413,7 @@ public class AgilentReader extends InputStreamBioAssayReader {
       if (!this.fieldsToRead.contains(field))
         return;
 
-      List<Double> doubles =
-          this.mapDouble.get(CONVERTER.getBioAssayFieldName(field));
-      doubles.add(value);
+      this.mapDouble.get(CONVERTER.getBioAssayFieldName(field)).add(value);
     }
 
     @Override
@@ -339,15 +435,11 @@ public class AgilentReader extends InputStreamBioAssayReader {
       // Test if Id is an integer
       final String newField = CONVERTER.getBioAssayFieldName(field);
       if (BioAssay.FIELD_NAME_ID.equals(newField)) {
-        List<String> strings =
-            this.mapString.get(CONVERTER.getBioAssayFieldName(field));
-        strings.add(String.valueOf(value));
+        this.mapString.get(newField).add(String.valueOf(value));
         return;
       }
 
-      List<Integer> ints =
-          this.mapInt.get(CONVERTER.getBioAssayFieldName(field));
-      ints.add(value);
+      this.mapInt.get(newField).add(value);
     }
 
     @Override
@@ -356,9 +448,7 @@ public class AgilentReader extends InputStreamBioAssayReader {
       if (!this.fieldsToRead.contains(field))
         return;
 
-      List<String> strings =
-          this.mapString.get(CONVERTER.getBioAssayFieldName(field));
-      strings.add(value);
+      this.mapString.get(CONVERTER.getBioAssayFieldName(field)).add(value);
     }
 
     private int calcRowCount() {
@@ -388,12 +478,132 @@ public class AgilentReader extends InputStreamBioAssayReader {
       return numRows * (numCols / 2);
     }
 
+    @Override
+    protected void readTable(final String[] fields, final int[] fieldTypes,
+        final boolean[] fieldsToRead) throws IOException, NividicIOException {
+
+      if (isParallelParsing() && ParallelUtils.getThreadCount() > 1)
+        readTableInParallel(fields, fieldTypes, fieldsToRead);
+      else
+        super.readTable(fields, fieldTypes, fieldsToRead);
+    }
+
+    /**
+     * Read the rows of the table in parallel. The lines are split in ranges
+     * parsed by temporary readers whose buffers are appended in order.
+     * @param fields names of the columns
+     * @param fieldTypes types of the columns
+     * @param fieldsToRead columns to read
+     * @throws IOException if an error occurs while reading the stream
+     * @throws NividicIOException if the table is invalid
+     */
+    private void readTableInParallel(final String[] fields,
+        final int[] fieldTypes, final boolean[] fieldsToRead)
+        throws IOException, NividicIOException {
+
+      final LineTokenizer[] ranges =
+          getTokenizer().split(ParallelUtils.getThreadCount() * 2,
+              BioAssayTextReader.PARALLEL_MIN_RANGE_SIZE);
+      final int n = ranges.length;
+
+      final DataTableReader[] readers = new DataTableReader[n];
+      final boolean[] ended = new boolean[n];
+      final Exception[] errors = new Exception[n];
+
+      for (int k = 0; k < n; k++)
+        readers[k] = new DataTableReader(this, ranges[k]);
+
+      ParallelUtils.forEachChunk(n, 1, new ParallelUtils.RangeTask() {
+
+        public void run(final int from, final int to) {
+
+          for (int k = from; k < to; k++)
+            try {
+              ended[k] =
+                  readers[k].readRows(ranges[k], fields, fieldTypes,
+                      fieldsToRead);
+            } catch (IOException e) {
+              errors[k] = e;
+            } catch (NividicIOException e) {
+              errors[k] = e;
+            }
+        }
+      });
+
+      // The ranges after the end of the table are ignored
+      int last = 0;
+      int total = 0;
+
+      for (int k = 0; k < n; k++) {
+
+        if (errors[k] instanceof IOException)
+          throw (IOException) errors[k];
+        if (errors[k] != null)
+          throw (NividicIOException) errors[k];
+
+        last = k;
+        total += readers[k].mapInt.get(BioAssay.FIELD_NAME_LOCATION).size();
+
+        if (ended[k])
+          break;
+      }
+
+      initFields(total);
+
+      for (final Map.Entry<String, FieldBuffer.Ints> e : this.mapInt
+          .entrySet())
+        for (int k = 0; k <= last; k++)
+          e.getValue().addAll(readers[k].mapInt.get(e.getKey()));
+
+      for (final Map.Entry<String, FieldBuffer.Doubles> e : this.mapDouble
+          .entrySet())
+        for (int k = 0; k <= last; k++)
+          e.getValue().addAll(readers[k].mapDouble.get(e.getKey()));
+
+      // Strings are added row by row in the order of the columns to intern
+      // them in the same order as a sequential read
+      final List<String> stringFields = new ArrayList<String>();
+
+      for (int i = 1; i < fields.length; i++) {
+
+        if (!fieldsToRead[i])
+          continue;
+
+        final String field = CONVERTER.getBioAssayFieldName(fields[i]);
+
+        if (this.mapString.containsKey(field)
+            && !stringFields.contains(field))
+          stringFields.add(field);
+      }
+
+      for (int k = 0; k <= last; k++) {
+
+        final int rows =
+            readers[k].mapInt.get(BioAssay.FIELD_NAME_LOCATION).size();
+
+        for (int r = 0; r < rows; r++)
+          for (final String field : stringFields)
+            this.mapString.get(field).add(
+                readers[k].mapString.get(field).get(r));
+      }
+    }
+
     private void initFields() {
 
-      final int rowCount = calcRowCount();
+      if (this.rangeReader)
+        initFields(0);
+      else
+        initFields(getRowCountHint() > 0 ? getRowCountHint() : calcRowCount());
+    }
+
+    private void initFields(final int rowCount) {
+
+      // Strings of the range readers are interned at the merge
+      final StringDictionary dictionary =
+          this.rangeReader ? null : getStringDictionary();
 
       // Add location field
-      this.mapInt.put(BioAssay.FIELD_NAME_LOCATION, new ArrayList<Integer>(
+      this.mapInt.put(BioAssay.FIELD_NAME_LOCATION, new FieldBuffer.Ints(
           rowCount));
 
       for (final String fieldName : this.getFields()) {
@@ -413,15 +623,16 @@ public class AgilentReader extends InputStreamBioAssayReader {
         switch (fieldType) {
         case BioAssay.DATATYPE_DOUBLE:
 
-          this.mapDouble.put(newFieldName, new ArrayList<Double>(rowCount));
+          this.mapDouble.put(newFieldName, new FieldBuffer.Doubles(rowCount));
           break;
 
         case BioAssay.DATATYPE_INTEGER:
-          this.mapInt.put(newFieldName, new ArrayList<Integer>(rowCount));
+          this.mapInt.put(newFieldName, new FieldBuffer.Ints(rowCount));
           break;
 
         case BioAssay.DATATYPE_STRING:
-          this.mapString.put(newFieldName, new ArrayList<String>(rowCount));
+          this.mapString.put(newFieldName, new FieldBuffer.Strings(rowCount,
+              dictionary));
           break;
 
         default:
@@ -435,16 +646,16 @@ public class AgilentReader extends InputStreamBioAssayReader {
     public void resizeFields() {
 
       for (final String fieldName : this.mapDouble.keySet())
-        this.bioAssay.setDataFieldDouble(fieldName, NividicUtils
-            .toDoubleArray(this.mapDouble.get(fieldName)));
+        this.bioAssay.setDataFieldDouble(fieldName, this.mapDouble.get(
+            fieldName).toArray());
 
       for (final String fieldName : this.mapInt.keySet())
-        this.bioAssay.setDataFieldInt(fieldName, NividicUtils
-            .toIntArray(this.mapInt.get(fieldName)));
+        setDataFieldInt(this.bioAssay, fieldName, this.mapInt.get(fieldName)
+            .toArray());
 
       for (final String fieldName : this.mapString.keySet())
-        this.bioAssay.setDataFieldString(fieldName, NividicUtils
-            .toArray(this.mapString.get(fieldName)));
+        setDataFieldString(this.bioAssay, fieldName, this.mapString.get(
+            fieldName).toArray());
 
     }
 
@@ -452,15 +663,32 @@ public class AgilentReader extends InputStreamBioAssayReader {
     // Constructor
     //
 
-    public DataTableReader(final BufferedReader reader, final BioAssay bioAssay) {
+    public DataTableReader(final LineTokenizer tokenizer,
+        final BioAssay bioAssay) {
 
-      super(reader);
+      super(tokenizer);
 
       this.bioAssay = bioAssay;
       calcRowCount();
 
     }
 
+    /**
+     * Create a reader for a range of the rows of a table.
+     * @param table reader of the table
+     * @param tokenizer tokenizer of the range
+     */
+    private DataTableReader(final DataTableReader table,
+        final LineTokenizer tokenizer) {
+
+      super(tokenizer);
+
+      this.bioAssay = table.bioAssay;
+      this.fieldsToRead = table.fieldsToRead;
+      this.rangeReader = true;
+      copyHeader(table);
+    }
+
   }
 
   @Override
@@ -533,6 +761,129 @@ public class AgilentReader extends InputStreamBioAssayReader {
    */
   public BioAssay read() throws NividicIOException {
 
+    final BioAssay bioAssay = BioAssayFactory.createBioAssay();
+    final DataTableReader data = openStream(bioAssay);
+
+    try {
+      data.read();
+    } catch (IOException e) {
+      throw new NividicIOException(e);
+    }
+    data.resizeFields();
+    shareArrayLayout(bioAssay);
+
+    return bioAssay;
+  }
+
+  /**
+   * Read the rows of the stream without creating a BioAssay. The parameters
+   * and the statistics of the stream are set in the annotation given to the
+   * handler.
+   * @param handler handler of the rows
+   * @throws NividicIOException if an error occurs while reading the stream
+   */
+  public void read(final BioAssayRowHandler handler)
+      throws NividicIOException {
+
+    if (handler == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "handler");
+
+    final BioAssay bioAssay = BioAssayFactory.createBioAssay();
+    final DataTableReader data = openStream(bioAssay);
+    final LineTokenizer tokenizer = data.getTokenizer();
+
+    final int n = data.getFields().size();
+    final boolean[] fieldsToProcess = new boolean[n + 1];
+    final int[] allColumns = new int[n];
+    final String[] allFields = new String[n];
+    final int[] allTypes = new int[n];
+    int count = 0;
+
+    // The first column contains the type of the row
+    fieldsToProcess[0] = true;
+
+    int i = 1;
+    for (final String field : data.getFields()) {
+
+      if (data.isFieldToRead(field)) {
+
+        fieldsToProcess[i] = true;
+        allColumns[count] = i;
+
+        if (ROW_FIELD.equals(field) || COLUMN_FIELD.equals(field)) {
+          allFields[count] = field;
+          allTypes[count] = data.getFieldType(field);
+        } else {
+          allFields[count] = CONVERTER.getBioAssayFieldName(field);
+          allTypes[count] =
+              BioAssay.FIELD_NAME_ID.equals(allFields[count])
+                  ? BioAssay.DATATYPE_STRING : data.getFieldType(field);
+        }
+        count++;
+      }
+      i++;
+    }
+
+    final String[] fields = new String[count];
+    final int[] types = new int[count];
+    final int[] columns = new int[count];
+    System.arraycopy(allFields, 0, fields, 0, count);
+    System.arraycopy(allTypes, 0, types, 0, count);
+    System.arraycopy(allColumns, 0, columns, 0, count);
+
+    final LineBioAssayRow row =
+        new LineBioAssayRow(tokenizer, fields, types, columns, false);
+    tokenizer.setFieldsToProcess(fieldsToProcess);
+
+    handler.start(fields, types, bioAssay.getAnnotation());
+
+    final boolean checkAllRows = isAllColumnsRead(fieldsToProcess);
+    boolean firstRow = true;
+
+    try {
+      while (tokenizer.nextLine()) {
+
+        final String rowId = tokenizer.getString(0);
+
+        if (TableReader.ROW_END_ID.equals(rowId))
+          break;
+
+        if ((checkAllRows || firstRow)
+            && n < tokenizer.getSplitFieldCount() - 1)
+          throw new NividicIOException("Invalid number of column.");
+        firstRow = false;
+
+        if (!TableReader.ROW_DATA_ID.endsWith(rowId))
+          throw new NividicIOException("Invalid row.");
+
+        row.nextRow();
+        if (!handler.handleRow(row))
+          break;
+      }
+    } catch (IOException e) {
+      throw new NividicIOException(e);
+    } finally {
+      try {
+        tokenizer.close();
+      } catch (IOException e) {
+        // Nothing to do
+      }
+    }
+
+    handler.end();
+  }
+
+  /**
+   * Open the stream, read the parameters and the statistics tables and the
+   * header of the data table.
+   * @param bioAssay BioAssay that receive the annotations of the stream
+   * @return the reader of the data table
+   * @throws NividicIOException if an error occurs while reading the stream
+   */
+  private DataTableReader openStream(final BioAssay bioAssay)
+      throws NividicIOException {
+
     if (getInputStream() == null)
       throw new NividicIOException("No stream to read");
 
@@ -542,15 +893,13 @@ public class AgilentReader extends InputStreamBioAssayReader {
     for (int i = 0; i < DEFAULT_FIELDS_TO_READ.length; i++)
       addFieldToRead(DEFAULT_FIELDS_TO_READ[i]);
 
-    final BioAssay bioAssay = BioAssayFactory.createBioAssay();
-
-    final BufferedReader reader;
+    final LineTokenizer reader;
 
     try {
 
       reader =
-          new BufferedReader(new InputStreamReader(getInputStream(),
-              Globals.DEFAULT_FILE_ENCODING));
+          new LineTokenizer(createReader(Globals.DEFAULT_FILE_ENCODING),
+              SEPARATOR, false, false);
 
       final TableReader feparams = new AnnotationTableReader(reader, bioAssay);
 
@@ -572,13 +921,30 @@ public class AgilentReader extends InputStreamBioAssayReader {
     try {
       data.readHeader();
       data.setFieldsToRead(createSetOfFieldsToRead(data.getFields()));
-      data.read();
     } catch (IOException e) {
       throw new NividicIOException(e);
     }
-    data.resizeFields();
 
-    return bioAssay;
+    return data;
+  }
+
+  /**
+   * Test if all the columns of a table are read. Otherwise the lines are not
+   * split after the last column to read, and the number of columns is only
+   * checked on the first row to not scan the end of each line.
+   * @param fieldsToRead columns to read
+   * @return true if all the columns are read
+   */
+  private static boolean isAllColumnsRead(final boolean[] fieldsToRead) {
+
+    if (fieldsToRead == null)
+      return true;
+
+    for (int i = 0; i < fieldsToRead.length; i++)
+      if (!fieldsToRead[i])
+        return false;
+
+    return true;
   }
 
   //
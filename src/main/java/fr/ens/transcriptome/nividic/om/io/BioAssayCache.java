@@ -0,0 +1,421 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
+import fr.ens.transcriptome.nividic.om.ArrayLayout;
+import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.BioAssayBase;
+import fr.ens.transcriptome.nividic.om.CompactIntArray;
+
+/**
+ * This class define a cache of the BioAssays read by the readers. The entries
+ * are keyed by the source of the data, the fields read and the fingerprint of
+ * the content of the source or the date of modification of a file. The cache
+ * is bounded by the estimated size in bytes of the BioAssays and the least
+ * recently used entries are removed first. The entries are soft referenced and
+ * can be reclaimed by the garbage collector. As the content of the streams is
+ * read in memory to find them in the cache, the cache is disabled by default.
+ * @author Laurent Jourdren
+ */
+public final class BioAssayCache {
+
+  private static final int STRING_OVERHEAD = 48;
+  private static final int REFERENCE_SIZE = 8;
+
+  private static BioAssayCache defaultCache;
+
+  private final long maxBytes;
+  private long bytes;
+  private int hits;
+  private int misses;
+
+  private final ReferenceQueue<BioAssay> queue = new ReferenceQueue<BioAssay>();
+  private final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+  /**
+   * A soft referenced entry of the cache.
+   */
+  private static final class Entry extends SoftReference<BioAssay> {
+
+    private final String key;
+    private final long bytes;
+
+    private Entry(final String key, final BioAssay bioAssay, final long bytes,
+        final ReferenceQueue<BioAssay> queue) {
+
+      super(bioAssay, queue);
+      this.key = key;
+      this.bytes = bytes;
+    }
+  }
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the cache used by the readers.
+   * @return the default cache or null if the cache is disabled
+   */
+  public static synchronized BioAssayCache getDefaultCache() {
+    return defaultCache;
+  }
+
+  /**
+   * Get the maximal size of the cache.
+   * @return the maximal size of the cache in bytes
+   */
+  public long getMaxBytes() {
+    return this.maxBytes;
+  }
+
+  /**
+   * Get the estimated size of the BioAssays in the cache.
+   * @return the size of the cache in bytes
+   */
+  public synchronized long getBytes() {
+
+    purge();
+    return this.bytes;
+  }
+
+  /**
+   * Get the number of entries of the cache.
+   * @return the number of entries of the cache
+   */
+  public synchronized int size() {
+
+    purge();
+    return this.entries.size();
+  }
+
+  /**
+   * Get the number of successful lookups.
+   * @return the number of hits
+   */
+  public synchronized int getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Get the number of failed lookups.
+   * @return the number of misses
+   */
+  public synchronized int getMisses() {
+    return this.misses;
+  }
+
+  //
+  // Setters
+  //
+
+  /**
+   * Set the cache used by the readers. The cache is disabled by default.
+   * @param cache The cache to use. If null, the cache is disabled
+   */
+  public static synchronized void setDefaultCache(final BioAssayCache cache) {
+    defaultCache = cache;
+  }
+
+  //
+  // Cache methods
+  //
+
+  /**
+   * Create the key of an entry.
+   * @param sourceInfo source of the data
+   * @param projection fields read (see
+   *          InputStreamBioAssayReader.getFieldProjection())
+   * @param fingerprint fingerprint of the content of the source or date of
+   *          modification of a file
+   * @param length length of the content of the source
+   * @return a key for the cache
+   */
+  public static String createKey(final String sourceInfo,
+      final String projection, final long fingerprint, final long length) {
+
+    final StringBuilder sb = new StringBuilder();
+
+    sb.append(sourceInfo == null ? "" : sourceInfo);
+    sb.append('\n');
+    sb.append(projection == null ? "" : projection);
+    sb.append('\n');
+    sb.append(Long.toHexString(fingerprint));
+    sb.append(':');
+    sb.append(length);
+
+    return sb.toString();
+  }
+
+  /**
+   * Get the BioAssay shared by the cache. This BioAssay is read only: neither
+   * the BioAssay nor the arrays returned by its getters must be modified.
+   * @param key Key of the entry
+   * @return the shared BioAssay or null if the key is not in the cache
+   */
+  public synchronized BioAssay getShared(final String key) {
+
+    purge();
+
+    if (key == null)
+      return null;
+
+    final Entry e = this.entries.get(key);
+    final BioAssay result = e == null ? null : e.get();
+
+    if (result == null) {
+      if (e != null)
+        remove(e);
+      this.misses++;
+    } else
+      this.hits++;
+
+    return result;
+  }
+
+  /**
+   * Get a private copy of a BioAssay of the cache. The data of the copy can be
+   * modified without altering the cache. Compact integer fields, which are
+   * decoded in new arrays on write, dictionaries and array layouts, which are
+   * copied on write, remain shared.
+   * @param key Key of the entry
+   * @return a copy of the BioAssay or null if the key is not in the cache
+   */
+  public BioAssay get(final String key) {
+
+    final BioAssay bioAssay = getShared(key);
+
+    return bioAssay == null ? null : privateCopy(bioAssay);
+  }
+
+  /**
+   * Put a BioAssay in the cache. The cache keep a private copy of the BioAssay.
+   * @param key Key of the entry
+   * @param bioAssay BioAssay to put in the cache
+   */
+  public void put(final String key, final BioAssay bioAssay) {
+
+    if (key == null || bioAssay == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "key or bioAssay");
+
+    final long size = estimateBytes(bioAssay);
+
+    if (size > this.maxBytes)
+      return;
+
+    final BioAssay copy = privateCopy(bioAssay);
+
+    synchronized (this) {
+
+      purge();
+
+      final Entry old = this.entries.get(key);
+      if (old != null)
+        remove(old);
+
+      this.entries.put(key, new Entry(key, copy, size, this.queue));
+      this.bytes += size;
+
+      // Remove the least recently used entries
+      final Iterator<Map.Entry<String, Entry>> it =
+          this.entries.entrySet().iterator();
+
+      while (this.bytes > this.maxBytes && it.hasNext()) {
+
+        final Entry e = it.next().getValue();
+        it.remove();
+        this.bytes -= e.bytes;
+      }
+    }
+  }
+
+  /**
+   * Remove all the entries of the cache.
+   */
+  public synchronized void clear() {
+
+    this.entries.clear();
+    this.bytes = 0;
+    while (this.queue.poll() != null)
+      ;
+  }
+
+  /**
+   * Remove an entry of the cache.
+   * @param e Entry to remove
+   */
+  private void remove(final Entry e) {
+
+    if (this.entries.get(e.key) == e) {
+      this.entries.remove(e.key);
+      this.bytes -= e.bytes;
+    }
+  }
+
+  /**
+   * Remove the entries reclaimed by the garbage collector.
+   */
+  private void purge() {
+
+    Object ref;
+
+    while ((ref = this.queue.poll()) != null)
+      remove((Entry) ref);
+  }
+
+  //
+  // Other methods
+  //
+
+  /**
+   * Estimate the memory used by the data of a BioAssay.
+   * @param bioAssay BioAssay
+   * @return the estimated size of the BioAssay in bytes
+   */
+  public static long estimateBytes(final BioAssay bioAssay) {
+
+    if (bioAssay == null)
+      return 0;
+
+    final String[] fields = bioAssay.getFields();
+    final long n = bioAssay.size();
+    long result = 0;
+
+    for (int i = 0; i < fields.length; i++) {
+
+      final String field = fields[i];
+
+      switch (bioAssay.getFieldType(field)) {
+
+      case BioAssayBase.DATATYPE_DOUBLE:
+        result += 8 * n;
+        break;
+
+      case BioAssayBase.DATATYPE_INTEGER:
+        if (bioAssay.isDataFieldIntCompact(field))
+          result += bioAssay.getDataFieldCompactInt(field).getWidth() * n;
+        else
+          result += 4 * n;
+        break;
+
+      case BioAssayBase.DATATYPE_STRING:
+        if (bioAssay.isDataFieldStringEncoded(field))
+          result += 4 * n;
+        else {
+          final String[] values = bioAssay.getDataFieldString(field);
+          result += REFERENCE_SIZE * n;
+          if (values != null)
+            for (int j = 0; j < values.length; j++)
+              if (values[j] != null)
+                result += STRING_OVERHEAD + 2 * values[j].length();
+        }
+        break;
+
+      default:
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Create a copy of a BioAssay that do not share mutable arrays with the
+   * original BioAssay.
+   * @param bioAssay BioAssay to copy
+   * @return a new BioAssay
+   */
+  private static BioAssay privateCopy(final BioAssay bioAssay) {
+
+    final BioAssay result = (BioAssay) bioAssay.copy();
+
+    final ArrayLayout layout = result.getArrayLayout();
+    final String[] fields = result.getFields();
+
+    for (int i = 0; i < fields.length; i++) {
+
+      final String field = fields[i];
+
+      // The fields of a shared layout are copied on write
+      if (layout != null
+          && (BioAssay.FIELD_NAME_ID.equals(field) || BioAssayBase.FIELD_NAME_LOCATION
+              .equals(field)))
+        continue;
+
+      switch (result.getFieldType(field)) {
+
+      case BioAssayBase.DATATYPE_DOUBLE:
+        result.setDataFieldDouble(field, result.getDataFieldDouble(field)
+            .clone());
+        break;
+
+      case BioAssayBase.DATATYPE_INTEGER:
+        if (!result.isDataFieldIntCompact(field))
+          result.setDataFieldInt(field, result.getDataFieldInt(field).clone());
+        break;
+
+      case BioAssayBase.DATATYPE_STRING:
+        if (result.isDataFieldStringEncoded(field))
+          result.setDataFieldEncodedString(field, result
+              .getDataFieldStringCodes(field).clone(), result
+              .getDataFieldStringDictionary(field));
+        else
+          result.setDataFieldString(field, result.getDataFieldString(field)
+              .clone());
+        break;
+
+      default:
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Public constructor.
+   * @param maxBytes maximal size of the cache in bytes
+   */
+  public BioAssayCache(final long maxBytes) {
+
+    if (maxBytes < 0)
+      throw new NividicRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "maxBytes: " + maxBytes);
+
+    this.maxBytes = maxBytes;
+  }
+
+}
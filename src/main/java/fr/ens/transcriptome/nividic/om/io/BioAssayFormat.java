@@ -25,6 +25,9 @@ package fr.ens.transcriptome.nividic.om.io;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+
+import fr.ens.transcriptome.nividic.Globals;
 
 /**
  * Define an enum for the BioAssay files format.
@@ -99,6 +102,85 @@ public abstract class BioAssayFormat implements Serializable {
    */
   public abstract boolean testFormat(final String firstLines);
 
+  /**
+   * Check if the first bytes come from the format. By default, the bytes are
+   * decoded and tested with testFormat(String). Formats with a magic string
+   * should override this method to test the bytes without decoding them.
+   * @param firstBytes first bytes of the file to test
+   * @param length number of bytes to test
+   * @return true if the bytes come from the format
+   */
+  public boolean testFormat(final byte[] firstBytes, final int length) {
+
+    try {
+      return testFormat(new String(firstBytes, 0, length,
+          Globals.DEFAULT_FILE_ENCODING).replace("\r\n", "\n").replace('\r',
+          '\n'));
+    } catch (UnsupportedEncodingException e) {
+      return false;
+    }
+  }
+
+  //
+  // Magic utility methods
+  //
+
+  /**
+   * Test if bytes start with an ASCII string.
+   * @param bytes bytes to test
+   * @param length number of bytes to test
+   * @param magic the ASCII string to search
+   * @return true if the bytes start with the string
+   */
+  protected static boolean startsWith(final byte[] bytes, final int length,
+      final String magic) {
+
+    final int n = magic.length();
+
+    if (n > length)
+      return false;
+
+    for (int i = 0; i < n; i++)
+      if (bytes[i] != magic.charAt(i))
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Test if bytes contain an ASCII string.
+   * @param bytes bytes to test
+   * @param length number of bytes to test
+   * @param magic the ASCII string to search
+   * @return true if the bytes contain the string
+   */
+  protected static boolean contains(final byte[] bytes, final int length,
+      final String magic) {
+
+    final int n = magic.length();
+
+    if (n == 0)
+      return true;
+
+    final byte first = (byte) magic.charAt(0);
+    final int max = length - n;
+
+    for (int i = 0; i <= max; i++) {
+
+      if (bytes[i] != first)
+        continue;
+
+      int j = 1;
+      while (j < n && bytes[i + j] == magic.charAt(j))
+        j++;
+
+      if (j == n)
+        return true;
+    }
+
+    return false;
+  }
+
   /**
    * toString method.
    * @return the type of the format
@@ -22,64 +22,28 @@
 
 package fr.ens.transcriptome.nividic.om.io;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 
-import fr.ens.transcriptome.nividic.Globals;
-
-public class BioAssayFormatFinderInputStream extends InputStream {
-
-  private InputStream is;
+/**
+ * This class allow to find the format of a BioAssay stream. The first bytes of
+ * the stream are tested by the formats of the BioAssayFormatRegistery and then
+ * pushed back in the stream.
+ * @author Laurent Jourdren
+ */
+public class BioAssayFormatFinderInputStream extends SniffingInputStream {
 
   private static final int cacheSize = 5000;
 
-  private static final String MAGIC_IMAGENE = "Begin Header";
-  private static final String MAGIC_IDMA = "ID\tName\tR\tRb\tG\tGb\tMnorm\tA";
-  private static final String MAGIC_IDMA_QUOTES =
-      "\"ID\"\t\"Name\"\t\"R\"\t\"Rb\"\t\"G\"\t\"Gb\"\t\"Mnorm\"\t\"A\"";
-
-  private static final String MAGIC_ATF = "ATF";
-  private static final String MAGIC_GPR = "Type=GenePix Results";
-  private static final String MAGIC_GAL = "Type=GenePix ArrayList";
-
   private BioAssayFormat format;
   private boolean testFormatDone;
 
-  private int cacheIndex;
-  private byte[] cache;
-
   private BioAssayFormat findType() throws NividicIOException {
 
-    final byte[] readed = new byte[cacheSize];
-
     try {
 
-      int count = is.read(readed);
-
-      if (count != cacheSize) {
-        this.cache = new byte[count];
-        System.arraycopy(readed, 0, this.cache, 0, count);
-      } else
-        this.cache = readed;
-
-      InputStream bais = new ByteArrayInputStream(this.cache);
-      BufferedReader reader =
-          new BufferedReader(new InputStreamReader(bais,
-              Globals.DEFAULT_FILE_ENCODING));
-
-      String line;
-      StringBuilder lines = new StringBuilder();
-
-      while ((line = reader.readLine()) != null) {
-        lines.append(line);
-        lines.append("\n");
-      }
-
-      return BioAssayFormatRegistery.getBioAssayFormatFromFirstLines(lines
-          .toString());
+      return BioAssayFormatRegistery.getBioAssayFormatFromFirstBytes(
+          getHead(), getHeadLength());
 
     } catch (IOException e) {
 
@@ -95,8 +59,10 @@ public class BioAssayFormatFinderInputStream extends InputStream {
    */
   public BioAssayFormat getBioAssayFormat() throws NividicIOException {
 
-    if (!this.testFormatDone)
+    if (!this.testFormatDone) {
       this.format = findType();
+      this.testFormatDone = true;
+    }
 
     return this.format;
   }
@@ -115,15 +81,6 @@ public class BioAssayFormatFinderInputStream extends InputStream {
     return format == null ? null : format.getBioAssayReader(this);
   }
 
-  @Override
-  public int read() throws IOException {
-
-    if (cacheIndex < cache.length)
-      return cache[cacheIndex++];
-
-    return is.read();
-  }
-
   //
   // Constructor
   //
@@ -134,10 +91,7 @@ public class BioAssayFormatFinderInputStream extends InputStream {
    */
   public BioAssayFormatFinderInputStream(final InputStream is) {
 
-    if (is == null)
-      throw new NullPointerException("The inputStream is null");
-
-    this.is = is;
+    super(is, cacheSize);
   }
 
 }
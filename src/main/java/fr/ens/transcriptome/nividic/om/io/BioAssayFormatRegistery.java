@@ -25,7 +25,10 @@ package fr.ens.transcriptome.nividic.om.io;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -34,8 +37,19 @@ import java.util.Map;
  */
 public final class BioAssayFormatRegistery implements Serializable {
 
+  /** Priority of the formats with a magic string in the first line. */
+  public static final int PRIORITY_FIRST_LINE_MAGIC = 100;
+  /** Priority of the formats with a magic string in the header. */
+  public static final int PRIORITY_HEADER_MAGIC = 50;
+  /** Default priority of the formats. */
+  public static final int PRIORITY_DEFAULT = 0;
+
   private static Map<String, BioAssayFormat> formats =
       new HashMap<String, BioAssayFormat>();
+  private static Map<String, Integer> priorities =
+      new HashMap<String, Integer>();
+  private static volatile BioAssayFormat[] detectionOrder =
+      new BioAssayFormat[0];
 
   private static final String MAGIC_IDMA = "ID\tName\tR\tRb\tG\tGb\tMnorm\tA";
   private static final String MAGIC_IDMA_QUOTES =
@@ -80,6 +94,13 @@ public final class BioAssayFormatRegistery implements Serializable {
           }
           return false;
         }
+
+        @Override
+        public boolean testFormat(final byte[] firstBytes, final int length) {
+
+          return startsWith(firstBytes, length, MAGIC_ATF)
+              && contains(firstBytes, length, MAGIC_GAL);
+        }
       };
   /** GPR BioAssayFormat. */
   public static final BioAssayFormat GPR_BIOASSAY_FORMAT =
@@ -112,6 +133,13 @@ public final class BioAssayFormatRegistery implements Serializable {
           }
           return false;
         }
+
+        @Override
+        public boolean testFormat(final byte[] firstBytes, final int length) {
+
+          return startsWith(firstBytes, length, MAGIC_ATF)
+              && contains(firstBytes, length, MAGIC_GPR);
+        }
       };
   /** IDMA BioAssayFormat. */
   public static final BioAssayFormat IDMA_BIOASSAY_FORMAT =
@@ -138,6 +166,13 @@ public final class BioAssayFormatRegistery implements Serializable {
           return firstLines.startsWith(MAGIC_IDMA)
               || firstLines.startsWith(MAGIC_IDMA_QUOTES);
         }
+
+        @Override
+        public boolean testFormat(final byte[] firstBytes, final int length) {
+
+          return startsWith(firstBytes, length, MAGIC_IDMA)
+              || startsWith(firstBytes, length, MAGIC_IDMA_QUOTES);
+        }
       };
 
   /** ImaGene BioAssayFormat. */
@@ -163,6 +198,12 @@ public final class BioAssayFormatRegistery implements Serializable {
 
           return firstLines.startsWith(MAGIC_IMAGENE);
         }
+
+        @Override
+        public boolean testFormat(final byte[] firstBytes, final int length) {
+
+          return startsWith(firstBytes, length, MAGIC_IMAGENE);
+        }
       };
 
   /** ImaGene array list BioAssayFormat. */
@@ -189,6 +230,12 @@ public final class BioAssayFormatRegistery implements Serializable {
 
           return false;
         }
+
+        @Override
+        public boolean testFormat(final byte[] firstBytes, final int length) {
+
+          return false;
+        }
       };
 
   /** Agilent BioAssayFormat. */
@@ -215,6 +262,12 @@ public final class BioAssayFormatRegistery implements Serializable {
 
           return firstLines.startsWith(MAGIC_AGILENT);
         }
+
+        @Override
+        public boolean testFormat(final byte[] firstBytes, final int length) {
+
+          return startsWith(firstBytes, length, MAGIC_AGILENT);
+        }
       };
 
   /** Undefined BioAssayFormat. */
@@ -241,16 +294,22 @@ public final class BioAssayFormatRegistery implements Serializable {
 
           return false;
         }
+
+        @Override
+        public boolean testFormat(final byte[] firstBytes, final int length) {
+
+          return false;
+        }
       };
 
   static {
 
-    addBioAssayFormat(GAL_BIOASSAY_FORMAT);
-    addBioAssayFormat(GPR_BIOASSAY_FORMAT);
-    addBioAssayFormat(IDMA_BIOASSAY_FORMAT);
-    addBioAssayFormat(IMAGENE_BIOASSAY_FORMAT);
+    addBioAssayFormat(IDMA_BIOASSAY_FORMAT, PRIORITY_FIRST_LINE_MAGIC);
+    addBioAssayFormat(IMAGENE_BIOASSAY_FORMAT, PRIORITY_FIRST_LINE_MAGIC);
+    addBioAssayFormat(AGILENT_BIOASSAY_FORMAT, PRIORITY_FIRST_LINE_MAGIC);
+    addBioAssayFormat(GPR_BIOASSAY_FORMAT, PRIORITY_HEADER_MAGIC);
+    addBioAssayFormat(GAL_BIOASSAY_FORMAT, PRIORITY_HEADER_MAGIC);
     addBioAssayFormat(IMAGENE_ARRAYLIST_BIOASSAY_FORMAT);
-    addBioAssayFormat(AGILENT_BIOASSAY_FORMAT);
     addBioAssayFormat(UNDEFINED_TXT_BIOASSAY_FORMAT);
   }
 
@@ -259,15 +318,45 @@ public final class BioAssayFormatRegistery implements Serializable {
   //
 
   /**
-   * Add a BioAssay format.
+   * Add a BioAssay format with the default priority.
    * @param format BioAssayFormat to add to th registery
    */
   public static void addBioAssayFormat(final BioAssayFormat format) {
 
+    addBioAssayFormat(format, PRIORITY_DEFAULT);
+  }
+
+  /**
+   * Add a BioAssay format. When the format of a stream is searched, the
+   * formats are tested by decreasing priority and then by order of
+   * registration.
+   * @param format BioAssayFormat to add to th registery
+   * @param priority priority of the format
+   */
+  public static synchronized void addBioAssayFormat(
+      final BioAssayFormat format, final int priority) {
+
     if (format == null)
       return;
 
-    formats.put(format.getType(), format);
+    final String type = format.getType();
+    final BioAssayFormat old = formats.put(type, format);
+    priorities.put(type, priority);
+
+    final List<BioAssayFormat> order =
+        new ArrayList<BioAssayFormat>(Arrays.asList(detectionOrder));
+
+    if (old != null)
+      order.remove(old);
+
+    // Insert the format after the formats with a higher or equal priority
+    int index = 0;
+    while (index < order.size()
+        && priorities.get(order.get(index).getType()) >= priority)
+      index++;
+
+    order.add(index, format);
+    detectionOrder = order.toArray(new BioAssayFormat[order.size()]);
   }
 
   /**
@@ -324,7 +413,7 @@ public final class BioAssayFormatRegistery implements Serializable {
     if (firstLines == null)
       return null;
 
-    for (BioAssayFormat format : formats.values()) {
+    for (BioAssayFormat format : detectionOrder) {
 
       if (format.testFormat(firstLines))
         return format;
@@ -334,6 +423,28 @@ public final class BioAssayFormatRegistery implements Serializable {
     return null;
   }
 
+  /**
+   * Get the BioAssayFormat from the first bytes of a stream. The formats are
+   * tested by decreasing priority.
+   * @param firstBytes first bytes to test
+   * @param length number of bytes to test
+   * @return the BioAssayFormat of the stream if it has been discovered
+   */
+  public static BioAssayFormat getBioAssayFormatFromFirstBytes(
+      final byte[] firstBytes, final int length) {
+
+    if (firstBytes == null)
+      return null;
+
+    final int len = Math.min(length, firstBytes.length);
+
+    for (BioAssayFormat format : detectionOrder)
+      if (format.testFormat(firstBytes, len))
+        return format;
+
+    return null;
+  }
+
   //
   // Constructor
   //
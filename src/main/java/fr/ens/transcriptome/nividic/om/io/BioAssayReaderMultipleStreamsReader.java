@@ -25,9 +25,14 @@ package fr.ens.transcriptome.nividic.om.io;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import fr.ens.transcriptome.nividic.om.BioAssay;
 import fr.ens.transcriptome.nividic.om.BioAssayUtils;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
 
 /**
  * This abstract class allow to read data to create a BioAssay Data from
@@ -38,6 +43,36 @@ public abstract class BioAssayReaderMultipleStreamsReader extends
     BioAssayTextReader {
 
   private List<InputStream> streams = new ArrayList<InputStream>();
+  private boolean concurrentReading;
+
+  //
+  // Getters
+  //
+
+  /**
+   * Test if the streams are read concurrently.
+   * @return true if the streams are read concurrently
+   */
+  public boolean isConcurrentReading() {
+    return this.concurrentReading;
+  }
+
+  //
+  // Setters
+  //
+
+  /**
+   * Set if the streams must be read concurrently. Each stream is parsed by its
+   * own reader in the shared pool of ParallelUtils. The streams must have the
+   * same identifiers and locations and the fields of the other streams are
+   * attached to the BioAssay of the first stream without any copy. If the
+   * layout of the read BioAssays is shared, the compatibility of the streams
+   * is tested with a comparison of the layouts. The default is false.
+   * @param concurrent true if the streams must be read concurrently
+   */
+  public void setConcurrentReading(final boolean concurrent) {
+    this.concurrentReading = concurrent;
+  }
 
   //
   // Abstract methods
@@ -52,6 +87,17 @@ public abstract class BioAssayReaderMultipleStreamsReader extends
   protected abstract void tranformBioAssayBeforeMerging(final BioAssay ba,
       final int count);
 
+  /**
+   * Create a reader for one of the streams. The fields to read and the options
+   * of this reader are copied to the new reader by the caller. This method is
+   * used to read the streams concurrently.
+   * @return a new reader or null if the streams can't be read concurrently
+   */
+  protected BioAssayReaderMultipleStreamsReader createStreamReader() {
+
+    return null;
+  }
+
   //
   // Other methods
   //
@@ -102,6 +148,13 @@ public abstract class BioAssayReaderMultipleStreamsReader extends
       return ba;
     }
 
+    if (this.concurrentReading && !ParallelUtils.isWorkerThread()) {
+
+      final BioAssay result = readConcurrently();
+      if (result != null)
+        return result;
+    }
+
     BioAssay result = null;
 
     for (int i = 0; i < this.streams.size(); i++) {
@@ -121,6 +174,142 @@ public abstract class BioAssayReaderMultipleStreamsReader extends
     return result;
   }
 
+  /**
+   * Read all the streams concurrently.
+   * @return A BioAssay object build from the multiple streams sources or null
+   *         if the reader can't read the streams concurrently
+   * @throws NividicIOException if an error occurs while reading the streams
+   */
+  private BioAssay readConcurrently() throws NividicIOException {
+
+    final int count = this.streams.size();
+    final BioAssayReaderMultipleStreamsReader[] readers =
+        new BioAssayReaderMultipleStreamsReader[count];
+
+    for (int i = 0; i < count; i++) {
+
+      final BioAssayReaderMultipleStreamsReader reader = createStreamReader();
+      if (reader == null)
+        return null;
+
+      copySettingsTo(reader);
+      reader.setInputStream(this.streams.get(i));
+      readers[i] = reader;
+    }
+
+    final ExecutorService es = ParallelUtils.getExecutor();
+    final List<Future<BioAssay>> futures =
+        new ArrayList<Future<BioAssay>>(count - 1);
+
+    BioAssay result;
+
+    try {
+
+      for (int i = 1; i < count; i++) {
+
+        final BioAssayReaderMultipleStreamsReader reader = readers[i];
+        final int n = i;
+
+        futures.add(es.submit(new Callable<BioAssay>() {
+
+          public BioAssay call() throws NividicIOException {
+
+            return readStream(reader, n);
+          }
+        }));
+      }
+
+      // The first stream is read by the current thread
+      result = readStream(readers[0], 0);
+
+      for (Future<BioAssay> f : futures)
+        result = BioAssayUtils.mergeFields(result, getResult(f));
+
+    } finally {
+
+      for (Future<BioAssay> f : futures)
+        f.cancel(true);
+    }
+
+    return result;
+  }
+
+  /**
+   * Read a stream and transform the BioAssay before merging.
+   * @param reader reader of the stream
+   * @param count The number of the stream
+   * @return a BioAssay
+   * @throws NividicIOException if an error occurs while reading the stream
+   */
+  private static BioAssay readStream(
+      final BioAssayReaderMultipleStreamsReader reader, final int count)
+      throws NividicIOException {
+
+    final BioAssay ba = reader.readSingleStream();
+    reader.tranformBioAssayBeforeMerging(ba, count);
+
+    return ba;
+  }
+
+  /**
+   * Read the stream of the reader like a single stream reader.
+   * @return a BioAssay
+   * @throws NividicIOException if an error occurs while reading the stream
+   */
+  private BioAssay readSingleStream() throws NividicIOException {
+
+    return super.read();
+  }
+
+  /**
+   * Get the BioAssay read by a task.
+   * @param future future of the task
+   * @return a BioAssay
+   * @throws NividicIOException if an error occurs while reading the stream
+   */
+  private static BioAssay getResult(final Future<BioAssay> future)
+      throws NividicIOException {
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new NividicIOException("Interrupted reading");
+    } catch (ExecutionException e) {
+
+      final Throwable cause = e.getCause();
+
+      if (cause instanceof NividicIOException)
+        throw (NividicIOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+
+      throw new NividicIOException("Error while reading the streams: "
+          + cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * Read the rows of all the streams. The streams are read one after the
+   * other and the handler is started and ended for each stream.
+   * @param handler handler of the rows
+   * @throws NividicIOException if an error occurs while reading the streams
+   */
+  public void read(final BioAssayRowHandler handler)
+      throws NividicIOException {
+
+    for (int i = 0; i < this.streams.size(); i++) {
+
+      if (i != 0)
+        super.clear();
+
+      super.setInputStream(this.streams.get(i));
+      super.read(handler);
+    }
+  }
+
   //
   // Constructor
   //
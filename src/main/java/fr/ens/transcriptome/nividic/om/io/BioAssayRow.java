@@ -0,0 +1,87 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+/**
+ * This interface define a row of a BioAssay stream. The values of the row
+ * are parsed when they are requested. A row object is reused for all the rows
+ * of a stream, so its values must not be kept after the handling of the row.
+ * @author Laurent Jourdren
+ */
+public interface BioAssayRow {
+
+  /**
+   * Get the index of the row in the stream.
+   * @return the index of the row
+   */
+  int getRowIndex();
+
+  /**
+   * Get the number of fields of the row.
+   * @return the number of fields of the row
+   */
+  int getFieldCount();
+
+  /**
+   * Get the name of a field.
+   * @param index index of the field
+   * @return the name of the field
+   */
+  String getFieldName(int index);
+
+  /**
+   * Get the type of a field.
+   * @param index index of the field
+   * @return the type of the field (BioAssay.DATATYPE_XXX)
+   */
+  int getFieldType(int index);
+
+  /**
+   * Get the index of a field.
+   * @param field name of the field
+   * @return the index of the field or -1 if the field is not read
+   */
+  int getFieldIndex(String field);
+
+  /**
+   * Get the value of an integer field. Invalid values are replaced by 0.
+   * @param index index of the field
+   * @return the value of the field
+   */
+  int getInt(int index);
+
+  /**
+   * Get the value of a double field. Invalid values are replaced by NaN.
+   * @param index index of the field
+   * @return the value of the field
+   */
+  double getDouble(int index);
+
+  /**
+   * Get the value of a field as a string.
+   * @param index index of the field
+   * @return the value of the field
+   */
+  String getString(int index);
+
+}
@@ -0,0 +1,55 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import fr.ens.transcriptome.nividic.om.Annotation;
+
+/**
+ * This interface define a handler of the rows of a BioAssay stream.
+ * @author Laurent Jourdren
+ */
+public interface BioAssayRowHandler {
+
+  /**
+   * Start the handling of the rows. This method is called after the reading
+   * of the header of the stream.
+   * @param fields names of the fields of the rows
+   * @param types types of the fields of the rows (BioAssay.DATATYPE_XXX)
+   * @param annotation annotation read in the header of the stream
+   */
+  void start(String[] fields, int[] types, Annotation annotation);
+
+  /**
+   * Handle a row.
+   * @param row row to handle
+   * @return false to stop the reading of the stream
+   */
+  boolean handleRow(BioAssayRow row);
+
+  /**
+   * End the handling of the rows. This method is called after the last row
+   * or after the stop of the reading.
+   */
+  void end();
+
+}
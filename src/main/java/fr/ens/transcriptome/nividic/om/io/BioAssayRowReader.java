@@ -0,0 +1,40 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+/**
+ * This interface define a reader that streams the rows of a BioAssay to a
+ * handler without creating the BioAssay. The memory used does not depend on
+ * the number of rows of the stream.
+ * @author Laurent Jourdren
+ */
+public interface BioAssayRowReader {
+
+  /**
+   * Read the rows of the stream. Only the fields to read are handled.
+   * @param handler handler of the rows
+   * @throws NividicIOException if an error occurs while reading the stream
+   */
+  void read(BioAssayRowHandler handler) throws NividicIOException;
+
+}
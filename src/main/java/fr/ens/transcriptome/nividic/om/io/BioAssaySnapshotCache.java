@@ -0,0 +1,605 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import fr.ens.transcriptome.nividic.Globals;
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
+import fr.ens.transcriptome.nividic.om.Annotation;
+import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.BioAssayBase;
+import fr.ens.transcriptome.nividic.om.BioAssayFactory;
+
+/**
+ * This class define a persistent cache of the BioAssays read from files. After
+ * the first read of a file, a binary snapshot of the columns of the BioAssay
+ * is written next to the file or in a cache directory. The next reads of the
+ * same file with the same options load the memory-mapped snapshot instead of
+ * parsing the file. A snapshot is keyed by the path, the size and the last
+ * modification time of the file and by the options of the reader, and its
+ * content is validated with a checksum. The snapshots of a cache directory
+ * are bounded by their total size and the least recently used snapshots are
+ * removed first.
+ * @author Laurent Jourdren
+ */
+public final class BioAssaySnapshotCache {
+
+  /** Extension of the snapshot files. */
+  public static final String SNAPSHOT_EXTENSION = ".nvs";
+
+  private static final int MAGIC = 0x4e56534e;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int NULL_LENGTH = -1;
+  private static final String TMP_EXTENSION = ".tmp";
+
+  private static BioAssaySnapshotCache defaultCache;
+
+  private final File directory;
+  private final long maxBytes;
+  private int hits;
+  private int misses;
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the snapshot cache used by UniversalBioAssayReader.
+   * @return the default snapshot cache or null if the cache is disabled
+   */
+  public static synchronized BioAssaySnapshotCache getDefaultCache() {
+    return defaultCache;
+  }
+
+  /**
+   * Get the directory of the snapshots.
+   * @return the directory of the snapshots or null if the snapshots are
+   *         written next to the files
+   */
+  public File getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Get the maximal size of the snapshots of the cache directory.
+   * @return the maximal size of the snapshots in bytes
+   */
+  public long getMaxBytes() {
+    return this.maxBytes;
+  }
+
+  /**
+   * Get the number of snapshots loaded.
+   * @return the number of hits
+   */
+  public synchronized int getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Get the number of failed lookups.
+   * @return the number of misses
+   */
+  public synchronized int getMisses() {
+    return this.misses;
+  }
+
+  //
+  // Setters
+  //
+
+  /**
+   * Set the snapshot cache used by UniversalBioAssayReader. The snapshot
+   * cache is disabled by default.
+   * @param cache The cache to use. If null, the cache is disabled
+   */
+  public static synchronized void setDefaultCache(
+      final BioAssaySnapshotCache cache) {
+    defaultCache = cache;
+  }
+
+  //
+  // Cache methods
+  //
+
+  /**
+   * Create the key of a snapshot.
+   * @param file file read
+   * @param options options of the reader (e.g. the fields read)
+   * @return a key for the snapshot
+   */
+  public static String createKey(final File file, final String options) {
+
+    final StringBuilder sb = new StringBuilder();
+
+    sb.append(file.getAbsolutePath());
+    sb.append('\n');
+    sb.append(file.length());
+    sb.append('\n');
+    sb.append(file.lastModified());
+    sb.append('\n');
+    sb.append(options == null ? "" : options);
+
+    return sb.toString();
+  }
+
+  /**
+   * Get the snapshot file of a file. The name of the snapshot does not depend
+   * on the size and the modification time of the file, so a new snapshot of
+   * a modified file replace the old one.
+   * @param file file read
+   * @param options options of the reader
+   * @return the snapshot file
+   */
+  public File getSnapshotFile(final File file, final String options) {
+
+    if (file == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "file");
+
+    final String opt = options == null ? "" : options;
+
+    if (this.directory == null)
+      return new File(file.getAbsoluteFile().getParentFile(), file.getName()
+          + "." + hash(opt) + SNAPSHOT_EXTENSION);
+
+    return new File(this.directory, hash(file.getAbsolutePath() + '\n' + opt)
+        + SNAPSHOT_EXTENSION);
+  }
+
+  /**
+   * Load the snapshot of a file. Invalid or obsolete snapshots are removed.
+   * @param file file read
+   * @param options options of the reader
+   * @return a new BioAssay or null if there is no valid snapshot
+   */
+  public BioAssay get(final File file, final String options) {
+
+    final File snapshot = getSnapshotFile(file, options);
+    BioAssay result = null;
+
+    if (snapshot.isFile()) {
+
+      try {
+        result = load(snapshot, createKey(file, options));
+      } catch (IOException e) {
+        result = null;
+      }
+
+      if (result == null)
+        snapshot.delete();
+      else
+        // The modification time of the snapshots is their last use
+        snapshot.setLastModified(System.currentTimeMillis());
+    }
+
+    synchronized (this) {
+      if (result == null)
+        this.misses++;
+      else
+        this.hits++;
+    }
+
+    return result;
+  }
+
+  /**
+   * Write the snapshot of a file. The errors while writing the snapshot are
+   * ignored, the snapshot is only not created.
+   * @param file file read
+   * @param options options of the reader
+   * @param bioAssay BioAssay read from the file
+   * @return true if the snapshot has been written
+   */
+  public boolean put(final File file, final String options,
+      final BioAssay bioAssay) {
+
+    if (file == null || bioAssay == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "file or bioAssay");
+
+    final File snapshot = getSnapshotFile(file, options);
+    final File tmp = new File(snapshot.getPath() + TMP_EXTENSION);
+
+    try {
+
+      if (this.directory != null && !this.directory.isDirectory())
+        this.directory.mkdirs();
+
+      save(tmp, createKey(file, options), bioAssay);
+
+      // The snapshot is replaced only when complete
+      snapshot.delete();
+      if (!tmp.renameTo(snapshot)) {
+        tmp.delete();
+        return false;
+      }
+
+    } catch (IOException e) {
+      tmp.delete();
+      return false;
+    }
+
+    if (this.directory != null)
+      evict();
+
+    return true;
+  }
+
+  /**
+   * Remove the least recently used snapshots of the cache directory until
+   * their total size is lower than the maximal size of the cache.
+   */
+  public synchronized void evict() {
+
+    if (this.directory == null)
+      return;
+
+    final File[] files = this.directory.listFiles(new FileFilter() {
+
+      public boolean accept(final File f) {
+
+        return f.isFile() && f.getName().endsWith(SNAPSHOT_EXTENSION);
+      }
+    });
+
+    if (files == null)
+      return;
+
+    long bytes = 0;
+    final long[] dates = new long[files.length];
+
+    for (int i = 0; i < files.length; i++) {
+      bytes += files[i].length();
+      dates[i] = files[i].lastModified();
+    }
+
+    if (bytes <= this.maxBytes)
+      return;
+
+    final Integer[] order = new Integer[files.length];
+    for (int i = 0; i < order.length; i++)
+      order[i] = i;
+
+    Arrays.sort(order, new Comparator<Integer>() {
+
+      public int compare(final Integer a, final Integer b) {
+
+        final long da = dates[a];
+        final long db = dates[b];
+
+        return da < db ? -1 : (da == db ? 0 : 1);
+      }
+    });
+
+    for (int i = 0; i < order.length && bytes > this.maxBytes; i++) {
+
+      final File f = files[order[i]];
+      final long length = f.length();
+
+      if (f.delete())
+        bytes -= length;
+    }
+  }
+
+  //
+  // Snapshot files
+  //
+
+  /**
+   * Write a snapshot.
+   * @param snapshot snapshot file
+   * @param key key of the snapshot
+   * @param bioAssay BioAssay to write
+   * @throws IOException if an error occurs while writing the snapshot
+   */
+  private static void save(final File snapshot, final String key,
+      final BioAssay bioAssay) throws IOException {
+
+    final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+            snapshot), 64 * 1024));
+
+    try {
+
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      // The checksum is set when the content is written
+      out.writeLong(0);
+
+      writeString(out, key);
+
+      final String[] fields = bioAssay.getFields();
+      out.writeInt(bioAssay.size());
+      out.writeInt(fields.length);
+
+      writeString(out, bioAssay.getName());
+
+      final Annotation annotation = bioAssay.getAnnotation();
+      final String[] keys =
+          annotation == null ? new String[0] : annotation
+              .getPropertiesKeys();
+
+      out.writeInt(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        writeString(out, keys[i]);
+        writeString(out, annotation.getProperty(keys[i]));
+      }
+
+      for (int i = 0; i < fields.length; i++) {
+
+        final String field = fields[i];
+        final int type = bioAssay.getFieldType(field);
+
+        writeString(out, field);
+        out.writeInt(type);
+
+        switch (type) {
+
+        case BioAssayBase.DATATYPE_DOUBLE:
+          final double[] doubles = bioAssay.getDataFieldDouble(field);
+          for (int j = 0; j < doubles.length; j++)
+            out.writeDouble(doubles[j]);
+          break;
+
+        case BioAssayBase.DATATYPE_INTEGER:
+          final int[] ints = bioAssay.getDataFieldInt(field);
+          for (int j = 0; j < ints.length; j++)
+            out.writeInt(ints[j]);
+          break;
+
+        case BioAssayBase.DATATYPE_STRING:
+          final String[] strings = bioAssay.getDataFieldString(field);
+          for (int j = 0; j < strings.length; j++)
+            writeString(out, strings[j]);
+          break;
+
+        default:
+          throw new IOException("Unknown type of field: " + field);
+        }
+      }
+
+    } finally {
+      out.close();
+    }
+
+    // Compute the checksum of the content. The snapshot is not mapped here
+    // as a mapped file can not be renamed on some platforms
+    final FileInputStream is = new FileInputStream(snapshot);
+    final long checksum;
+
+    try {
+
+      if (is.skip(HEADER_SIZE) != HEADER_SIZE)
+        throw new IOException("Invalid snapshot: " + snapshot);
+
+      final FingerprintInputStream fis = new FingerprintInputStream(is);
+      final byte[] buffer = new byte[64 * 1024];
+
+      while (fis.read(buffer) != -1)
+        ;
+
+      checksum = fis.getFingerprint();
+    } finally {
+      is.close();
+    }
+
+    final RandomAccessFile raf = new RandomAccessFile(snapshot, "rw");
+
+    try {
+      raf.seek(HEADER_SIZE - 8);
+      raf.writeLong(checksum);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Load a snapshot.
+   * @param snapshot snapshot file
+   * @param key expected key of the snapshot
+   * @return a new BioAssay or null if the snapshot is not valid
+   * @throws IOException if an error occurs while reading the snapshot
+   */
+  private static BioAssay load(final File snapshot, final String key)
+      throws IOException {
+
+    final FileInputStream is = new FileInputStream(snapshot);
+
+    try {
+
+      final FileChannel channel = is.getChannel();
+      final ByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      if (buffer.remaining() < HEADER_SIZE
+          || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+        return null;
+
+      final long checksum = buffer.getLong();
+
+      if (checksum != FingerprintInputStream.fingerprint(buffer)
+          || !key.equals(readString(buffer)))
+        return null;
+
+      return readBioAssay(buffer);
+
+    } catch (RuntimeException e) {
+      // Inconsistent data (e.g. truncated arrays)
+      return null;
+    } finally {
+      is.close();
+    }
+  }
+
+  /**
+   * Read the BioAssay of a snapshot.
+   * @param buffer buffer of the snapshot
+   * @return a new BioAssay
+   */
+  private static BioAssay readBioAssay(final ByteBuffer buffer) {
+
+    final int size = buffer.getInt();
+    final int fieldCount = buffer.getInt();
+
+    final BioAssay result = BioAssayFactory.createBioAssay();
+
+    final String name = readString(buffer);
+    if (name != null)
+      result.setName(name);
+
+    final int annotationCount = buffer.getInt();
+    final Annotation annotation = result.getAnnotation();
+
+    for (int i = 0; i < annotationCount; i++)
+      annotation.setProperty(readString(buffer), readString(buffer));
+
+    for (int i = 0; i < fieldCount; i++) {
+
+      final String field = readString(buffer);
+
+      switch (buffer.getInt()) {
+
+      case BioAssayBase.DATATYPE_DOUBLE:
+        final double[] doubles = new double[size];
+        buffer.asDoubleBuffer().get(doubles);
+        buffer.position(buffer.position() + 8 * size);
+        result.setDataFieldDouble(field, doubles);
+        break;
+
+      case BioAssayBase.DATATYPE_INTEGER:
+        final int[] ints = new int[size];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + 4 * size);
+        if (BioAssayBase.FIELD_NAME_LOCATION.equals(field))
+          result.setLocations(ints);
+        else
+          result.setDataFieldInt(field, ints);
+        break;
+
+      case BioAssayBase.DATATYPE_STRING:
+        final String[] strings = new String[size];
+        for (int j = 0; j < size; j++)
+          strings[j] = readString(buffer);
+        result.setDataFieldString(field, strings);
+        break;
+
+      default:
+        throw new NividicRuntimeException("Unknown type of field: " + field);
+      }
+    }
+
+    return result;
+  }
+
+  private static void writeString(final DataOutputStream out, final String s)
+      throws IOException {
+
+    if (s == null) {
+      out.writeInt(NULL_LENGTH);
+      return;
+    }
+
+    out.writeInt(s.length());
+    out.writeChars(s);
+  }
+
+  private static String readString(final ByteBuffer buffer) {
+
+    final int length = buffer.getInt();
+
+    if (length == NULL_LENGTH)
+      return null;
+
+    final char[] chars = new char[length];
+    buffer.asCharBuffer().get(chars);
+    buffer.position(buffer.position() + 2 * length);
+
+    return new String(chars);
+  }
+
+  /**
+   * Get the hexadecimal representation of the hash of a string.
+   * @param s String to hash
+   * @return the hash of the string
+   */
+  private static String hash(final String s) {
+
+    try {
+      final byte[] bytes = s.getBytes(Globals.DEFAULT_FILE_ENCODING);
+
+      return Long.toHexString(FingerprintInputStream.fingerprint(bytes, 0,
+          bytes.length));
+    } catch (UnsupportedEncodingException e) {
+      throw new NividicRuntimeException("Unknown encoding: "
+          + Globals.DEFAULT_FILE_ENCODING);
+    }
+  }
+
+  //
+  // Constructors
+  //
+
+  /**
+   * Public constructor. The snapshots are written next to the files read.
+   */
+  public BioAssaySnapshotCache() {
+
+    this.directory = null;
+    this.maxBytes = Long.MAX_VALUE;
+  }
+
+  /**
+   * Public constructor. The snapshots are written in a cache directory.
+   * @param directory directory of the snapshots
+   * @param maxBytes maximal size of the snapshots of the directory in bytes
+   */
+  public BioAssaySnapshotCache(final File directory, final long maxBytes) {
+
+    if (directory == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "directory");
+
+    if (maxBytes < 0)
+      throw new NividicRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "maxBytes: " + maxBytes);
+
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+}
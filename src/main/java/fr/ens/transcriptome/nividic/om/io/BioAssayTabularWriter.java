@@ -34,9 +34,11 @@ public abstract class BioAssayTabularWriter extends BioAssayWriter {
   public String TSV_BACKEND = "tsv";
   public String XSL_BACKEND = "xsl";
   public String OOXML_BACKEND = "ooxml";
+  public String STREAMING_OOXML_BACKEND = "streaming-ooxml";
 
   private BioAssayTabularWriterBackend backend;
   private String backendType = "";
+  private boolean xlsSheetSplit;
 
   /**
    * Get the meta row field name.
@@ -74,9 +76,12 @@ public abstract class BioAssayTabularWriter extends BioAssayWriter {
 
     // Set the backend
     if (this.backendType.equals(XSL_BACKEND))
-      this.backend = new BioAssayTabularWriterXSLBackend(this);
+      this.backend =
+          new BioAssayTabularWriterXSLBackend(this, this.xlsSheetSplit);
     else if (this.backendType.equals(OOXML_BACKEND))
       this.backend = new BioAssayTabularWriterOOXMLBackend(this);
+    else if (this.backendType.equals(STREAMING_OOXML_BACKEND))
+      this.backend = new BioAssayTabularWriterStreamingOOXMLBackend(this);
     else
       this.backend = new BioAssayTabularWriterTSVBackend(this);
 
@@ -113,10 +118,34 @@ public abstract class BioAssayTabularWriter extends BioAssayWriter {
     final String s = backendType.trim().toLowerCase();
 
     if (s.equals(TSV_BACKEND)
-        || s.equals(XSL_BACKEND) || s.equals(OOXML_BACKEND))
+        || s.equals(XSL_BACKEND) || s.equals(OOXML_BACKEND)
+        || s.equals(STREAMING_OOXML_BACKEND))
       this.backendType = backendType;
   }
 
+  /**
+   * Test if the rows written by the xsl backend are split in several sheets.
+   * @return true if the rows are split in several sheets
+   */
+  public boolean isXLSSheetSplit() {
+
+    return this.xlsSheetSplit;
+  }
+
+  /**
+   * Set if the rows written by the xsl backend are split in several sheets of
+   * at most 65535 rows, each sheet with its own header. By default all the
+   * rows are written in a single sheet and the writing fails if there are
+   * more rows than a xls sheet can hold. The whole xls workbook is built in
+   * memory before being written: use the streaming-ooxml backend to write
+   * large BioAssays.
+   * @param split true if the rows must be split in several sheets
+   */
+  public void setXLSSheetSplit(final boolean split) {
+
+    this.xlsSheetSplit = split;
+  }
+
   /**
    * adds fields to read
    */
@@ -0,0 +1,431 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.translators.Translator;
+
+/**
+ * This class define a backend for BioAssayTabularWriter that create a xlsx
+ * file without building the workbook in memory. The rows of the sheet are
+ * streamed in the zip archive as they are formatted. The strings are written
+ * as inline strings, so no table of the strings is kept until the end of the
+ * writing.
+ * @author Laurent Jourdren
+ */
+class BioAssayTabularWriterStreamingOOXMLBackend implements
+    BioAssayTabularWriterBackend {
+
+  private static final String ENCODING = "UTF-8";
+  private static final String XML_HEADER =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+  private static final String MAIN_NS =
+      "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+  private static final String REL_NS =
+      "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+  private static final String PKG_REL_NS =
+      "http://schemas.openxmlformats.org/package/2006/relationships";
+  private static final String CT_PREFIX =
+      "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+
+  private static final String SHEET_NAME = "new sheet";
+  /** Index of ORANGE in the indexed color palette. */
+  private static final int HEADER_FILL_COLOR = 53;
+  private static final int HEADER_STYLE = 1;
+
+  private BioAssayWriter writer;
+
+  private ZipOutputStream zos;
+  private Writer bw;
+  private String[] columnRefs;
+
+  /**
+   * Set the BioAssayWriter.
+   * @param writer Writer to set
+   */
+  public void setBioAssayWriter(final BioAssayWriter writer) {
+
+    this.writer = writer;
+  }
+
+  /**
+   * Write the data.
+   * @throws NividicIOException if an error occurs while writing data
+   */
+  public void writeData() throws NividicIOException {
+
+    if (this.bw == null)
+      throw new NividicIOException("No stream to write");
+
+    final BioAssayWriter writer = this.writer;
+
+    final int countCol = writer.getColumnCount();
+    final int countRow = writer.getRowColumn();
+    final Translator translator = writer.getTranslator();
+    final String[] translatorFields;
+    final String[] ids =
+        writer.getBioAssay() == null ? null : writer.getBioAssay().getIds();
+
+    if (translator == null)
+      translatorFields = null;
+    else
+      translatorFields = translator.getFields();
+
+    final BioAssayWriter.ColumnWriter[] columns = writer.getColumnWriters();
+    final int[] types = new int[countCol];
+    for (int j = 0; j < countCol; j++)
+      types[j] = columns[j].hasData() ? writer.getFieldType(j) : -1;
+
+    final boolean[] links;
+    if (translatorFields == null)
+      links = null;
+    else {
+      links = new boolean[translatorFields.length];
+      for (int j = 0; j < links.length; j++)
+        links[j] = translator.isLinkInfo(translatorFields[j]);
+    }
+
+    try {
+      final TextBuffer sb = new TextBuffer();
+      for (int i = 0; i < countRow; i++) {
+
+        final int rowNumber = i + 2;
+        startRow(rowNumber, sb);
+
+        for (int j = 0; j < countCol; j++)
+
+          switch (types[j]) {
+          case BioAssay.DATATYPE_STRING:
+            appendStringCell(j, rowNumber, columns[j].getString(i), -1, sb);
+            break;
+
+          case BioAssay.DATATYPE_INTEGER:
+          case BioAssay.DATATYPE_DOUBLE:
+            appendNumberCell(j, rowNumber, columns[j].getDouble(i), sb);
+            break;
+
+          default:
+            break;
+          }
+
+        if (translatorFields != null)
+          for (int j = 0; j < translatorFields.length; j++) {
+
+            final String field = translatorFields[j];
+            final String value;
+
+            if (ids == null)
+              value = null;
+            else
+              value = translator.translateField(ids[i], field);
+
+            if (value == null)
+              continue;
+
+            final String link =
+                links[j] ? translator.getLinkInfo(value, field) : null;
+
+            if (link == null)
+              appendStringCell(countCol + j, rowNumber, value, -1, sb);
+            else
+              appendLinkCell(countCol + j, rowNumber, link, value, sb);
+          }
+
+        sb.append("</row>\n");
+
+        if (sb.length() >= ATFWriter.ROWS_BUFFER_SIZE)
+          sb.writeTo(this.bw);
+      }
+
+      sb.append("</sheetData></worksheet>\n");
+      sb.writeTo(this.bw);
+      closeEntry();
+
+      this.bw.close();
+    } catch (IOException e) {
+      throw new NividicIOException("Error while writing stream : "
+          + e.getMessage());
+    }
+  }
+
+  /**
+   * Write the header.
+   * @throws NividicIOException if an error occurs while writing header
+   */
+  public void writeHeaders() throws NividicIOException {
+
+    final BioAssayWriter writer = this.writer;
+
+    final List<String> names = new ArrayList<String>();
+    for (int i = 0; i < writer.getColumnCount(); i++)
+      names.add(writer.getFieldName(i));
+
+    if (writer.getTranslator() != null) {
+
+      String[] fields = writer.getTranslator().getFields();
+      if (fields != null)
+        for (int i = 0; i < fields.length; i++)
+          names.add(fields[i]);
+    }
+
+    this.columnRefs = new String[names.size()];
+    for (int i = 0; i < this.columnRefs.length; i++)
+      this.columnRefs[i] = getColumnRef(i);
+
+    this.zos = new ZipOutputStream(writer.getOutputStream());
+    this.bw =
+        new ChannelWriter(this.zos, ENCODING,
+            ChannelWriter.DEFAULT_BUFFER_SIZE);
+
+    try {
+      writePackageParts();
+
+      newEntry("xl/worksheets/sheet1.xml");
+      final TextBuffer sb = new TextBuffer();
+      sb.append(XML_HEADER);
+      sb.append("<worksheet xmlns=\"" + MAIN_NS + "\"><sheetData>\n");
+
+      startRow(1, sb);
+      for (int i = 0; i < names.size(); i++)
+        appendStringCell(i, 1, names.get(i), HEADER_STYLE, sb);
+      sb.append("</row>\n");
+
+      sb.writeTo(this.bw);
+    } catch (IOException e) {
+      throw new NividicIOException("Error while writing stream header : "
+          + e.getMessage());
+    }
+  }
+
+  //
+  // Cells
+  //
+
+  private static void startRow(final int rowNumber, final TextBuffer sb) {
+
+    sb.append("<row r=\"");
+    sb.append(rowNumber);
+    sb.append("\">");
+  }
+
+  private void startCell(final int column, final int rowNumber,
+      final TextBuffer sb) {
+
+    sb.append("<c r=\"");
+    sb.append(this.columnRefs[column]);
+    sb.append(rowNumber);
+    sb.append('\"');
+  }
+
+  private void appendStringCell(final int column, final int rowNumber,
+      final String value, final int style, final TextBuffer sb) {
+
+    startCell(column, rowNumber, sb);
+    if (style >= 0) {
+      sb.append(" s=\"");
+      sb.append(style);
+      sb.append('\"');
+    }
+    sb.append(" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+    appendEscaped(value, sb);
+    sb.append("</t></is></c>");
+  }
+
+  private void appendNumberCell(final int column, final int rowNumber,
+      final double value, final TextBuffer sb) {
+
+    // Excel has no representation for NaN and infinite values
+    if (Double.isNaN(value) || Double.isInfinite(value))
+      return;
+
+    startCell(column, rowNumber, sb);
+    sb.append("><v>");
+    if (value == (int) value)
+      sb.append((int) value);
+    else
+      sb.append(value);
+    sb.append("</v></c>");
+  }
+
+  private void appendLinkCell(final int column, final int rowNumber,
+      final String link, final String value, final TextBuffer sb) {
+
+    startCell(column, rowNumber, sb);
+    sb.append(" t=\"str\"><f>");
+    appendEscaped("HYPERLINK(\"" + link + "\",\"" + value + "\")", sb);
+    sb.append("</f></c>");
+  }
+
+  /**
+   * Append a string to a buffer with the xml special characters escaped. The
+   * control characters that are not allowed in xml are removed.
+   * @param s String to append
+   * @param sb buffer to use
+   */
+  static void appendEscaped(final String s, final TextBuffer sb) {
+
+    final int len = s.length();
+
+    for (int i = 0; i < len; i++) {
+
+      final char c = s.charAt(i);
+
+      switch (c) {
+      case '&':
+        sb.append("&amp;");
+        break;
+      case '<':
+        sb.append("&lt;");
+        break;
+      case '>':
+        sb.append("&gt;");
+        break;
+      case '\"':
+        sb.append("&quot;");
+        break;
+      case '\t':
+      case '\n':
+      case '\r':
+        sb.append(c);
+        break;
+      default:
+        if (c >= ' ' && c != '\uFFFE' && c != '\uFFFF')
+          sb.append(c);
+        break;
+      }
+    }
+  }
+
+  /**
+   * Get the reference of a column (A, B, ..., Z, AA, AB...).
+   * @param column index of the column
+   * @return the reference of the column
+   */
+  static String getColumnRef(final int column) {
+
+    final StringBuilder sb = new StringBuilder();
+
+    for (int n = column + 1; n > 0; n = (n - 1) / 26)
+      sb.insert(0, (char) ('A' + (n - 1) % 26));
+
+    return sb.toString();
+  }
+
+  //
+  // Package parts
+  //
+
+  private void newEntry(final String name) throws IOException {
+
+    this.zos.putNextEntry(new ZipEntry(name));
+  }
+
+  private void closeEntry() throws IOException {
+
+    this.bw.flush();
+    this.zos.closeEntry();
+  }
+
+  private void writeEntry(final String name, final String content)
+      throws IOException {
+
+    newEntry(name);
+    this.bw.write(content);
+    closeEntry();
+  }
+
+  private void writePackageParts() throws IOException {
+
+    writeEntry("[Content_Types].xml", XML_HEADER
+        + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/"
+        + "content-types\">"
+        + "<Default Extension=\"rels\" ContentType=\"application/"
+        + "vnd.openxmlformats-package.relationships+xml\"/>"
+        + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+        + "<Override PartName=\"/xl/workbook.xml\" ContentType=\""
+        + CT_PREFIX + "sheet.main+xml\"/>"
+        + "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\""
+        + CT_PREFIX + "worksheet+xml\"/>"
+        + "<Override PartName=\"/xl/styles.xml\" ContentType=\""
+        + CT_PREFIX + "styles+xml\"/>" + "</Types>\n");
+
+    writeEntry("_rels/.rels", XML_HEADER
+        + "<Relationships xmlns=\"" + PKG_REL_NS + "\">"
+        + "<Relationship Id=\"rId1\" Type=\"" + REL_NS
+        + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+        + "</Relationships>\n");
+
+    writeEntry("xl/workbook.xml", XML_HEADER
+        + "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\">"
+        + "<sheets><sheet name=\"" + SHEET_NAME
+        + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>\n");
+
+    writeEntry("xl/_rels/workbook.xml.rels", XML_HEADER
+        + "<Relationships xmlns=\"" + PKG_REL_NS + "\">"
+        + "<Relationship Id=\"rId1\" Type=\"" + REL_NS
+        + "/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+        + "<Relationship Id=\"rId2\" Type=\"" + REL_NS
+        + "/styles\" Target=\"styles.xml\"/>"
+        + "</Relationships>\n");
+
+    writeEntry("xl/styles.xml", XML_HEADER
+        + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+        + "<fonts count=\"2\">"
+        + "<font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+        + "<font><i/><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+        + "</fonts>"
+        + "<fills count=\"3\">"
+        + "<fill><patternFill patternType=\"none\"/></fill>"
+        + "<fill><patternFill patternType=\"gray125\"/></fill>"
+        + "<fill><patternFill patternType=\"solid\"><fgColor indexed=\""
+        + HEADER_FILL_COLOR + "\"/></patternFill></fill>"
+        + "</fills>"
+        + "<borders count=\"1\"><border/></borders>"
+        + "<cellStyleXfs count=\"1\"><xf/></cellStyleXfs>"
+        + "<cellXfs count=\"2\"><xf/>"
+        + "<xf fontId=\"1\" fillId=\"2\" applyFont=\"1\" applyFill=\"1\"/>"
+        + "</cellXfs></styleSheet>\n");
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Public constructor.
+   * @param writer Writer to set
+   */
+  public BioAssayTabularWriterStreamingOOXMLBackend(
+      final BioAssayWriter writer) {
+
+    setBioAssayWriter(writer);
+  }
+
+}
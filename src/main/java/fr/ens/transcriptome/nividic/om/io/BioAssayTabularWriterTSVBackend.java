@@ -22,9 +22,9 @@
 
 package fr.ens.transcriptome.nividic.om.io;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 
 import fr.ens.transcriptome.nividic.om.BioAssay;
 import fr.ens.transcriptome.nividic.om.translators.Translator;
@@ -38,7 +38,7 @@ class BioAssayTabularWriterTSVBackend implements BioAssayTabularWriterBackend {
 
   private static final String eol = DOS_EOL;
   private static final char separator = SEPARATOR_TAB;
-  private BufferedWriter bw;
+  private Writer bw;
 
   /**
    * Set the BioAssayWriter.
@@ -72,39 +72,23 @@ class BioAssayTabularWriterTSVBackend implements BioAssayTabularWriterBackend {
     else
       translatorFields = translator.getFields();
 
+    final BioAssayWriter.ColumnWriter[] columns = writer.getColumnWriters();
+    final boolean[] quoted = new boolean[countCol];
+    for (int j = 0; j < countCol; j++)
+      quoted[j] = writer.getFieldType(j) == BioAssay.DATATYPE_STRING;
+
     try {
-      StringBuffer sb = new StringBuffer();
+      final TextBuffer sb = new TextBuffer();
       for (int i = 0; i < countRow; i++) {
 
         for (int j = 0; j < countCol; j++) {
 
-          String value = writer.getData(i, j);
-          if (value == null)
-            value = "";
-
-          switch (writer.getFieldType(j)) {
-          case BioAssay.DATATYPE_STRING:
+          if (quoted[j]) {
             sb.append('\"');
-            sb.append(value);
+            columns[j].append(i, sb);
             sb.append('\"');
-            break;
-
-          case BioAssay.DATATYPE_INTEGER:
-            sb.append(value);
-            break;
-
-          case BioAssay.DATATYPE_DOUBLE:
-            if (value.equals("NA"))
-              sb.append("Error");
-            else
-              sb.append(value);
-            break;
-
-          // Locations type
-          default:
-            sb.append(value);
-            break;
-          }
+          } else
+            columns[j].append(i, sb);
 
           if (translatorFields == null && (j == (countCol - 1)))
             sb.append(eol);
@@ -134,10 +118,11 @@ class BioAssayTabularWriterTSVBackend implements BioAssayTabularWriterBackend {
               sb.append(separator);
           }
 
-        this.bw.write(sb.toString());
-        sb.delete(0, sb.length());
+        if (sb.length() >= ATFWriter.ROWS_BUFFER_SIZE)
+          sb.writeTo(this.bw);
       }
 
+      sb.writeTo(this.bw);
       this.bw.close();
     } catch (IOException e) {
       throw new NividicIOException("Error while writing stream : "
@@ -154,7 +139,9 @@ class BioAssayTabularWriterTSVBackend implements BioAssayTabularWriterBackend {
 
     final BioAssayWriter writer = this.writer;
 
-    bw = new BufferedWriter(new OutputStreamWriter(writer.getOutputStream()));
+    bw =
+        new ChannelWriter(writer.getOutputStream(), Charset.defaultCharset()
+            .name(), ChannelWriter.DEFAULT_BUFFER_SIZE);
 
     StringBuffer sb = new StringBuffer();
 
@@ -39,14 +39,22 @@ import fr.ens.transcriptome.nividic.om.translators.Translator;
 
 /**
  * This class define a backend for BioAssayTabularWriter that create a xls file.
+ * The rows are not streamed: the whole workbook is built in memory and written
+ * at the end.
  * @author Laurent Jourdren
  */
 class BioAssayTabularWriterXSLBackend implements BioAssayTabularWriterBackend {
 
   private BioAssayWriter writer;
+  private final boolean sheetSplit;
+
+  /** Maximal number of data rows in a sheet of a xls file. */
+  static final int ROWS_PER_SHEET = 65535;
+  private static final String SHEET_NAME = "new sheet";
 
   private HSSFWorkbook wb;
   private HSSFSheet sheet;
+  private HSSFCellStyle headerStyle;
 
   /**
    * Set the BioAssayWriter.
@@ -58,8 +66,12 @@ class BioAssayTabularWriterXSLBackend implements BioAssayTabularWriterBackend {
   }
 
   /**
-   * Write the data.
-   * @throws NividicIOException if an error occurs while writing data
+   * Write the data. The cells are created from the typed values of the columns
+   * without formatting them as text. If the sheets are split, a new sheet is
+   * created every ROWS_PER_SHEET rows as the xls format cannot store more rows
+   * in a sheet.
+   * @throws NividicIOException if an error occurs while writing data or if
+   *           there are too many rows for a single sheet
    */
   public void writeData() throws NividicIOException {
 
@@ -77,43 +89,44 @@ class BioAssayTabularWriterXSLBackend implements BioAssayTabularWriterBackend {
     else
       translatorFields = translator.getFields();
 
+    if (countRow > ROWS_PER_SHEET && !this.sheetSplit)
+      throw new NividicIOException("Too many rows for a xls sheet: "
+          + countRow + " (maximum: " + ROWS_PER_SHEET + ")");
+
+    final BioAssayWriter.ColumnWriter[] columns = writer.getColumnWriters();
+    final int[] types = new int[countCol];
+    for (int j = 0; j < countCol; j++)
+      types[j] = columns[j].hasData() ? writer.getFieldType(j) : -1;
+
     try {
-      StringBuffer sb = new StringBuffer();
       for (int i = 0; i < countRow; i++) {
 
-        HSSFRow row = sheet.createRow(i + 1);
+        final int rowInSheet = i % ROWS_PER_SHEET;
+        if (i > 0 && rowInSheet == 0)
+          createSheet(SHEET_NAME + " " + (i / ROWS_PER_SHEET + 1));
 
-        for (int j = 0; j < countCol; j++) {
+        HSSFRow row = sheet.createRow(rowInSheet + 1);
 
-          String value = writer.getData(i, j);
-          if (value == null)
-            continue;
+        for (int j = 0; j < countCol; j++)
 
-          switch (writer.getFieldType(j)) {
+          switch (types[j]) {
           case BioAssay.DATATYPE_STRING:
             row.createCell((short) j).setCellValue(
-                new HSSFRichTextString(value));
+                new HSSFRichTextString(columns[j].getString(i)));
             break;
 
           case BioAssay.DATATYPE_INTEGER:
-            row.createCell((short) j).setCellValue(Integer.parseInt(value));
-            break;
-
           case BioAssay.DATATYPE_DOUBLE:
 
-            final double vd = Double.parseDouble(value);
+            final double vd = columns[j].getDouble(i);
             if (!Double.isNaN(vd))
               row.createCell((short) j).setCellValue(vd);
             break;
 
-          // Locations type
           default:
-            sb.append(value);
             break;
           }
 
-        }
-
         if (translatorFields != null)
           for (int j = 0; j < translatorFields.length; j++) {
 
@@ -164,25 +177,33 @@ class BioAssayTabularWriterXSLBackend implements BioAssayTabularWriterBackend {
    */
   public void writeHeaders() throws NividicIOException {
 
-    final BioAssayWriter writer = this.writer;
-
     this.wb = new HSSFWorkbook();
-    this.sheet = wb.createSheet("new sheet");
-
-    HSSFRow row = sheet.createRow((short) 0);
 
     // Create a new font and alter it.
     HSSFFont font = wb.createFont();
-    // font.setFontHeightInPoints((short)24);
-    // font.setFontName("Courier New");
     font.setItalic(true);
-    // font.setStrikeout(true);
 
     // Fonts are set into a style so create a new one to use.
-    HSSFCellStyle style = wb.createCellStyle();
-    style.setFillForegroundColor(HSSFColor.ORANGE.index);
-    style.setFillPattern(HSSFCellStyle.SOLID_FOREGROUND);
-    style.setFont(font);
+    this.headerStyle = wb.createCellStyle();
+    this.headerStyle.setFillForegroundColor(HSSFColor.ORANGE.index);
+    this.headerStyle.setFillPattern(HSSFCellStyle.SOLID_FOREGROUND);
+    this.headerStyle.setFont(font);
+
+    createSheet(SHEET_NAME);
+  }
+
+  /**
+   * Create a new sheet with the header row and set it as the current sheet.
+   * @param name name of the sheet
+   */
+  private void createSheet(final String name) {
+
+    final BioAssayWriter writer = this.writer;
+    final HSSFCellStyle style = this.headerStyle;
+
+    this.sheet = wb.createSheet(name);
+
+    HSSFRow row = sheet.createRow((short) 0);
 
     int count = 0;
 
@@ -212,12 +233,24 @@ class BioAssayTabularWriterXSLBackend implements BioAssayTabularWriterBackend {
   //
 
   /**
-   * Public constructor.
+   * Public constructor. All the rows are written in a single sheet.
    * @param writer Writer to set
    */
   public BioAssayTabularWriterXSLBackend(final BioAssayWriter writer) {
 
+    this(writer, false);
+  }
+
+  /**
+   * Public constructor.
+   * @param writer Writer to set
+   * @param sheetSplit true if the rows must be split in several sheets
+   */
+  public BioAssayTabularWriterXSLBackend(final BioAssayWriter writer,
+      final boolean sheetSplit) {
+
     setBioAssayWriter(writer);
+    this.sheetSplit = sheetSplit;
   }
 
 }
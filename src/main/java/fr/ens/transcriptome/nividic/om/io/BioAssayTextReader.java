@@ -26,16 +26,14 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
 
 import fr.ens.transcriptome.nividic.Globals;
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
 import fr.ens.transcriptome.nividic.om.BioAssay;
 import fr.ens.transcriptome.nividic.om.HistoryEntry;
 import fr.ens.transcriptome.nividic.om.HistoryEntry.HistoryActionResult;
 import fr.ens.transcriptome.nividic.om.HistoryEntry.HistoryActionType;
-import fr.ens.transcriptome.nividic.util.StringUtils;
-import java.util.regex.Pattern;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
 
 /**
  * This abstract class defines how to read text BioAssay File. Warning: when
@@ -43,7 +41,11 @@ import java.util.regex.Pattern;
  * by 0
  * @author Laurent Jourdren
  */
-public abstract class BioAssayTextReader extends InputStreamBioAssayReader {
+public abstract class BioAssayTextReader extends InputStreamBioAssayReader
+    implements BioAssayRowReader {
+
+  /** Minimal number of chars of the ranges of lines parsed in parallel. */
+  static final int PARALLEL_MIN_RANGE_SIZE = 256 * 1024;
 
   private BufferedReader bufferedReader;
   private String encoding = Globals.DEFAULT_FILE_ENCODING;
@@ -97,124 +99,363 @@ public abstract class BioAssayTextReader extends InputStreamBioAssayReader {
    */
   public BioAssay read() throws NividicIOException {
 
-    if (getInputStream() == null)
-      throw new NividicIOException("No stream to read");
-
     final boolean comma = isCommaDecimalSeparator();
-
-    addFieldToRead(getMetaRowField());
-    addFieldToRead(getRowField());
-    addFieldToRead(getMetaColumnField());
-    addFieldToRead(getColumnField());
-
-    try {
-      setBufferedReader(new BufferedReader(new InputStreamReader(
-          getInputStream(), getEncoding())));
-    } catch (UnsupportedEncodingException e2) {
-      throw new NividicIOException("Unknown encoding: " + getEncoding());
-    }
-
-    readHeader();
-    final String[] existingFields = getFieldNamesOrder();
+    final String[] existingFields = openStream();
 
     if (existingFields == null || existingFields.length == 0)
       return getBioAssay();
 
     final boolean[] arrayFieldsToRead =
         createArrayOfFieldsToRead(existingFields);
-    final boolean[] arrayIntFields =
-        createArrayOfTypeFields(existingFields, getIntFieldNames());
-    final boolean[] arrayDoubleFields =
-        createArrayOfTypeFields(existingFields, getDoubleFieldNames());
+    final int[] arrayFieldTypes = createArrayOfFieldTypes(existingFields);
+
+    final int columnCount = existingFields.length;
 
-    // Flag location fields as integer fields
-    searchFieldAndFlagIt(existingFields, getMetaRowField(), arrayIntFields);
-    searchFieldAndFlagIt(existingFields, getRowField(), arrayIntFields);
-    searchFieldAndFlagIt(existingFields, getMetaColumnField(), arrayIntFields);
-    searchFieldAndFlagIt(existingFields, getColumnField(), arrayIntFields);
+    // The buffers of the fields to read
+    final FieldBuffer.Ints[] intBuffers = new FieldBuffer.Ints[columnCount];
+    final FieldBuffer.Doubles[] doubleBuffers =
+        new FieldBuffer.Doubles[columnCount];
+    final FieldBuffer.Strings[] stringBuffers =
+        new FieldBuffer.Strings[columnCount];
 
-    BufferedReader br = getBufferedReader();
-    final Pattern pattern = Pattern.compile(getSeparatorField());
-    String line = null;
+    // The indexes of the fields to read
+    final int[] columnsToRead = new int[columnCount];
+    int columnsToReadCount = 0;
 
+    for (int i = 0; i < columnCount; i++) {
+
+      if (!arrayFieldsToRead[i])
+        continue;
+
+      columnsToRead[columnsToReadCount++] = i;
+      final String field = existingFields[i];
+
+      // Location fields are integer fields
+      if (arrayFieldTypes[i] == BioAssay.DATATYPE_INTEGER
+          || isLocationField(field))
+        intBuffers[i] = getIntBuffer(field);
+      else if (arrayFieldTypes[i] == BioAssay.DATATYPE_DOUBLE)
+        doubleBuffers[i] = getDoubleBuffer(field);
+      else
+        stringBuffers[i] = getStringBuffer(field);
+    }
+
+    final String endTag = getEndTag();
+
+    final LineTokenizer tokenizer =
+        new LineTokenizer(getBufferedReader(), getSeparatorField(), true,
+            isStringQuotesBeRemoved());
+
+    // Lines are not split after the last field to read
+    tokenizer.setFieldsToProcess(arrayFieldsToRead);
+
+    final int[] columns = new int[columnsToReadCount];
+    System.arraycopy(columnsToRead, 0, columns, 0, columnsToReadCount);
+
+    try {
+      if (isParallelParsing() && ParallelUtils.getThreadCount() > 1)
+        readRowsInParallel(tokenizer, endTag, comma, columns, intBuffers,
+            doubleBuffers, stringBuffers);
+      else
+        readRows(tokenizer, endTag, comma, columns, intBuffers, doubleBuffers,
+            stringBuffers);
+    } catch (IOException e) {
+      // e.printStackTrace();
+      throw new NividicIOException("Error while reading the file");
+    }
+
+    try {
+      getBufferedReader().close();
+    } catch (IOException e1) {
+      throw new NividicIOException("Error while closing the file");
+    }
+
+    return addReaderHistoryEntry(settingReadedDataInBioAssay());
+  }
+
+  /**
+   * Read the rows of the stream without creating a BioAssay. The values are
+   * parsed only when they are requested by the handler.
+   * @param handler handler of the rows
+   * @throws NividicIOException if an error occurs while reading the stream
+   */
+  public void read(final BioAssayRowHandler handler)
+      throws NividicIOException {
+
+    if (handler == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "handler");
+
+    final String[] existingFields = openStream();
     final int columnCount =
-        getFieldNamesOrder() == null ? 0 : getFieldNamesOrder().length;
+        existingFields == null ? 0 : existingFields.length;
+
+    final boolean[] arrayFieldsToRead =
+        columnCount == 0 ? new boolean[0]
+            : createArrayOfFieldsToRead(existingFields);
+    final int[] arrayFieldTypes =
+        columnCount == 0 ? new int[0] : createArrayOfFieldTypes(existingFields);
+
+    int count = 0;
+    for (int i = 0; i < columnCount; i++)
+      if (arrayFieldsToRead[i])
+        count++;
+
+    final FieldNameConverter converter = getFieldNameConverter();
+    final String[] fields = new String[count];
+    final int[] types = new int[count];
+    final int[] columns = new int[count];
+
+    int j = 0;
+    for (int i = 0; i < columnCount; i++) {
+
+      if (!arrayFieldsToRead[i])
+        continue;
+
+      final String field = existingFields[i];
+      columns[j] = i;
+
+      if (isLocationField(field)) {
+        fields[j] = field;
+        types[j] = BioAssay.DATATYPE_INTEGER;
+      } else {
+        fields[j] =
+            converter == null ? field : converter.getBioAssayFieldName(field);
+        types[j] = arrayFieldTypes[i];
+      }
+      j++;
+    }
 
     final String endTag = getEndTag();
+    final LineTokenizer tokenizer =
+        new LineTokenizer(getBufferedReader(), getSeparatorField(), true,
+            isStringQuotesBeRemoved());
+    tokenizer.setFieldsToProcess(arrayFieldsToRead);
 
-    final boolean removeQuotes = isStringQuotesBeRemoved();
+    final LineBioAssayRow row =
+        new LineBioAssayRow(tokenizer, fields, types, columns,
+            isCommaDecimalSeparator());
+
+    handler.start(fields, types, getBioAssay().getAnnotation());
 
     try {
-      while ((line = br.readLine()) != null) {
+      while (columnCount > 0 && tokenizer.nextLine()) {
 
-        if (endTag != null && line.startsWith(endTag))
+        if (endTag != null && tokenizer.startsWith(endTag))
           break;
 
-        String[] data = pattern.split(line);
-
-        if (data.length == 1 && data[0].length() == 0)
+        if (tokenizer.getLineLength() == 0)
           continue;
 
-        for (int i = 0; i < columnCount; i++) {
+        row.nextRow();
+        if (!handler.handleRow(row))
+          break;
+      }
+    } catch (IOException e) {
+      throw new NividicIOException("Error while reading the file");
+    } finally {
+      try {
+        getBufferedReader().close();
+      } catch (IOException e) {
+        // Nothing to do
+      }
+    }
 
-          final String s2;
+    handler.end();
+  }
 
-          if (i >= data.length)
-            s2 = "";
-          else {
+  /**
+   * Open the stream and read its header.
+   * @return the names of the fields of the stream
+   * @throws NividicIOException if an error occurs while reading the header
+   */
+  private String[] openStream() throws NividicIOException {
 
-            final String s = data[i].trim();
-            s2 = removeQuotes ? StringUtils.removeDoubleQuotes(s) : s;
-          }
+    if (getInputStream() == null)
+      throw new NividicIOException("No stream to read");
 
-          if (arrayFieldsToRead[i])
-            if (arrayIntFields[i]) {
-              int value;
-              // integer values
-              try {
-                value = Integer.parseInt(s2);
-              } catch (NumberFormatException e) {
-                value = 0;
-              }
-              addDatafield(existingFields[i], value);
+    addFieldToRead(getMetaRowField());
+    addFieldToRead(getRowField());
+    addFieldToRead(getMetaColumnField());
+    addFieldToRead(getColumnField());
 
-            } else if (arrayDoubleFields[i]) {
-              double value;
-              // Double values
-              try {
+    setBufferedReader(new BufferedReader(createReader(getEncoding())));
 
-                if (comma)
-                  value = Double.parseDouble(s2.replace(',', '.'));
-                else
-                  value = Double.parseDouble(s2);
+    readHeader();
 
-              } catch (NumberFormatException e) {
-                value = Double.NaN;
-              }
-              addDatafield(existingFields[i], value);
+    return getFieldNamesOrder();
+  }
 
-            } else {
+  /**
+   * Test if a field is a location field.
+   * @param field field to test
+   * @return true if the field is a location field
+   */
+  private boolean isLocationField(final String field) {
 
-              // String values
+    return field.equals(getMetaRowField())
+        || field.equals(getRowField()) || field.equals(getMetaColumnField())
+        || field.equals(getColumnField());
+  }
 
-              addDatafield(existingFields[i], new String(s2));
-            }
+  /**
+   * Read the data lines of a tokenizer.
+   * @param tokenizer tokenizer to read
+   * @param endTag end tag of the data
+   * @param comma true if the comma is the decimal separator
+   * @param columns indexes of the fields to read
+   * @param intBuffers buffers of the int fields
+   * @param doubleBuffers buffers of the double fields
+   * @param stringBuffers buffers of the string fields
+   * @return true if the end tag has been found
+   * @throws IOException if an error occurs while reading the stream
+   */
+  private static boolean readRows(final LineTokenizer tokenizer,
+      final String endTag, final boolean comma, final int[] columns,
+      final FieldBuffer.Ints[] intBuffers,
+      final FieldBuffer.Doubles[] doubleBuffers,
+      final FieldBuffer.Strings[] stringBuffers) throws IOException {
 
-        }
+    while (tokenizer.nextLine()) {
 
+      if (endTag != null && tokenizer.startsWith(endTag))
+        return true;
+
+      if (tokenizer.getLineLength() == 0)
+        continue;
+
+      for (int j = 0; j < columns.length; j++) {
+
+        final int i = columns[j];
+
+        // Strings are only created for the string fields to read
+        if (intBuffers[i] != null)
+          intBuffers[i].add(tokenizer.getInt(i, 0));
+        else if (doubleBuffers[i] != null)
+          doubleBuffers[i].add(tokenizer.getDouble(i, comma));
+        else
+          stringBuffers[i].add(tokenizer.getString(i));
       }
-    } catch (IOException e) {
-      // e.printStackTrace();
-      throw new NividicIOException("Error while reading the file");
     }
 
-    try {
-      getBufferedReader().close();
-    } catch (IOException e1) {
-      throw new NividicIOException("Error while closing the file");
+    return false;
+  }
+
+  /**
+   * Read the data lines of a tokenizer in parallel. The lines are split in
+   * ranges parsed in temporary buffers that are appended in order to the
+   * buffers of the reader.
+   * @param tokenizer tokenizer to read
+   * @param endTag end tag of the data
+   * @param comma true if the comma is the decimal separator
+   * @param columns indexes of the fields to read
+   * @param intBuffers buffers of the int fields
+   * @param doubleBuffers buffers of the double fields
+   * @param stringBuffers buffers of the string fields
+   * @throws IOException if an error occurs while reading the stream
+   */
+  private static void readRowsInParallel(final LineTokenizer tokenizer,
+      final String endTag, final boolean comma, final int[] columns,
+      final FieldBuffer.Ints[] intBuffers,
+      final FieldBuffer.Doubles[] doubleBuffers,
+      final FieldBuffer.Strings[] stringBuffers) throws IOException {
+
+    final LineTokenizer[] ranges =
+        tokenizer.split(ParallelUtils.getThreadCount() * 2,
+            PARALLEL_MIN_RANGE_SIZE);
+    final int n = ranges.length;
+    final int columnCount = intBuffers.length;
+
+    final FieldBuffer.Ints[][] rangeInts = new FieldBuffer.Ints[n][];
+    final FieldBuffer.Doubles[][] rangeDoubles = new FieldBuffer.Doubles[n][];
+    final FieldBuffer.Strings[][] rangeStrings = new FieldBuffer.Strings[n][];
+    final boolean[] ended = new boolean[n];
+
+    for (int k = 0; k < n; k++) {
+
+      rangeInts[k] = new FieldBuffer.Ints[columnCount];
+      rangeDoubles[k] = new FieldBuffer.Doubles[columnCount];
+      rangeStrings[k] = new FieldBuffer.Strings[columnCount];
+
+      // Strings are interned in the dictionary at the merge
+      for (int j = 0; j < columns.length; j++) {
+
+        final int i = columns[j];
+
+        if (intBuffers[i] != null)
+          rangeInts[k][i] = new FieldBuffer.Ints(0);
+        else if (doubleBuffers[i] != null)
+          rangeDoubles[k][i] = new FieldBuffer.Doubles(0);
+        else
+          rangeStrings[k][i] = new FieldBuffer.Strings(0, null);
+      }
     }
 
-    return addReaderHistoryEntry(settingReadedDataInBioAssay());
+    ParallelUtils.forEachChunk(n, 1, new ParallelUtils.RangeTask() {
+
+      public void run(final int from, final int to) {
+
+        try {
+          for (int k = from; k < to; k++)
+            ended[k] =
+                readRows(ranges[k], endTag, comma, columns, rangeInts[k],
+                    rangeDoubles[k], rangeStrings[k]);
+        } catch (IOException e) {
+          throw new NividicRuntimeException("Error while parsing the data: "
+              + e.getMessage());
+        }
+      }
+    });
+
+    // The ranges after the end tag are ignored
+    int last = 0;
+    while (last < n - 1 && !ended[last])
+      last++;
+
+    int total = 0;
+    final int[] rows = new int[last + 1];
+
+    if (columns.length > 0)
+      for (int k = 0; k <= last; k++) {
+
+        final int i = columns[0];
+
+        if (rangeInts[k][i] != null)
+          rows[k] = rangeInts[k][i].size();
+        else if (rangeDoubles[k][i] != null)
+          rows[k] = rangeDoubles[k][i].size();
+        else
+          rows[k] = rangeStrings[k][i].size();
+        total += rows[k];
+      }
+
+    for (int j = 0; j < columns.length; j++) {
+
+      final int i = columns[j];
+
+      if (intBuffers[i] != null) {
+        intBuffers[i].ensureCapacity(intBuffers[i].size() + total);
+        for (int k = 0; k <= last; k++)
+          intBuffers[i].addAll(rangeInts[k][i]);
+      } else if (doubleBuffers[i] != null) {
+        doubleBuffers[i].ensureCapacity(doubleBuffers[i].size() + total);
+        for (int k = 0; k <= last; k++)
+          doubleBuffers[i].addAll(rangeDoubles[k][i]);
+      } else
+        stringBuffers[i].ensureCapacity(stringBuffers[i].size() + total);
+    }
+
+    // Strings are added row by row to intern them in the same order as a
+    // sequential read
+    for (int k = 0; k <= last; k++)
+      for (int r = 0; r < rows[k]; r++)
+        for (int j = 0; j < columns.length; j++) {
+
+          final int i = columns[j];
+
+          if (stringBuffers[i] != null)
+            stringBuffers[i].add(rangeStrings[k][i].get(r));
+        }
   }
 
   /**
@@ -235,6 +476,23 @@ public abstract class BioAssayTextReader extends InputStreamBioAssayReader {
     this.encoding = encoding;
   }
 
+  /**
+   * Copy the fields to read and the parsing and storage options of the reader
+   * to another reader.
+   * @param reader reader to set
+   */
+  protected void copySettingsTo(final InputStreamBioAssayReader reader) {
+
+    super.copySettingsTo(reader);
+
+    if (reader instanceof BioAssayTextReader) {
+
+      final BioAssayTextReader r = (BioAssayTextReader) reader;
+      r.encoding = this.encoding;
+      r.commaDecimalSeparator = this.commaDecimalSeparator;
+    }
+  }
+
   /**
    * Add history entry for reading data
    * @param bioAssay Bioassay readed
@@ -61,6 +61,156 @@ public abstract class BioAssayWriter {
   private int bioAssaySize;
   private Translator translator;
 
+  /**
+   * This class define how the values of a column are appended to a buffer.
+   * The data of the column is fetched once at the creation of the object.
+   */
+  abstract static class ColumnWriter {
+
+    /**
+     * Append the value of a row.
+     * @param row row to append
+     * @param buffer buffer to fill
+     */
+    abstract void append(int row, TextBuffer buffer);
+
+    /**
+     * Test if the value of a row is NaN.
+     * @param row row to test
+     * @return true if the value is NaN
+     */
+    boolean isNaN(final int row) {
+
+      return false;
+    }
+
+    /**
+     * Test if the column has data.
+     * @return true if the column has data
+     */
+    boolean hasData() {
+
+      return true;
+    }
+
+    /**
+     * Get the value of a row of an integer or double column.
+     * @param row row to get
+     * @return the value of the row or NaN for the other columns
+     */
+    double getDouble(final int row) {
+
+      return Double.NaN;
+    }
+
+    /**
+     * Get the value of a row of a string column. The null values are returned
+     * as "null" like getData().
+     * @param row row to get
+     * @return the value of the row or null for the other columns
+     */
+    String getString(final int row) {
+
+      return null;
+    }
+  }
+
+  /**
+   * Column writer for integer values, also used for decoded locations.
+   */
+  private static final class IntColumnWriter extends ColumnWriter {
+
+    private final int[] values;
+
+    @Override
+    void append(final int row, final TextBuffer buffer) {
+
+      buffer.append(this.values[row]);
+    }
+
+    @Override
+    double getDouble(final int row) {
+
+      return this.values[row];
+    }
+
+    IntColumnWriter(final int[] values) {
+      this.values = values;
+    }
+  }
+
+  /**
+   * Column writer for double values.
+   */
+  private static final class DoubleColumnWriter extends ColumnWriter {
+
+    private final double[] values;
+
+    @Override
+    void append(final int row, final TextBuffer buffer) {
+
+      buffer.append(this.values[row]);
+    }
+
+    @Override
+    boolean isNaN(final int row) {
+
+      return Double.isNaN(this.values[row]);
+    }
+
+    @Override
+    double getDouble(final int row) {
+
+      return this.values[row];
+    }
+
+    DoubleColumnWriter(final double[] values) {
+      this.values = values;
+    }
+  }
+
+  /**
+   * Column writer for string values.
+   */
+  private static final class StringColumnWriter extends ColumnWriter {
+
+    private final String[] values;
+
+    @Override
+    void append(final int row, final TextBuffer buffer) {
+
+      buffer.append(getString(row));
+    }
+
+    @Override
+    String getString(final int row) {
+
+      final String value = this.values[row];
+
+      return value == null ? "null" : value;
+    }
+
+    StringColumnWriter(final String[] values) {
+      this.values = values;
+    }
+  }
+
+  /**
+   * Column writer for the fields without data.
+   */
+  private static final ColumnWriter EMPTY_COLUMN_WRITER = new ColumnWriter() {
+
+    @Override
+    void append(final int row, final TextBuffer buffer) {
+    }
+
+    @Override
+    boolean hasData() {
+
+      return false;
+    }
+  };
+
   //
   // Getters
   //
@@ -395,14 +545,15 @@ public abstract class BioAssayWriter {
 
     switch (this.bioAssayFieldsToWriteTypes[column]) {
     // switch (getBioAssay().getFieldType(field)) {
+    // The compact and encoded fields are not decoded for each cell
     case BioAssay.DATATYPE_INTEGER:
-      return "" + getBioAssay().getDataFieldInt(field)[row];
+      return "" + getBioAssay().getDataFieldIntValue(field, row);
 
     case BioAssay.DATATYPE_DOUBLE:
       return "" + getBioAssay().getDataFieldDouble(field)[row];
 
     case BioAssay.DATATYPE_STRING:
-      return "" + getBioAssay().getDataFieldString(field)[row];
+      return "" + getBioAssay().getDataFieldStringValue(field, row);
 
     default:
       break;
@@ -411,6 +562,74 @@ public abstract class BioAssayWriter {
     return null;
   }
 
+  /**
+   * Create the writers of the columns to write. The values are appended as
+   * getData() would return them, but without creating any object by cell.
+   * @return an array with a writer for each column to write
+   */
+  final ColumnWriter[] getColumnWriters() {
+
+    final int n = getColumnCount();
+    final ColumnWriter[] result = new ColumnWriter[n];
+
+    for (int i = 0; i < n; i++)
+      result[i] = createColumnWriter(i);
+
+    return result;
+  }
+
+  private ColumnWriter createColumnWriter(final int column) {
+
+    final String field = this.bioAssayFieldsToWrite[column];
+
+    try {
+
+      if (field.equals(getMetaColumnField())) {
+        if (this.metaColumn == null)
+          setLocationFields();
+        return new IntColumnWriter(this.metaColumn);
+
+      } else if (field.equals(getMetaRowField())) {
+        if (this.metaRow == null)
+          setLocationFields();
+        return new IntColumnWriter(this.metaRow);
+
+      } else if (field.equals(getColumnField())) {
+        if (this.column == null)
+          setLocationFields();
+        return new IntColumnWriter(this.column);
+
+      } else if (field.equals(getRowField())) {
+        if (this.row == null)
+          setLocationFields();
+        return new IntColumnWriter(this.row);
+      }
+
+    } catch (BioAssayRuntimeException e) {
+      return EMPTY_COLUMN_WRITER;
+    }
+
+    switch (this.bioAssayFieldsToWriteTypes[column]) {
+
+    case BioAssay.DATATYPE_INTEGER:
+      final int[] ints = getBioAssay().getDataFieldInt(field);
+      return ints == null ? EMPTY_COLUMN_WRITER : new IntColumnWriter(ints);
+
+    case BioAssay.DATATYPE_DOUBLE:
+      final double[] doubles = getBioAssay().getDataFieldDouble(field);
+      return doubles == null ? EMPTY_COLUMN_WRITER : new DoubleColumnWriter(
+          doubles);
+
+    case BioAssay.DATATYPE_STRING:
+      final String[] strings = getBioAssay().getDataFieldString(field);
+      return strings == null ? EMPTY_COLUMN_WRITER : new StringColumnWriter(
+          strings);
+
+    default:
+      return EMPTY_COLUMN_WRITER;
+    }
+  }
+
   /**
    * Write data.
    * @param bioAssay BioAssay to write
@@ -0,0 +1,255 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * This class define a writer that encodes chars in a large byte buffer written
+ * to a channel. ASCII chars are converted to bytes without any charset
+ * encoder. With ISO-8859-1, all the chars lower than 256 are converted in this
+ * way. This is the counterpart of MappedFileReader.
+ * @author Laurent Jourdren
+ */
+final class ChannelWriter extends Writer {
+
+  /** Default size of the byte buffer. */
+  static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+  private static final String ISO_8859_1 = "ISO-8859-1";
+  private static final int STRING_CHUNK_SIZE = 4096;
+
+  private final OutputStream os;
+  private WritableByteChannel channel;
+  private final ByteBuffer bytes;
+  private final byte[] array;
+  private final CharsetEncoder encoder;
+  private final int maxDirectChar;
+  private final char[] chars = new char[STRING_CHUNK_SIZE];
+  private final char[] pair = new char[2];
+  private boolean pendingHighSurrogate;
+
+  //
+  // Writer methods
+  //
+
+  @Override
+  public void write(final char[] cbuf, final int off, final int len)
+      throws IOException {
+
+    ensureOpen();
+
+    final int end = off + len;
+    final int capacity = this.array.length;
+    int i = off;
+
+    // A surrogate pair may be split between two calls
+    if (this.pendingHighSurrogate && i < end) {
+
+      this.pendingHighSurrogate = false;
+
+      if (Character.isLowSurrogate(cbuf[i])) {
+        this.pair[1] = cbuf[i++];
+        encode(CharBuffer.wrap(this.pair, 0, 2));
+      } else
+        encode(CharBuffer.wrap(this.pair, 0, 1));
+    }
+
+    while (i < end) {
+
+      int pos = this.bytes.position();
+
+      while (i < end && pos < capacity && cbuf[i] <= this.maxDirectChar)
+        this.array[pos++] = (byte) cbuf[i++];
+
+      this.bytes.position(pos);
+
+      if (pos == capacity)
+        flushBuffer();
+      else if (i < end) {
+
+        final boolean highSurrogate = Character.isHighSurrogate(cbuf[i]);
+
+        // The low surrogate of the last char will be in the next call
+        if (highSurrogate && i + 1 == end) {
+          this.pair[0] = cbuf[i++];
+          this.pendingHighSurrogate = true;
+          break;
+        }
+
+        // Other chars are encoded by the charset encoder
+        final int n = highSurrogate ? 2 : 1;
+        encode(CharBuffer.wrap(cbuf, i, n));
+        i += n;
+      }
+    }
+  }
+
+  @Override
+  public void write(final String str, final int off, final int len)
+      throws IOException {
+
+    int i = off;
+    final int end = off + len;
+
+    while (i < end) {
+
+      int n = Math.min(this.chars.length, end - i);
+
+      // Do not split a surrogate pair between two chunks
+      if (i + n < end && Character.isHighSurrogate(str.charAt(i + n - 1)))
+        n--;
+
+      str.getChars(i, i + n, this.chars, 0);
+      write(this.chars, 0, n);
+      i += n;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+
+    ensureOpen();
+    flushBuffer();
+    this.os.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    if (this.channel == null)
+      return;
+
+    try {
+
+      // A lone high surrogate is malformed
+      if (this.pendingHighSurrogate) {
+        this.pendingHighSurrogate = false;
+        encode(CharBuffer.wrap(this.pair, 0, 1));
+      }
+
+      flushBuffer();
+    } finally {
+      this.channel.close();
+      this.channel = null;
+    }
+  }
+
+  //
+  // Private methods
+  //
+
+  private void ensureOpen() throws IOException {
+
+    if (this.channel == null)
+      throw new IOException("Stream closed");
+  }
+
+  private void encode(final CharBuffer cb) throws IOException {
+
+    this.encoder.reset();
+
+    while (true) {
+
+      final CoderResult result = this.encoder.encode(cb, this.bytes, true);
+
+      if (result.isOverflow())
+        flushBuffer();
+      else
+        break;
+    }
+
+    while (this.encoder.flush(this.bytes).isOverflow())
+      flushBuffer();
+  }
+
+  private void flushBuffer() throws IOException {
+
+    this.bytes.flip();
+
+    while (this.bytes.hasRemaining())
+      this.channel.write(this.bytes);
+
+    this.bytes.clear();
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Constructor.
+   * @param os output stream to write
+   * @param encoding encoding of the chars
+   * @param bufferSize size of the byte buffer
+   */
+  ChannelWriter(final OutputStream os, final String encoding,
+      final int bufferSize) {
+
+    if (os == null)
+      throw new NullPointerException("The output stream is null");
+
+    final Charset charset = Charset.forName(encoding);
+
+    this.os = os;
+    this.channel = Channels.newChannel(os);
+    this.array = new byte[Math.max(16, bufferSize)];
+    this.bytes = ByteBuffer.wrap(this.array);
+    this.encoder =
+        charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    final String name = charset.name();
+    if (ISO_8859_1.equals(name))
+      this.maxDirectChar = 0xFF;
+    else if (isAsciiCompatible(charset))
+      this.maxDirectChar = 0x7F;
+    else
+      this.maxDirectChar = -1;
+  }
+
+  /**
+   * Test if the ASCII chars are encoded in a single byte with the same value.
+   * @param charset charset to test
+   * @return true if the charset is compatible with ASCII
+   */
+  private static boolean isAsciiCompatible(final Charset charset) {
+
+    final String name = charset.name();
+
+    return "US-ASCII".equals(name)
+        || "UTF-8".equals(name) || name.startsWith("windows-125")
+        || name.startsWith("ISO-8859-");
+  }
+
+}
@@ -35,15 +35,10 @@ import fr.ens.transcriptome.nividic.Globals;
  * files.
  * @author Laurent Jourdren
  */
-public class ExpressionMatrixFinderInputStream extends InputStream {
-
-  private InputStream is;
+public class ExpressionMatrixFinderInputStream extends SniffingInputStream {
 
   private static final int cacheSize = 20000;
 
-  private int cacheIndex;
-  private byte[] cache;
-
   private Class[] columnTypes;
 
   private int firstDataColomn = -1;
@@ -51,19 +46,10 @@ public class ExpressionMatrixFinderInputStream extends InputStream {
 
   private void readCache() throws NividicIOException {
 
-    final byte[] readed = new byte[cacheSize];
-
     try {
 
-      int count = is.read(readed);
-
-      if (count != cacheSize) {
-        this.cache = new byte[count];
-        System.arraycopy(readed, 0, this.cache, 0, count);
-      } else
-        this.cache = readed;
-
-      InputStream bais = new ByteArrayInputStream(this.cache);
+      InputStream bais =
+          new ByteArrayInputStream(getHead(), 0, getHeadLength());
       BufferedReader reader =
           new BufferedReader(new InputStreamReader(bais,
               Globals.DEFAULT_FILE_ENCODING));
@@ -221,15 +207,6 @@ public class ExpressionMatrixFinderInputStream extends InputStream {
 
   }
 
-  @Override
-  public int read() throws IOException {
-
-    if (cacheIndex < cache.length)
-      return cache[cacheIndex++];
-
-    return is.read();
-  }
-
   //
   // Constructor
   //
@@ -240,10 +217,7 @@ public class ExpressionMatrixFinderInputStream extends InputStream {
    */
   public ExpressionMatrixFinderInputStream(final InputStream is) {
 
-    if (is == null)
-      throw new NullPointerException("The inputStream is null");
-
-    this.is = is;
+    super(is, cacheSize);
   }
 
 }
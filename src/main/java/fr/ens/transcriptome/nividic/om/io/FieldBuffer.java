@@ -0,0 +1,276 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import fr.ens.transcriptome.nividic.om.StringDictionary;
+
+/**
+ * This class define a growable array of primitive values used by the readers
+ * to store the values of a field. If the number of values is known at the
+ * creation of the buffer, the array of the buffer is handed to the BioAssay
+ * without any copy.
+ * @author Laurent Jourdren
+ */
+abstract class FieldBuffer {
+
+  /** Default capacity of the buffers. */
+  static final int DEFAULT_CAPACITY = 1000;
+
+  protected int size;
+
+  /**
+   * Get the number of values of the buffer.
+   * @return the number of values of the buffer
+   */
+  final int size() {
+    return this.size;
+  }
+
+  /**
+   * Enlarge the buffer if needed to contain a number of values.
+   * @param capacity the minimal capacity of the buffer
+   */
+  abstract void ensureCapacity(int capacity);
+
+  /**
+   * Get the new capacity of an array.
+   * @param capacity current capacity
+   * @return the new capacity
+   */
+  static int grow(final int capacity) {
+
+    return Math.max(DEFAULT_CAPACITY, capacity + (capacity >> 1));
+  }
+
+  /**
+   * Get the initial capacity of a buffer.
+   * @param capacity capacity hint
+   * @return the initial capacity
+   */
+  static int initialCapacity(final int capacity) {
+
+    return capacity > 0 ? capacity : DEFAULT_CAPACITY;
+  }
+
+  /**
+   * This class define a buffer of int values.
+   */
+  static final class Ints extends FieldBuffer {
+
+    private int[] values;
+
+    /**
+     * Add a value.
+     * @param value value to add
+     */
+    void add(final int value) {
+
+      if (this.size == this.values.length) {
+        final int[] newValues = new int[grow(this.size)];
+        System.arraycopy(this.values, 0, newValues, 0, this.size);
+        this.values = newValues;
+      }
+
+      this.values[this.size++] = value;
+    }
+
+    /**
+     * Add all the values of another buffer.
+     * @param buffer buffer to add
+     */
+    void addAll(final Ints buffer) {
+
+      ensureCapacity(this.size + buffer.size);
+      System.arraycopy(buffer.values, 0, this.values, this.size, buffer.size);
+      this.size += buffer.size;
+    }
+
+    @Override
+    void ensureCapacity(final int capacity) {
+
+      if (capacity <= this.values.length)
+        return;
+
+      final int[] newValues = new int[capacity];
+      System.arraycopy(this.values, 0, newValues, 0, this.size);
+      this.values = newValues;
+    }
+
+    /**
+     * Get the values of the buffer. The array of the buffer is returned if it
+     * is full.
+     * @return an array with the values of the buffer
+     */
+    int[] toArray() {
+
+      if (this.size == this.values.length)
+        return this.values;
+
+      final int[] result = new int[this.size];
+      System.arraycopy(this.values, 0, result, 0, this.size);
+
+      return result;
+    }
+
+    Ints(final int capacity) {
+
+      this.values = new int[initialCapacity(capacity)];
+    }
+  }
+
+  /**
+   * This class define a buffer of double values.
+   */
+  static final class Doubles extends FieldBuffer {
+
+    private double[] values;
+
+    /**
+     * Add a value.
+     * @param value value to add
+     */
+    void add(final double value) {
+
+      if (this.size == this.values.length) {
+        final double[] newValues = new double[grow(this.size)];
+        System.arraycopy(this.values, 0, newValues, 0, this.size);
+        this.values = newValues;
+      }
+
+      this.values[this.size++] = value;
+    }
+
+    /**
+     * Add all the values of another buffer.
+     * @param buffer buffer to add
+     */
+    void addAll(final Doubles buffer) {
+
+      ensureCapacity(this.size + buffer.size);
+      System.arraycopy(buffer.values, 0, this.values, this.size, buffer.size);
+      this.size += buffer.size;
+    }
+
+    @Override
+    void ensureCapacity(final int capacity) {
+
+      if (capacity <= this.values.length)
+        return;
+
+      final double[] newValues = new double[capacity];
+      System.arraycopy(this.values, 0, newValues, 0, this.size);
+      this.values = newValues;
+    }
+
+    /**
+     * Get the values of the buffer. The array of the buffer is returned if it
+     * is full.
+     * @return an array with the values of the buffer
+     */
+    double[] toArray() {
+
+      if (this.size == this.values.length)
+        return this.values;
+
+      final double[] result = new double[this.size];
+      System.arraycopy(this.values, 0, result, 0, this.size);
+
+      return result;
+    }
+
+    Doubles(final int capacity) {
+
+      this.values = new double[initialCapacity(capacity)];
+    }
+  }
+
+  /**
+   * This class define a buffer of String values. If a dictionary is set, the
+   * values are interned in the dictionary.
+   */
+  static final class Strings extends FieldBuffer {
+
+    private String[] values;
+    private final StringDictionary dictionary;
+
+    /**
+     * Add a value.
+     * @param value value to add
+     */
+    void add(final String value) {
+
+      if (this.size == this.values.length) {
+        final String[] newValues = new String[grow(this.size)];
+        System.arraycopy(this.values, 0, newValues, 0, this.size);
+        this.values = newValues;
+      }
+
+      this.values[this.size++] =
+          this.dictionary == null ? value : this.dictionary.intern(value);
+    }
+
+    /**
+     * Get a value.
+     * @param index index of the value
+     * @return the value
+     */
+    String get(final int index) {
+
+      return this.values[index];
+    }
+
+    @Override
+    void ensureCapacity(final int capacity) {
+
+      if (capacity <= this.values.length)
+        return;
+
+      final String[] newValues = new String[capacity];
+      System.arraycopy(this.values, 0, newValues, 0, this.size);
+      this.values = newValues;
+    }
+
+    /**
+     * Get the values of the buffer. The array of the buffer is returned if it
+     * is full.
+     * @return an array with the values of the buffer
+     */
+    String[] toArray() {
+
+      if (this.size == this.values.length)
+        return this.values;
+
+      final String[] result = new String[this.size];
+      System.arraycopy(this.values, 0, result, 0, this.size);
+
+      return result;
+    }
+
+    Strings(final int capacity, final StringDictionary dictionary) {
+
+      this.values = new String[initialCapacity(capacity)];
+      this.dictionary = dictionary;
+    }
+  }
+
+}
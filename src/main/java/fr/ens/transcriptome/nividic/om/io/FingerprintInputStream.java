@@ -0,0 +1,242 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * This class define an input stream that computes a 64 bits fingerprint (FNV-1a
+ * hash) of all the bytes read through it.
+ * @author Laurent Jourdren
+ */
+public class FingerprintInputStream extends FilterInputStream {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+  private long hash = FNV_OFFSET_BASIS;
+  private long length;
+  private long markHash;
+  private long markLength;
+  private boolean buffered;
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the fingerprint of the bytes read until now.
+   * @return the fingerprint of the bytes read
+   */
+  public long getFingerprint() {
+
+    return this.hash ^ this.length;
+  }
+
+  /**
+   * Get the number of bytes read until now.
+   * @return the number of bytes read
+   */
+  public long getLength() {
+    return this.length;
+  }
+
+  //
+  // InputStream methods
+  //
+
+  @Override
+  public int read() throws IOException {
+
+    final int b = super.read();
+
+    if (b != -1 && !this.buffered) {
+      this.hash = (this.hash ^ b) * FNV_PRIME;
+      this.length++;
+    }
+
+    return b;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len)
+      throws IOException {
+
+    final int count = super.read(b, off, len);
+
+    if (count > 0 && !this.buffered)
+      update(b, off, count);
+
+    return count;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+
+    if (n <= 0)
+      return 0;
+
+    // Skipped bytes must be part of the fingerprint
+    final byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+    long remaining = n;
+
+    while (remaining > 0) {
+
+      final int count =
+          read(buffer, 0, (int) Math.min(remaining, buffer.length));
+      if (count == -1)
+        break;
+      remaining -= count;
+    }
+
+    return n - remaining;
+  }
+
+  @Override
+  public synchronized void mark(final int readlimit) {
+
+    super.mark(readlimit);
+    this.markHash = this.hash;
+    this.markLength = this.length;
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+
+    super.reset();
+
+    if (!this.buffered) {
+      this.hash = this.markHash;
+      this.length = this.markLength;
+    }
+  }
+
+  //
+  // Other methods
+  //
+
+  private void update(final byte[] b, final int off, final int len) {
+
+    long h = this.hash;
+    final int end = off + len;
+
+    for (int i = off; i < end; i++)
+      h = (h ^ (b[i] & 0xff)) * FNV_PRIME;
+
+    this.hash = h;
+    this.length += len;
+  }
+
+  /**
+   * Read the remaining content of the underlying stream in memory and close
+   * it. The next reads of this stream are served from memory and the
+   * fingerprint of the whole content is available.
+   * @throws IOException if an error occurs while reading the stream
+   */
+  public void readFully() throws IOException {
+
+    if (this.buffered)
+      return;
+
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int count = 0;
+    int n;
+
+    while ((n = read(buffer, count, buffer.length - count)) != -1) {
+
+      count += n;
+      if (count == buffer.length) {
+
+        // Avoid the overflow of the size of the buffer
+        if (buffer.length == MAX_BUFFER_SIZE)
+          throw new IOException(
+              "The stream is too large to be read in memory");
+
+        final byte[] newBuffer =
+            new byte[buffer.length > MAX_BUFFER_SIZE / 2 ? MAX_BUFFER_SIZE
+                : buffer.length * 2];
+        System.arraycopy(buffer, 0, newBuffer, 0, count);
+        buffer = newBuffer;
+      }
+    }
+
+    this.in.close();
+    this.in = new ByteArrayInputStream(buffer, 0, count);
+    this.buffered = true;
+  }
+
+  /**
+   * Compute the fingerprint of an array of bytes.
+   * @param b array of bytes
+   * @param off offset of the first byte
+   * @param len number of bytes
+   * @return the fingerprint of the bytes
+   */
+  public static long fingerprint(final byte[] b, final int off, final int len) {
+
+    long h = FNV_OFFSET_BASIS;
+    final int end = off + len;
+
+    for (int i = off; i < end; i++)
+      h = (h ^ (b[i] & 0xff)) * FNV_PRIME;
+
+    return h ^ len;
+  }
+
+  /**
+   * Compute the fingerprint of the remaining bytes of a buffer. The position
+   * of the buffer is not modified.
+   * @param buffer buffer to process
+   * @return the fingerprint of the bytes
+   */
+  public static long fingerprint(final ByteBuffer buffer) {
+
+    long h = FNV_OFFSET_BASIS;
+    final int end = buffer.limit();
+
+    for (int i = buffer.position(); i < end; i++)
+      h = (h ^ (buffer.get(i) & 0xff)) * FNV_PRIME;
+
+    return h ^ buffer.remaining();
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Public constructor.
+   * @param is input stream to read
+   */
+  public FingerprintInputStream(final InputStream is) {
+
+    super(is);
+  }
+
+}
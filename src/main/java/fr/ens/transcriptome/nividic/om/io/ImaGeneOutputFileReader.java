@@ -432,6 +432,18 @@ public class ImaGeneOutputFileReader extends
     igr.setType(ImaGeneResult.IMAGENE_RESULT_MAGIC_STRING);
   }
 
+  /**
+   * Create a reader for one of the streams.
+   * @return a new reader
+   */
+  protected BioAssayReaderMultipleStreamsReader createStreamReader() {
+
+    final ImaGeneOutputFileReader result = new ImaGeneOutputFileReader();
+    result.signalField = this.signalField;
+
+    return result;
+  }
+
   /**
    * Add a stream to read.
    * @param stream Stream to read.
@@ -25,20 +25,26 @@ package fr.ens.transcriptome.nividic.om.io;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
 import fr.ens.transcriptome.nividic.om.Annotation;
+import fr.ens.transcriptome.nividic.om.ArrayLayout;
 import fr.ens.transcriptome.nividic.om.BioAssay;
 import fr.ens.transcriptome.nividic.om.BioAssayFactory;
 import fr.ens.transcriptome.nividic.om.BioAssayRuntimeException;
+import fr.ens.transcriptome.nividic.om.CompactIntArray;
+import fr.ens.transcriptome.nividic.om.StringDictionary;
 import fr.ens.transcriptome.nividic.util.StringUtils;
 
 /**
@@ -53,9 +59,14 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
   private boolean readAllFields;
   private String dataSource;
   private InputStream is;
-  private Map<String, List> data = new LinkedHashMap<String, List>();
-
-  private static final int INITIAL_CAPACITY = 1000;
+  private File file;
+  private Map<String, FieldBuffer> data =
+      new LinkedHashMap<String, FieldBuffer>();
+  private int rowCountHint;
+  private boolean parallelParsing;
+  private StringDictionary stringDictionary;
+  private boolean arrayLayoutShared;
+  private boolean compactIntFields;
 
   //
   // Getters
@@ -85,6 +96,184 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
     return this.is;
   }
 
+  /**
+   * Get the local file read by the reader.
+   * @return the file read or null if the reader has been created from a stream
+   */
+  protected File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Set the local file of the stream read by the reader.
+   * @param file the file of the stream
+   */
+  void setFile(final File file) {
+    this.file = file;
+  }
+
+  /**
+   * Create a reader on the data to read. Local files with an ASCII compatible
+   * encoding are memory-mapped, the other sources are read with an
+   * InputStreamReader.
+   * @param encoding encoding of the data
+   * @return a new reader
+   * @throws NividicIOException if the encoding is unknown
+   */
+  protected Reader createReader(final String encoding)
+      throws NividicIOException {
+
+    if (MappedFileReader.isMappable(this.file, encoding))
+      try {
+        final Reader result = new MappedFileReader(this.file, encoding);
+        this.is.close();
+
+        return result;
+      } catch (IOException e) {
+        // Read the file with the input stream
+      }
+
+    try {
+      return new InputStreamReader(this.is, encoding);
+    } catch (UnsupportedEncodingException e) {
+      throw new NividicIOException("Unknown encoding: " + encoding);
+    }
+  }
+
+  /**
+   * Get the dictionary used to encode the string fields.
+   * @return the dictionary used to encode the string fields or null if string
+   *         fields are not encoded
+   */
+  public StringDictionary getStringDictionary() {
+    return this.stringDictionary;
+  }
+
+  /**
+   * Set the dictionary used to encode the string fields. If the dictionary is
+   * null (the default), string fields are stored in string arrays. The same
+   * dictionary can be used to read all the slides of a design.
+   * @param dictionary the dictionary to set
+   */
+  public void setStringDictionary(final StringDictionary dictionary) {
+    this.stringDictionary = dictionary;
+  }
+
+  /**
+   * Test if the identifiers and the locations of the read BioAssays are stored
+   * in a shared layout.
+   * @return true if the layout of the read BioAssays is shared
+   */
+  public boolean isArrayLayoutShared() {
+    return this.arrayLayoutShared;
+  }
+
+  /**
+   * Set if the identifiers and the locations of the read BioAssays must be
+   * stored in a shared layout. BioAssays with the same identifiers and
+   * locations (e.g. all the slides of a print) will share the same layout.
+   * The identifiers of a new layout are encoded with the dictionary of the
+   * reader or, if the reader has no dictionary, with a dictionary owned by
+   * the layout.
+   * @param shared true if the layout of the read BioAssays must be shared
+   */
+  public void setArrayLayoutShared(final boolean shared) {
+    this.arrayLayoutShared = shared;
+  }
+
+  /**
+   * Test if the integer fields of the read BioAssays are stored in compact
+   * arrays.
+   * @return true if the integer fields are stored in compact arrays
+   */
+  public boolean isCompactIntFields() {
+    return this.compactIntFields;
+  }
+
+  /**
+   * Set if the integer fields of the read BioAssays must be stored in compact
+   * arrays. The width of the values of a field (byte, char or int) is chosen
+   * from the range of the read values.
+   * @param compact true if the integer fields must be stored in compact arrays
+   */
+  public void setCompactIntFields(final boolean compact) {
+    this.compactIntFields = compact;
+  }
+
+  /**
+   * Get the expected number of rows of the read BioAssays.
+   * @return the expected number of rows or 0 if unknown
+   */
+  public int getRowCountHint() {
+    return this.rowCountHint;
+  }
+
+  /**
+   * Set the expected number of rows of the read BioAssays (e.g. the number of
+   * spots of the print). The buffers of the fields are created with this
+   * capacity and the data are set in the BioAssay without any copy if the
+   * number of rows read is the same.
+   * @param rowCount the expected number of rows or 0 if unknown
+   */
+  public void setRowCountHint(final int rowCount) {
+    this.rowCountHint = Math.max(0, rowCount);
+  }
+
+  /**
+   * Test if the data of the stream are parsed in parallel.
+   * @return true if the data of the stream are parsed in parallel
+   */
+  public boolean isParallelParsing() {
+    return this.parallelParsing;
+  }
+
+  /**
+   * Set if the data of the stream must be parsed in parallel. The data are
+   * read in memory, split in ranges of lines and each range is parsed by a
+   * thread of the shared pool of ParallelUtils. The result is the same as a
+   * sequential read. The default is false.
+   * @param parallel true if the data of the stream must be parsed in parallel
+   */
+  public void setParallelParsing(final boolean parallel) {
+    this.parallelParsing = parallel;
+  }
+
+  /**
+   * Get a description of the fields to read and of the storage options of the
+   * reader. Two readers with the same projection create the same BioAssay
+   * from the same content.
+   * @return a string that describe the fields to read
+   */
+  public String getFieldProjection() {
+
+    final StringBuilder sb = new StringBuilder();
+
+    if (this.readAllFields)
+      sb.append('*');
+    else {
+
+      final String[] fields =
+          this.fieldsToRead.toArray(new String[this.fieldsToRead.size()]);
+      Arrays.sort(fields);
+
+      for (int i = 0; i < fields.length; i++) {
+        if (i > 0)
+          sb.append('\t');
+        sb.append(fields[i]);
+      }
+    }
+
+    if (this.compactIntFields)
+      sb.append(";compact");
+    if (this.arrayLayoutShared)
+      sb.append(";layout");
+    if (this.stringDictionary != null)
+      sb.append(";dictionary@").append(
+          System.identityHashCode(this.stringDictionary));
+
+    return sb.toString();
+  }
+
   /**
    * Add all the field to read.
    */
@@ -102,6 +291,7 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
     if (is == null)
       throw new NividicIOException("No stream to read");
     this.is = is;
+    this.file = null;
   }
 
   /**
@@ -187,6 +377,25 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
   // Other methods
   //
 
+  /**
+   * Copy the fields to read and the parsing and storage options of the reader
+   * to another reader (e.g. a reader of another stream of the same slide).
+   * @param reader reader to set
+   */
+  protected void copySettingsTo(final InputStreamBioAssayReader reader) {
+
+    if (reader == null)
+      return;
+
+    reader.fieldsToRead.addAll(this.fieldsToRead);
+    reader.readAllFields = this.readAllFields;
+    reader.rowCountHint = this.rowCountHint;
+    reader.parallelParsing = this.parallelParsing;
+    reader.stringDictionary = this.stringDictionary;
+    reader.arrayLayoutShared = this.arrayLayoutShared;
+    reader.compactIntFields = this.compactIntFields;
+  }
+
   /**
    * Inititialize varibles each time an input stream is set.
    */
@@ -300,6 +509,43 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
     return result;
   }
 
+  /**
+   * Create an array with the types of fields. The types are found in a table
+   * built from getIntFieldNames() and getDoubleFieldNames(), the other fields
+   * are string fields.
+   * @param fields Existing field in file
+   * @return an array with the types of fields (BioAssay.DATATYPE_INTEGER,
+   *         BioAssay.DATATYPE_DOUBLE or BioAssay.DATATYPE_STRING)
+   */
+  protected int[] createArrayOfFieldTypes(final String[] fields) {
+
+    if (fields == null)
+      return null;
+
+    final Map<String, Integer> types = new HashMap<String, Integer>();
+    final String[] doubleFields = getDoubleFieldNames();
+    final String[] intFields = getIntFieldNames();
+
+    if (doubleFields != null)
+      for (int i = 0; i < doubleFields.length; i++)
+        types.put(doubleFields[i], BioAssay.DATATYPE_DOUBLE);
+
+    // If a field is declared twice, integer type is used
+    if (intFields != null)
+      for (int i = 0; i < intFields.length; i++)
+        types.put(intFields[i], BioAssay.DATATYPE_INTEGER);
+
+    final int[] result = new int[fields.length];
+
+    for (int i = 0; i < fields.length; i++) {
+
+      final Integer type = types.get(fields[i]);
+      result[i] = type == null ? BioAssay.DATATYPE_STRING : type;
+    }
+
+    return result;
+  }
+
   protected static void searchFieldAndFlagIt(final String[] fields,
       final String fieldToSearch, final boolean[] arrayResult) {
 
@@ -322,12 +568,7 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
     if (field == null)
       return;
 
-    List<Integer> l = (List<Integer>) this.data.get(field);
-    if (l == null) {
-      l = new ArrayList<Integer>(INITIAL_CAPACITY);
-      this.data.put(field, l);
-    }
-    l.add(value);
+    getIntBuffer(field).add(value);
   }
 
   /**
@@ -340,12 +581,7 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
     if (field == null)
       return;
 
-    List<Double> l = (List<Double>) this.data.get(field);
-    if (l == null) {
-      l = new ArrayList<Double>(INITIAL_CAPACITY);
-      this.data.put(field, l);
-    }
-    l.add(value);
+    getDoubleBuffer(field).add(value);
   }
 
   /**
@@ -358,12 +594,113 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
     if (field == null)
       return;
 
-    List<String> l = (List<String>) this.data.get(field);
-    if (l == null) {
-      l = new ArrayList<String>(INITIAL_CAPACITY);
-      this.data.put(field, l);
+    getStringBuffer(field).add(value);
+  }
+
+  /**
+   * Get the buffer of an integer field. The buffer is created if not exists.
+   * @param field Field of the buffer
+   * @return the buffer of the field
+   */
+  final FieldBuffer.Ints getIntBuffer(final String field) {
+
+    final FieldBuffer b = this.data.get(field);
+
+    if (b == null) {
+      final FieldBuffer.Ints result = new FieldBuffer.Ints(this.rowCountHint);
+      this.data.put(field, result);
+      return result;
+    }
+
+    if (!(b instanceof FieldBuffer.Ints))
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT,
+          "Invalid field type (integer) : " + field);
+
+    return (FieldBuffer.Ints) b;
+  }
+
+  /**
+   * Get the buffer of a double field. The buffer is created if not exists.
+   * @param field Field of the buffer
+   * @return the buffer of the field
+   */
+  final FieldBuffer.Doubles getDoubleBuffer(final String field) {
+
+    final FieldBuffer b = this.data.get(field);
+
+    if (b == null) {
+      final FieldBuffer.Doubles result =
+          new FieldBuffer.Doubles(this.rowCountHint);
+      this.data.put(field, result);
+      return result;
+    }
+
+    if (!(b instanceof FieldBuffer.Doubles))
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT,
+          "Invalid field type (double) : " + field);
+
+    return (FieldBuffer.Doubles) b;
+  }
+
+  /**
+   * Get the buffer of a string field. The buffer is created if not exists.
+   * @param field Field of the buffer
+   * @return the buffer of the field
+   */
+  final FieldBuffer.Strings getStringBuffer(final String field) {
+
+    final FieldBuffer b = this.data.get(field);
+
+    if (b == null) {
+      final FieldBuffer.Strings result =
+          new FieldBuffer.Strings(this.rowCountHint, this.stringDictionary);
+      this.data.put(field, result);
+      return result;
     }
-    l.add(value);
+
+    if (!(b instanceof FieldBuffer.Strings))
+      throw new BioAssayRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT,
+          "Invalid field type (string) : " + field);
+
+    return (FieldBuffer.Strings) b;
+  }
+
+  /**
+   * Set a string field in a bioAssay. If a dictionary is set, the field is
+   * encoded.
+   * @param bioAssay BioAssay to set
+   * @param field Field to set
+   * @param values values to set
+   */
+  protected final void setDataFieldString(final BioAssay bioAssay,
+      final String field, final String[] values) {
+
+    final StringDictionary dictionary = this.stringDictionary;
+
+    if (dictionary == null)
+      bioAssay.setDataFieldString(field, values);
+    else
+      bioAssay.setDataFieldEncodedString(field, dictionary.encode(values),
+          dictionary);
+  }
+
+  /**
+   * Set an integer field in a bioAssay. If the compaction of the integer
+   * fields is enabled, the field is stored in a compact array.
+   * @param bioAssay BioAssay to set
+   * @param field Field to set
+   * @param values values to set
+   */
+  protected final void setDataFieldInt(final BioAssay bioAssay,
+      final String field, final int[] values) {
+
+    if (this.compactIntFields && !BioAssay.FIELD_NAME_LOCATION.equals(field))
+      bioAssay.setDataFieldCompactInt(field, CompactIntArray.valueOf(values));
+    else
+      bioAssay.setDataFieldInt(field, values);
   }
 
   protected final BioAssay settingReadedDataInBioAssay()
@@ -374,23 +711,22 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
     int[] row = null;
     int[] column = null;
 
+    final FieldNameConverter converter = getFieldNameConverter();
+
     // Setting data in BioAssay object
-    Iterator it = this.data.keySet().iterator();
-    while (it.hasNext()) {
+    for (Map.Entry<String, FieldBuffer> e : this.data.entrySet()) {
+
+      final String field = e.getKey();
+      final FieldBuffer buffer = e.getValue();
 
-      String field = (String) it.next();
+      // Fields without values are not created
+      if (buffer.size() == 0)
+        continue;
 
-      if (StringUtils.findStringInArrayString(field, getIntFieldNames()) != -1) {
+      if (buffer instanceof FieldBuffer.Ints) {
 
         // Setting integer fields
-        int[] a = null;
-        try {
-          List<Integer> l = (List<Integer>) this.data.get(field);
-          a = convert(l);
-        } catch (ClassCastException e) {
-          throw new NividicIOException("Invalid field type (integer) : "
-              + field);
-        }
+        final int[] a = ((FieldBuffer.Ints) buffer).toArray();
 
         // if location field locations
         if (field.equals(getMetaRowField())) {
@@ -408,60 +744,43 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
         }
 
         // other fields
-        String newField = field;
-        if (getFieldNameConverter() != null)
-          newField = getFieldNameConverter().getBioAssayFieldName(newField);
+        final String newField =
+            converter == null ? field : converter.getBioAssayFieldName(field);
 
         try {
-          getBioAssay().setDataFieldInt(newField, a);
-        } catch (BioAssayRuntimeException e) {
+          setDataFieldInt(getBioAssay(), newField, a);
+        } catch (BioAssayRuntimeException ex) {
           throw new NividicIOException("Error while setting data in bioassay");
         }
 
-      } else if (StringUtils.findStringInArrayString(field,
-          getDoubleFieldNames()) != -1) {
+      } else if (buffer instanceof FieldBuffer.Doubles) {
 
         // Setting double fields
-        List<Double> l = null;
-        try {
-          l = (List<Double>) this.data.get(field);
-        } catch (ClassCastException e) {
-          throw new NividicIOException("Invalid field type (integer) : "
-              + field);
-        }
-
-        double[] a = new double[l.size()];
-        for (int i = 0; i < a.length; i++)
-          a[i] = l.get(i);
+        final double[] a = ((FieldBuffer.Doubles) buffer).toArray();
 
-        String newField = field;
-        if (getFieldNameConverter() != null)
-          newField = getFieldNameConverter().getBioAssayFieldName(newField);
+        final String newField =
+            converter == null ? field : converter.getBioAssayFieldName(field);
 
         try {
 
           getBioAssay().setDataFieldDouble(newField, a);
-        } catch (BioAssayRuntimeException e) {
+        } catch (BioAssayRuntimeException ex) {
           throw new NividicIOException("Error while setting data in bioassay");
         }
 
       } else {
 
-        ArrayList l = (ArrayList) this.data.get(field);
-        String[] a = new String[l.size()];
-        for (int i = 0; i < a.length; i++)
-          a[i] = (String) l.get(i);
+        final String[] a = ((FieldBuffer.Strings) buffer).toArray();
 
-        String newField = field;
-        if (getFieldNameConverter() != null)
-          newField = getFieldNameConverter().getBioAssayFieldName(newField);
+        final String newField =
+            converter == null ? field : converter.getBioAssayFieldName(field);
 
         try {
-          getBioAssay().setDataFieldString(newField, a);
-        } catch (BioAssayRuntimeException e) {
+          setDataFieldString(getBioAssay(), newField, a);
+        } catch (BioAssayRuntimeException ex) {
 
           throw new NividicIOException(
-              "Error while setting data in bioassay : " + e.getMessage());
+              "Error while setting data in bioassay : " + ex.getMessage());
         }
 
       }
@@ -476,24 +795,64 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
     } catch (BioAssayRuntimeException e) {
       throw new NividicIOException("Unable to set location in BioAssay");
     }
+
+    shareArrayLayout(getBioAssay());
+
     return getBioAssay();
   }
 
   /**
-   * Convert an arraylist of int in an integer array.
-   * @param list List to convert
-   * @return An int array
+   * Apply the storage options of the reader (dictionary, compact integer
+   * fields and shared layout) to a BioAssay that has not been read by this
+   * reader (e.g. a BioAssay loaded from a snapshot).
+   * @param bioAssay BioAssay to process
    */
-  private static int[] convert(final List<Integer> list) {
+  protected final void applyStorageOptions(final BioAssay bioAssay) {
 
-    if (list == null)
-      return null;
+    if (bioAssay == null)
+      return;
 
-    int[] result = new int[list.size()];
-    for (int i = 0; i < result.length; i++)
-      result[i] = list.get(i);
+    final String[] fields = bioAssay.getFields();
 
-    return result;
+    for (int i = 0; i < fields.length; i++) {
+
+      final String field = fields[i];
+
+      switch (bioAssay.getFieldType(field)) {
+
+      case BioAssay.DATATYPE_INTEGER:
+        if (this.compactIntFields
+            && !BioAssay.FIELD_NAME_LOCATION.equals(field))
+          setDataFieldInt(bioAssay, field, bioAssay.getDataFieldInt(field));
+        break;
+
+      case BioAssay.DATATYPE_STRING:
+        if (this.stringDictionary != null)
+          setDataFieldString(bioAssay, field, bioAssay
+              .getDataFieldString(field));
+        break;
+
+      default:
+        break;
+      }
+    }
+
+    shareArrayLayout(bioAssay);
+  }
+
+  /**
+   * Attach a shared layout to a bioAssay if the sharing of the layouts is
+   * enabled.
+   * @param bioAssay BioAssay to process
+   */
+  protected final void shareArrayLayout(final BioAssay bioAssay) {
+
+    if (!this.arrayLayoutShared
+        || bioAssay == null || !bioAssay.isIds() || !bioAssay.isLocations())
+      return;
+
+    bioAssay.setArrayLayout(ArrayLayout.getSharedLayout(bioAssay.getIds(),
+        bioAssay.getLocations(), getStringDictionary()));
   }
 
   void setDataSource(final String source) {
@@ -523,6 +882,7 @@ public abstract class InputStreamBioAssayReader implements BioAssayReader {
           + file.getName());
     }
 
+    this.file = file;
     setDataSource(file.getAbsolutePath());
   }
 
@@ -0,0 +1,114 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class define a BioAssayRow that parses the fields of the current line
+ * of a LineTokenizer.
+ * @author Laurent Jourdren
+ */
+final class LineBioAssayRow implements BioAssayRow {
+
+  private final LineTokenizer tokenizer;
+  private final String[] fields;
+  private final int[] types;
+  private final int[] columns;
+  private final boolean comma;
+  private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+  private int rowIndex = -1;
+
+  /**
+   * Set the next line of the tokenizer as the current row.
+   */
+  void nextRow() {
+    this.rowIndex++;
+  }
+
+  //
+  // BioAssayRow methods
+  //
+
+  public int getRowIndex() {
+    return this.rowIndex;
+  }
+
+  public int getFieldCount() {
+    return this.fields.length;
+  }
+
+  public String getFieldName(final int index) {
+    return this.fields[index];
+  }
+
+  public int getFieldType(final int index) {
+    return this.types[index];
+  }
+
+  public int getFieldIndex(final String field) {
+
+    final Integer result = this.indexes.get(field);
+
+    return result == null ? -1 : result.intValue();
+  }
+
+  public int getInt(final int index) {
+    return this.tokenizer.getInt(this.columns[index], 0);
+  }
+
+  public double getDouble(final int index) {
+    return this.tokenizer.getDouble(this.columns[index], this.comma);
+  }
+
+  public String getString(final int index) {
+    return this.tokenizer.getString(this.columns[index]);
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Constructor.
+   * @param tokenizer tokenizer that contains the current line
+   * @param fields names of the fields
+   * @param types types of the fields
+   * @param columns indexes of the fields in the lines
+   * @param comma true if the comma is the decimal separator
+   */
+  LineBioAssayRow(final LineTokenizer tokenizer, final String[] fields,
+      final int[] types, final int[] columns, final boolean comma) {
+
+    this.tokenizer = tokenizer;
+    this.fields = fields;
+    this.types = types;
+    this.columns = columns;
+    this.comma = comma;
+
+    for (int i = 0; i < fields.length; i++)
+      this.indexes.put(fields[i], i);
+  }
+
+}
@@ -0,0 +1,590 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import fr.ens.transcriptome.nividic.util.NumberParser;
+
+/**
+ * This class read the lines of a text stream in a reusable buffer and split
+ * them in fields without creating any object. The boundaries of the fields are
+ * computed in place and Strings are only created on demand. Optionally, the
+ * spaces and the double quotes around the fields are removed. If the fields to
+ * process are set, the other fields are not trimmed and the split of the lines
+ * stops after the last field to process.
+ * @author Laurent Jourdren
+ */
+final class LineTokenizer {
+
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  private static final String REGEX_CHARS = ".$|()[]{}^?*+\\";
+
+  private final Reader reader;
+  private final char separator;
+  private final Matcher matcher;
+  private final boolean trim;
+  private final boolean removeQuotes;
+
+  private char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private boolean eof;
+  private boolean skipLF;
+
+  private int lineStart;
+  private int lineEnd;
+
+  private boolean[] fieldsToProcess;
+  private int maxFields = Integer.MAX_VALUE;
+  private int restStart = -1;
+
+  private int count;
+  private int[] starts = new int[64];
+  private int[] ends = new int[64];
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the buffer that contains the current line. The buffer is modified by
+   * the next call to nextLine().
+   * @return the buffer of the current line
+   */
+  char[] getBuffer() {
+    return this.buffer;
+  }
+
+  /**
+   * Get the length of the current line.
+   * @return the length of the current line
+   */
+  int getLineLength() {
+    return this.lineEnd - this.lineStart;
+  }
+
+  /**
+   * Get the number of fields of the current line. If the fields to process are
+   * set, the fields after the last field to process are not counted.
+   * @return the number of fields of the current line
+   */
+  int getFieldCount() {
+    return this.count;
+  }
+
+  /**
+   * Get the index of the first char of a field in the buffer.
+   * @param field index of the field
+   * @return the index of the first char of the field
+   */
+  int getStart(final int field) {
+    return this.starts[field];
+  }
+
+  /**
+   * Get the index after the last char of a field in the buffer.
+   * @param field index of the field
+   * @return the index after the last char of the field
+   */
+  int getEnd(final int field) {
+    return this.ends[field];
+  }
+
+  /**
+   * Test if a field of the current line is empty.
+   * @param field index of the field
+   * @return true if the field is empty or does not exist
+   */
+  boolean isEmpty(final int field) {
+
+    return field >= this.count || this.starts[field] == this.ends[field];
+  }
+
+  /**
+   * Get the value of a field as a new String.
+   * @param field index of the field
+   * @return the value of the field or an empty string if the field does not
+   *         exist
+   */
+  String getString(final int field) {
+
+    if (field >= this.count)
+      return "";
+
+    return new String(this.buffer, this.starts[field], this.ends[field]
+        - this.starts[field]);
+  }
+
+  /**
+   * Get the number of fields of the current line like String.split(): the
+   * empty fields at the end of the line are not counted.
+   * @return the number of fields of the current line
+   */
+  int getSplitFieldCount() {
+
+    if (this.lineEnd == this.lineStart)
+      return 1;
+
+    int n = this.count;
+    while (n > 0 && this.starts[n - 1] == this.ends[n - 1])
+      n--;
+
+    if (this.restStart == -1)
+      return n;
+
+    // Count the fields that have not been split
+    int field = this.count;
+    int fieldStart = this.restStart;
+
+    if (this.matcher == null) {
+
+      final char[] b = this.buffer;
+      final char sep = this.separator;
+
+      for (int i = this.restStart; i < this.lineEnd; i++)
+        if (b[i] == sep) {
+          if (i > fieldStart)
+            n = field + 1;
+          field++;
+          fieldStart = i + 1;
+        }
+    } else
+      while (this.matcher.find()) {
+        if (this.lineStart + this.matcher.start() > fieldStart)
+          n = field + 1;
+        field++;
+        fieldStart = this.lineStart + this.matcher.end();
+      }
+
+    if (this.lineEnd > fieldStart)
+      n = field + 1;
+
+    return n;
+  }
+
+  /**
+   * Get the value of a field as an integer.
+   * @param field index of the field
+   * @param defaultValue value returned if the field is not a valid integer
+   * @return the value of the field
+   */
+  int getInt(final int field, final int defaultValue) {
+
+    if (field >= this.count)
+      return defaultValue;
+
+    return NumberParser.parseInt(this.buffer, this.starts[field],
+        this.ends[field], defaultValue);
+  }
+
+  /**
+   * Get the value of a field as a double.
+   * @param field index of the field
+   * @param comma true if the comma is also a decimal separator
+   * @return the value of the field or NaN if the field is not a valid double
+   */
+  double getDouble(final int field, final boolean comma) {
+
+    if (field >= this.count)
+      return Double.NaN;
+
+    return NumberParser.parseDouble(this.buffer, this.starts[field],
+        this.ends[field], comma);
+  }
+
+  /**
+   * Get the current line as a String.
+   * @return the current line
+   */
+  String getLine() {
+
+    return new String(this.buffer, this.lineStart, this.lineEnd
+        - this.lineStart);
+  }
+
+  /**
+   * Test if the current line starts with a prefix.
+   * @param prefix prefix to test
+   * @return true if the current line starts with the prefix
+   */
+  boolean startsWith(final String prefix) {
+
+    final int len = prefix.length();
+
+    if (len > this.lineEnd - this.lineStart)
+      return false;
+
+    for (int i = 0; i < len; i++)
+      if (this.buffer[this.lineStart + i] != prefix.charAt(i))
+        return false;
+
+    return true;
+  }
+
+  //
+  // Setters
+  //
+
+  /**
+   * Set the fields to process. The boundaries of the other fields are not
+   * trimmed and the lines are not split after the last field to process.
+   * @param fields an array with the fields to process or null to process all
+   *          the fields
+   */
+  void setFieldsToProcess(final boolean[] fields) {
+
+    this.fieldsToProcess = fields;
+    this.maxFields = Integer.MAX_VALUE;
+
+    if (fields == null)
+      return;
+
+    int last = fields.length - 1;
+    while (last >= 0 && !fields[last])
+      last--;
+
+    this.maxFields = last + 1;
+  }
+
+  //
+  // Reading
+  //
+
+  /**
+   * Read the next line and split it in fields.
+   * @return false if the end of the stream has been reached
+   * @throws IOException if an error occurs while reading the stream
+   */
+  boolean nextLine() throws IOException {
+
+    int i = this.position;
+
+    while (true) {
+
+      // Skip the '\n' of a "\r\n" line terminator
+      if (this.skipLF && i < this.limit) {
+        if (this.buffer[i] == '\n')
+          i++;
+        this.skipLF = false;
+        this.position = i;
+      }
+
+      final char[] b = this.buffer;
+      final int end = this.limit;
+
+      while (i < end) {
+
+        final char c = b[i];
+
+        if (c == '\n' || c == '\r') {
+
+          setLine(this.position, i);
+          this.position = i + 1;
+          this.skipLF = c == '\r';
+          return true;
+        }
+        i++;
+      }
+
+      if (this.eof) {
+
+        if (this.position == this.limit) {
+          this.count = 0;
+          return false;
+        }
+
+        setLine(this.position, this.limit);
+        this.position = this.limit;
+        return true;
+      }
+
+      i -= fill();
+    }
+  }
+
+  /**
+   * Read the remaining lines of the stream in memory and split them in ranges
+   * of lines. The lines of the ranges can be read in parallel by the returned
+   * tokenizers. After this call, this tokenizer is at the end of the stream.
+   * @param count maximal number of ranges
+   * @param minRangeSize minimal number of chars of a range
+   * @return an array of tokenizers that read consecutive ranges of lines
+   * @throws IOException if an error occurs while reading the stream
+   */
+  LineTokenizer[] split(final int count, final int minRangeSize)
+      throws IOException {
+
+    while (!this.eof)
+      fill();
+
+    final char[] b = this.buffer;
+    final int end = this.limit;
+
+    if (this.skipLF && this.position < end && b[this.position] == '\n')
+      this.position++;
+    this.skipLF = false;
+
+    final int size = end - this.position;
+    final int n =
+        Math.max(1, Math.min(count, size / Math.max(1, minRangeSize)));
+    final LineTokenizer[] result = new LineTokenizer[n];
+
+    int from = this.position;
+
+    for (int i = 0; i < n; i++) {
+
+      int to =
+          i == n - 1 ? end : Math.max(from, this.position
+              + (int) ((long) size * (i + 1) / n));
+
+      // Align the end of the range on the end of a line
+      if (to < end) {
+
+        while (to < end && b[to] != '\n' && b[to] != '\r')
+          to++;
+
+        if (to < end) {
+          if (b[to] == '\r' && to + 1 < end && b[to + 1] == '\n')
+            to++;
+          to++;
+        }
+      }
+
+      result[i] = new LineTokenizer(this, from, to);
+      from = to;
+    }
+
+    this.position = end;
+    this.count = 0;
+
+    return result;
+  }
+
+  /**
+   * Close the stream.
+   * @throws IOException if an error occurs while closing the stream
+   */
+  void close() throws IOException {
+
+    if (this.reader != null)
+      this.reader.close();
+  }
+
+  /**
+   * Read more chars from the stream. The current line is moved at the
+   * beginning of the buffer that is enlarged if needed.
+   * @return the shift of the content of the buffer
+   * @throws IOException if an error occurs while reading the stream
+   */
+  private int fill() throws IOException {
+
+    final int shift = this.position;
+    final int remaining = this.limit - this.position;
+
+    if (remaining == this.buffer.length) {
+
+      final char[] newBuffer = new char[this.buffer.length * 2];
+      System.arraycopy(this.buffer, 0, newBuffer, 0, remaining);
+      this.buffer = newBuffer;
+    } else if (shift > 0)
+      System.arraycopy(this.buffer, shift, this.buffer, 0, remaining);
+
+    this.position = 0;
+    this.limit = remaining;
+
+    final int n =
+        this.reader.read(this.buffer, this.limit, this.buffer.length
+            - this.limit);
+
+    if (n == -1)
+      this.eof = true;
+    else
+      this.limit += n;
+
+    return shift;
+  }
+
+  /**
+   * Set the current line and compute the boundaries of its fields.
+   * @param start index of the first char of the line
+   * @param end index after the last char of the line
+   */
+  private void setLine(final int start, final int end) {
+
+    this.lineStart = start;
+    this.lineEnd = end;
+    this.count = 0;
+    this.restStart = -1;
+
+    final int max = this.maxFields;
+
+    if (max == 0) {
+      this.restStart = start;
+      return;
+    }
+
+    if (this.matcher == null) {
+
+      final char[] b = this.buffer;
+      final char sep = this.separator;
+      int fieldStart = start;
+
+      for (int i = start; i < end; i++)
+        if (b[i] == sep) {
+          addField(fieldStart, i);
+          fieldStart = i + 1;
+
+          // The end of the line is not split
+          if (this.count == max) {
+            this.restStart = fieldStart;
+            return;
+          }
+        }
+
+      addField(fieldStart, end);
+
+    } else {
+
+      this.matcher.reset(CharBuffer.wrap(this.buffer, start, end - start));
+      int fieldStart = start;
+
+      while (this.matcher.find()) {
+        addField(fieldStart, start + this.matcher.start());
+        fieldStart = start + this.matcher.end();
+
+        if (this.count == max) {
+          this.restStart = fieldStart;
+          return;
+        }
+      }
+
+      addField(fieldStart, end);
+    }
+  }
+
+  /**
+   * Add a field to the current line.
+   * @param start index of the first char of the field
+   * @param end index after the last char of the field
+   */
+  private void addField(final int start, final int end) {
+
+    final char[] b = this.buffer;
+    final boolean[] fields = this.fieldsToProcess;
+    int s = start;
+    int e = end;
+
+    // The fields that are not processed are not trimmed
+    if (fields == null || (this.count < fields.length && fields[this.count])) {
+
+      if (this.trim) {
+        while (s < e && b[s] <= ' ')
+          s++;
+        while (e > s && b[e - 1] <= ' ')
+          e--;
+      }
+
+      if (this.removeQuotes) {
+        if (s < e && b[s] == '"')
+          s++;
+        if (s < e && b[e - 1] == '"')
+          e--;
+      }
+    }
+
+    if (this.count == this.starts.length) {
+
+      final int[] newStarts = new int[this.count * 2];
+      final int[] newEnds = new int[this.count * 2];
+      System.arraycopy(this.starts, 0, newStarts, 0, this.count);
+      System.arraycopy(this.ends, 0, newEnds, 0, this.count);
+      this.starts = newStarts;
+      this.ends = newEnds;
+    }
+
+    this.starts[this.count] = s;
+    this.ends[this.count] = e;
+    this.count++;
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Public constructor.
+   * @param reader reader to read
+   * @param separator separator of the fields. A separator of one char that is
+   *          not a special char of regular expressions is processed without
+   *          regular expression
+   * @param trim true if the spaces around the fields must be removed
+   * @param removeQuotes true if the double quotes around the fields must be
+   *          removed
+   */
+  LineTokenizer(final Reader reader, final String separator,
+      final boolean trim, final boolean removeQuotes) {
+
+    this.reader = reader;
+    this.trim = trim;
+    this.removeQuotes = removeQuotes;
+
+    if (separator.length() == 1
+        && REGEX_CHARS.indexOf(separator.charAt(0)) == -1) {
+      this.separator = separator.charAt(0);
+      this.matcher = null;
+    } else {
+      this.separator = 0;
+      this.matcher = Pattern.compile(separator).matcher("");
+    }
+  }
+
+  /**
+   * Create a tokenizer on a range of the buffer of another tokenizer.
+   * @param parent tokenizer that contains the buffer
+   * @param from index of the first char of the range
+   * @param to index after the last char of the range
+   */
+  private LineTokenizer(final LineTokenizer parent, final int from,
+      final int to) {
+
+    this.reader = null;
+    this.trim = parent.trim;
+    this.removeQuotes = parent.removeQuotes;
+    this.separator = parent.separator;
+    this.matcher =
+        parent.matcher == null ? null : parent.matcher.pattern().matcher("");
+    this.fieldsToProcess = parent.fieldsToProcess;
+    this.maxFields = parent.maxFields;
+
+    this.buffer = parent.buffer;
+    this.position = from;
+    this.limit = to;
+    this.eof = true;
+  }
+
+}
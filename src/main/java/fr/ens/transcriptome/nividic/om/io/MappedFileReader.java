@@ -0,0 +1,238 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * This class define a reader that memory-maps a local file. ASCII bytes are
+ * converted to chars without any charset decoder. With ISO-8859-1, all the
+ * bytes are converted in this way. With the other supported encodings, a
+ * decoder is used from the first non ASCII byte.
+ * @author Laurent Jourdren
+ */
+final class MappedFileReader extends Reader {
+
+  private static final String ISO_8859_1 = "ISO-8859-1";
+  private static final String US_ASCII = "US-ASCII";
+  private static final String UTF_8 = "UTF-8";
+
+  private FileChannel channel;
+  private final MappedByteBuffer bytes;
+  private final Charset charset;
+  private final boolean latin1;
+  private CharsetDecoder decoder;
+  private boolean flushed;
+  private final char[] pair = new char[2];
+  private char pendingChar;
+  private boolean pending;
+
+  /**
+   * Test if an encoding can be read by this class.
+   * @param encoding encoding to test
+   * @return true if the encoding is supported
+   */
+  static boolean isSupportedEncoding(final String encoding) {
+
+    if (encoding == null || !Charset.isSupported(encoding))
+      return false;
+
+    final String name = Charset.forName(encoding).name();
+
+    return ISO_8859_1.equals(name)
+        || US_ASCII.equals(name) || UTF_8.equals(name);
+  }
+
+  /**
+   * Test if a file can be read by this class.
+   * @param file file to test
+   * @param encoding encoding of the file
+   * @return true if the file can be mapped
+   */
+  static boolean isMappable(final File file, final String encoding) {
+
+    return file != null
+        && file.isFile() && file.length() <= Integer.MAX_VALUE
+        && isSupportedEncoding(encoding);
+  }
+
+  //
+  // Reader methods
+  //
+
+  @Override
+  public int read(final char[] cbuf, final int off, final int len)
+      throws IOException {
+
+    if (this.channel == null)
+      throw new IOException("Stream closed");
+
+    if (len == 0)
+      return 0;
+
+    if (this.decoder != null)
+      return decode(cbuf, off, len);
+
+    final MappedByteBuffer b = this.bytes;
+    final int n = Math.min(len, b.remaining());
+
+    if (n == 0)
+      return -1;
+
+    final int end = off + n;
+
+    for (int i = off; i < end; i++) {
+
+      final byte c = b.get();
+
+      if (c >= 0 || this.latin1)
+        cbuf[i] = (char) (c & 0xff);
+      else {
+
+        // Decode the end of the file from the first non ASCII byte
+        b.position(b.position() - 1);
+        this.decoder =
+            this.charset.newDecoder().onMalformedInput(
+                CodingErrorAction.REPLACE).onUnmappableCharacter(
+                CodingErrorAction.REPLACE);
+
+        if (i > off)
+          return i - off;
+
+        return decode(cbuf, off, len);
+      }
+    }
+
+    return n;
+  }
+
+  /**
+   * Decode bytes with the decoder. At least one char is read if the end of the
+   * file is not reached.
+   * @param cbuf destination buffer
+   * @param off offset in the destination buffer
+   * @param len maximal number of chars to read
+   * @return the number of chars read or -1 at the end of the file
+   */
+  private int decode(final char[] cbuf, final int off, final int len) {
+
+    int n = 0;
+
+    // The char kept by the previous call
+    if (this.pending) {
+      cbuf[off] = this.pendingChar;
+      this.pending = false;
+      n++;
+    }
+
+    if (n == len || this.flushed)
+      return n == 0 ? -1 : n;
+
+    if (len - n > 1) {
+
+      final CharBuffer out = CharBuffer.wrap(cbuf, off + n, len - n);
+      decode(out);
+      n = out.position() - off;
+
+    } else {
+
+      // A surrogate pair cannot be decoded in a single char, the second char
+      // is kept for the next call
+      final CharBuffer out = CharBuffer.wrap(this.pair);
+      decode(out);
+
+      if (out.position() > 0)
+        cbuf[off + n++] = this.pair[0];
+
+      if (out.position() > 1) {
+        this.pendingChar = this.pair[1];
+        this.pending = true;
+      }
+    }
+
+    return n == 0 && this.flushed ? -1 : n;
+  }
+
+  /**
+   * Decode bytes in a buffer.
+   * @param out destination buffer
+   */
+  private void decode(final CharBuffer out) {
+
+    CoderResult result = this.decoder.decode(this.bytes, out, true);
+
+    if (result.isUnderflow()) {
+      result = this.decoder.flush(out);
+      this.flushed = result.isUnderflow();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    if (this.channel == null)
+      return;
+
+    this.channel.close();
+    this.channel = null;
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Public constructor.
+   * @param file file to read
+   * @param encoding encoding of the file
+   * @throws IOException if an error occurs while mapping the file
+   */
+  MappedFileReader(final File file, final String encoding) throws IOException {
+
+    this.charset = Charset.forName(encoding);
+    this.latin1 = ISO_8859_1.equals(this.charset.name());
+
+    final FileInputStream fis = new FileInputStream(file);
+
+    try {
+      this.channel = fis.getChannel();
+      this.bytes =
+          this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel
+              .size());
+    } catch (IOException e) {
+      fis.close();
+      throw e;
+    }
+  }
+
+}
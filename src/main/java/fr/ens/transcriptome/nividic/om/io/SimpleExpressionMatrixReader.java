@@ -29,8 +29,9 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import fr.ens.transcriptome.nividic.Globals;
 import fr.ens.transcriptome.nividic.om.ExpressionMatrix;
@@ -41,6 +42,7 @@ import fr.ens.transcriptome.nividic.om.HistoryEntry.HistoryActionResult;
 import fr.ens.transcriptome.nividic.om.HistoryEntry.HistoryActionType;
 import fr.ens.transcriptome.nividic.om.translators.MultiColumnTranslator;
 import fr.ens.transcriptome.nividic.om.translators.Translator;
+import fr.ens.transcriptome.nividic.util.NumberParser;
 import fr.ens.transcriptome.nividic.util.StringUtils;
 
 /**
@@ -180,9 +182,9 @@ public class SimpleExpressionMatrixReader extends
 
     readHeader();
 
-    BufferedReader br = getBufferedReader();
-    final String separator = getSeparatorField();
-    String line = null;
+    final LineTokenizer tokenizer =
+        new LineTokenizer(getBufferedReader(), getSeparatorField(), false,
+            false);
 
     this.matrix = ExpressionMatrixFactory.createExpressionMatrix();
 
@@ -196,57 +198,58 @@ public class SimpleExpressionMatrixReader extends
 
     final int firstDataIndex = annotNames.length + 1;
 
-    try {
-      while ((line = br.readLine()) != null) {
+    final int columnCount = fieldNames.length + annotNames.length;
 
-        String[] data = line.split(separator);
+    // The values are first buffered by column, the rows and the columns of
+    // the matrix are then filled in one step
+    final Set<String> readIds = new HashSet<String>();
+    final FieldBuffer.Strings ids = new FieldBuffer.Strings(0, null);
 
-        if (data.length == 0 || data[0].trim().startsWith("#"))
-          continue;
+    final FieldBuffer.Strings[] annotValues =
+        new FieldBuffer.Strings[annotNames.length];
+    for (int i = 0; i < annotValues.length; i++)
+      annotValues[i] = new FieldBuffer.Strings(0, null);
 
-        // Complete uncompleted rows
-        if (data.length != fieldNames.length + annotNames.length) {
+    final FieldBuffer.Doubles[] values =
+        new FieldBuffer.Doubles[fieldNames.length];
+    for (int i = 1; i < values.length; i++)
+      values[i] = new FieldBuffer.Doubles(0);
 
-          String[] newData = new String[fieldNames.length + annotNames.length];
-          Arrays.fill(newData, "");
-          for (int i = 0; i < newData.length; i++) {
+    try {
+      while (tokenizer.nextLine()) {
 
-            if (i >= data.length)
-              break;
-            newData[i] = data[i];
-          }
+        if (tokenizer.getSplitFieldCount() == 0 || isComment(tokenizer))
+          continue;
 
-          data = newData;
-        }
+        // Missing fields of uncompleted rows are empty, extra fields are
+        // ignored
+        final int fieldCount = Math.min(columnCount, tokenizer.getFieldCount());
 
         // id column
-        String ids = data[0];
+        String id = tokenizer.getString(0);
         if (isStringQuotesBeRemoved())
-          ids = new String(StringUtils.removeDoubleQuotes(ids));
+          id = new String(StringUtils.removeDoubleQuotes(id));
 
-        final String id;
-        if (matrix.containsRow(ids))
-          id = findNewRowDuplicatedName(ids);
-        else
-          id = ids;
+        if (!readIds.add(id)) {
+          id = findNewRowDuplicatedName(readIds, id);
+          readIds.add(id);
+        }
 
-        this.matrix.addRow(id);
+        ids.add(id);
 
-        // Add annotations to translator
-        if (firstDataIndex > 1) {
+        // Annotations
+        for (int i = 0; i < annotValues.length; i++)
+          annotValues[i].add(i + 1 < fieldCount
+              ? tokenizer.getString(i + 1) : "");
 
-          final String[] annotData = new String[annotNames.length];
-          System.arraycopy(data, 1, annotData, 0, annotData.length);
+        // Double values
+        for (int i = 1; i < fieldNames.length; i++) {
 
-          this.translator.addRow(id, annotData);
-        }
+          final int field = i + firstDataIndex - 1;
 
-        // Double values
-        for (int i = 1; i < data.length - annotNames.length; i++)
-          // dimensions[i - 1].setValue(id, fieldNames[i],
-          // parseValues(data[i]));
-          dimensions[i].setValue(id, fieldNames[i], parseValues(data[i
-              + firstDataIndex - 1]));
+          values[i].add(field < fieldCount
+              ? parseValue(tokenizer, field) : Double.NaN);
+        }
 
       }
     } catch (IOException e) {
@@ -261,54 +264,81 @@ public class SimpleExpressionMatrixReader extends
           + e.getMessage());
     }
 
-    return addReaderHistoryEntry(this.matrix);
-  }
+    final String[] rowIds = ids.toArray();
+    this.matrix.addRows(rowIds);
 
-  private double parseValues(final String s) {
+    // The rows are searched once for all the columns
+    int[] rowIndexes = null;
 
-    double value;
+    for (int i = 1; i < fieldNames.length; i++) {
 
-    if (!this.decimalSeparatorFound)
-      foundDecimalSeparator(s);
-
-    try {
+      if (rowIndexes == null)
+        rowIndexes = dimensions[i].getRowIndexes(rowIds);
 
-      String toParse = s.trim();
+      dimensions[i].setValues(rowIndexes, fieldNames[i], values[i].toArray());
+      values[i] = null;
+    }
 
-      if (this.commaDecimalSepartor)
-        toParse = s.replace(',', '.');
+    // Add annotations to translator
+    if (firstDataIndex > 1) {
 
-      value = Double.parseDouble(toParse);
+      final String[][] annotData = new String[annotValues.length][];
+      for (int i = 0; i < annotData.length; i++)
+        annotData[i] = annotValues[i].toArray();
 
-    } catch (NumberFormatException e) {
-      value = Double.NaN;
+      this.translator.addRows(rowIds, annotData);
     }
 
-    return value;
+    return addReaderHistoryEntry(this.matrix);
   }
 
-  private void foundDecimalSeparator(final String s) {
+  private static boolean isComment(final LineTokenizer tokenizer) {
 
-    int index = s.indexOf('.');
+    final char[] b = tokenizer.getBuffer();
+    final int end = tokenizer.getEnd(0);
+    int i = tokenizer.getStart(0);
 
-    if (index != -1) {
-      this.commaDecimalSepartor = false;
-      this.decimalSeparatorFound = true;
-    }
+    while (i < end && b[i] <= ' ')
+      i++;
 
-    index = s.indexOf(',');
+    return i < end && b[i] == '#';
+  }
 
-    if (index != -1) {
-      this.commaDecimalSepartor = true;
-      this.decimalSeparatorFound = true;
-    }
+  private double parseValue(final LineTokenizer tokenizer, final int field) {
 
+    final char[] b = tokenizer.getBuffer();
+    final int start = tokenizer.getStart(field);
+    final int end = tokenizer.getEnd(field);
+
+    if (!this.decimalSeparatorFound)
+      foundDecimalSeparator(b, start, end);
+
+    return NumberParser.parseDouble(b, start, end, this.commaDecimalSepartor);
+  }
+
+  private void foundDecimalSeparator(final char[] b, final int start,
+      final int end) {
+
+    for (int i = start; i < end; i++)
+      if (b[i] == '.') {
+        this.commaDecimalSepartor = false;
+        this.decimalSeparatorFound = true;
+        break;
+      }
+
+    for (int i = start; i < end; i++)
+      if (b[i] == ',') {
+        this.commaDecimalSepartor = true;
+        this.decimalSeparatorFound = true;
+        break;
+      }
   }
 
-  private String findNewRowDuplicatedName(final String rowName) {
+  private static String findNewRowDuplicatedName(final Set<String> ids,
+      final String rowName) {
 
     int i = 1;
-    while (this.matrix.containsRow(rowName + DUPPLICATED_SUFFIX + i))
+    while (ids.contains(rowName + DUPPLICATED_SUFFIX + i))
       i++;
 
     return rowName + DUPPLICATED_SUFFIX + i;
@@ -22,11 +22,10 @@
 
 package fr.ens.transcriptome.nividic.om.io;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -39,6 +38,8 @@ import fr.ens.transcriptome.nividic.om.HistoryEntry;
 import fr.ens.transcriptome.nividic.om.HistoryEntry.HistoryActionResult;
 import fr.ens.transcriptome.nividic.om.HistoryEntry.HistoryActionType;
 import fr.ens.transcriptome.nividic.om.translators.Translator;
+import fr.ens.transcriptome.nividic.util.NumberFormatter;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
 
 /**
  * This implement a class to write ExpressionMatrixDimension objects
@@ -46,9 +47,13 @@ import fr.ens.transcriptome.nividic.om.translators.Translator;
  */
 public class SimpleExpressionMatrixWriter extends ExpressionMatrixWriter {
 
-  private BufferedWriter bw;
   private static final String SEPARATOR = "\t";
   private static final String type = "id";
+  private static final String LINE_SEPARATOR =
+      System.getProperty("line.separator");
+
+  /** Number of values formatted by block of rows. */
+  private static final int BLOCK_CELL_COUNT = 64 * 1024;
 
   /** Dimension separator. */
   public static final String DIMENSION_SEPARATOR = "$";
@@ -58,95 +63,238 @@ public class SimpleExpressionMatrixWriter extends ExpressionMatrixWriter {
   private Set<String> columnsToWrite = new HashSet<String>();
   private Set<String> dimensionsToWrite = new HashSet<String>();
   private boolean showDimensionName = true;
+  private int precision = -1;
+  private boolean parallelFormatting;
+
+  /**
+   * This class format a block of rows in a buffer of chars.
+   */
+  private static final class BlockFormatter {
+
+    private final String[] ids;
+    private final Translator annot;
+    private final int nbAnnotationFields;
+    private final double[][] values;
+    private final int precision;
+    private int from;
+    private int to;
+    private char[] buffer = new char[1024];
+    private int length;
+
+    /**
+     * Get the values of a block of rows.
+     * @param dimensions dimensions of the cells
+     * @param columns columns of the cells
+     * @param from first row of the block (inclusive)
+     * @param to last row of the block (exclusive)
+     */
+    void load(final ExpressionMatrixDimension[] dimensions,
+        final int[] columns, final int from, final int to) {
+
+      this.from = from;
+      this.to = to;
+
+      for (int i = 0; i < this.values.length; i++)
+        dimensions[i].getColumnValues(columns[i], from, to, this.values[i]);
+    }
+
+    /**
+     * Format the rows of the block.
+     */
+    void format() {
+
+      int pos = 0;
+
+      for (int i = this.from; i < this.to; i++) {
+
+        final String id = this.ids[i];
+        pos = append(id, pos);
+
+        if (this.annot != null) {
+
+          final String[] annotationValues = this.annot.translate(id);
+          for (int j = 0; j < this.nbAnnotationFields; j++) {
+
+            pos = append(SEPARATOR, pos);
+            final String val =
+                annotationValues != null ? annotationValues[j] : null;
+            if (val != null)
+              pos = append(val, pos);
+          }
+        }
+
+        ensureCapacity(pos
+            + this.values.length * (NumberFormatter.MAX_DOUBLE_LENGTH + 1));
+
+        final int row = i - this.from;
+        final char[] b = this.buffer;
+
+        for (int j = 0; j < this.values.length; j++) {
+
+          b[pos++] = '\t';
+          if (this.precision < 0)
+            pos = NumberFormatter.formatDouble(this.values[j][row], b, pos);
+          else
+            pos =
+                NumberFormatter.formatDouble(this.values[j][row],
+                    this.precision, b, pos);
+        }
+
+        pos = append(LINE_SEPARATOR, pos);
+      }
+
+      this.length = pos;
+    }
+
+    private int append(final String s, final int pos) {
+
+      final int len = s.length();
+      ensureCapacity(pos + len);
+      s.getChars(0, len, this.buffer, pos);
+
+      return pos + len;
+    }
+
+    private void ensureCapacity(final int capacity) {
+
+      if (capacity <= this.buffer.length)
+        return;
+
+      final char[] newBuffer =
+          new char[Math.max(capacity, this.buffer.length * 2)];
+      System.arraycopy(this.buffer, 0, newBuffer, 0, this.buffer.length);
+      this.buffer = newBuffer;
+    }
+
+    BlockFormatter(final String[] ids, final Translator annot,
+        final int nbAnnotationFields, final int cellCount,
+        final int blockSize, final int precision) {
+
+      this.ids = ids;
+      this.annot = annot;
+      this.nbAnnotationFields = nbAnnotationFields;
+      this.values = new double[cellCount][blockSize];
+      this.precision = precision;
+    }
+  }
 
   /**
-   * Write data.
+   * Write data. The values are read and formatted by blocks of rows, the
+   * matrix is never copied.
    * @param em ExpressionMatrixDimension to write
    * @throws NividicIOException if an error occurs while writing data
    */
   public void write(final ExpressionMatrix em) throws NividicIOException {
 
-    try {
+    if (getOutputStream() == null)
+      throw new NividicIOException("No stream to write");
 
-      bw =
-          new BufferedWriter(new OutputStreamWriter(getOutputStream(),
-              Globals.DEFAULT_FILE_ENCODING));
+    final String[] ids = em.getRowNames();
+    final String[] columnNames = getColumns(em);
+    final ExpressionMatrixDimension[] dimensions = getDimensions(em);
+    final Translator annot = getTranslator();
 
-      if (this.bw == null)
-        throw new NividicIOException("No stream to write");
+    // The cells of a row, with the index of their column and their dimension
+    final int cellCount = columnNames.length * dimensions.length;
+    final int[] cellColumns = new int[cellCount];
+    final ExpressionMatrixDimension[] cellDimensions =
+        new ExpressionMatrixDimension[cellCount];
 
-      final int countRow = em.getRowCount();
+    int count = 0;
+    for (int i = 0; i < columnNames.length; i++)
+      for (int j = 0; j < dimensions.length; j++) {
+        cellColumns[count] = em.getColumnIndex(columnNames[i]);
+        cellDimensions[count++] = dimensions[j];
+      }
 
-      final String[] ids = em.getRowNames();
-      final String[] columnNames = getColumns(em);
-      final ExpressionMatrixDimension[] dimensions = getDimensions(em);
-      final Translator annot = getTranslator();
+    final String[] annotationFields = annot == null ? null : annot.getFields();
+    final int nbAnnotationFields =
+        annotationFields == null ? 0 : annotationFields.length;
 
-      // Write header
+    try {
 
-      bw.write(type);
+      final Writer writer =
+          new ChannelWriter(getOutputStream(), Globals.DEFAULT_FILE_ENCODING,
+              ChannelWriter.DEFAULT_BUFFER_SIZE);
 
-      final int nbAnnotationFields;
+      // Write header
 
-      if (annot != null) {
-        final String[] annotationFields = annot.getFields();
-        nbAnnotationFields = annotationFields.length;
+      final StringBuilder sb = new StringBuilder();
+      sb.append(type);
 
-        for (int i = 0; i < annotationFields.length; i++) {
+      for (int i = 0; i < nbAnnotationFields; i++) {
 
-          bw.write(SEPARATOR);
-          bw.write('"');
-          bw.write(annotationFields[i]);
-          bw.write('"');
-        }
-      } else
-        nbAnnotationFields = 0;
+        sb.append(SEPARATOR);
+        sb.append('"');
+        sb.append(annotationFields[i]);
+        sb.append('"');
+      }
 
       for (int i = 0; i < columnNames.length; i++) {
         for (int j = 0; j < dimensions.length; j++) {
-          bw.write(SEPARATOR);
-          bw.write('"');
-          bw.write(columnNames[i]);
+          sb.append(SEPARATOR);
+          sb.append('"');
+          sb.append(columnNames[i]);
           if (dimensions.length > 1 || this.showDimensionName) {
-            bw.write(DIMENSION_SEPARATOR);
-            bw.write(dimensions[j].getDimensionName());
+            sb.append(DIMENSION_SEPARATOR);
+            sb.append(dimensions[j].getDimensionName());
           }
-          bw.write('"');
+          sb.append('"');
         }
       }
 
-      bw.newLine();
+      sb.append(LINE_SEPARATOR);
+      writer.write(sb.toString());
 
       // Write data
 
-      final double[][] values = getValues(columnNames, dimensions);
+      final int blockSize =
+          Math.max(1, BLOCK_CELL_COUNT / Math.max(1, cellCount));
+      final int blockCount =
+          this.parallelFormatting && !ParallelUtils.isWorkerThread()
+              ? Math.max(1, Math.min(ParallelUtils.getThreadCount(),
+                  (ids.length + blockSize - 1) / blockSize)) : 1;
 
-      for (int i = 0; i < countRow; i++) {
+      final BlockFormatter[] formatters = new BlockFormatter[blockCount];
+      for (int i = 0; i < blockCount; i++)
+        formatters[i] =
+            new BlockFormatter(ids, annot, nbAnnotationFields, cellCount,
+                blockSize, this.precision);
 
-        final String id = ids[i];
-        bw.write(id);
+      for (int from = 0; from < ids.length; from += blockSize * blockCount) {
 
-        if (annot != null) {
-          final String[] annotationValues = annot.translate(id);
-          for (int j = 0; j < nbAnnotationFields; j++) {
-            bw.write(SEPARATOR);
-            final String val =
-                annotationValues != null ? annotationValues[j] : null;
-            bw.write(val == null ? "" : val);
-          }
-        }
+        // Get the values of the blocks
+        int used = 0;
+        for (int i = 0; i < blockCount; i++) {
 
-        for (int j = 0; j < values.length; j++) {
+          final int start = from + i * blockSize;
+          if (start >= ids.length)
+            break;
 
-          bw.write(SEPARATOR);
-          bw.write(Double.toString(values[j][i]));
+          formatters[i].load(cellDimensions, cellColumns, start, Math.min(
+              ids.length, start + blockSize));
+          used++;
         }
 
-        bw.newLine();
+        // Format the blocks
+        if (used == 1)
+          formatters[0].format();
+        else
+          ParallelUtils.forEachChunk(used, 1, new ParallelUtils.RangeTask() {
+
+            public void run(final int start, final int end) {
+
+              for (int i = start; i < end; i++)
+                formatters[i].format();
+            }
+          });
 
+        for (int i = 0; i < used; i++)
+          writer.write(formatters[i].buffer, 0, formatters[i].length);
       }
 
-      this.bw.close();
+      writer.close();
+
     } catch (IOException e) {
       throw new NividicIOException("Error while writing stream : "
           + e.getMessage());
@@ -180,27 +328,6 @@ public class SimpleExpressionMatrixWriter extends ExpressionMatrixWriter {
     return matrix;
   }
 
-  /**
-   * Create a bi dimensional array of double with matrix values
-   * @param columnNames names of the columns to write
-   * @param dimensions dimensions to write
-   * @return a bi dimensional array of double with matrix values
-   */
-  private static double[][] getValues(final String[] columnNames,
-      final ExpressionMatrixDimension[] dimensions) {
-
-    final double[][] result =
-        new double[columnNames.length * dimensions.length][];
-
-    int count = 0;
-
-    for (int j = 0; j < columnNames.length; j++)
-      for (int k = 0; k < dimensions.length; k++)
-        result[count++] = dimensions[k].getColumnToArray(columnNames[j]);
-
-    return result;
-  }
-
   /**
    * Get the name of the column to write
    * @param em ExpressionMatrix
@@ -270,6 +397,45 @@ public class SimpleExpressionMatrixWriter extends ExpressionMatrixWriter {
     this.columnsToWrite.add(columnName);
   }
 
+  /**
+   * Get the number of digits written after the decimal point.
+   * @return the number of digits or -1 if the values are written with the
+   *         shortest representation
+   */
+  public int getPrecision() {
+
+    return this.precision;
+  }
+
+  /**
+   * Set the number of digits written after the decimal point. By default
+   * (-1), the values are written with the shortest representation that is
+   * read back to the same value.
+   * @param precision the number of digits or -1
+   */
+  public void setPrecision(final int precision) {
+
+    this.precision = precision < 0 ? -1 : precision;
+  }
+
+  /**
+   * Test if the blocks of rows are formatted in parallel.
+   * @return true if the blocks of rows are formatted in parallel
+   */
+  public boolean isParallelFormatting() {
+
+    return this.parallelFormatting;
+  }
+
+  /**
+   * Set if the blocks of rows are formatted in parallel.
+   * @param enable The value to set
+   */
+  public void setParallelFormatting(final boolean enable) {
+
+    this.parallelFormatting = enable;
+  }
+
   /**
    * Set if the dimension name must be wrote if there is only one dimension.
    * @param enable The value to set
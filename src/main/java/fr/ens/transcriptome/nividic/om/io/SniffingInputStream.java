@@ -0,0 +1,103 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * This class define a stream that reads its first bytes to guess the content
+ * of the stream. The first bytes are pushed back in the stream, so the stream
+ * can be read from its beginning after the test. The bulk reads of the stream
+ * are delegated to the underlying stream.
+ * @author Laurent Jourdren
+ */
+abstract class SniffingInputStream extends PushbackInputStream {
+
+  private final int headSize;
+  private byte[] head;
+  private int headLength;
+
+  /**
+   * Get the first bytes of the stream. The bytes are read at the first call.
+   * @return an array with the first bytes of the stream. Only the
+   *         getHeadLength() first bytes of the array are valid
+   * @throws IOException if an error occurs while reading the stream
+   */
+  protected byte[] getHead() throws IOException {
+
+    if (this.head != null)
+      return this.head;
+
+    final byte[] b = new byte[this.headSize];
+    int n = 0;
+
+    while (n < b.length) {
+
+      final int count = read(b, n, b.length - n);
+      if (count == -1)
+        break;
+      n += count;
+    }
+
+    unread(b, 0, n);
+
+    this.headLength = n;
+    this.head = b;
+
+    return b;
+  }
+
+  /**
+   * Get the number of bytes in the head of the stream.
+   * @return the number of bytes in the head of the stream
+   * @throws IOException if an error occurs while reading the stream
+   */
+  protected int getHeadLength() throws IOException {
+
+    getHead();
+
+    return this.headLength;
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Public constructor
+   * @param is InputStream to read
+   * @param headSize maximal number of bytes to test
+   */
+  SniffingInputStream(final InputStream is, final int headSize) {
+
+    super(is, headSize);
+
+    if (is == null)
+      throw new NullPointerException("The inputStream is null");
+
+    this.headSize = headSize;
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import fr.ens.transcriptome.nividic.util.NumberFormatter;
+
+/**
+ * This class define a growable buffer of chars used by the writers to format
+ * the rows before writing them. Unlike StringBuffer, numbers are appended
+ * without creating any object.
+ * @author Laurent Jourdren
+ */
+final class TextBuffer {
+
+  private static final int DEFAULT_CAPACITY = 8192;
+
+  private char[] chars;
+  private int length;
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the number of chars in the buffer.
+   * @return the number of chars in the buffer
+   */
+  int length() {
+
+    return this.length;
+  }
+
+  //
+  // Other methods
+  //
+
+  /**
+   * Append a char.
+   * @param c char to append
+   */
+  void append(final char c) {
+
+    ensureCapacity(this.length + 1);
+    this.chars[this.length++] = c;
+  }
+
+  /**
+   * Append a string.
+   * @param s string to append
+   */
+  void append(final String s) {
+
+    final int len = s.length();
+    ensureCapacity(this.length + len);
+    s.getChars(0, len, this.chars, this.length);
+    this.length += len;
+  }
+
+  /**
+   * Append an integer.
+   * @param value value to append
+   */
+  void append(final int value) {
+
+    ensureCapacity(this.length + NumberFormatter.MAX_INT_LENGTH);
+    this.length = NumberFormatter.formatInt(value, this.chars, this.length);
+  }
+
+  /**
+   * Append a double.
+   * @param value value to append
+   */
+  void append(final double value) {
+
+    ensureCapacity(this.length + NumberFormatter.MAX_DOUBLE_LENGTH);
+    this.length = NumberFormatter.formatDouble(value, this.chars, this.length);
+  }
+
+  /**
+   * Write the content of the buffer and clear it.
+   * @param writer writer to use
+   * @throws IOException if an error occurs while writing the chars
+   */
+  void writeTo(final Writer writer) throws IOException {
+
+    writer.write(this.chars, 0, this.length);
+    this.length = 0;
+  }
+
+  /**
+   * Clear the buffer.
+   */
+  void clear() {
+
+    this.length = 0;
+  }
+
+  private void ensureCapacity(final int capacity) {
+
+    if (capacity <= this.chars.length)
+      return;
+
+    final char[] newChars = new char[Math.max(capacity, this.chars.length * 2)];
+    System.arraycopy(this.chars, 0, newChars, 0, this.length);
+    this.chars = newChars;
+  }
+
+  @Override
+  public String toString() {
+
+    return new String(this.chars, 0, this.length);
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Constructor.
+   */
+  TextBuffer() {
+
+    this.chars = new char[DEFAULT_CAPACITY];
+  }
+
+}
@@ -27,10 +27,13 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.StringDictionary;
 
-public class UniversalBioAssayReader extends InputStreamBioAssayReader {
+public class UniversalBioAssayReader extends InputStreamBioAssayReader
+    implements BioAssayRowReader {
 
   private InputStreamBioAssayReader br;
+  private FingerprintInputStream fingerprint;
 
   @Override
   protected String getColumnField() {
@@ -95,18 +98,259 @@ public class UniversalBioAssayReader extends InputStreamBioAssayReader {
   @Override
   public BioAssay read() throws NividicIOException {
 
-    return br.read();
+    final BioAssaySnapshotCache snapshots =
+        BioAssaySnapshotCache.getDefaultCache();
+
+    if (snapshots != null && getFile() != null)
+      return readWithSnapshot(snapshots, getFile());
+
+    final BioAssayCache cache = BioAssayCache.getDefaultCache();
+    final String key = cache == null ? null : getCacheKey();
+
+    if (key == null)
+      return br.read();
+
+    final BioAssay cached = cache.get(key);
+
+    if (cached != null) {
+
+      try {
+        getInputStream().close();
+      } catch (IOException e) {
+        throw new NividicIOException("Error while closing the stream");
+      }
+
+      cached.getAnnotation().addProperties(this.br.getBioAssay().getAnnotation());
+      return cached;
+    }
+
+    final BioAssay result = br.read();
+    cache.put(key, result);
+
+    return result;
+  }
+
+  /**
+   * Get the key of the data in the memory cache. Files are identified by their
+   * path, their length and their date of modification without being read. The
+   * remaining content of a stream is read in memory to get its fingerprint.
+   * @return the key of the data or null if the data can not be cached
+   * @throws NividicIOException if an error occurs while reading the stream
+   */
+  private String getCacheKey() throws NividicIOException {
+
+    final File file = getFile();
+
+    if (file != null)
+      return BioAssayCache.createKey(super.getDataSource(),
+          getFieldProjection(), file.lastModified(), file.length());
+
+    if (this.fingerprint == null)
+      return null;
+
+    try {
+      this.fingerprint.readFully();
+    } catch (IOException e) {
+      throw new NividicIOException("Error while reading the stream");
+    }
+
+    return BioAssayCache.createKey(super.getDataSource(), getFieldProjection(),
+        this.fingerprint.getFingerprint(), this.fingerprint.getLength());
+  }
+
+  /**
+   * Read the file with a snapshot cache. If a valid snapshot of the file
+   * exists, the file is not parsed.
+   * @param snapshots snapshot cache to use
+   * @param file file to read
+   * @return a BioAssay
+   * @throws NividicIOException if an error occurs while reading the file
+   */
+  private BioAssay readWithSnapshot(final BioAssaySnapshotCache snapshots,
+      final File file) throws NividicIOException {
+
+    final String options = getSnapshotOptions();
+    final BioAssay snapshot = snapshots.get(file, options);
+
+    if (snapshot != null) {
+
+      try {
+        getInputStream().close();
+      } catch (IOException e) {
+        throw new NividicIOException("Error while closing file : "
+            + file.getName());
+      }
+
+      this.br.applyStorageOptions(snapshot);
+
+      return snapshot;
+    }
+
+    final BioAssay result = br.read();
+    snapshots.put(file, options, result);
+
+    return result;
+  }
+
+  /**
+   * Get the options of the reader used as key of the snapshots. The identity
+   * of the dictionary is not a part of the options as the snapshots contain
+   * the decoded strings.
+   * @return the options of the reader
+   */
+  private String getSnapshotOptions() {
+
+    final String projection = getFieldProjection();
+    final int index = projection.indexOf(";dictionary@");
+
+    if (index == -1)
+      return projection;
+
+    return projection.substring(0, index) + ";dictionary";
+  }
+
+  /**
+   * Read the rows of the stream without creating a BioAssay. The caches are
+   * not used, so the stream is read row by row and never in memory.
+   * @param handler handler of the rows
+   * @throws NividicIOException if an error occurs while reading the stream or
+   *           if the format of the stream can not be read row by row
+   */
+  public void read(final BioAssayRowHandler handler)
+      throws NividicIOException {
+
+    if (!(this.br instanceof BioAssayRowReader))
+      throw new NividicIOException(
+          "The rows of this format can not be read without creating a BioAssay");
+
+    ((BioAssayRowReader) this.br).read(handler);
+  }
+
+  /**
+   * Set the expected number of rows of the read BioAssays.
+   * @param rowCount the expected number of rows or 0 if unknown
+   */
+  public void setRowCountHint(final int rowCount) {
+
+    this.br.setRowCountHint(rowCount);
+  }
+
+  /**
+   * Get the expected number of rows of the read BioAssays.
+   * @return the expected number of rows or 0 if unknown
+   */
+  public int getRowCountHint() {
+
+    return this.br.getRowCountHint();
+  }
+
+  /**
+   * Set if the data of the stream must be parsed in parallel.
+   * @param parallel true if the data of the stream must be parsed in parallel
+   */
+  public void setParallelParsing(final boolean parallel) {
+
+    this.br.setParallelParsing(parallel);
+  }
+
+  /**
+   * Test if the data of the stream are parsed in parallel.
+   * @return true if the data of the stream are parsed in parallel
+   */
+  public boolean isParallelParsing() {
+
+    return this.br.isParallelParsing();
+  }
+
+  /**
+   * Set the dictionary used to encode the string fields.
+   * @param dictionary the dictionary to set
+   */
+  public void setStringDictionary(final StringDictionary dictionary) {
+
+    this.br.setStringDictionary(dictionary);
+  }
+
+  /**
+   * Get the dictionary used to encode the string fields.
+   * @return the dictionary used to encode the string fields or null if string
+   *         fields are not encoded
+   */
+  public StringDictionary getStringDictionary() {
+
+    return this.br.getStringDictionary();
+  }
+
+  /**
+   * Set if the identifiers and the locations of the read BioAssays must be
+   * stored in a shared layout.
+   * @param shared true if the layout of the read BioAssays must be shared
+   */
+  public void setArrayLayoutShared(final boolean shared) {
+
+    this.br.setArrayLayoutShared(shared);
+  }
+
+  /**
+   * Test if the identifiers and the locations of the read BioAssays are stored
+   * in a shared layout.
+   * @return true if the layout of the read BioAssays is shared
+   */
+  public boolean isArrayLayoutShared() {
+
+    return this.br.isArrayLayoutShared();
+  }
+
+  /**
+   * Set if the integer fields of the read BioAssays must be stored in compact
+   * arrays.
+   * @param compact true if the integer fields must be stored in compact arrays
+   */
+  public void setCompactIntFields(final boolean compact) {
+
+    this.br.setCompactIntFields(compact);
+  }
+
+  /**
+   * Test if the integer fields of the read BioAssays are stored in compact
+   * arrays.
+   * @return true if the integer fields are stored in compact arrays
+   */
+  public boolean isCompactIntFields() {
+
+    return this.br.isCompactIntFields();
+  }
+
+  /**
+   * Get a description of the fields to read.
+   * @return a string that describe the fields to read
+   */
+  public String getFieldProjection() {
+
+    return this.br.getFieldProjection();
   }
 
   private void setBioAssayReader() throws NividicIOException {
 
     try {
-      this.br =
-          new BioAssayFormatFinderInputStream(getInputStream())
-              .getBioAssayReader();
+
+      InputStream is = getInputStream();
+
+      // The content of the streams is fingerprinted while it is read to find
+      // it in the cache, the files are found by their path
+      if (BioAssayCache.getDefaultCache() != null && getFile() == null) {
+        this.fingerprint = new FingerprintInputStream(is);
+        is = this.fingerprint;
+      }
+
+      this.br = new BioAssayFormatFinderInputStream(is).getBioAssayReader();
 
       if (this.br == null)
         throw new NividicIOException("Unable to find the format");
+
+      // The file can be memory-mapped by the reader of the format
+      if (getFile() != null)
+        this.br.setFile(getFile());
     } catch (NividicIOException e) {
 
       throw new NividicIOException("Unable to find the format");
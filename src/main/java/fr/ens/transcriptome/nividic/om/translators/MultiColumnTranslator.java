@@ -81,6 +81,34 @@ public class MultiColumnTranslator extends BasicTranslator implements
     this.annotations.put(id, dataMap);
   }
 
+  /**
+   * Add the data of many rows to the translator.
+   * @param ids ids of the rows
+   * @param columns data to add, one array of values by field, in the order of
+   *          the fields
+   */
+  public void addRows(final String[] ids, final String[][] columns) {
+
+    if (ids == null || columns == null)
+      return;
+
+    final int size = Math.min(columns.length, this.fieldNames.length);
+
+    for (int i = 0; i < ids.length; i++) {
+
+      if (ids[i] == null)
+        continue;
+
+      final Map<String, String> dataMap =
+          new HashMap<String, String>(size * 2);
+
+      for (int j = 0; j < size; j++)
+        dataMap.put(this.fieldNames[j], columns[j][i]);
+
+      this.annotations.put(ids[i], dataMap);
+    }
+  }
+
   //
   // Method for the Translator
   //
@@ -0,0 +1,257 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.util;
+
+/**
+ * Some static methods to format numbers in arrays of chars without creating
+ * any object. This class is the counterpart of NumberParser.
+ * @author Laurent Jourdren
+ */
+public final class NumberFormatter {
+
+  /** Maximal number of chars written for an integer. */
+  public static final int MAX_INT_LENGTH = 11;
+
+  /** Maximal number of chars written for a double. */
+  public static final int MAX_DOUBLE_LENGTH = 32;
+
+  private static final double MIN_PLAIN_VALUE = 1e-3;
+  private static final double MAX_PLAIN_VALUE = 1e7;
+  private static final double MAX_EXACT_MANTISSA = 1L << 53;
+  private static final int MAX_EXACT_POW10 = 22;
+
+  private static final char[] NAN = "NaN".toCharArray();
+  private static final char[] INFINITY = "Infinity".toCharArray();
+  private static final char[] NEGATIVE_INFINITY = "-Infinity".toCharArray();
+
+  private static final double[] POW10 = new double[MAX_EXACT_POW10 + 1];
+  private static final long[] LONG_POW10 = new long[19];
+
+  static {
+
+    POW10[0] = 1.0;
+    for (int i = 1; i < POW10.length; i++)
+      POW10[i] = POW10[i - 1] * 10.0;
+
+    LONG_POW10[0] = 1L;
+    for (int i = 1; i < LONG_POW10.length; i++)
+      LONG_POW10[i] = LONG_POW10[i - 1] * 10L;
+  }
+
+  //
+  // Integers
+  //
+
+  /**
+   * Format an integer.
+   * @param value value to format
+   * @param b array of chars to fill
+   * @param offset index of the first char to write
+   * @return the index after the last char written
+   */
+  public static int formatInt(final int value, final char[] b,
+      final int offset) {
+
+    if (value == Integer.MIN_VALUE)
+      return copy(Integer.toString(value), b, offset);
+
+    int pos = offset;
+    int v = value;
+
+    if (v < 0) {
+      b[pos++] = '-';
+      v = -v;
+    }
+
+    return writeDigits(v, b, pos);
+  }
+
+  //
+  // Doubles
+  //
+
+  /**
+   * Format a double with the shortest decimal representation that is parsed
+   * back to the same value. The format is the format of Double.toString().
+   * Values lower than 1e-3 or greater than 1e7 are formatted by
+   * Double.toString().
+   * @param value value to format
+   * @param b array of chars to fill, MAX_DOUBLE_LENGTH chars may be written
+   * @param offset index of the first char to write
+   * @return the index after the last char written
+   */
+  public static int formatDouble(final double value, final char[] b,
+      final int offset) {
+
+    if (Double.isNaN(value) || Double.isInfinite(value) || value == 0.0)
+      return formatSpecial(value, b, offset);
+
+    final double abs = Math.abs(value);
+
+    if (abs >= MIN_PLAIN_VALUE && abs < MAX_PLAIN_VALUE)
+      for (int digits = 0; digits <= MAX_EXACT_POW10; digits++) {
+
+        final double scaled = abs * POW10[digits];
+        if (scaled >= MAX_EXACT_MANTISSA)
+          break;
+
+        // The division of two exact doubles is correctly rounded, so the
+        // decimal value is parsed back to the same double
+        final long mantissa = Math.round(scaled);
+        if (mantissa / POW10[digits] == abs)
+          return writeFixed(value < 0, mantissa, digits, b, offset);
+      }
+
+    return copy(Double.toString(value), b, offset);
+  }
+
+  /**
+   * Format a double with a fixed maximal number of digits after the decimal
+   * point. The trailing zeros are removed. Values that can not be rounded
+   * exactly are formatted by formatDouble(double, char[], int).
+   * @param value value to format
+   * @param precision number of digits after the decimal point
+   * @param b array of chars to fill, MAX_DOUBLE_LENGTH chars may be written
+   * @param offset index of the first char to write
+   * @return the index after the last char written
+   */
+  public static int formatDouble(final double value, final int precision,
+      final char[] b, final int offset) {
+
+    if (Double.isNaN(value) || Double.isInfinite(value) || value == 0.0)
+      return formatSpecial(value, b, offset);
+
+    if (precision < 0 || precision > MAX_EXACT_POW10)
+      return formatDouble(value, b, offset);
+
+    final double scaled = Math.abs(value) * POW10[precision];
+    if (scaled >= MAX_EXACT_MANTISSA)
+      return formatDouble(value, b, offset);
+
+    long mantissa = Math.round(scaled);
+    int digits = precision;
+
+    while (digits > 0 && mantissa % 10 == 0) {
+      mantissa /= 10;
+      digits--;
+    }
+
+    return writeFixed(value < 0 && mantissa != 0, mantissa, digits, b, offset);
+  }
+
+  //
+  // Private methods
+  //
+
+  private static int formatSpecial(final double value, final char[] b,
+      final int offset) {
+
+    if (Double.isNaN(value))
+      return copy(NAN, b, offset);
+
+    if (Double.isInfinite(value))
+      return copy(value > 0 ? INFINITY : NEGATIVE_INFINITY, b, offset);
+
+    int pos = offset;
+
+    if (Double.doubleToRawLongBits(value) < 0)
+      b[pos++] = '-';
+    b[pos++] = '0';
+    b[pos++] = '.';
+    b[pos++] = '0';
+
+    return pos;
+  }
+
+  private static int writeFixed(final boolean negative, final long mantissa,
+      final int digits, final char[] b, final int offset) {
+
+    int pos = offset;
+
+    if (negative)
+      b[pos++] = '-';
+
+    final long pow = LONG_POW10[digits];
+    pos = writeDigits(mantissa / pow, b, pos);
+    b[pos++] = '.';
+
+    if (digits == 0) {
+      b[pos++] = '0';
+      return pos;
+    }
+
+    // Fraction with leading zeros
+    long fraction = mantissa % pow;
+    final int end = pos + digits;
+    for (int i = end - 1; i >= pos; i--) {
+      b[i] = (char) ('0' + fraction % 10);
+      fraction /= 10;
+    }
+
+    return end;
+  }
+
+  private static int writeDigits(final long value, final char[] b,
+      final int offset) {
+
+    int len = 1;
+    while (len < LONG_POW10.length && value >= LONG_POW10[len])
+      len++;
+
+    long v = value;
+    final int end = offset + len;
+    for (int i = end - 1; i >= offset; i--) {
+      b[i] = (char) ('0' + v % 10);
+      v /= 10;
+    }
+
+    return end;
+  }
+
+  private static int copy(final char[] chars, final char[] b,
+      final int offset) {
+
+    System.arraycopy(chars, 0, b, offset, chars.length);
+
+    return offset + chars.length;
+  }
+
+  private static int copy(final String s, final char[] b, final int offset) {
+
+    final int len = s.length();
+    s.getChars(0, len, b, offset);
+
+    return offset + len;
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Private constructor.
+   */
+  private NumberFormatter() {
+  }
+
+}
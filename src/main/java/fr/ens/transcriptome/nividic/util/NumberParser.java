@@ -0,0 +1,403 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.util;
+
+/**
+ * Some static methods to parse numbers from ranges of arrays of chars or
+ * bytes without creating any object.
+ * @author Laurent Jourdren
+ */
+public final class NumberParser {
+
+  private static final long INT_LIMIT = 1L + Integer.MAX_VALUE;
+  private static final int MAX_DIGITS = 18;
+  private static final int MAX_EXPONENT = 100000;
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final int MAX_EXACT_POW10 = 22;
+  private static final String INFINITY = "Infinity";
+
+  private static final double[] POW10 = new double[MAX_EXACT_POW10 + 1];
+
+  static {
+
+    POW10[0] = 1.0;
+    for (int i = 1; i < POW10.length; i++)
+      POW10[i] = POW10[i - 1] * 10.0;
+  }
+
+  //
+  // Arrays of chars
+  //
+
+  /**
+   * Parse an integer from a range of chars. The spaces around the value are
+   * ignored.
+   * @param b array of chars
+   * @param start index of the first char
+   * @param end index after the last char
+   * @param defaultValue value returned if the range does not contain a valid
+   *          integer
+   * @return the integer value or defaultValue
+   */
+  public static int parseInt(final char[] b, final int start, final int end,
+      final int defaultValue) {
+
+    return parseIntValue(b, null, start, end, defaultValue);
+  }
+
+  /**
+   * Parse a double from a range of chars. The spaces around the value are
+   * ignored. The result is the same as the result of Double.parseDouble() but
+   * NaN is returned for invalid values. The common values are parsed without
+   * creating any object.
+   * @param b array of chars
+   * @param start index of the first char
+   * @param end index after the last char
+   * @param comma true if the comma is also a decimal separator
+   * @return the double value or NaN if the range does not contain a valid
+   *         double
+   */
+  public static double parseDouble(final char[] b, final int start,
+      final int end, final boolean comma) {
+
+    return parseDoubleValue(b, null, start, end, comma);
+  }
+
+  //
+  // Arrays of bytes
+  //
+
+  /**
+   * Parse an integer from a range of bytes. The spaces around the value are
+   * ignored.
+   * @param b array of bytes
+   * @param start index of the first byte
+   * @param end index after the last byte
+   * @param defaultValue value returned if the range does not contain a valid
+   *          integer
+   * @return the integer value or defaultValue
+   */
+  public static int parseInt(final byte[] b, final int start, final int end,
+      final int defaultValue) {
+
+    return parseIntValue(null, b, start, end, defaultValue);
+  }
+
+  /**
+   * Parse a double from a range of bytes. The spaces around the value are
+   * ignored. The result is the same as the result of Double.parseDouble() but
+   * NaN is returned for invalid values. The common values are parsed without
+   * creating any object.
+   * @param b array of bytes
+   * @param start index of the first byte
+   * @param end index after the last byte
+   * @param comma true if the comma is also a decimal separator
+   * @return the double value or NaN if the range does not contain a valid
+   *         double
+   */
+  public static double parseDouble(final byte[] b, final int start,
+      final int end, final boolean comma) {
+
+    return parseDoubleValue(null, b, start, end, comma);
+  }
+
+  //
+  // Parsing
+  //
+
+  /**
+   * Get a char of an array of chars or of an array of bytes. The bytes are
+   * decoded as ISO-8859-1 chars.
+   * @param cb array of chars or null
+   * @param bb array of bytes, used if cb is null
+   * @param i index of the char
+   * @return the char
+   */
+  private static int charAt(final char[] cb, final byte[] bb, final int i) {
+
+    return cb != null ? cb[i] : bb[i] & 0xff;
+  }
+
+  /**
+   * Parse an integer from a range of an array of chars or bytes.
+   * @param cb array of chars or null
+   * @param bb array of bytes, used if cb is null
+   * @param start index of the first char
+   * @param end index after the last char
+   * @param defaultValue value returned if the range does not contain a valid
+   *          integer
+   * @return the integer value or defaultValue
+   */
+  private static int parseIntValue(final char[] cb, final byte[] bb,
+      final int start, final int end, final int defaultValue) {
+
+    int i = start;
+    int e = end;
+
+    while (i < e && charAt(cb, bb, i) <= ' ')
+      i++;
+    while (e > i && charAt(cb, bb, e - 1) <= ' ')
+      e--;
+
+    if (i == e)
+      return defaultValue;
+
+    final int sign = charAt(cb, bb, i);
+    final boolean negative = sign == '-';
+    if (negative || sign == '+')
+      if (++i == e)
+        return defaultValue;
+
+    long result = 0;
+
+    for (; i < e; i++) {
+
+      final int digit = charAt(cb, bb, i) - '0';
+
+      if (digit < 0 || digit > 9)
+        return defaultValue;
+
+      result = result * 10 + digit;
+
+      if (result > INT_LIMIT)
+        return defaultValue;
+    }
+
+    if (negative)
+      return (int) -result;
+
+    return result > Integer.MAX_VALUE ? defaultValue : (int) result;
+  }
+
+  /**
+   * Parse a double from a range of an array of chars or bytes.
+   * @param cb array of chars or null
+   * @param bb array of bytes, used if cb is null
+   * @param start index of the first char
+   * @param end index after the last char
+   * @param comma true if the comma is also a decimal separator
+   * @return the double value or NaN if the range does not contain a valid
+   *         double
+   */
+  private static double parseDoubleValue(final char[] cb, final byte[] bb,
+      final int start, final int end, final boolean comma) {
+
+    int i = start;
+    int e = end;
+
+    while (i < e && charAt(cb, bb, i) <= ' ')
+      i++;
+    while (e > i && charAt(cb, bb, e - 1) <= ' ')
+      e--;
+
+    if (i == e)
+      return Double.NaN;
+
+    int p = i;
+    final int sign = charAt(cb, bb, p);
+    final boolean negative = sign == '-';
+    final boolean signed = negative || sign == '+';
+    if (signed)
+      p++;
+
+    long mantissa = 0;
+    int digits = 0;
+    int dropped = 0;
+    int fraction = 0;
+    boolean anyDigit = false;
+    boolean point = false;
+    boolean inexact = false;
+
+    for (; p < e; p++) {
+
+      final int c = charAt(cb, bb, p);
+
+      if (c >= '0' && c <= '9') {
+
+        anyDigit = true;
+
+        if (digits < MAX_DIGITS) {
+
+          // Leading zeros are not significant
+          if (mantissa != 0 || c != '0') {
+            mantissa = mantissa * 10 + (c - '0');
+            digits++;
+          }
+          if (point)
+            fraction++;
+        } else {
+
+          if (c != '0')
+            inexact = true;
+          if (!point)
+            dropped++;
+        }
+      } else if (!point && (c == '.' || (comma && c == ',')))
+        point = true;
+      else
+        break;
+    }
+
+    if (!anyDigit)
+      return parseSpecial(cb, bb, i, e);
+
+    int exp = 0;
+    int c = p < e ? charAt(cb, bb, p) : -1;
+
+    if (c == 'e' || c == 'E') {
+
+      if (++p == e)
+        return Double.NaN;
+
+      c = charAt(cb, bb, p);
+      final boolean negativeExp = c == '-';
+      if (negativeExp || c == '+')
+        if (++p == e)
+          return Double.NaN;
+
+      final int expStart = p;
+
+      for (; p < e; p++) {
+
+        final int digit = charAt(cb, bb, p) - '0';
+
+        if (digit < 0 || digit > 9)
+          break;
+        if (exp < MAX_EXPONENT)
+          exp = exp * 10 + digit;
+      }
+
+      if (p == expStart)
+        return Double.NaN;
+
+      if (negativeExp)
+        exp = -exp;
+    }
+
+    if (p != e) {
+
+      c = charAt(cb, bb, p);
+
+      // Hexadecimal values are parsed by the JDK
+      if (p == i + 1 + (signed ? 1 : 0) && (c == 'x' || c == 'X')
+          && mantissa == 0)
+        return parseWithJDK(cb, bb, i, e, comma);
+
+      // Java type suffixes are allowed by Double.parseDouble()
+      if (p != e - 1 || !(c == 'd' || c == 'D' || c == 'f' || c == 'F'))
+        return Double.NaN;
+    }
+
+    if (mantissa == 0)
+      return negative ? -0.0 : 0.0;
+
+    final int exp10 = exp + dropped - fraction;
+
+    if (inexact || mantissa > MAX_EXACT_MANTISSA
+        || exp10 < -MAX_EXACT_POW10 || exp10 > MAX_EXACT_POW10)
+      return parseWithJDK(cb, bb, i, e, comma);
+
+    // Both values are exact, so the result is correctly rounded
+    final double value =
+        exp10 < 0 ? mantissa / POW10[-exp10] : mantissa * POW10[exp10];
+
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parse the special values NaN and Infinity.
+   * @param cb array of chars or null
+   * @param bb array of bytes, used if cb is null
+   * @param start index of the first char
+   * @param end index after the last char
+   * @return the double value or NaN if the range does not contain a special
+   *         value
+   */
+  private static double parseSpecial(final char[] cb, final byte[] bb,
+      final int start, final int end) {
+
+    int i = start;
+    final int sign = charAt(cb, bb, i);
+    final boolean negative = sign == '-';
+    if (negative || sign == '+')
+      i++;
+
+    if (matches(cb, bb, i, end, INFINITY))
+      return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+
+    return Double.NaN;
+  }
+
+  private static boolean matches(final char[] cb, final byte[] bb,
+      final int start, final int end, final String s) {
+
+    final int len = s.length();
+
+    if (end - start != len)
+      return false;
+
+    for (int i = 0; i < len; i++)
+      if (charAt(cb, bb, start + i) != s.charAt(i))
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Parse a double with Double.parseDouble(). This method is only used for
+   * the values that cannot be exactly computed with doubles.
+   * @param cb array of chars or null
+   * @param bb array of bytes, used if cb is null
+   * @param start index of the first char
+   * @param end index after the last char
+   * @param comma true if the comma is also a decimal separator
+   * @return the double value or NaN if the value is invalid
+   */
+  private static double parseWithJDK(final char[] cb, final byte[] bb,
+      final int start, final int end, final boolean comma) {
+
+    final char[] chars = new char[end - start];
+
+    for (int i = 0; i < chars.length; i++) {
+      final char c = (char) charAt(cb, bb, start + i);
+      chars[i] = comma && c == ',' ? '.' : c;
+    }
+
+    try {
+      return Double.parseDouble(new String(chars));
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Private constructor.
+   */
+  private NumberParser() {
+  }
+
+}
@@ -0,0 +1,260 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
+
+/**
+ * Utility class to run array computations in chunks on a shared thread pool.
+ * @author Laurent Jourdren
+ */
+public final class ParallelUtils {
+
+  /** Default minimal number of elements processed by a chunk. */
+  public static final int DEFAULT_MIN_CHUNK_SIZE = 50000;
+
+  private static final String THREAD_NAME_PREFIX = "nividic-worker-";
+
+  private static int threadCount = Runtime.getRuntime().availableProcessors();
+  private static ExecutorService executor;
+
+  private static final ThreadLocal<Boolean> WORKER_THREAD =
+      new ThreadLocal<Boolean>();
+
+  /**
+   * This interface define a task that process a range of an array.
+   */
+  public interface RangeTask {
+
+    /**
+     * Process a range of elements.
+     * @param from first index of the range (inclusive)
+     * @param to last index of the range (exclusive)
+     */
+    void run(int from, int to);
+  }
+
+  //
+  // Getters
+  //
+
+  /**
+   * Get the number of threads used for parallel computations.
+   * @return the number of threads
+   */
+  public static int getThreadCount() {
+    return threadCount;
+  }
+
+  /**
+   * Get the shared executor. The executor is created at the first call.
+   * @return the shared executor
+   */
+  public static synchronized ExecutorService getExecutor() {
+
+    if (executor == null) {
+
+      final int count = threadCount;
+
+      executor = Executors.newFixedThreadPool(count, new ThreadFactory() {
+
+        private int n;
+
+        public Thread newThread(final Runnable r) {
+
+          final Thread t = new Thread(new Runnable() {
+
+            public void run() {
+
+              WORKER_THREAD.set(Boolean.TRUE);
+              r.run();
+            }
+          }, THREAD_NAME_PREFIX + (++n));
+          t.setDaemon(true);
+
+          return t;
+        }
+      });
+    }
+
+    return executor;
+  }
+
+  /**
+   * Test if the current thread is a thread of the shared executor.
+   * @return true if the current thread is a worker thread
+   */
+  public static boolean isWorkerThread() {
+
+    return WORKER_THREAD.get() != null;
+  }
+
+  //
+  // Setters
+  //
+
+  /**
+   * Set the number of threads used for parallel computations. The current
+   * shared executor is shutdown and a new one will be created at the next
+   * call of getExecutor().
+   * @param count The number of threads
+   */
+  public static synchronized void setThreadCount(final int count) {
+
+    if (count < 1)
+      throw new NividicRuntimeException(
+          NividicRuntimeException.INVALID_ARGUMENT, "thread count: " + count);
+
+    if (count == threadCount)
+      return;
+
+    threadCount = count;
+
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  //
+  // Other methods
+  //
+
+  /**
+   * Process the range [0, size[ in chunks. If the size is lower than two
+   * minimal chunks, if only one thread is available or if the method is called
+   * from a worker thread, the task is executed in the current thread.
+   * @param size Number of elements to process
+   * @param minChunkSize minimal number of elements processed by a chunk
+   * @param task Task to execute on each chunk
+   */
+  public static void forEachChunk(final int size, final int minChunkSize,
+      final RangeTask task) {
+
+    if (task == null)
+      throw new NividicRuntimeException(NividicRuntimeException.NULL_POINTER,
+          "task");
+
+    if (size <= 0)
+      return;
+
+    final int minChunk = Math.max(1, minChunkSize);
+    final int chunks = Math.min(getThreadCount(), size / minChunk);
+
+    if (chunks < 2 || isWorkerThread()) {
+      task.run(0, size);
+      return;
+    }
+
+    final int chunkSize = (size + chunks - 1) / chunks;
+    final List<Future<?>> futures = new ArrayList<Future<?>>(chunks);
+    final ExecutorService es = getExecutor();
+
+    for (int from = chunkSize; from < size; from += chunkSize) {
+
+      final int start = from;
+      final int end = Math.min(size, from + chunkSize);
+
+      futures.add(es.submit(new Runnable() {
+
+        public void run() {
+          task.run(start, end);
+        }
+      }));
+    }
+
+    // The first chunk is processed by the current thread
+    task.run(0, Math.min(size, chunkSize));
+
+    waitAll(futures);
+  }
+
+  /**
+   * Wait the end of tasks. If a task has thrown an exception, it is rethrown
+   * in the current thread.
+   * @param futures futures of the tasks to wait
+   */
+  public static void waitAll(final List<? extends Future<?>> futures) {
+
+    if (futures == null)
+      return;
+
+    RuntimeException exception = null;
+
+    for (Future<?> f : futures)
+      try {
+        f.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (exception == null)
+          exception = new NividicRuntimeException("Interrupted computation");
+      } catch (ExecutionException e) {
+        if (exception == null)
+          exception = unwrap(e);
+      }
+
+    if (exception != null)
+      throw exception;
+  }
+
+  /**
+   * Get a runtime exception from an ExecutionException.
+   * @param e Exception to unwrap
+   * @return a runtime exception
+   */
+  private static RuntimeException unwrap(final ExecutionException e) {
+
+    final Throwable cause = e.getCause();
+
+    if (cause instanceof RuntimeException)
+      return (RuntimeException) cause;
+    if (cause instanceof Error)
+      throw (Error) cause;
+
+    final NividicRuntimeException result =
+        new NividicRuntimeException("Error in parallel computation: "
+            + (cause == null ? e.getMessage() : cause.getMessage()));
+    result.initCause(cause);
+
+    return result;
+  }
+
+  //
+  // Constructor
+  //
+
+  /**
+   * Private constructor.
+   */
+  private ParallelUtils() {
+  }
+
+}
@@ -22,6 +22,7 @@
 
 package fr.ens.transcriptome.nividic.om;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -405,6 +406,150 @@ public class BioAssayBaseTest extends TestCase {
 
   }
 
+  public void testEncodedStringField() {
+
+    StringDictionary dictionary = new StringDictionary();
+
+    BioAssay a = getNewBioAssayBase();
+    BioAssay b = getNewBioAssayBase();
+
+    a.setIds(ids2);
+    a.encodeDataFieldString(BioAssay.FIELD_NAME_ID, dictionary);
+    b.setDataFieldEncodedString(BioAssay.FIELD_NAME_ID, dictionary
+        .encode(ids2), dictionary);
+
+    assertTrue(a.isDataFieldStringEncoded(BioAssay.FIELD_NAME_ID));
+    assertEquals(BioAssayBase.DATATYPE_STRING, a
+        .getFieldType(BioAssay.FIELD_NAME_ID));
+    assertSame(dictionary, a.getDataFieldStringDictionary(BioAssay.FIELD_NAME_ID));
+    assertEquals(4, dictionary.size());
+    assertTrue(Arrays.equals(ids2, a.getIds()));
+
+    int[] codes = a.getDataFieldStringCodes(BioAssay.FIELD_NAME_ID);
+    assertEquals(codes[1], codes[3]);
+    assertTrue(Arrays.equals(codes, b
+        .getDataFieldStringCodes(BioAssay.FIELD_NAME_ID)));
+
+    a.setLocations(int1);
+    b.setLocations(int1);
+    assertTrue(BioAssayUtils.equalsIdsAndLocations(a, b));
+
+    BioAssay c = (BioAssay) a.copy();
+    assertTrue(c.isDataFieldStringEncoded(BioAssay.FIELD_NAME_ID));
+
+    a.renameField(BioAssay.FIELD_NAME_ID, "newIds");
+    assertTrue(a.isDataFieldStringEncoded("newIds"));
+    assertTrue(Arrays.equals(ids2, a.getDataFieldString("newIds")));
+
+    a.setDataFieldString("newIds", ids1);
+    assertFalse(a.isDataFieldStringEncoded("newIds"));
+    assertNull(a.getDataFieldStringCodes("newIds"));
+    assertTrue(Arrays.equals(ids1, a.getDataFieldString("newIds")));
+  }
+
+  public void testFieldValues() {
+
+    BioAssay b = getNewBioAssayBase();
+    b.setDataFieldInt("a", int1.clone());
+    b.setDataFieldString("b", ids1.clone());
+    b.setLocations(int2.clone());
+    b.compactDataFieldInt("a");
+    b.encodeDataFieldString("b", new StringDictionary());
+
+    assertEquals(int1[3], b.getDataFieldIntValue("a", 3));
+    assertEquals(ids1[3], b.getDataFieldStringValue("b", 3));
+
+    // The getters of compact and encoded fields return copies
+    b.getDataFieldInt("a")[0] = -1;
+    b.getDataFieldString("b")[0] = "x";
+    assertEquals(int1[0], b.getDataFieldIntValue("a", 0));
+    assertEquals(ids1[0], b.getDataFieldStringValue("b", 0));
+
+    // The setters write the values back
+    b.setDataFieldIntValue("a", 0, -1);
+    b.setDataFieldStringValue("b", 0, "x");
+    assertFalse(b.isDataFieldIntCompact("a"));
+    assertFalse(b.isDataFieldStringEncoded("b"));
+    assertEquals(-1, b.getDataFieldInt("a")[0]);
+    assertEquals("x", b.getDataFieldString("b")[0]);
+
+    // The index of the locations is updated
+    b.setDataFieldIntValue(BioAssay.FIELD_NAME_LOCATION, 1, 7);
+    assertEquals(1, b.getIndexFromALocation(7));
+    assertEquals(-1, b.getIndexFromALocation(int2[1]));
+
+    try {
+      b.getDataFieldIntValue("a", int1.length);
+      fail();
+    } catch (BioAssayRuntimeException e) {
+      assertTrue(true);
+    }
+
+    try {
+      b.setDataFieldStringValue("c", 0, "x");
+      fail();
+    } catch (BioAssayRuntimeException e) {
+      assertTrue(true);
+    }
+  }
+
+  public void testArrayLayout() {
+
+    ArrayLayout layout = ArrayLayout.getSharedLayout(ids1, int1, null);
+    assertSame(layout, ArrayLayout.getSharedLayout(ids1.clone(), int1.clone(),
+        null));
+
+    BioAssay a = getNewBioAssayBase();
+    a.setArrayLayout(layout);
+    assertSame(layout.getIdCodes(), a
+        .getDataFieldStringCodes(BioAssay.FIELD_NAME_ID));
+
+    // The BioAssay keeps private copies of the fields of the layout
+    a.setArrayLayout(null);
+    assertTrue(Arrays.equals(ids1, a.getIds()));
+    assertTrue(Arrays.equals(int1, a.getLocations()));
+    assertNotSame(layout.getLocations(), a.getLocations());
+    assertNotSame(layout.getIdCodes(), a
+        .getDataFieldStringCodes(BioAssay.FIELD_NAME_ID));
+    assertEquals(2, a.getIndexFromALocation(int1[2]));
+
+    // The registry is searched whatever the dictionary of the identifiers
+    assertSame(layout, ArrayLayout.getSharedLayout(ids1, int1,
+        new StringDictionary()));
+
+    // A layout with other identifiers is rejected
+    BioAssay b = getNewBioAssayBase();
+    b.setIds(ids2);
+    b.setLocations(int1);
+    try {
+      b.setArrayLayout(layout);
+      fail();
+    } catch (BioAssayRuntimeException e) {
+      assertNull(b.getArrayLayout());
+      assertTrue(Arrays.equals(ids2, b.getIds()));
+    }
+
+    // The layout is still protected after a failed replacement
+    a.setArrayLayout(layout);
+    try {
+      a.setArrayLayout(ArrayLayout.getSharedLayout(new String[] {"id1"},
+          new int[] {1}, null));
+      fail();
+    } catch (BioAssayRuntimeException e) {
+      assertSame(layout, a.getArrayLayout());
+      a.getLocations()[0] = -1;
+      assertEquals(int1[0], layout.getLocations()[0]);
+    }
+    a.setArrayLayout(null);
+
+    // The registry does not prevent unused layouts to be collected
+    WeakReference<ArrayLayout> ref = new WeakReference<ArrayLayout>(layout);
+    layout = null;
+    for (int i = 0; i < 100 && ref.get() != null; i++)
+      System.gc();
+    assertNull(ref.get());
+  }
+
   private static void addToArrayList(final ArrayIntList list, final int[] array) {
 
     if (list == null || array == null)
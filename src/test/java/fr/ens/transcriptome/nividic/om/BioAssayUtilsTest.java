@@ -0,0 +1,109 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
+
+/**
+ * @author Laurent Jourdren
+ */
+public class BioAssayUtilsTest extends TestCase {
+
+  private static final double DELTA = 1e-12;
+
+  private static double log2(final double d) {
+    return Math.log(d) / Math.log(2);
+  }
+
+  public void testCalcMA() {
+
+    int[] reds = {100, 2000, 0, 512, 0, -5};
+    int[] greens = {400, 1000, 10, 0, 0, 20};
+
+    BioAssay b = BioAssayFactory.createBioAssay();
+    b.setReds(reds);
+    b.setGreens(greens);
+    BioAssayUtils.calcMA(b);
+
+    double[] ms = b.getMs();
+    double[] as = b.getAs();
+
+    assertEquals(-2.0, ms[0], DELTA);
+    assertEquals(log2(200), as[0], DELTA);
+    assertEquals(1.0, ms[1], DELTA);
+    assertEquals(log2(Math.sqrt(2000000)), as[1], DELTA);
+    assertEquals(Double.NEGATIVE_INFINITY, ms[2], 0);
+    assertEquals(Double.NEGATIVE_INFINITY, as[2], 0);
+    assertEquals(Double.POSITIVE_INFINITY, ms[3], 0);
+    assertTrue(Double.isNaN(ms[4]));
+    assertTrue(Double.isNaN(ms[5]));
+    assertTrue(Double.isNaN(as[5]));
+  }
+
+  public void testCalcMAParallel() {
+
+    final int size = ParallelUtils.DEFAULT_MIN_CHUNK_SIZE * 4 + 17;
+    final Random r = new Random(1);
+
+    int[] reds = new int[size];
+    int[] greens = new int[size];
+
+    for (int i = 0; i < size; i++) {
+      reds[i] = r.nextInt(65535) + 1;
+      greens[i] = r.nextInt(65535) + 1;
+    }
+
+    double[] ms = new double[size];
+    double[] as = new double[size];
+    double[] ratios = new double[size];
+
+    BioAssayUtils.calcMA(reds, greens, ms, as);
+    BioAssayUtils.calcRatio(reds, greens, ratios);
+
+    for (int i = 0; i < size; i++) {
+      assertEquals(BioAssayUtils.calcM(reds[i], greens[i]), ms[i], 0);
+      assertEquals(BioAssayUtils.calcA(reds[i], greens[i]), as[i], 0);
+      assertEquals(log2((double) reds[i] / greens[i]), ms[i], DELTA);
+      assertEquals((double) reds[i] / greens[i], ratios[i], 0);
+    }
+
+    BioAssayUtils.swap(ms);
+    for (int i = 0; i < size; i++)
+      assertEquals(-BioAssayUtils.calcM(reds[i], greens[i]), ms[i], 0);
+  }
+
+  public void testCalcMAInvalidArguments() {
+
+    try {
+      BioAssayUtils.calcMA(new int[2], new int[3], new double[2],
+          new double[2]);
+      assertTrue(false);
+    } catch (RuntimeException e) {
+      assertTrue(true);
+    }
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Laurent Jourdren
+ */
+public class CompactIntArrayTest extends TestCase {
+
+  private void testValues(final int[] values, final int width) {
+
+    CompactIntArray cia = CompactIntArray.valueOf(values);
+
+    assertEquals(width, cia.getWidth());
+    assertEquals(values.length, cia.size());
+    assertTrue(Arrays.equals(values, cia.toArray()));
+
+    long sum = 0;
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(values[i], cia.get(i));
+      sum += values[i];
+    }
+    assertEquals(sum, cia.sum());
+  }
+
+  public void testWidth() {
+
+    testValues(new int[] {0, 255, 12, 0}, CompactIntArray.WIDTH_BYTE);
+    testValues(new int[] {-100, -75, -50, 0, 100}, CompactIntArray.WIDTH_BYTE);
+    testValues(new int[] {0, 65535, 1200}, CompactIntArray.WIDTH_CHAR);
+    testValues(new int[] {-30000, 35535}, CompactIntArray.WIDTH_CHAR);
+    testValues(new int[] {0, 65536}, CompactIntArray.WIDTH_INT);
+    testValues(new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE},
+        CompactIntArray.WIDTH_INT);
+    testValues(new int[0], CompactIntArray.WIDTH_BYTE);
+  }
+
+  public void testScans() {
+
+    int[] values = {-100, 0, 100, -50, 0, 0, 65000};
+    CompactIntArray cia = CompactIntArray.valueOf(values);
+
+    assertEquals(-100, cia.getMin());
+    assertEquals(65000, cia.getMax());
+    assertEquals(3, cia.countInRange(0, 0));
+    assertEquals(2, cia.countInRange(-100, -1));
+    assertEquals(7, cia.countInRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    assertEquals(0, cia.countInRange(70000, 80000));
+    assertTrue(Arrays.equals(new int[] {0, 3}, cia.indexesInRange(
+        Integer.MIN_VALUE, -1)));
+    assertTrue(Arrays.equals(new int[] {2, 6}, cia.indexesInRange(1,
+        Integer.MAX_VALUE)));
+
+    CompactIntArray selected = cia.select(new int[] {6, 2, 1});
+    assertTrue(Arrays.equals(new int[] {65000, 100, 0}, selected.toArray()));
+    assertEquals(0, selected.getMin());
+    assertEquals(65000, selected.getMax());
+  }
+
+  public void testBioAssayField() {
+
+    BioAssay b = BioAssayFactory.createBioAssay();
+    int[] reds = {100, 65535, 2000, 0};
+    int[] flags = {0, -50, 0, -100};
+
+    b.setReds(reds);
+    b.setFlags(flags);
+    b.compactDataFieldInt(BioAssay.FIELD_NAME_RED);
+    b.compactDataFieldInt(BioAssay.FIELD_NAME_FLAG);
+
+    assertTrue(b.isDataFieldIntCompact(BioAssay.FIELD_NAME_RED));
+    assertEquals(CompactIntArray.WIDTH_CHAR, b.getDataFieldCompactInt(
+        BioAssay.FIELD_NAME_RED).getWidth());
+    assertEquals(CompactIntArray.WIDTH_BYTE, b.getDataFieldCompactInt(
+        BioAssay.FIELD_NAME_FLAG).getWidth());
+    assertEquals(BioAssay.DATATYPE_INTEGER, b
+        .getFieldType(BioAssay.FIELD_NAME_RED));
+    assertTrue(Arrays.equals(reds, b.getReds()));
+    assertTrue(Arrays.equals(flags, b.getFlags()));
+
+    BioAssay c = (BioAssay) b.copy();
+    assertTrue(c.isDataFieldIntCompact(BioAssay.FIELD_NAME_RED));
+    assertTrue(Arrays.equals(reds, c.getReds()));
+
+    b.renameField(BioAssay.FIELD_NAME_RED, "r");
+    assertTrue(b.isDataFieldIntCompact("r"));
+    assertTrue(Arrays.equals(reds, b.getDataFieldInt("r")));
+
+    b.setDataFieldInt("r", flags);
+    assertFalse(b.isDataFieldIntCompact("r"));
+    assertTrue(Arrays.equals(flags, b.getDataFieldInt("r")));
+  }
+
+}
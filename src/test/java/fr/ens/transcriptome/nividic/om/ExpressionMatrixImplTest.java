@@ -292,6 +292,54 @@ public class ExpressionMatrixImplTest extends TestCase {
     }
   }
 
+  public void testAddRows() {
+
+    ExpressionMatrixImpl em = new ExpressionMatrixImpl();
+    em.addDimension("A");
+
+    BioAssay b1 = makeBioAssay(ids1, double1);
+    b1.setName("b1");
+    em.addBioAssay(b1);
+
+    em.addRows(new String[] {"id10", "id11", "id12"});
+
+    assertEquals(ids1.length + 3, em.getRowCount());
+    assertEquals(ids1.length + 3, em.getDimension("A").getRowCount());
+    assertTrue(Double.isNaN(em.getDefaultDimension().getValue("id11", "b1")));
+    assertEquals(1.1, em.getDefaultDimension().getValue("id1", "b1"), 0.0);
+
+    em.getDefaultDimension().setValues(new String[] {"id12", "id10"}, "b1",
+        new double[] {12.0, 10.0});
+    assertEquals(10.0, em.getDefaultDimension().getValue("id10", "b1"), 0.0);
+    assertEquals(12.0, em.getDefaultDimension().getValue("id12", "b1"), 0.0);
+
+    // The internal indexes of the rows are valid for all the dimensions
+    final int[] rows =
+        em.getDefaultDimension().getRowIndexes(new String[] {"id11", "id1"});
+    em.getDimension("A").setValues(rows, "b1", new double[] {11.0, 1.0});
+    assertEquals(11.0, em.getDimension("A").getValue("id11", "b1"), 0.0);
+    assertEquals(1.0, em.getDimension("A").getValue("id1", "b1"), 0.0);
+
+    try {
+      em.addRows(new String[] {"id13", "id14", "id13"});
+      fail();
+    } catch (ExpressionMatrixRuntimeException e) {
+      assertFalse(em.containsRow("id13"));
+      assertFalse(em.containsRow("id14"));
+    }
+
+    try {
+      em.addRows(new String[] {"id15", "id1"});
+      fail();
+    } catch (ExpressionMatrixRuntimeException e) {
+      assertFalse(em.containsRow("id15"));
+    }
+
+    em.addRow("id16");
+    assertEquals(ids1.length + 4, em.getRowCount());
+    assertTrue(Double.isNaN(em.getDefaultDimension().getValue("id16", "b1")));
+  }
+
   public void testAddAndRemoveBioAssay() {
 
     ExpressionMatrixImpl em = new ExpressionMatrixImpl();
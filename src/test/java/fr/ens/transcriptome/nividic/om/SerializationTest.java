@@ -22,6 +22,8 @@
 
 package fr.ens.transcriptome.nividic.om;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -30,6 +32,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Arrays;
 
 import fr.ens.transcriptome.nividic.om.io.GPRReader;
 import fr.ens.transcriptome.nividic.om.io.NividicIOException;
@@ -81,6 +84,77 @@ public class SerializationTest extends TestCase {
     f.delete();
   }
 
+  private static Object roundTrip(final Object o) throws IOException,
+      ClassNotFoundException {
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(baos);
+    oos.writeObject(o);
+    oos.close();
+
+    ObjectInputStream ois =
+        new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+    Object result = ois.readObject();
+    ois.close();
+
+    return result;
+  }
+
+  public void testBioAssayContent() throws IOException,
+      ClassNotFoundException, NividicIOException {
+
+    InputStream is = this.getClass().getResourceAsStream("/files/testGPR3.gpr");
+    GPRReader gprr = new GPRReader(is);
+    gprr.setStringDictionary(new StringDictionary());
+    gprr.setCompactIntFields(true);
+    BioAssay b = gprr.read();
+
+    BioAssay copy = (BioAssay) roundTrip(b);
+
+    assertEquals(b.size(), copy.size());
+    assertTrue(Arrays.equals(b.getFields(), copy.getFields()));
+    assertTrue(copy.isDataFieldStringEncoded(BioAssay.FIELD_NAME_ID));
+    assertTrue(copy.isDataFieldIntCompact(BioAssay.FIELD_NAME_FLAG));
+    assertTrue(Arrays.equals(b.getIds(), copy.getIds()));
+    assertTrue(Arrays.equals(b.getReds(), copy.getReds()));
+    assertTrue(Arrays.equals(b.getFlags(), copy.getFlags()));
+    assertEquals(b.getDataFieldStringDictionary(BioAssay.FIELD_NAME_ID)
+        .size(), copy.getDataFieldStringDictionary(BioAssay.FIELD_NAME_ID)
+        .size());
+
+    int[] locations = copy.getLocations();
+    assertTrue(Arrays.equals(b.getLocations(), locations));
+    for (int i = 0; i < locations.length; i += 101)
+      assertEquals(b.getIndexFromALocation(locations[i]), copy
+          .getIndexFromALocation(locations[i]));
+  }
+
+  public void testExpressionMatrixContent() throws IOException,
+      ClassNotFoundException, NividicIOException {
+
+    InputStream is =
+        this.getClass().getResourceAsStream("/files/PDR1gal_ctrred.txt");
+    SimpleExpressionMatrixReader reader = new SimpleExpressionMatrixReader(is);
+    ExpressionMatrix matrix = reader.read();
+
+    ExpressionMatrix copy = (ExpressionMatrix) roundTrip(matrix);
+
+    assertTrue(Arrays.equals(matrix.getRowNames(), copy.getRowNames()));
+    assertTrue(Arrays.equals(matrix.getColumnNames(), copy.getColumnNames()));
+
+    double[][] values = matrix.getDefaultDimension().getValues();
+    double[][] copyValues = copy.getDefaultDimension().getValues();
+    assertEquals(values.length, copyValues.length);
+    for (int i = 0; i < values.length; i++)
+      assertTrue(Arrays.equals(values[i], copyValues[i]));
+
+    // The copy can grow
+    copy.addRow("newRow");
+    assertEquals(matrix.getRowCount() + 1, copy.getRowCount());
+    assertTrue(Double.isNaN(copy.getDefaultDimension().getValue("newRow",
+        copy.getColumnNames()[0])));
+  }
+
   public void testExpressionMatrix() throws FileNotFoundException, IOException,
       ClassNotFoundException, NividicIOException {
 
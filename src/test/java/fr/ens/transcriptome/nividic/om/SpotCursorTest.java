@@ -0,0 +1,141 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om;
+
+import junit.framework.TestCase;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
+
+/**
+ * @author Laurent Jourdren
+ */
+public class SpotCursorTest extends TestCase {
+
+  private BioAssay createBioAssay(final int size) {
+
+    BioAssay b = BioAssayFactory.createBioAssay();
+
+    String[] ids = new String[size];
+    int[] reds = new int[size];
+    double[] ms = new double[size];
+
+    for (int i = 0; i < size; i++) {
+      ids[i] = "id" + (i % 10);
+      reds[i] = i;
+      ms[i] = i / 2.0;
+    }
+
+    b.setIds(ids);
+    b.setReds(reds);
+    b.setMs(ms);
+
+    return b;
+  }
+
+  public void testCursor() {
+
+    BioAssay b = createBioAssay(100);
+    b.encodeDataFieldString(BioAssay.FIELD_NAME_ID, new StringDictionary());
+    b.compactDataFieldInt(BioAssay.FIELD_NAME_RED);
+
+    SpotCursor c = b.cursor();
+    SpotCursor.IntColumn reds = c.bindInt(BioAssay.FIELD_NAME_RED);
+    SpotCursor.DoubleColumn ms = c.bindDouble(BioAssay.FIELD_NAME_M);
+    SpotCursor.StringColumn ids = c.bindString(BioAssay.FIELD_NAME_ID);
+
+    assertTrue(ids.isEncoded());
+    assertEquals(100, c.remaining());
+
+    int count = 0;
+    while (c.next()) {
+      assertEquals(count, c.getIndex());
+      assertEquals(count, c.getInt(reds));
+      assertEquals(count / 2.0, c.getDouble(ms), 0);
+      assertEquals("id" + (count % 10), c.getString(ids));
+      assertEquals(ids.getCode(count), c.getStringCode(ids));
+      count++;
+    }
+    assertEquals(100, count);
+    assertFalse(c.next());
+
+    try {
+      c.bindInt(BioAssay.FIELD_NAME_M);
+      assertTrue(false);
+    } catch (BioAssayRuntimeException e) {
+      assertTrue(true);
+    }
+  }
+
+  public void testSplit() {
+
+    BioAssay b = createBioAssay(101);
+    SpotCursor c = b.cursor();
+    final SpotCursor.IntColumn reds = c.bindInt(BioAssay.FIELD_NAME_RED);
+
+    assertTrue(c.next());
+    SpotCursor prefix = c.trySplit();
+    assertEquals(50, prefix.remaining());
+    assertEquals(50, c.remaining());
+
+    final long[] sum = new long[1];
+    SpotCursor.Visitor v = new SpotCursor.Visitor() {
+
+      public void visit(final SpotCursor cursor) {
+        sum[0] += cursor.getInt(reds);
+      }
+    };
+
+    prefix.forEachRemaining(v);
+    assertEquals(1275, sum[0]);
+    assertTrue(c.tryAdvance(v));
+    c.forEachRemaining(v);
+    assertEquals(5050, sum[0]);
+    assertNull(c.trySplit());
+  }
+
+  public void testParallel() {
+
+    final int size = 100000;
+    BioAssay b = createBioAssay(size);
+    SpotCursor c = b.cursor();
+    final SpotCursor.IntColumn reds = c.bindInt(BioAssay.FIELD_NAME_RED);
+    final int[] result = new int[size];
+
+    final int threads = ParallelUtils.getThreadCount();
+    ParallelUtils.setThreadCount(4);
+    try {
+      c.forEachRemainingParallel(new SpotCursor.Visitor() {
+
+        public void visit(final SpotCursor cursor) {
+          result[cursor.getIndex()] = cursor.getInt(reds) + 1;
+        }
+      }, 1000);
+    } finally {
+      ParallelUtils.setThreadCount(threads);
+    }
+
+    for (int i = 0; i < size; i++)
+      assertEquals(i + 1, result[i]);
+    assertEquals(0, c.remaining());
+  }
+
+}
@@ -171,6 +171,61 @@ public class SpotTest extends TestCase {
     assertEquals(STRING_VALUE, s.getDescription());
   }
 
+  public void testSetCompactInts() {
+
+    BioAssay ba = createBioAssay();
+    ba.setDataFieldCompactInt(BioAssay.FIELD_NAME_RED, CompactIntArray
+        .valueOf(ba.getReds()));
+    ba.setDataFieldCompactInt(BioAssay.FIELD_NAME_GREEN, CompactIntArray
+        .valueOf(ba.getGreens()));
+    ba.setDataFieldCompactInt(BioAssay.FIELD_NAME_FLAG, CompactIntArray
+        .valueOf(ba.getFlags()));
+
+    Spot s = ba.getSpot(1);
+    assertEquals(RED_DEFAULT_VALUE, s.getRed());
+    assertEquals(GREEN_DEFAULT_VALUE, s.getGreen());
+
+    // The writes are not lost in decoded copies of the fields
+    s.setRed(INT_VALUE);
+    s.setGreen(INT_VALUE);
+    s.setFlag(INT_VALUE);
+    assertEquals(INT_VALUE, s.getRed());
+    assertEquals(INT_VALUE, ba.getReds()[1]);
+    assertEquals(RED_DEFAULT_VALUE, ba.getReds()[0]);
+    assertEquals(INT_VALUE, ba.getGreens()[1]);
+    assertEquals(INT_VALUE, ba.getSpot(1).getFlag());
+    assertFalse(ba.isDataFieldIntCompact(BioAssay.FIELD_NAME_RED));
+
+    s.setIndex(2);
+    s.setRed(INT_VALUE);
+    assertEquals(INT_VALUE, ba.getReds()[2]);
+  }
+
+  public void testSetEncodedStrings() {
+
+    BioAssay ba = createBioAssay();
+    StringDictionary dictionary = new StringDictionary();
+    ba.encodeDataFieldString(BioAssay.FIELD_NAME_ID, dictionary);
+    ba.encodeDataFieldString(BioAssay.FIELD_NAME_DESCRIPTION, dictionary);
+
+    Spot s = ba.getSpot(1);
+    assertEquals(ID_DEFAULT_VALUE, s.getId());
+    assertEquals(DESCRIPTION_DEFAULT_VALUE, s.getDescription());
+
+    // The writes are not lost in decoded copies of the fields
+    s.setId(STRING_VALUE);
+    s.setDescription(STRING_VALUE);
+    assertEquals(STRING_VALUE, s.getId());
+    assertEquals(STRING_VALUE, ba.getIds()[1]);
+    assertEquals(ID_DEFAULT_VALUE, ba.getIds()[0]);
+    assertEquals(STRING_VALUE, ba.getDescriptions()[1]);
+    assertEquals(STRING_VALUE, ba.getSpot(1).getDescription());
+
+    s.setIndex(2);
+    s.setId(STRING_VALUE);
+    assertEquals(STRING_VALUE, ba.getIds()[2]);
+  }
+
   public void testGetA() {
 
     Spot s = createBioAssay().getSpot(0);
@@ -0,0 +1,81 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.design;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import fr.ens.transcriptome.nividic.om.io.NividicIOException;
+
+public class DesignLoadTest extends TestCase {
+
+  public void testLoadAllSourcesInParallel() throws Exception {
+
+    final Design d1 = DesignTestUtils.createDesign(6);
+    d1.loadAllSources();
+
+    final Design d2 = DesignTestUtils.createDesign(6);
+    final List<String> loaded = new ArrayList<String>();
+
+    d2.loadAllSources(false, null, 3, new SlideLoadListener() {
+
+      public void slideLoaded(final Slide slide, final int loadedCount,
+          final int slideCount) {
+
+        loaded.add(slide.getName());
+        assertEquals(loaded.size(), loadedCount);
+        assertEquals(6, slideCount);
+      }
+    });
+
+    assertEquals(6, loaded.size());
+
+    for (int i = 0; i < 6; i++) {
+
+      assertEquals("slide" + i, loaded.get(i));
+
+      final Slide s1 = d1.getSlide(i);
+      final Slide s2 = d2.getSlide(i);
+
+      assertEquals(s1.getBioAssay().size(), s2.getBioAssay().size());
+      assertEquals(s2.getName(), s2.getBioAssay().getName());
+      assertTrue(java.util.Arrays.equals(s1.getBioAssay().getIds(), s2
+          .getBioAssay().getIds()));
+    }
+  }
+
+  public void testLoadAllSourcesErrors() throws Exception {
+
+    final Design d = DesignTestUtils.createDesign(4);
+    d.setSource("slide2", "/nonexistent/file.gpr");
+
+    try {
+      d.loadAllSources(false, null, 2, null);
+      fail();
+    } catch (NividicIOException e) {
+      assertTrue(e.getMessage().indexOf("slide2") != -1);
+    }
+  }
+
+}
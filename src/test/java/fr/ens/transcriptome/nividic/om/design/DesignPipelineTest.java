@@ -0,0 +1,95 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.design;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.BioAssayUtils;
+import fr.ens.transcriptome.nividic.om.ExpressionMatrix;
+import fr.ens.transcriptome.nividic.om.ExpressionMatrixFactory;
+import fr.ens.transcriptome.nividic.om.io.NividicIOException;
+
+public class DesignPipelineTest extends TestCase {
+
+  public void testRun() throws Exception {
+
+    final Design d1 = DesignTestUtils.createDesign(5);
+    d1.loadAllSources();
+
+    for (Slide s : d1.getSlides())
+      BioAssayUtils.calcMA(s.getBioAssay());
+
+    final ExpressionMatrix em1 =
+        ExpressionMatrixFactory.createExpressionMatrix();
+    em1.addDimension(BioAssay.FIELD_NAME_A);
+    em1.addDesign(d1);
+
+    final Design d2 = DesignTestUtils.createDesign(5);
+    final ExpressionMatrix em2 =
+        ExpressionMatrixFactory.createExpressionMatrix();
+    em2.addDimension(BioAssay.FIELD_NAME_A);
+
+    final DesignPipeline pipeline = new DesignPipeline();
+    pipeline.setLoadThreads(2);
+    pipeline.setFilterThreads(2);
+    pipeline.setQueueSize(2);
+    pipeline.run(d2, em2);
+
+    assertTrue(Arrays.equals(em1.getColumnNames(), em2.getColumnNames()));
+    assertTrue(Arrays.equals(em1.getRowNames(), em2.getRowNames()));
+
+    final double[][] m1 = em1.getDefaultDimension().getValues();
+    final double[][] m2 = em2.getDefaultDimension().getValues();
+    final double[][] a1 = em1.getDimension(BioAssay.FIELD_NAME_A).getValues();
+    final double[][] a2 = em2.getDimension(BioAssay.FIELD_NAME_A).getValues();
+
+    assertEquals(m1.length, m2.length);
+    for (int i = 0; i < m1.length; i++) {
+      assertTrue(Arrays.equals(m1[i], m2[i]));
+      assertTrue(Arrays.equals(a1[i], a2[i]));
+    }
+
+    // The bioassays have been released
+    for (Slide s : d2.getSlides())
+      assertNull(s.getBioAssay());
+  }
+
+  public void testRunErrors() throws Exception {
+
+    final Design d = DesignTestUtils.createDesign(4);
+    d.setSource("slide2", "/nonexistent/file.gpr");
+
+    final ExpressionMatrix em =
+        ExpressionMatrixFactory.createExpressionMatrix();
+
+    try {
+      new DesignPipeline().run(d, em);
+      fail();
+    } catch (NividicIOException e) {
+      assertTrue(e.getMessage().indexOf("slide2") != -1);
+    }
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.design;
+
+import java.io.File;
+
+/**
+ * This class defines the fixtures shared by the design tests.
+ */
+final class DesignTestUtils {
+
+  /**
+   * Create a two colors design whose slides alternately read the testGPR3 and
+   * testGPR14 files.
+   * @param slideCount number of slides of the design
+   * @return a new design
+   * @throws Exception if the test files cannot be found
+   */
+  static Design createDesign(final int slideCount) throws Exception {
+
+    final String gpr3 =
+        new File(DesignTestUtils.class.getResource("/files/testGPR3.gpr")
+            .toURI()).getAbsolutePath();
+    final String gpr14 =
+        new File(DesignTestUtils.class.getResource("/files/testGPR14.gpr")
+            .toURI()).getAbsolutePath();
+
+    final Design d = DesignFactory.create2ColorsDesign();
+
+    for (int i = 0; i < slideCount; i++) {
+
+      final String name = "slide" + i;
+      d.addSlide(name);
+      d.setSource(name, i % 2 == 0 ? gpr3 : gpr14);
+    }
+
+    return d;
+  }
+
+  //
+  // Constructor
+  //
+
+  private DesignTestUtils() {
+  }
+
+}
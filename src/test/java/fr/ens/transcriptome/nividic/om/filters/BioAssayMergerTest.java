@@ -0,0 +1,126 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.filters;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import fr.ens.transcriptome.nividic.NividicRuntimeException;
+import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.BioAssayFactory;
+import fr.ens.transcriptome.nividic.om.BioAssayUtils;
+import fr.ens.transcriptome.nividic.om.StringDictionary;
+
+/**
+ * @author Laurent Jourdren
+ */
+public class BioAssayMergerTest extends TestCase {
+
+  private static final double DELTA = 1e-12;
+
+  private BioAssay createBioAssay() {
+
+    BioAssay b = BioAssayFactory.createBioAssay();
+    b.setName("test");
+    b.setIds(new String[] {"a", "b", "a", "c", "b", "a", null, "a"});
+    b.setDescriptions(new String[] {"da", "db", "da", "dc", "db", "da", "dn",
+        "da"});
+    b.setMs(new double[] {1, 2, 3, 4, Double.NaN, 5, 6, Double.NaN});
+    b.setAs(new double[] {10, 20, 30, 40, 50, 60, 70, 80});
+
+    return b;
+  }
+
+  private void testMergedIds(final BioAssay b) {
+
+    BioAssay r = BioAssayUtils.mergeInnerIdsReplicates(b);
+
+    assertEquals(4, r.size());
+    assertTrue(Arrays.equals(new String[] {"a", "b", "c", null}, r.getIds()));
+    assertTrue(Arrays.equals(new String[] {"da", "db", "dc", "dn"}, r
+        .getDescriptions()));
+
+    double[] ms = r.getMs();
+    double[] as = r.getAs();
+    double[] sd = r.getDataFieldDouble("stdDevM");
+    double[] n = r.getDataFieldDouble("n");
+    double[] totalN = r.getDataFieldDouble("totalN");
+
+    assertEquals(3, ms[0], DELTA);
+    assertEquals(2, sd[0], DELTA);
+    assertEquals(3, n[0], DELTA);
+    assertEquals(4, totalN[0], DELTA);
+    assertEquals(45, as[0], DELTA);
+
+    assertEquals(2, ms[1], DELTA);
+    assertEquals(0, sd[1], DELTA);
+    assertEquals(1, n[1], DELTA);
+    assertEquals(2, totalN[1], DELTA);
+    assertEquals(35, as[1], DELTA);
+
+    assertEquals(4, ms[2], DELTA);
+    assertEquals(0, sd[2], DELTA);
+    assertEquals(40, as[2], DELTA);
+    assertEquals(6, ms[3], DELTA);
+    assertEquals(70, as[3], DELTA);
+  }
+
+  public void testMergeIds() {
+
+    testMergedIds(createBioAssay());
+  }
+
+  public void testMergeEncodedIds() {
+
+    BioAssay b = createBioAssay();
+    b.encodeDataFieldString(BioAssay.FIELD_NAME_ID, new StringDictionary());
+    testMergedIds(b);
+  }
+
+  public void testMergeRows() {
+
+    BioAssayMerger bam = new BioAssayMerger(createBioAssay());
+    bam.mergeRowsWithIds(new String[] {"b", "c"});
+
+    try {
+      bam.mergeRows(new int[] {0, 1});
+      assertTrue(false);
+    } catch (NividicRuntimeException e) {
+      assertTrue(true);
+    }
+
+    bam.mergeRows(new int[] {7, 0});
+
+    BioAssay r = bam.getBioAssay();
+    assertEquals(5, r.size());
+    // The merged values are set at the first row of each group
+    assertTrue(Arrays.equals(new String[] {"b", "a", "a", null, "a"}, r
+        .getIds()));
+    assertEquals(3, r.getMs()[0], DELTA);
+    assertEquals(40, r.getAs()[0], DELTA);
+    assertEquals(5, r.getMs()[2], DELTA);
+    assertEquals(1, r.getMs()[4], DELTA);
+    assertEquals(45, r.getAs()[4], DELTA);
+  }
+
+}
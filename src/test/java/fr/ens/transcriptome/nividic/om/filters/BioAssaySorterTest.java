@@ -23,10 +23,14 @@
 package fr.ens.transcriptome.nividic.om.filters;
 
 import java.io.InputStream;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 
 import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.BioAssayFactory;
+import fr.ens.transcriptome.nividic.om.Spot;
+import fr.ens.transcriptome.nividic.om.StringDictionary;
 import fr.ens.transcriptome.nividic.om.io.IDMAReader;
 import fr.ens.transcriptome.nividic.om.io.NividicIOException;
 
@@ -94,6 +98,61 @@ public class BioAssaySorterTest extends TestCase {
     // printBioAssay(norm2);
   }
 
+  public void testSpotComparatorAndSortKeys() throws NividicIOException {
+
+    InputStream is1 = this.getClass().getResourceAsStream(
+        "/files/normalised_chip1.txt");
+    IDMAReader idmar = new IDMAReader(is1);
+    BioAssay norm1 = idmar.read();
+
+    for (int k = 0; k < 2; k++) {
+
+      final SpotComparator ma = new BioAssayMASorterComparator(k == 0);
+
+      // A comparator without sort keys use spot objects
+      BioAssay a = norm1.sort(new SpotComparator() {
+
+        public int compare(final Spot s1, final Spot s2) {
+          return ma.compare(s1, s2);
+        }
+      });
+      BioAssay b = norm1.sort(ma);
+
+      assertTrue(Arrays.equals(a.getIds(), b.getIds()));
+      assertTrue(Arrays.equals(a.getDescriptions(), b.getDescriptions()));
+      assertTrue(Arrays.equals(a.getLocations(), b.getLocations()));
+      assertTrue(Arrays.equals(a.getMs(), b.getMs()));
+    }
+  }
+
+  public void testMultipleKeys() {
+
+    BioAssay b = BioAssayFactory.createBioAssay();
+    b.setIds(new String[] {"b", "a", null, "b", "a", "c"});
+    b.setFlags(new int[] {1, 2, 3, 4, 5, 6});
+    b.setMs(new double[] {1, Double.NaN, 2, 0, 0, Double.NaN});
+    b.encodeDataFieldString(BioAssay.FIELD_NAME_ID, new StringDictionary());
+
+    int[] order = BioAssayIndexSorter.sortIndexes(b, new SortKey[] {
+        new SortKey(BioAssay.FIELD_NAME_ID),
+        new SortKey(BioAssay.FIELD_NAME_FLAG, true)});
+    assertTrue(Arrays.equals(new int[] {2, 4, 1, 3, 0, 5}, order));
+
+    order = BioAssayIndexSorter.sortIndexes(b, new SortKey[] {new SortKey(
+        BioAssay.FIELD_NAME_M, true, true)});
+    assertTrue(Arrays.equals(new int[] {2, 0, 3, 4, 1, 5}, order));
+
+    order = BioAssayIndexSorter.sortIndexes(b, new SortKey[] {new SortKey(
+        BioAssay.FIELD_NAME_M, true)});
+    assertTrue(Arrays.equals(new int[] {1, 5, 2, 0, 3, 4}, order));
+
+    BioAssay sorted = BioAssayIndexSorter.permute(b, order);
+    assertTrue(sorted.isDataFieldStringEncoded(BioAssay.FIELD_NAME_ID));
+    assertTrue(Arrays.equals(new String[] {"a", "c", null, "b", "b", "a"},
+        sorted.getIds()));
+    assertTrue(Arrays.equals(new int[] {2, 6, 3, 1, 4, 5}, sorted.getFlags()));
+  }
+
   private static void printBioAssay(final BioAssay ba) {
 
     String[] ids = ba.getIds();
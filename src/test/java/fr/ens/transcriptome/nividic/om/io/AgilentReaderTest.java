@@ -0,0 +1,148 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.TestCase;
+import fr.ens.transcriptome.nividic.om.Annotation;
+import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
+
+public class AgilentReaderTest extends TestCase {
+
+  static final String AGILENT_FILE =
+      "TYPE\ttext\tinteger\tinteger\n"
+          + "FEPARAMS\tProtocol_Name\tGrid_NumRows\tGrid_NumCols\n"
+          + "DATA\tprotocol\t2\t4\n" + "*\n" + "TYPE\tfloat\n"
+          + "STATS\tgDarkOffsetAverage\n" + "DATA\t1.5\n" + "*\n"
+          + "TYPE\tinteger\tinteger\tinteger\ttext\tfloat\tfloat\n"
+          + "FEATURES\tFeatureNum\tRow\tCol\tProbeName\tgMedianSignal"
+          + "\trMedianSignal\n" + "DATA\t1\t1\t1\tA_1\t10.5\t20.25\n"
+          + "DATA\t2\t1\t2\tA_2\t\t30\n" + "DATA\t3\t2\t1\tA_3\tNA\t1e3\n"
+          + "*\n";
+
+  public void testRead() throws NividicIOException {
+
+    final AgilentReader reader =
+        new AgilentReader(new ByteArrayInputStream(AGILENT_FILE.getBytes()));
+
+    final BioAssay b = reader.read();
+
+    assertEquals(3, b.size());
+    assertEquals("protocol", b.getAnnotation().getProperty("Protocol_Name"));
+    assertEquals("1.5", b.getAnnotation().getProperty("gDarkOffsetAverage"));
+
+    final String[] ids = b.getIds();
+    assertEquals("1", ids[0]);
+    assertEquals("3", ids[2]);
+
+    final String[] descriptions = b.getDescriptions();
+    assertEquals("A_2", descriptions[1]);
+
+    final double[] greens =
+        b.getDataFieldDouble(BioAssay.FIELD_NAME_GREEN);
+    final double[] reds = b.getDataFieldDouble(BioAssay.FIELD_NAME_RED);
+
+    assertEquals(10.5, greens[0], 0);
+    assertTrue(Double.isNaN(greens[1]));
+    assertTrue(Double.isNaN(greens[2]));
+    assertEquals(20.25, reds[0], 0);
+    assertEquals(30, reds[1], 0);
+    assertEquals(1000, reds[2], 0);
+  }
+
+  public void testReadRows() throws NividicIOException {
+
+    final AgilentReader reader =
+        new AgilentReader(new ByteArrayInputStream(AGILENT_FILE.getBytes()));
+    final StringBuilder sb = new StringBuilder();
+
+    reader.read(new BioAssayRowHandler() {
+
+      private int description;
+      private int red;
+
+      public void start(final String[] fields, final int[] types,
+          final Annotation annotation) {
+
+        assertEquals("protocol", annotation.getProperty("Protocol_Name"));
+        description =
+            java.util.Arrays.asList(fields).indexOf(
+                BioAssay.FIELD_NAME_DESCRIPTION);
+        red = java.util.Arrays.asList(fields).indexOf(BioAssay.FIELD_NAME_RED);
+        assertEquals(BioAssay.DATATYPE_DOUBLE, types[red]);
+      }
+
+      public boolean handleRow(final BioAssayRow row) {
+
+        sb.append(row.getString(description));
+        sb.append('=');
+        sb.append(row.getDouble(red));
+        sb.append(';');
+
+        return true;
+      }
+
+      public void end() {
+      }
+    });
+
+    assertEquals("A_1=20.25;A_2=30.0;A_3=1000.0;", sb.toString());
+  }
+
+  public void testInvalidColumnCount() {
+
+    final String file =
+        AGILENT_FILE.replace("DATA\t1\t1\t1\tA_1\t10.5\t20.25\n",
+            "DATA\t1\t1\t1\tA_1\t10.5\t20.25\textra\n");
+
+    try {
+      new AgilentReader(new ByteArrayInputStream(file.getBytes())).read();
+      fail();
+    } catch (NividicIOException e) {
+      assertEquals("Invalid number of column.", e.getMessage());
+    }
+  }
+
+  public void testReadInParallel() throws NividicIOException {
+
+    final int threads = ParallelUtils.getThreadCount();
+    ParallelUtils.setThreadCount(2);
+
+    try {
+      final AgilentReader reader =
+          new AgilentReader(new ByteArrayInputStream(AGILENT_FILE.getBytes()));
+      reader.setParallelParsing(true);
+
+      final BioAssay b = reader.read();
+
+      assertEquals(3, b.size());
+      assertEquals("A_3", b.getDescriptions()[2]);
+      assertEquals(1000, b.getDataFieldDouble(BioAssay.FIELD_NAME_RED)[2], 0);
+    } finally {
+      ParallelUtils.setThreadCount(threads);
+    }
+  }
+
+}
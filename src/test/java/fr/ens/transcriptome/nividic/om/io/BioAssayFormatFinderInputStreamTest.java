@@ -0,0 +1,111 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+public class BioAssayFormatFinderInputStreamTest extends TestCase {
+
+  private static byte[] readAll(final InputStream is) throws IOException {
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    int n;
+
+    while ((n = is.read(buffer)) != -1)
+      baos.write(buffer, 0, n);
+
+    return baos.toByteArray();
+  }
+
+  public void testFindFormat() throws IOException, NividicIOException {
+
+    final byte[] data =
+        readAll(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+
+    final BioAssayFormatFinderInputStream finder =
+        new BioAssayFormatFinderInputStream(new ByteArrayInputStream(data));
+
+    assertSame(BioAssayFormatRegistery.GPR_BIOASSAY_FORMAT, finder
+        .getBioAssayFormat());
+    assertSame(BioAssayFormatRegistery.GPR_BIOASSAY_FORMAT, finder
+        .getBioAssayFormat());
+
+    // The first bytes are pushed back in the stream
+    assertTrue(java.util.Arrays.equals(data, readAll(finder)));
+
+    assertSame(BioAssayFormatRegistery.AGILENT_BIOASSAY_FORMAT,
+        new BioAssayFormatFinderInputStream(new ByteArrayInputStream(
+            AgilentReaderTest.AGILENT_FILE.getBytes())).getBioAssayFormat());
+
+    assertNull(new BioAssayFormatFinderInputStream(new ByteArrayInputStream(
+        new byte[0])).getBioAssayFormat());
+  }
+
+  public void testPriority() {
+
+    final BioAssayFormat format =
+        new BioAssayFormat("TEST_ATF", "Test ATF file", ".test", false) {
+
+          @Override
+          public InputStreamBioAssayReader getBioAssayReader(
+              final InputStream is) {
+            return null;
+          }
+
+          @Override
+          public BioAssayWriter getBioAssayWriter(final OutputStream os) {
+            return null;
+          }
+
+          @Override
+          public boolean testFormat(final String firstLines) {
+            return firstLines.startsWith("ATF");
+          }
+        };
+
+    final byte[] header = "ATF\t1.0\n\"Type=GenePix Results 3\"\n".getBytes();
+
+    BioAssayFormatRegistery.addBioAssayFormat(format);
+    assertSame(BioAssayFormatRegistery.GPR_BIOASSAY_FORMAT,
+        BioAssayFormatRegistery.getBioAssayFormatFromFirstBytes(header,
+            header.length));
+
+    BioAssayFormatRegistery.addBioAssayFormat(format,
+        BioAssayFormatRegistery.PRIORITY_FIRST_LINE_MAGIC + 1);
+    assertSame(format, BioAssayFormatRegistery.getBioAssayFormatFromFirstBytes(
+        header, header.length));
+
+    BioAssayFormatRegistery.addBioAssayFormat(format, -1);
+    assertSame(BioAssayFormatRegistery.GPR_BIOASSAY_FORMAT,
+        BioAssayFormatRegistery.getBioAssayFormatFromFirstBytes(header,
+            header.length));
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class ChannelWriterTest extends TestCase {
+
+  private static final String PAIR = "\uD83D\uDE00";
+
+  private static void assertEncoded(final String expected,
+      final ByteArrayOutputStream os) throws IOException {
+
+    assertTrue(Arrays.equals(expected.getBytes("UTF-8"), os.toByteArray()));
+  }
+
+  public void testSurrogatePairsBetweenCalls() throws IOException {
+
+    final String s = "a" + PAIR + "b" + PAIR;
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    ChannelWriter writer = new ChannelWriter(os, "UTF-8", 16);
+    for (int i = 0; i < s.length(); i++)
+      writer.write(s.charAt(i));
+    writer.close();
+    assertEncoded(s, os);
+
+    os = new ByteArrayOutputStream();
+    writer = new ChannelWriter(os, "UTF-8", 16);
+    final char[] chars = s.toCharArray();
+    writer.write(chars, 0, 2);
+    writer.flush();
+    writer.write(chars, 2, 3);
+    writer.write(chars, 5, 1);
+    writer.close();
+    assertEncoded(s, os);
+  }
+
+  public void testSurrogatePairsBetweenChunks() throws IOException {
+
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 4095; i++)
+      sb.append('x');
+    sb.append(PAIR);
+    sb.append('y');
+    final String s = sb.toString();
+
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    final ChannelWriter writer = new ChannelWriter(os, "UTF-8", 1024);
+    writer.write(s);
+    writer.close();
+    assertEncoded(s, os);
+  }
+
+  public void testLoneHighSurrogate() throws IOException {
+
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    final ChannelWriter writer = new ChannelWriter(os, "UTF-8", 16);
+    writer.write("a" + PAIR.charAt(0));
+    writer.close();
+    assertEncoded("a?", os);
+  }
+
+}
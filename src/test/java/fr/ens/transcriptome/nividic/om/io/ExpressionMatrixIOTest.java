@@ -22,6 +22,8 @@
 
 package fr.ens.transcriptome.nividic.om.io;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -29,6 +31,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.Random;
 
 import junit.framework.TestCase;
 import fr.ens.transcriptome.nividic.om.BioAssay;
@@ -141,6 +144,91 @@ public class ExpressionMatrixIOTest extends TestCase {
 
   }
 
+  public void testReadDuplicatedIdsAndAnnotations() throws NividicIOException {
+
+    final String data =
+        "id\tdesc\tname\tc1\tc2\n"
+            + "a\tfirst\tA\t1.5\t2.5\n" + "b\tsecond\tB\t3.5\n"
+            + "# comment\n" + "a\tthird\tC\tNA\t4.5\n";
+
+    SimpleExpressionMatrixReader reader =
+        new SimpleExpressionMatrixReader(new ByteArrayInputStream(data
+            .getBytes()), 3);
+    ExpressionMatrix em = reader.read();
+
+    assertTrue(Arrays.equals(new String[] {"a", "b", "a_DUPLICATED_1"}, em
+        .getRowNames()));
+    assertTrue(Arrays.equals(new String[] {"c1", "c2"}, em.getColumnNames()));
+
+    ExpressionMatrixDimension d = em.getDefaultDimension();
+    assertEquals(1.5, d.getValue("a", "c1"), 0.0);
+    assertEquals(2.5, d.getValue("a", "c2"), 0.0);
+    assertEquals(3.5, d.getValue("b", "c1"), 0.0);
+    assertTrue(Double.isNaN(d.getValue("b", "c2")));
+    assertTrue(Double.isNaN(d.getValue("a_DUPLICATED_1", "c1")));
+    assertEquals(4.5, d.getValue("a_DUPLICATED_1", "c2"), 0.0);
+
+    Translator t = reader.getTranslator();
+    assertEquals("first", t.translateField("a", "desc"));
+    assertEquals("second", t.translateField("b", "desc"));
+    assertEquals("third", t.translateField("a_DUPLICATED_1", "desc"));
+    assertEquals("C", t.translateField("a_DUPLICATED_1", "name"));
+  }
+
+  public void testWriteInBlocks() throws NividicIOException, IOException {
+
+    final int n = 70000;
+    final String[] ids = new String[n];
+    final double[] c1 = new double[n];
+    final double[] c2 = new double[n];
+    final Random random = new Random(7);
+
+    for (int i = 0; i < n; i++) {
+      ids[i] = (i == 10 ? "\u00e9t\u00e9" : "id") + i;
+      c1[i] = random.nextGaussian();
+      c2[i] = i % 100 == 0 ? Double.NaN : random.nextDouble() * 1000.0;
+    }
+
+    ExpressionMatrix em = ExpressionMatrixFactory.createExpressionMatrix();
+    em.addDimension("A");
+    em.addColumn("c1");
+    em.addColumn("c2");
+    em.addRows(ids);
+    em.getDefaultDimension().setValues(ids, "c1", c1);
+    em.getDefaultDimension().setValues(ids, "c2", c2);
+    em.getDimension("A").setValues(ids, "c1", c2);
+
+    ByteArrayOutputStream os1 = new ByteArrayOutputStream();
+    new SimpleExpressionMatrixWriter(os1).write(em);
+
+    ByteArrayOutputStream os2 = new ByteArrayOutputStream();
+    SimpleExpressionMatrixWriter writer = new SimpleExpressionMatrixWriter(os2);
+    writer.setParallelFormatting(true);
+    writer.write(em);
+
+    assertTrue(Arrays.equals(os1.toByteArray(), os2.toByteArray()));
+
+    ExpressionMatrix em2 =
+        new SimpleExpressionMatrixReader(new ByteArrayInputStream(os1
+            .toByteArray())).read();
+
+    assertTrue(em2.dataEquals(em));
+    assertEquals(c1[10], em2.getDefaultDimension().getValue(ids[10], "c1"),
+        0.0);
+
+    ByteArrayOutputStream os3 = new ByteArrayOutputStream();
+    writer = new SimpleExpressionMatrixWriter(os3);
+    writer.setPrecision(2);
+    writer.write(em);
+
+    ExpressionMatrix em3 =
+        new SimpleExpressionMatrixReader(new ByteArrayInputStream(os3
+            .toByteArray())).read();
+
+    assertEquals(Math.round(c1[5] * 100.0) / 100.0, em3.getDefaultDimension()
+        .getValue(ids[5], "c1"), 1e-12);
+  }
+
   public void testReadWriteExistingMatrix() throws NividicIOException,
       IOException {
 
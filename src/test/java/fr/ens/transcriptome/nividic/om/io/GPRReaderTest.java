@@ -25,7 +25,12 @@ package fr.ens.transcriptome.nividic.om.io;
 import java.io.InputStream;
 
 import junit.framework.TestCase;
+import fr.ens.transcriptome.nividic.om.ArrayLayout;
 import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.BioAssayUtils;
+import fr.ens.transcriptome.nividic.om.CompactIntArray;
+import fr.ens.transcriptome.nividic.om.StringDictionary;
+import fr.ens.transcriptome.nividic.util.ParallelUtils;
 
 /**
  * @author Laurent Jourdren
@@ -101,6 +106,294 @@ public class GPRReaderTest extends TestCase {
 
   }
 
+  public void testReadGPR3WithDictionary() throws NividicIOException {
+
+    StringDictionary dictionary = new StringDictionary();
+
+    GPRReader reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    BioAssay a = reader.read();
+
+    reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    reader.setStringDictionary(dictionary);
+    BioAssay b = reader.read();
+
+    assertTrue(b.isDataFieldStringEncoded(BioAssay.FIELD_NAME_ID));
+    assertSame(dictionary, b
+        .getDataFieldStringDictionary(BioAssay.FIELD_NAME_ID));
+    assertTrue(dictionary.size() < b.size());
+    assertTrue(java.util.Arrays.equals(a.getIds(), b.getIds()));
+    assertTrue(java.util.Arrays.equals(a.getDescriptions(), b
+        .getDescriptions()));
+  }
+
+  public void testReadGPR3WithCompactIntFields() throws NividicIOException {
+
+    GPRReader reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    reader.addAllFieldsToRead();
+    BioAssay a = reader.read();
+
+    reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    reader.addAllFieldsToRead();
+    reader.setCompactIntFields(true);
+    BioAssay b = reader.read();
+
+    assertFalse(b.isDataFieldIntCompact(BioAssay.FIELD_NAME_LOCATION));
+    assertTrue(b.isDataFieldIntCompact(BioAssay.FIELD_NAME_FLAG));
+    assertEquals(CompactIntArray.WIDTH_BYTE, b.getDataFieldCompactInt(
+        BioAssay.FIELD_NAME_FLAG).getWidth());
+
+    String[] fields = a.getFields();
+    for (int i = 0; i < fields.length; i++)
+      if (a.getFieldType(fields[i]) == BioAssay.DATATYPE_INTEGER)
+        assertTrue(fields[i], java.util.Arrays.equals(a
+            .getDataFieldInt(fields[i]), b.getDataFieldInt(fields[i])));
+  }
+
+  public void testReadGPR3WithRowCountHint() throws NividicIOException {
+
+    GPRReader reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    reader.addAllFieldsToRead();
+    BioAssay a = reader.read();
+
+    // Exact and too small hints
+    for (int hint = a.size(); hint > 0; hint -= a.size() - 10) {
+
+      reader =
+          new GPRReader(this.getClass().getResourceAsStream(
+              "/files/testGPR3.gpr"));
+      reader.addAllFieldsToRead();
+      reader.setRowCountHint(hint);
+      BioAssay b = reader.read();
+
+      assertEquals(a.size(), b.size());
+      String[] fields = a.getFields();
+      assertEquals(fields.length, b.getFields().length);
+
+      for (int i = 0; i < fields.length; i++)
+        switch (a.getFieldType(fields[i])) {
+        case BioAssay.DATATYPE_INTEGER:
+          assertTrue(fields[i], java.util.Arrays.equals(a
+              .getDataFieldInt(fields[i]), b.getDataFieldInt(fields[i])));
+          break;
+        case BioAssay.DATATYPE_DOUBLE:
+          assertTrue(fields[i], java.util.Arrays.equals(a
+              .getDataFieldDouble(fields[i]), b.getDataFieldDouble(fields[i])));
+          break;
+        default:
+          assertTrue(fields[i], java.util.Arrays.equals(a
+              .getDataFieldString(fields[i]), b.getDataFieldString(fields[i])));
+          break;
+        }
+    }
+  }
+
+  public void testReadGPR3InParallel() throws NividicIOException {
+
+    final int threads = ParallelUtils.getThreadCount();
+    ParallelUtils.setThreadCount(4);
+
+    try {
+      for (int pass = 0; pass < 2; pass++) {
+
+        final StringDictionary d1 = pass == 0 ? null : new StringDictionary();
+        final StringDictionary d2 = pass == 0 ? null : new StringDictionary();
+
+        GPRReader reader =
+            new GPRReader(this.getClass().getResourceAsStream(
+                "/files/testGPR3.gpr"));
+        reader.addAllFieldsToRead();
+        reader.setStringDictionary(d1);
+        BioAssay a = reader.read();
+
+        reader =
+            new GPRReader(this.getClass().getResourceAsStream(
+                "/files/testGPR3.gpr"));
+        reader.addAllFieldsToRead();
+        reader.setStringDictionary(d2);
+        reader.setParallelParsing(true);
+        BioAssay b = reader.read();
+
+        assertEquals(a.size(), b.size());
+        String[] fields = a.getFields();
+        assertEquals(fields.length, b.getFields().length);
+
+        for (int i = 0; i < fields.length; i++)
+          switch (a.getFieldType(fields[i])) {
+          case BioAssay.DATATYPE_INTEGER:
+            assertTrue(fields[i], java.util.Arrays.equals(a
+                .getDataFieldInt(fields[i]), b.getDataFieldInt(fields[i])));
+            break;
+          case BioAssay.DATATYPE_DOUBLE:
+            assertTrue(fields[i], java.util.Arrays.equals(a
+                .getDataFieldDouble(fields[i]), b
+                .getDataFieldDouble(fields[i])));
+            break;
+          default:
+            assertTrue(fields[i], java.util.Arrays.equals(a
+                .getDataFieldString(fields[i]), b
+                .getDataFieldString(fields[i])));
+            break;
+          }
+
+        // The strings are interned in the same order
+        if (d1 != null) {
+          assertEquals(d1.size(), d2.size());
+          for (int i = 0; i < d1.size(); i++)
+            assertEquals(d1.decode(i), d2.decode(i));
+        }
+      }
+    } finally {
+      ParallelUtils.setThreadCount(threads);
+    }
+  }
+
+  public void testReadGPR3Rows() throws NividicIOException {
+
+    GPRReader reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    final BioAssay a = reader.read();
+
+    reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+
+    final int[] reds = a.getReds();
+    final String[] ids = a.getIds();
+
+    reader.read(new BioAssayRowHandler() {
+
+      private int red;
+      private int id;
+      private int count;
+
+      public void start(final String[] fields, final int[] types,
+          final fr.ens.transcriptome.nividic.om.Annotation annotation) {
+
+        red = java.util.Arrays.asList(fields).indexOf(BioAssay.FIELD_NAME_RED);
+        id = java.util.Arrays.asList(fields).indexOf(BioAssay.FIELD_NAME_ID);
+        assertTrue(red != -1);
+        assertEquals(BioAssay.DATATYPE_INTEGER, types[red]);
+        assertTrue(annotation.size() > 0);
+      }
+
+      public boolean handleRow(final BioAssayRow row) {
+
+        assertEquals(count, row.getRowIndex());
+        assertEquals(red, row.getFieldIndex(BioAssay.FIELD_NAME_RED));
+        assertEquals(reds[count], row.getInt(red));
+        assertEquals(ids[count], row.getString(id));
+        count++;
+
+        return true;
+      }
+
+      public void end() {
+
+        assertEquals(reds.length, count);
+      }
+    });
+
+    // Stop the reading after 10 rows
+    reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    final int[] count = new int[2];
+
+    reader.read(new BioAssayRowHandler() {
+
+      public void start(final String[] fields, final int[] types,
+          final fr.ens.transcriptome.nividic.om.Annotation annotation) {
+      }
+
+      public boolean handleRow(final BioAssayRow row) {
+
+        return ++count[0] < 10;
+      }
+
+      public void end() {
+        count[1]++;
+      }
+    });
+
+    assertEquals(10, count[0]);
+    assertEquals(1, count[1]);
+  }
+
+  public void testReadGPR3WithSharedLayout() throws NividicIOException {
+
+    GPRReader reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    reader.setArrayLayoutShared(true);
+    BioAssay a = reader.read();
+
+    reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    reader.setArrayLayoutShared(true);
+    BioAssay b = reader.read();
+
+    ArrayLayout layout = a.getArrayLayout();
+    assertNotNull(layout);
+    assertSame(layout, b.getArrayLayout());
+    assertTrue(BioAssayUtils.equalsIdsAndLocations(a, b));
+
+    int[] locations = a.getLocations();
+    for (int i = 0; i < locations.length; i += 97)
+      assertEquals(locations[i], locations[a
+          .getIndexFromALocation(locations[i])]);
+
+    String[] ids = b.getIds();
+    ids[0] = "modified";
+    b.setIds(ids);
+    assertNull(b.getArrayLayout());
+    assertSame(layout, a.getArrayLayout());
+    assertEquals("modified", b.getIds()[0]);
+    assertFalse(BioAssayUtils.equalsIdsAndLocations(a, b));
+    assertEquals(0, b.getIndexFromALocation(b.getLocations()[0]));
+  }
+
+  public void testSharedLayoutCopyOnWrite() throws NividicIOException {
+
+    GPRReader reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    reader.setArrayLayoutShared(true);
+    BioAssay a = reader.read();
+
+    reader =
+        new GPRReader(this.getClass().getResourceAsStream("/files/testGPR3.gpr"));
+    reader.setArrayLayoutShared(true);
+    BioAssay b = reader.read();
+
+    ArrayLayout layout = a.getArrayLayout();
+    assertSame(layout, b.getArrayLayout());
+    int location = b.getLocations()[0];
+
+    // The arrays returned by the getters are private copies
+    a.getLocations()[0] = 77;
+    assertEquals(location, layout.getLocations()[0]);
+    assertSame(layout, a.getArrayLayout());
+
+    a.getSpot(0).setLocation(77);
+    assertNull(a.getArrayLayout());
+    assertEquals(77, a.getLocations()[0]);
+    assertEquals(0, a.getIndexFromALocation(77));
+    assertEquals(location, b.getLocations()[0]);
+    assertEquals(location, layout.getLocations()[0]);
+    assertEquals(0, b.getIndexFromALocation(location));
+    assertSame(layout, b.getArrayLayout());
+
+    // The identifiers of the detached BioAssay are private copies
+    b.getSpot(1).setLocation(78);
+    assertNull(b.getArrayLayout());
+    assertEquals(a.getIds()[0], b.getIds()[0]);
+    assertNotSame(a.getDataFieldStringCodes(BioAssay.FIELD_NAME_ID), b
+        .getDataFieldStringCodes(BioAssay.FIELD_NAME_ID));
+    assertNotSame(layout.getIdCodes(), b
+        .getDataFieldStringCodes(BioAssay.FIELD_NAME_ID));
+  }
+
   private void read(ATFFileToTest atf, boolean gal) {
 
     try {
@@ -22,15 +22,25 @@
 
 package fr.ens.transcriptome.nividic.om.io;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
 
 import junit.framework.TestCase;
 import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.BioAssayFactory;
 import fr.ens.transcriptome.nividic.util.NividicUtils;
 
 /**
@@ -173,4 +183,74 @@ public class IDMAIOTest extends TestCase {
     }
   }
 
-}
\ No newline at end of file
+  public void testWriteStreamingOOXML() throws Exception {
+
+    BioAssay b = BioAssayFactory.createBioAssay();
+    b.setIds(new String[] {"a", "b&<c>", "a"});
+    b.setMs(new double[] {1.5, Double.NaN, -2});
+    b.setAs(new double[] {100.0, 2.0E-5, 12345678.9});
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    IDMAWriter writer = new IDMAWriter(os);
+    writer.setBackendType(writer.STREAMING_OOXML_BACKEND);
+    writer.write(b);
+
+    final Map<String, String> entries = new HashMap<String, String>();
+    ZipInputStream zis =
+        new ZipInputStream(new ByteArrayInputStream(os.toByteArray()));
+    DocumentBuilder db = DocumentBuilderFactory.newInstance()
+        .newDocumentBuilder();
+
+    ZipEntry e;
+    while ((e = zis.getNextEntry()) != null) {
+
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = zis.read(buffer)) != -1)
+        content.write(buffer, 0, n);
+
+      // Each part must be a well formed xml document
+      db.parse(new ByteArrayInputStream(content.toByteArray()));
+      entries.put(e.getName(), new String(content.toByteArray(), "UTF-8"));
+    }
+
+    assertTrue(entries.containsKey("[Content_Types].xml"));
+    assertTrue(entries.containsKey("xl/workbook.xml"));
+    assertTrue(entries.containsKey("xl/styles.xml"));
+    assertFalse(entries.containsKey("xl/sharedStrings.xml"));
+
+    final String sheet = entries.get("xl/worksheets/sheet1.xml");
+
+    // Header with style, ids as inline strings, NaN cells skipped
+    assertTrue(sheet.contains("<c r=\"A1\" s=\"1\" t=\"inlineStr\">"));
+    assertTrue(sheet.contains("<c r=\"A2\" t=\"inlineStr\"><is>"
+        + "<t xml:space=\"preserve\">a</t></is></c>"));
+    assertTrue(sheet.contains("<c r=\"A3\" t=\"inlineStr\"><is>"
+        + "<t xml:space=\"preserve\">b&amp;&lt;c&gt;</t></is></c>"));
+    assertTrue(sheet.contains("<c r=\"B2\"><v>1.5</v></c>"));
+    assertTrue(sheet.contains("<c r=\"B4\"><v>-2</v></c>"));
+    assertTrue(sheet.contains("<c r=\"C3\"><v>2.0E-5</v></c>"));
+    assertFalse(sheet.contains("<c r=\"B3\""));
+
+    // The header is filled with ORANGE
+    assertTrue(entries.get("xl/styles.xml").contains("indexed=\"53\""));
+  }
+
+  public void testColumnRef() {
+
+    assertEquals("A",
+        BioAssayTabularWriterStreamingOOXMLBackend.getColumnRef(0));
+    assertEquals("Z",
+        BioAssayTabularWriterStreamingOOXMLBackend.getColumnRef(25));
+    assertEquals("AA",
+        BioAssayTabularWriterStreamingOOXMLBackend.getColumnRef(26));
+    assertEquals("AZ",
+        BioAssayTabularWriterStreamingOOXMLBackend.getColumnRef(51));
+    assertEquals("BA",
+        BioAssayTabularWriterStreamingOOXMLBackend.getColumnRef(52));
+    assertEquals("XFD",
+        BioAssayTabularWriterStreamingOOXMLBackend.getColumnRef(16383));
+  }
+
+}
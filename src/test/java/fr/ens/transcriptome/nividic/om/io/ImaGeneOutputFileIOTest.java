@@ -22,13 +22,16 @@
 
 package fr.ens.transcriptome.nividic.om.io;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 import fr.ens.transcriptome.nividic.om.BioAssay;
+import fr.ens.transcriptome.nividic.om.BioAssayRuntimeException;
 import fr.ens.transcriptome.nividic.om.BioAssayUtils;
 import fr.ens.transcriptome.nividic.util.NividicUtils;
 
@@ -124,4 +127,85 @@ public class ImaGeneOutputFileIOTest extends TestCase {
 
     tmpFile.delete();
   }
+
+  private static InputStream createImaGeneStream(final String[] ids,
+      final int[] signals) throws IOException {
+
+    final StringBuilder sb = new StringBuilder();
+    sb.append("Begin Header\n");
+    sb.append("\tVersion\t6.0\n");
+    sb.append("End Header\n");
+    sb.append("Begin Raw Data\n");
+    sb.append("Field\tMeta Row\tMeta Column\tRow\tColumn\tGene ID"
+        + "\tSignal Median\tFlag\n");
+
+    for (int i = 0; i < ids.length; i++)
+      sb.append("A\t1\t" + (i / 10 + 1) + "\t1\t" + (i % 10 + 1) + "\t"
+          + ids[i] + "\t" + signals[i] + "\t0\n");
+
+    sb.append("End Raw Data\n");
+
+    return new ByteArrayInputStream(sb.toString().getBytes("UTF-8"));
+  }
+
+  public void testConcurrentReading() throws NividicIOException, IOException {
+
+    final int n = 25;
+    final String[] ids = new String[n];
+    final int[] greens = new int[n];
+    final int[] reds = new int[n];
+
+    for (int i = 0; i < n; i++) {
+      ids[i] = "gene" + i;
+      greens[i] = 100 + i;
+      reds[i] = 1000 - i;
+    }
+
+    ImaGeneOutputFileReader sequential =
+        new ImaGeneOutputFileReader(createImaGeneStream(ids, greens),
+            createImaGeneStream(ids, reds));
+    BioAssay expected = sequential.read();
+
+    ImaGeneOutputFileReader concurrent =
+        new ImaGeneOutputFileReader(createImaGeneStream(ids, greens),
+            createImaGeneStream(ids, reds));
+    concurrent.setConcurrentReading(true);
+    assertTrue(concurrent.isConcurrentReading());
+    BioAssay ba = concurrent.read();
+
+    assertNull(ba.getArrayLayout());
+    assertTrue(Arrays.equals(ids, ba.getIds()));
+    assertTrue(Arrays.equals(expected.getIds(), ba.getIds()));
+    assertTrue(Arrays.equals(expected.getLocations(), ba.getLocations()));
+    assertTrue(Arrays.equals(greens, ba.getGreens()));
+    assertTrue(Arrays.equals(reds, ba.getReds()));
+    assertTrue(Arrays.equals(expected.getFlags(), ba.getFlags()));
+
+    // The layout is only shared on demand
+    concurrent =
+        new ImaGeneOutputFileReader(createImaGeneStream(ids, greens),
+            createImaGeneStream(ids, reds));
+    concurrent.setConcurrentReading(true);
+    concurrent.setArrayLayoutShared(true);
+    ba = concurrent.read();
+    assertNotNull(ba.getArrayLayout());
+    assertTrue(Arrays.equals(reds, ba.getReds()));
+
+    // Streams with different identifiers
+    final String[] otherIds = ids.clone();
+    otherIds[3] = "other";
+
+    concurrent =
+        new ImaGeneOutputFileReader(createImaGeneStream(ids, greens),
+            createImaGeneStream(otherIds, reds));
+    concurrent.setConcurrentReading(true);
+
+    try {
+      concurrent.read();
+      fail();
+    } catch (BioAssayRuntimeException e) {
+      assertTrue(true);
+    }
+  }
+
 }
@@ -0,0 +1,153 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+public class LineTokenizerTest extends TestCase {
+
+  public void testLines() throws IOException {
+
+    final LineTokenizer t =
+        new LineTokenizer(new StringReader("a\tb\r\nc\rd\n\ne\tf"), "\t",
+            true, false);
+
+    assertTrue(t.nextLine());
+    assertEquals(2, t.getFieldCount());
+    assertEquals("a", t.getString(0));
+    assertEquals("b", t.getString(1));
+    assertEquals("", t.getString(2));
+
+    assertTrue(t.nextLine());
+    assertEquals("c", t.getLine());
+    assertTrue(t.nextLine());
+    assertEquals("d", t.getLine());
+    assertTrue(t.nextLine());
+    assertEquals(0, t.getLineLength());
+    assertTrue(t.nextLine());
+    assertTrue(t.startsWith("e\t"));
+    assertFalse(t.startsWith("f"));
+    assertEquals("f", t.getString(1));
+    assertFalse(t.nextLine());
+  }
+
+  public void testFields() throws IOException {
+
+    final LineTokenizer t =
+        new LineTokenizer(new StringReader(" \"a b\" \t\t\"\tc\"\t"), "\t",
+            true, true);
+
+    assertTrue(t.nextLine());
+    assertEquals(5, t.getFieldCount());
+    assertEquals("a b", t.getString(0));
+    assertTrue(t.isEmpty(1));
+    assertEquals("", t.getString(2));
+    assertEquals("c", t.getString(3));
+    assertTrue(t.isEmpty(4));
+    assertTrue(t.isEmpty(5));
+  }
+
+  public void testLongLines() throws IOException {
+
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 50000; i++)
+      sb.append(i).append('\t');
+    sb.append("end\n");
+    final String line = sb.toString();
+
+    final LineTokenizer t =
+        new LineTokenizer(new StringReader(line + line), "\t", true, false);
+
+    for (int j = 0; j < 2; j++) {
+      assertTrue(t.nextLine());
+      assertEquals(50001, t.getFieldCount());
+      assertEquals("12345", t.getString(12345));
+      assertEquals("end", t.getString(50000));
+    }
+    assertFalse(t.nextLine());
+  }
+
+  public void testFieldsToProcess() throws IOException {
+
+    final LineTokenizer t =
+        new LineTokenizer(new StringReader(" a \t b \t c \td\t\t\n"
+            + "e\tf\n"), "\t", true, false);
+    t.setFieldsToProcess(new boolean[] {false, true, false});
+
+    assertTrue(t.nextLine());
+    assertEquals(2, t.getFieldCount());
+    assertEquals(" a ", t.getString(0));
+    assertEquals("b", t.getString(1));
+    assertEquals("", t.getString(2));
+    assertEquals(4, t.getSplitFieldCount());
+
+    assertTrue(t.nextLine());
+    assertEquals(2, t.getFieldCount());
+    assertEquals(2, t.getSplitFieldCount());
+
+    t.setFieldsToProcess(null);
+    assertFalse(t.nextLine());
+  }
+
+  public void testSplit() throws IOException {
+
+    final LineTokenizer t =
+        new LineTokenizer(new StringReader("h\r\na\r\nb\nc\rd\ne\n"), "\t",
+            true, false);
+
+    assertTrue(t.nextLine());
+    assertEquals("h", t.getString(0));
+
+    final LineTokenizer[] ranges = t.split(3, 1);
+    assertEquals(3, ranges.length);
+    assertFalse(t.nextLine());
+
+    final StringBuilder sb = new StringBuilder();
+
+    for (int i = 0; i < ranges.length; i++)
+      while (ranges[i].nextLine())
+        sb.append(ranges[i].getString(0));
+
+    assertEquals("abcde", sb.toString());
+
+    // Ranges are not smaller than the minimal size
+    final LineTokenizer t2 =
+        new LineTokenizer(new StringReader("a\nb\n"), "\t", true, false);
+    assertEquals(1, t2.split(4, 100).length);
+  }
+
+  public void testRegexSeparator() throws IOException {
+
+    final LineTokenizer t =
+        new LineTokenizer(new StringReader("a;;b;c"), ";+", true, false);
+
+    assertTrue(t.nextLine());
+    assertEquals(3, t.getFieldCount());
+    assertEquals("b", t.getString(1));
+    assertEquals("c", t.getString(2));
+  }
+
+}
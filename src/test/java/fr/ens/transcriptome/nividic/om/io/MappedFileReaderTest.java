@@ -0,0 +1,109 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.om.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import junit.framework.TestCase;
+import fr.ens.transcriptome.nividic.om.BioAssay;
+
+public class MappedFileReaderTest extends TestCase {
+
+  private static String read(final Reader reader, final int bufferSize)
+      throws IOException {
+
+    final StringBuilder sb = new StringBuilder();
+    final char[] buffer = new char[bufferSize];
+    int n;
+
+    while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+
+      // A read of a non empty buffer must return at least one char
+      assertTrue(n > 0);
+      sb.append(buffer, 0, n);
+    }
+
+    reader.close();
+
+    return sb.toString();
+  }
+
+  private static void check(final String s, final String encoding)
+      throws IOException {
+
+    final File f = File.createTempFile("nividic", ".txt");
+
+    try {
+      final FileOutputStream fos = new FileOutputStream(f);
+      fos.write(s.getBytes(encoding));
+      fos.close();
+
+      final String expected =
+          read(new InputStreamReader(new FileInputStream(f), encoding), 7);
+
+      assertEquals(expected, read(new MappedFileReader(f, encoding), 7));
+      assertEquals(expected, read(new MappedFileReader(f, encoding), 1));
+    } finally {
+      f.delete();
+    }
+  }
+
+  public void testRead() throws IOException {
+
+    check("ID\tName\n1\tA\n2\tB\n", "UTF-8");
+    check("ID\tName\n1\tA\n2\tB\n", "ISO-8859-1");
+    check("ID\tName\n1\t\u00e9cole\n2\tB\n", "ISO-8859-1");
+    check("ID\tName\n1\t\u00e9cole\n2\t\u4e2d\n", "UTF-8");
+    check("ID\tName\n1\t\uD83D\uDE00\n2\t\uD83D\uDE00B\n", "UTF-8");
+    check("", "UTF-8");
+  }
+
+  public void testSupportedEncodings() {
+
+    assertTrue(MappedFileReader.isSupportedEncoding("UTF-8"));
+    assertTrue(MappedFileReader.isSupportedEncoding("latin1"));
+    assertFalse(MappedFileReader.isSupportedEncoding("UTF-16"));
+    assertFalse(MappedFileReader.isSupportedEncoding(null));
+  }
+
+  public void testReadGPRFile() throws Exception {
+
+    final File f =
+        new File(this.getClass().getResource("/files/testGPR3.gpr").toURI());
+
+    final BioAssay a =
+        new GPRReader(this.getClass().getResourceAsStream(
+            "/files/testGPR3.gpr")).read();
+    final BioAssay b = new GPRReader(f).read();
+
+    assertEquals(a.size(), b.size());
+    assertTrue(java.util.Arrays.equals(a.getIds(), b.getIds()));
+    assertTrue(java.util.Arrays.equals(a.getReds(), b.getReds()));
+  }
+
+}
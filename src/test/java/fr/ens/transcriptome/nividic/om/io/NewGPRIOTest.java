@@ -22,6 +22,7 @@
 
 package fr.ens.transcriptome.nividic.om.io;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
@@ -31,6 +32,7 @@ import java.util.Arrays;
 import junit.framework.TestCase;
 import fr.ens.transcriptome.nividic.om.BioAssay;
 import fr.ens.transcriptome.nividic.om.BioAssayFactory;
+import fr.ens.transcriptome.nividic.om.BioAssayUtils;
 import fr.ens.transcriptome.nividic.util.NividicUtils;
 
 /**
@@ -100,6 +102,60 @@ public class NewGPRIOTest extends TestCase {
     }
   }
 
+  public void testWriteTypedCells() throws Exception {
+
+    BioAssay b = BioAssayFactory.createBioAssay();
+    b.setIds(new String[] {"a", null, "c"});
+    b.setDescriptions(new String[] {"desc a", "desc b", "desc c"});
+    b.setReds(new int[] {15, 0, -1});
+    b.setGreens(new int[] {100, 2, Integer.MAX_VALUE});
+    b.setMs(new double[] {1.5, Double.NaN, -0.001});
+    b.setAs(new double[] {100.0, 2.0E-5, 12345678.9});
+    b.setFlags(new int[] {0, -50, 100});
+    b.setLocations(new int[] {
+        BioAssayUtils.encodeLocation(1, 2, 3, 4),
+        BioAssayUtils.encodeLocation(1, 2, 3, 5),
+        BioAssayUtils.encodeLocation(2, 1, 1, 1)});
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    GPRWriter writer = new GPRWriter(os);
+    writer.addAllFieldsToWrite();
+    writer.write(b);
+
+    String[] lines = new String(os.toByteArray(), "UTF-8").split("\r\n");
+    assertEquals(3 + b.getAnnotation().size() + 3, lines.length);
+
+    // Compare with the values returned by getData()
+    for (int i = 0; i < 3; i++) {
+
+      final String[] cells =
+          lines[lines.length - 3 + i].split("\t", -1);
+      assertEquals(writer.getColumnCount(), cells.length);
+
+      for (int j = 0; j < cells.length; j++) {
+
+        String value = writer.getData(i, j);
+        if (value == null)
+          value = "";
+
+        final String expected;
+        switch (writer.getFieldType(j)) {
+        case BioAssay.DATATYPE_STRING:
+          expected = '"' + value + '"';
+          break;
+        case BioAssay.DATATYPE_DOUBLE:
+          expected = "NaN".equals(value) ? "Error" : value;
+          break;
+        default:
+          expected = value;
+          break;
+        }
+
+        assertEquals(expected, cells[j]);
+      }
+    }
+  }
+
   private void ReadWriteGAL() throws Exception {
 
     // get access to the test file
@@ -22,8 +22,14 @@
 
 package fr.ens.transcriptome.nividic.om.io;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 import fr.ens.transcriptome.nividic.om.BioAssay;
@@ -170,6 +176,319 @@ public class UniversalBioAssayReaderTest extends TestCase {
     }
     return null;
   }
-  
+
+  public void testCache() throws NividicIOException {
+
+    final BioAssayCache old = BioAssayCache.getDefaultCache();
+    final BioAssayCache cache = new BioAssayCache(Long.MAX_VALUE);
+    BioAssayCache.setDefaultCache(cache);
+
+    try {
+
+      InputStreamBioAssayReader bar =
+          new UniversalBioAssayReader(this.getClass().getResourceAsStream(
+              "/files/testGPR3.gpr"));
+      final BioAssay b1 = bar.read();
+      assertEquals(1, cache.size());
+      assertEquals(0, cache.getHits());
+
+      bar =
+          new UniversalBioAssayReader(this.getClass().getResourceAsStream(
+              "/files/testGPR3.gpr"));
+      final BioAssay b2 = bar.read();
+      assertEquals(1, cache.getHits());
+      assertNotSame(b1, b2);
+      assertEquals(b1.size(), b2.size());
+      assertEquals(b1.getFieldCount(), b2.getFieldCount());
+
+      final int[] r1 = b1.getReds();
+      final int[] r2 = b2.getReds();
+      assertNotSame(r1, r2);
+      for (int i = 0; i < r1.length; i++)
+        assertEquals(r1[i], r2[i], 0);
+
+      // Modifying a copy must not alter the cache
+      r2[0] = -1;
+      final int[] r3 =
+          new UniversalBioAssayReader(this.getClass().getResourceAsStream(
+              "/files/testGPR3.gpr")).read().getReds();
+      assertEquals(r1[0], r3[0], 0);
+      assertEquals(2, cache.getHits());
+
+      // Another projection is another entry
+      bar =
+          new UniversalBioAssayReader(this.getClass().getResourceAsStream(
+              "/files/testGPR3.gpr"));
+      bar.addFieldToRead("Log Ratio (532/635)");
+      bar.read();
+      assertEquals(2, cache.size());
+      assertEquals(2, cache.getHits());
+
+      // A small cache keep only the last entry
+      final BioAssayCache small =
+          new BioAssayCache(BioAssayCache.estimateBytes(b1) + 1);
+      small.put("a", b1);
+      small.put("b", b1);
+      assertEquals(1, small.size());
+      assertNull(small.get("a"));
+      assertNotNull(small.get("b"));
+
+    } finally {
+      BioAssayCache.setDefaultCache(old);
+    }
+  }
+
+  public void testCacheFile() throws NividicIOException, IOException {
+
+    assertNull(BioAssayCache.getDefaultCache());
+
+    final File file = File.createTempFile("nividic", ".gpr");
+    final File dir = file.getParentFile();
+    file.delete();
+
+    final BioAssayCache cache = new BioAssayCache(Long.MAX_VALUE);
+    BioAssayCache.setDefaultCache(cache);
+
+    try {
+
+      final File gpr = copyResource("/files/testGPR3.gpr", dir);
+      assertTrue(gpr.renameTo(file));
+
+      final BioAssay b1 = new UniversalBioAssayReader(file).read();
+      final BioAssay b2 = new UniversalBioAssayReader(file).read();
+      assertEquals(1, cache.size());
+      assertEquals(1, cache.getHits());
+      assertSameData(b1, b2);
+
+      // A modified file is another entry
+      assertTrue(file.setLastModified(file.lastModified() - 10000));
+      new UniversalBioAssayReader(file).read();
+      assertEquals(2, cache.size());
+      assertEquals(1, cache.getHits());
+
+    } finally {
+      BioAssayCache.setDefaultCache(null);
+      file.delete();
+    }
+  }
+
+  public void testReadRowsWithCache() throws NividicIOException {
+
+    final long[] bytes = new long[1];
+    final InputStream is =
+        new FilterInputStream(this.getClass().getResourceAsStream(
+            "/files/testGPR3.gpr")) {
+
+          public int read() throws IOException {
+
+            final int b = super.read();
+            if (b != -1)
+              bytes[0]++;
+            return b;
+          }
+
+          public int read(final byte[] b, final int off, final int len)
+              throws IOException {
+
+            final int count = super.read(b, off, len);
+            if (count > 0)
+              bytes[0] += count;
+            return count;
+          }
+        };
+
+    BioAssayCache.setDefaultCache(new BioAssayCache(Long.MAX_VALUE));
+
+    try {
+
+      final UniversalBioAssayReader reader = new UniversalBioAssayReader(is);
+      final long[] firstRow = new long[] {-1};
+
+      // The rows are read without reading the whole stream in memory
+      reader.read(new BioAssayRowHandler() {
+
+        public void start(final String[] fields, final int[] types,
+            final fr.ens.transcriptome.nividic.om.Annotation annotation) {
+        }
+
+        public boolean handleRow(final BioAssayRow row) {
+
+          if (firstRow[0] == -1)
+            firstRow[0] = bytes[0];
+          return false;
+        }
+
+        public void end() {
+        }
+      });
+
+      assertTrue(firstRow[0] > 0);
+      assertTrue(firstRow[0] < 1024 * 1024);
+
+    } finally {
+      BioAssayCache.setDefaultCache(null);
+    }
+  }
+
+  public void testFingerprint() throws IOException {
+
+    final byte[] data = "ATF\t1.0\n1\t2\n".getBytes();
+
+    final FingerprintInputStream fis =
+        new FingerprintInputStream(new java.io.ByteArrayInputStream(data));
+    assertEquals('A', fis.read());
+    assertEquals(0, fis.skip(0));
+    assertEquals(0, fis.skip(-1));
+    assertEquals(1, fis.getLength());
+    fis.readFully();
+
+    assertEquals(data.length, fis.getLength());
+    assertEquals(FingerprintInputStream.fingerprint(data, 0, data.length), fis
+        .getFingerprint());
+    assertEquals('T', fis.read());
+    assertEquals(data.length, fis.getLength());
+
+    data[3] = ' ';
+    assertFalse(fis.getFingerprint() == FingerprintInputStream.fingerprint(
+        data, 0, data.length));
+  }
+
+  private File copyResource(final String resource, final File dir)
+      throws IOException {
+
+    final File result = new File(dir, new File(resource).getName());
+    final InputStream is = this.getClass().getResourceAsStream(resource);
+    final OutputStream os = new FileOutputStream(result);
+
+    final byte[] buffer = new byte[4096];
+    int n;
+    while ((n = is.read(buffer)) != -1)
+      os.write(buffer, 0, n);
+
+    is.close();
+    os.close();
+
+    return result;
+  }
+
+  private static void assertSameData(final BioAssay a, final BioAssay b) {
+
+    final String[] fields = a.getFields();
+    assertEquals(fields.length, b.getFields().length);
+    assertEquals(a.size(), b.size());
+
+    for (int i = 0; i < fields.length; i++) {
+
+      final String f = fields[i];
+      assertEquals(a.getFieldType(f), b.getFieldType(f));
+
+      switch (a.getFieldType(f)) {
+      case BioAssay.DATATYPE_DOUBLE:
+        assertTrue(f, Arrays.equals(a.getDataFieldDouble(f), b
+            .getDataFieldDouble(f)));
+        break;
+      case BioAssay.DATATYPE_INTEGER:
+        assertTrue(f, Arrays.equals(a.getDataFieldInt(f), b
+            .getDataFieldInt(f)));
+        break;
+      default:
+        assertTrue(f, Arrays.equals(a.getDataFieldString(f), b
+            .getDataFieldString(f)));
+        break;
+      }
+    }
+  }
+
+  public void testSnapshotCache() throws NividicIOException, IOException {
+
+    final File dir = File.createTempFile("nividic", "");
+    dir.delete();
+    dir.mkdir();
+    final File cacheDir = new File(dir, "cache");
+
+    final BioAssaySnapshotCache old = BioAssaySnapshotCache.getDefaultCache();
+    final BioAssaySnapshotCache cache =
+        new BioAssaySnapshotCache(cacheDir, Long.MAX_VALUE);
+    BioAssaySnapshotCache.setDefaultCache(cache);
+
+    try {
+
+      final File file = copyResource("/files/testGPR3.gpr", dir);
+
+      final BioAssay b1 = new UniversalBioAssayReader(file).read();
+      assertEquals(0, cache.getHits());
+      assertEquals(1, cache.getMisses());
+
+      final File snapshot =
+          cache.getSnapshotFile(file, new UniversalBioAssayReader(file)
+              .getFieldProjection());
+      assertTrue(snapshot.isFile());
+
+      final BioAssay b2 = new UniversalBioAssayReader(file).read();
+      assertEquals(1, cache.getHits());
+      assertSameData(b1, b2);
+      assertEquals(b1.getAnnotation().size(), b2.getAnnotation().size());
+
+      // Storage options of the reader are applied to the snapshot
+      UniversalBioAssayReader bar = new UniversalBioAssayReader(file);
+      bar.setCompactIntFields(true);
+      final BioAssay b3 = bar.read();
+      assertEquals(1, cache.getHits());
+      bar = new UniversalBioAssayReader(file);
+      bar.setCompactIntFields(true);
+      final BioAssay b4 = bar.read();
+      assertEquals(2, cache.getHits());
+      assertEquals(b3.isDataFieldIntCompact(BioAssay.FIELD_NAME_RED), b4
+          .isDataFieldIntCompact(BioAssay.FIELD_NAME_RED));
+      assertSameData(b1, b4);
+
+      // A corrupted snapshot is ignored and replaced
+      final RandomAccessFile raf = new RandomAccessFile(snapshot, "rw");
+      raf.seek(raf.length() - 1);
+      final int last = raf.read();
+      raf.seek(raf.length() - 1);
+      raf.write(last ^ 0xff);
+      raf.close();
+
+      assertSameData(b1, new UniversalBioAssayReader(file).read());
+      assertEquals(2, cache.getHits());
+      assertSameData(b1, new UniversalBioAssayReader(file).read());
+      assertEquals(3, cache.getHits());
+
+      // A modified file is parsed again
+      file.setLastModified(file.lastModified() - 10000);
+      new UniversalBioAssayReader(file).read();
+      assertEquals(3, cache.getHits());
+
+      // A small cache directory keep no snapshot
+      final BioAssaySnapshotCache small =
+          new BioAssaySnapshotCache(cacheDir, 0);
+      assertTrue(small.put(file, "", b1));
+      assertFalse(small.getSnapshotFile(file, "").exists());
+      assertEquals(0, cacheDir.listFiles().length);
+
+      // Snapshots next to the files
+      final BioAssaySnapshotCache sidecar = new BioAssaySnapshotCache();
+      assertTrue(sidecar.put(file, "", b1));
+      assertEquals(dir, sidecar.getSnapshotFile(file, "").getParentFile());
+      assertSameData(b1, sidecar.get(file, ""));
+      assertNull(sidecar.get(file, "other"));
+
+    } finally {
+      BioAssaySnapshotCache.setDefaultCache(old);
+
+      final File[] files = cacheDir.listFiles();
+      if (files != null)
+        for (int i = 0; i < files.length; i++)
+          files[i].delete();
+      cacheDir.delete();
+
+      final File[] dirFiles = dir.listFiles();
+      if (dirFiles != null)
+        for (int i = 0; i < dirFiles.length; i++)
+          dirFiles[i].delete();
+      dir.delete();
+    }
+  }
 
 }
@@ -0,0 +1,121 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.util;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class NumberFormatterTest extends TestCase {
+
+  private static String format(final double value) {
+
+    final char[] b = new char[NumberFormatter.MAX_DOUBLE_LENGTH + 2];
+    b[0] = 'x';
+    final int end = NumberFormatter.formatDouble(value, b, 1);
+
+    return new String(b, 1, end - 1);
+  }
+
+  private static String format(final double value, final int precision) {
+
+    final char[] b = new char[NumberFormatter.MAX_DOUBLE_LENGTH];
+    final int end = NumberFormatter.formatDouble(value, precision, b, 0);
+
+    return new String(b, 0, end);
+  }
+
+  private static String formatInt(final int value) {
+
+    final char[] b = new char[NumberFormatter.MAX_INT_LENGTH];
+    final int end = NumberFormatter.formatInt(value, b, 0);
+
+    return new String(b, 0, end);
+  }
+
+  public void testFormatInt() {
+
+    assertEquals("0", formatInt(0));
+    assertEquals("7", formatInt(7));
+    assertEquals("-45", formatInt(-45));
+    assertEquals("1000000", formatInt(1000000));
+    assertEquals("2147483647", formatInt(Integer.MAX_VALUE));
+    assertEquals("-2147483648", formatInt(Integer.MIN_VALUE));
+  }
+
+  public void testFormatDouble() {
+
+    final double[] values =
+        {1.0, -1.0, 1.1, 2.2, 3.3, 0.1, 0.5, 123.456, -0.001, 0.001, 1234567.0,
+            9999999.5, 1e7, 1e-4, 1e22, 1.0 / 3.0, Math.PI, -Math.E,
+            Double.MAX_VALUE, Double.MIN_VALUE, 0.0, -0.0, Double.NaN,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    for (int i = 0; i < values.length; i++)
+      assertEquals(Double.toString(values[i]), format(values[i]));
+  }
+
+  public void testFormatDoubleRoundTrip() {
+
+    final Random random = new Random(12345);
+
+    for (int i = 0; i < 100000; i++) {
+
+      final double value;
+      switch (i % 3) {
+      case 0:
+        value = random.nextDouble();
+        break;
+      case 1:
+        value = (random.nextDouble() - 0.5) * 20000.0;
+        break;
+      default:
+        value = Double.longBitsToDouble(random.nextLong());
+        break;
+      }
+
+      final String s = format(value);
+
+      if (Double.isNaN(value))
+        assertEquals("NaN", s);
+      else
+        assertEquals(value, Double.parseDouble(s), 0.0);
+
+      assertTrue(s.length() <= Double.toString(value).length());
+    }
+  }
+
+  public void testFormatDoubleWithPrecision() {
+
+    assertEquals("1.5", format(1.5, 3));
+    assertEquals("1.0", format(1.0, 3));
+    assertEquals("0.333", format(1.0 / 3.0, 3));
+    assertEquals("-2.67", format(-2.666, 2));
+    assertEquals("3.0", format(2.9999, 3));
+    assertEquals("0.0", format(-0.0001, 2));
+    assertEquals("12.0", format(12.3, 0));
+    assertEquals("NaN", format(Double.NaN, 2));
+    assertEquals(Double.toString(1e300), format(1e300, 2));
+  }
+
+}
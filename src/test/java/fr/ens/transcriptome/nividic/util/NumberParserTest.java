@@ -0,0 +1,146 @@
+/*
+ *                      Nividic development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the microarray platform
+ * of the �cole Normale Sup�rieure and the individual authors.
+ * These should be listed in @author doc comments.
+ *
+ * For more information on the Nividic project and its aims,
+ * or to join the Nividic mailing list, visit the home page
+ * at:
+ *
+ *      http://www.transcriptome.ens.fr/nividic
+ *
+ */
+
+package fr.ens.transcriptome.nividic.util;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class NumberParserTest extends TestCase {
+
+  private static double parse(final String s, final boolean comma) {
+
+    final char[] chars = s.toCharArray();
+    final double result =
+        NumberParser.parseDouble(chars, 0, chars.length, comma);
+
+    final byte[] bytes = s.getBytes();
+    assertEquals(Double.doubleToLongBits(result), Double
+        .doubleToLongBits(NumberParser.parseDouble(bytes, 0, bytes.length,
+            comma)));
+
+    return result;
+  }
+
+  private static int parseInt(final String s) {
+
+    final char[] chars = s.toCharArray();
+    final int result = NumberParser.parseInt(chars, 0, chars.length, -1);
+
+    final byte[] bytes = s.getBytes();
+    assertEquals(result, NumberParser.parseInt(bytes, 0, bytes.length, -1));
+
+    return result;
+  }
+
+  public void testParseInt() {
+
+    assertEquals(0, parseInt("0"));
+    assertEquals(123, parseInt(" 123 "));
+    assertEquals(-45, parseInt("-45"));
+    assertEquals(45, parseInt("+45"));
+    assertEquals(Integer.MAX_VALUE, parseInt("2147483647"));
+    assertEquals(Integer.MIN_VALUE, parseInt("-2147483648"));
+    assertEquals(-1, parseInt("2147483648"));
+    assertEquals(-1, parseInt(""));
+    assertEquals(-1, parseInt("-"));
+    assertEquals(-1, parseInt("NA"));
+    assertEquals(-1, parseInt("1.5"));
+    assertEquals(-1, parseInt("99999999999999999999"));
+
+    final char[] chars = "a\t42\tb".toCharArray();
+    assertEquals(42, NumberParser.parseInt(chars, 2, 4, 0));
+  }
+
+  public void testParseDouble() {
+
+    assertEquals(1.5, parse("1.5", false), 0);
+    assertEquals(1.5, parse(" 1.5 ", false), 0);
+    assertEquals(-0.25, parse("-.25", false), 0);
+    assertEquals(3.0, parse("3.", false), 0);
+    assertEquals(1.5e10, parse("1.5E10", false), 0);
+    assertEquals(1.5e-300, parse("1.5e-300", false), 0);
+    assertEquals(2.0, parse("2d", false), 0);
+    assertEquals(16.0, parse("0x10p0", false), 0);
+    assertEquals(Double.POSITIVE_INFINITY, parse("Infinity", false), 0);
+    assertEquals(Double.NEGATIVE_INFINITY, parse("-Infinity", false), 0);
+    assertEquals(Double.doubleToLongBits(-0.0), Double
+        .doubleToLongBits(parse("-0", false)));
+
+    assertTrue(Double.isNaN(parse("", false)));
+    assertTrue(Double.isNaN(parse("NA", false)));
+    assertTrue(Double.isNaN(parse("NaN", false)));
+    assertTrue(Double.isNaN(parse("-", false)));
+    assertTrue(Double.isNaN(parse(".", false)));
+    assertTrue(Double.isNaN(parse("1e", false)));
+    assertTrue(Double.isNaN(parse("1.5.3", false)));
+    assertTrue(Double.isNaN(parse("Error", false)));
+
+    // Comma decimal separator
+    assertTrue(Double.isNaN(parse("1,5", false)));
+    assertEquals(1.5, parse("1,5", true), 0);
+    assertEquals(1.5, parse("1.5", true), 0);
+    assertTrue(Double.isNaN(parse("1,000.5", true)));
+  }
+
+  public void testCorrectRounding() {
+
+    final Random random = new Random(7);
+
+    for (int i = 0; i < 100000; i++) {
+
+      final String s;
+
+      switch (i % 4) {
+      case 0:
+        s = Double.toString(random.nextDouble() * 1000.0 - 500.0);
+        break;
+      case 1:
+        s = Double.toString(Double.longBitsToDouble(random.nextLong()));
+        break;
+      case 2:
+        s = random.nextInt(100000) + "." + random.nextInt(100000);
+        break;
+      default:
+        s =
+            (random.nextLong() % 10000000000000000L)
+                + "e" + (random.nextInt(80) - 40);
+        break;
+      }
+
+      final double expected = Double.parseDouble(s);
+      final double value = parse(s, false);
+
+      if (Double.isNaN(expected))
+        assertTrue(Double.isNaN(value));
+      else
+        assertEquals(s, Double.doubleToLongBits(expected), Double
+            .doubleToLongBits(value));
+
+      if (s.indexOf('.') != -1)
+        assertEquals(s, Double.doubleToLongBits(expected), Double
+            .doubleToLongBits(parse(s.replace('.', ','), true)));
+    }
+  }
+
+}